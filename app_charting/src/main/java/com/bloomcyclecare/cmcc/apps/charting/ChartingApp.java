@@ -32,6 +32,7 @@ import com.bloomcyclecare.cmcc.data.repos.pregnancy.RWPregnancyRepo;
 import com.bloomcyclecare.cmcc.data.repos.sticker.RWStickerSelectionRepo;
 import com.bloomcyclecare.cmcc.data.repos.sticker.StickerSelectionRepoFactory;
 import com.bloomcyclecare.cmcc.logic.PreferenceRepo;
+import com.bloomcyclecare.cmcc.logic.chart.RenderedChartRepo;
 import com.bloomcyclecare.cmcc.logic.chart.ObservationParser;
 import com.bloomcyclecare.cmcc.notifications.ChartingReceiver;
 import com.bloomcyclecare.cmcc.ui.showcase.ShowcaseManager;
@@ -55,6 +56,7 @@ import androidx.work.OneTimeWorkRequest;
 import androidx.work.WorkManager;
 import io.reactivex.BackpressureStrategy;
 import io.reactivex.Flowable;
+import io.reactivex.Single;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.CompositeDisposable;
 import io.reactivex.schedulers.Schedulers;
@@ -85,6 +87,7 @@ public class ChartingApp extends Application implements DataRepos, WorkerManager
   private PreferenceRepo mPreferenceRepo;
   private StickerSelectionRepoFactory mStickerSelectionRepoFactory;
   private ExerciseRepoFactory mExerciseRepoFactory;
+  private RenderedChartRepo mRenderedChartRepo;
 
   private WorkerManager mWorkerManager;
 
@@ -139,6 +142,8 @@ public class ChartingApp extends Application implements DataRepos, WorkerManager
     });
     mPregnancyRepoFactory = new PregnancyRepoFactory(db, mCycleRepoFactory, FALLBACK_VIEW_MODE);
     mPreferenceRepo = PreferenceRepo.create(this);
+    mRenderedChartRepo = new RenderedChartRepo(this, db.cycleStatsDao());
+    mDisposables.add(mRenderedChartRepo.invalidateStatsOnUpdates());
 
     mWorkerManager = WorkerManager.create(getApplicationContext());
 
@@ -221,6 +226,10 @@ public class ChartingApp extends Application implements DataRepos, WorkerManager
     return mPreferenceRepo;
   }
 
+  public RenderedChartRepo renderedChartRepo() {
+    return mRenderedChartRepo;
+  }
+
   @Override
   public RWPregnancyRepo pregnancyRepo(ViewMode viewMode) {
     return mPregnancyRepoFactory.forViewMode(viewMode);
@@ -250,11 +259,12 @@ public class ChartingApp extends Application implements DataRepos, WorkerManager
             .doOnNext(t -> Timber.v("New cycle update")) ,
         entryRepo(ViewMode.CHARTING).updateEvents()
             .observeOn(Schedulers.computation())
-            .flatMap(e -> cycleRepo(ViewMode.CHARTING)
-                .getCycleForDate(e.updateTarget).toSingle()
-                .map(cycle -> Range.closed(cycle.startDate, Optional.fromNullable(cycle.endDate).or(LocalDate.now())))
-                .map(range -> new UpdateTrigger(e.updateTime, range))
-                .toFlowable())
+            .flatMap(e -> Flowable.fromIterable(e.dateRanges)
+                .flatMapSingle(range -> Single.zip(
+                    cycleRangeForDate(range.lowerEndpoint()),
+                    cycleRangeForDate(range.upperEndpoint()),
+                    Range::span))
+                .map(range -> new UpdateTrigger(e.updateTime, range)))
             .doOnNext(t -> Timber.v("New entry update")),
         instructionsRepo(ViewMode.CHARTING).updateEvents()
             .observeOn(Schedulers.computation())
@@ -297,6 +307,14 @@ public class ChartingApp extends Application implements DataRepos, WorkerManager
         });
   }
 
+  private Single<Range<LocalDate>> cycleRangeForDate(LocalDate date) {
+    return cycleRepo(ViewMode.CHARTING)
+        .getCycleForDate(date)
+        .map(cycle -> Range.closed(cycle.startDate, Optional.fromNullable(cycle.endDate).or(LocalDate.now())))
+        .defaultIfEmpty(Range.singleton(date))
+        .toSingle();
+  }
+
   @Deprecated
   public RWPregnancyRepo pregnancyRepo() {
     return pregnancyRepo(ViewMode.CHARTING);
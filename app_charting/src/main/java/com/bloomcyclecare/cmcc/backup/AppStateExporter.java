@@ -8,22 +8,46 @@ import android.net.Uri;
 import com.bloomcyclecare.cmcc.apps.charting.ChartingApp;
 import com.bloomcyclecare.cmcc.ViewMode;
 import com.bloomcyclecare.cmcc.backup.models.AppState;
+import com.bloomcyclecare.cmcc.data.models.charting.ChartEntry;
+import com.bloomcyclecare.cmcc.data.models.charting.Cycle;
+import com.bloomcyclecare.cmcc.data.models.instructions.Instructions;
+import com.bloomcyclecare.cmcc.data.models.pregnancy.Pregnancy;
 import com.bloomcyclecare.cmcc.data.repos.cycle.ROCycleRepo;
 import com.bloomcyclecare.cmcc.data.repos.entry.ROChartEntryRepo;
 import com.bloomcyclecare.cmcc.data.repos.instructions.ROInstructionsRepo;
 import com.bloomcyclecare.cmcc.data.repos.pregnancy.ROPregnancyRepo;
 import com.bloomcyclecare.cmcc.data.utils.GsonUtil;
 import com.google.common.base.Charsets;
-import com.google.common.io.Files;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Range;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 
+import org.joda.time.LocalDate;
+
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 import androidx.core.app.ShareCompat;
 import androidx.core.content.FileProvider;
 
+import io.reactivex.Completable;
 import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
 
 public class AppStateExporter {
 
@@ -53,32 +77,223 @@ public class AppStateExporter {
             cycles, entries, null, instructions, pregnancies));
   }
 
+  /**
+   * Writes the app state to the given file, loading entries one cycle at a time so memory use
+   * doesn't grow with the length of the history. Emits the same properties as
+   * {@link AppState#properties()}.
+   */
+  public Single<Map<String, String>> exportTo(File file, boolean gzip) {
+    return exportWithoutEntries()
+        // Entries are loaded with blocking calls so keep them off of Room's executor
+        .observeOn(Schedulers.io())
+        .map(appState -> write(appState, file, gzip, true));
+  }
+
+  /**
+   * Writes a single cycle and its entries in the same format as {@link #exportTo(File, boolean)}.
+   */
+  public Completable exportCycleTo(Cycle cycle, File file) {
+    AppState appState = new AppState(
+        ImmutableList.of(cycle), ImmutableList.of(), null, ImmutableList.of(), ImmutableList.of());
+    return Completable.fromCallable(() -> write(appState, file, false, false))
+        .subscribeOn(Schedulers.io());
+  }
+
+  /**
+   * The cycles, instructions and pregnancies, which are small enough to hold in memory.
+   */
+  public Single<AppState> exportWithoutEntries() {
+    return Single.zip(
+        mCycleRepo.getStream().firstOrError(),
+        mInstructionsRepo.getAll().firstOrError(),
+        mPregnancyRepo.getAll().firstOrError(),
+        (cycles, instructions, pregnancies) -> new AppState(
+            cycles, ImmutableList.of(), null, instructions, pregnancies));
+  }
+
+  /**
+   * Hashes each cycle together with its entries, loading one cycle at a time. Blocks, so call it
+   * off of the main thread and Room's executor.
+   */
+  public Digest digest(AppState withoutEntries) {
+    Gson gson = GsonUtil.getGsonInstance();
+    AppState.PropertiesBuilder properties = new AppState.PropertiesBuilder();
+    ImmutableMap.Builder<LocalDate, String> cycleHashes = ImmutableMap.builder();
+    List<Cycle> cycles = sorted(withoutEntries.cycles);
+    for (Cycle cycle : cycles) {
+      properties.addCycle(cycle);
+      Hasher hasher = Hashing.murmur3_128().newHasher()
+          .putString(gson.toJson(cycle), Charsets.UTF_8);
+      for (ChartEntry entry : storedEntries(range(cycle))) {
+        hasher.putString(gson.toJson(entry), Charsets.UTF_8);
+        properties.addEntry(entry);
+      }
+      cycleHashes.put(cycle.startDate, hasher.hash().toString());
+    }
+    Hasher outsideCyclesHasher = Hashing.murmur3_128().newHasher();
+    for (Range<LocalDate> range : rangesOutsideCycles(cycles)) {
+      for (ChartEntry entry : storedEntries(range)) {
+        outsideCyclesHasher.putString(gson.toJson(entry), Charsets.UTF_8);
+        properties.addEntry(entry);
+      }
+    }
+    for (Instructions instructions : withoutEntries.instructions) {
+      properties.addInstructions(instructions);
+    }
+    String metadataHash = Hashing.murmur3_128()
+        .hashString(gson.toJson(withoutEntries), Charsets.UTF_8)
+        .toString();
+    return new Digest(
+        cycleHashes.build(), outsideCyclesHasher.hash().toString(), metadataHash, properties.build());
+  }
+
+  public static class Digest {
+    /** Keyed by cycle start date. */
+    public final ImmutableMap<LocalDate, String> cycleHashes;
+    /** Covers the entries which don't fall in any cycle. */
+    public final String outsideCyclesHash;
+    /** Covers the cycles, instructions and pregnancies but not the entries. */
+    public final String metadataHash;
+    /** Same as {@link AppState#properties()}. */
+    public final Map<String, String> properties;
+
+    Digest(ImmutableMap<LocalDate, String> cycleHashes, String outsideCyclesHash,
+           String metadataHash, Map<String, String> properties) {
+      this.cycleHashes = cycleHashes;
+      this.outsideCyclesHash = outsideCyclesHash;
+      this.metadataHash = metadataHash;
+      this.properties = properties;
+    }
+  }
+
   public Single<Intent> getShareIntent(Activity launchingActivity) {
-    return export()
-        .map(appState -> GsonUtil.getGsonInstance().toJson(appState))
-        .map(json -> {
-          Application application = launchingActivity.getApplication();
-          File path = new File(application.getFilesDir(), "tmp/");
-          if (!path.exists()) {
-            path.mkdir();
-          }
-          String date = new SimpleDateFormat("yyyyMMdd").format(new Date());
-          File file = new File(path, "cmcc_export_" + date + ".json");
-
-          Files.write(json, file, Charsets.UTF_8);
-
-          Uri uri = FileProvider.getUriForFile(
-              application, String.format("%s.fileprovider", application.getPackageName()), file);
-
-          Intent shareIntent = ShareCompat.IntentBuilder.from(launchingActivity)
-              .setSubject("CMCC Export")
-              .setEmailTo(null)
-              .setType("application/json")
-              .setStream(uri)
-              .getIntent();
-          shareIntent.setData(uri);
-          shareIntent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
-          return shareIntent;
-        });
+    return Single.defer(() -> {
+      Application application = launchingActivity.getApplication();
+      File path = new File(application.getFilesDir(), "tmp/");
+      if (!path.exists()) {
+        path.mkdir();
+      }
+      String date = new SimpleDateFormat("yyyyMMdd").format(new Date());
+      File file = new File(path, "cmcc_export_" + date + ".json");
+
+      return exportTo(file, false).map(properties -> {
+        Uri uri = FileProvider.getUriForFile(
+            application, String.format("%s.fileprovider", application.getPackageName()), file);
+
+        Intent shareIntent = ShareCompat.IntentBuilder.from(launchingActivity)
+            .setSubject("CMCC Export")
+            .setEmailTo(null)
+            .setType("application/json")
+            .setStream(uri)
+            .getIntent();
+        shareIntent.setData(uri);
+        shareIntent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        return shareIntent;
+      });
+    });
+  }
+
+  /**
+   * Entries outside of every cycle are only included in full exports, chunks for a single cycle
+   * leave them out.
+   */
+  private Map<String, String> write(
+      AppState appState, File file, boolean gzip, boolean includeEntriesOutsideCycles) throws IOException {
+    Gson gson = GsonUtil.getGsonInstance();
+    AppState.PropertiesBuilder properties = new AppState.PropertiesBuilder();
+    List<Cycle> cycles = sorted(appState.cycles);
+    List<Range<LocalDate>> entryRanges = new ArrayList<>();
+    for (Cycle cycle : cycles) {
+      entryRanges.add(range(cycle));
+    }
+    if (includeEntriesOutsideCycles) {
+      entryRanges.addAll(rangesOutsideCycles(cycles));
+    }
+    try (JsonWriter writer = gson.newJsonWriter(newWriter(file, gzip))) {
+      writer.beginObject();
+      writer.name("cycles").beginArray();
+      for (Cycle cycle : cycles) {
+        gson.toJson(cycle, Cycle.class, writer);
+        properties.addCycle(cycle);
+      }
+      writer.endArray();
+      writer.name("entries").beginArray();
+      for (Range<LocalDate> range : entryRanges) {
+        for (ChartEntry entry : storedEntries(range)) {
+          gson.toJson(entry, ChartEntry.class, writer);
+          properties.addEntry(entry);
+        }
+      }
+      writer.endArray();
+      writer.name("instructions").beginArray();
+      for (Instructions instructions : appState.instructions) {
+        gson.toJson(instructions, Instructions.class, writer);
+        properties.addInstructions(instructions);
+      }
+      writer.endArray();
+      writer.name("pregnancies").beginArray();
+      for (Pregnancy pregnancy : appState.pregnancies) {
+        gson.toJson(pregnancy, Pregnancy.class, writer);
+      }
+      writer.endArray();
+      writer.endObject();
+    }
+    return properties.build();
+  }
+
+  /**
+   * Every stored entry in the range, days without any data aren't exported.
+   */
+  private List<ChartEntry> storedEntries(Range<LocalDate> range) {
+    return mEntryRepo.getStoredBetween(
+        range.hasLowerBound() ? range.lowerEndpoint() : null,
+        range.hasUpperBound() ? range.upperEndpoint() : null).blockingGet();
+  }
+
+  /**
+   * The days a cycle's entries are exported for. The current cycle includes any entries for days
+   * after today.
+   */
+  static Range<LocalDate> range(Cycle cycle) {
+    return cycle.endDate == null
+        ? Range.atLeast(cycle.startDate) : Range.closed(cycle.startDate, cycle.endDate);
+  }
+
+  /**
+   * The days which aren't in any of the sorted cycles, e.g. before the first one, so that entries
+   * for them still make it into exports.
+   */
+  static List<Range<LocalDate>> rangesOutsideCycles(List<Cycle> sortedCycles) {
+    List<Range<LocalDate>> out = new ArrayList<>();
+    LocalDate nextUncovered = null;
+    for (Cycle cycle : sortedCycles) {
+      if (nextUncovered == null) {
+        out.add(Range.atMost(cycle.startDate.minusDays(1)));
+      } else if (nextUncovered.isBefore(cycle.startDate)) {
+        out.add(Range.closed(nextUncovered, cycle.startDate.minusDays(1)));
+      }
+      if (cycle.endDate == null) {
+        return out;
+      }
+      if (nextUncovered == null || cycle.endDate.plusDays(1).isAfter(nextUncovered)) {
+        nextUncovered = cycle.endDate.plusDays(1);
+      }
+    }
+    out.add(nextUncovered == null ? Range.all() : Range.atLeast(nextUncovered));
+    return out;
+  }
+
+  private static List<Cycle> sorted(List<Cycle> cycles) {
+    List<Cycle> out = new ArrayList<>(cycles);
+    Collections.sort(out);
+    return out;
+  }
+
+  private static OutputStreamWriter newWriter(File file, boolean gzip) throws IOException {
+    OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+    if (gzip) {
+      out = new GZIPOutputStream(out);
+    }
+    return new OutputStreamWriter(out, Charsets.UTF_8);
   }
 }
@@ -11,15 +11,22 @@ import com.bloomcyclecare.cmcc.data.repos.entry.RWChartEntryRepo;
 import com.bloomcyclecare.cmcc.data.repos.instructions.RWInstructionsRepo;
 import com.bloomcyclecare.cmcc.data.repos.pregnancy.RWPregnancyRepo;
 
+import org.joda.time.LocalDate;
+
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Predicate;
 
 import io.reactivex.Completable;
 import timber.log.Timber;
 
 public class AppStateImporter {
 
+  private static final int ENTRY_BATCH_SIZE = 500;
+
   private final RWCycleRepo mCycleRepo;
   private final RWChartEntryRepo mEntryRepo;
   private final RWInstructionsRepo mInstructionsRepo;
@@ -32,6 +39,77 @@ public class AppStateImporter {
     mPregnancyRepo = myApp.pregnancyRepo(ViewMode.CHARTING);
   }
 
+  /**
+   * Imports the app state as it is read from the stream, inserting entries in batches of
+   * {@link #ENTRY_BATCH_SIZE} rather than holding the full history in memory.
+   */
+  public Completable importFrom(Callable<InputStream> in) {
+    return Completable.defer(() -> {
+      EntryBatcher batcher = new EntryBatcher();
+      return AppStateParser
+          .parse(in, batcher::add)
+          .flatMapCompletable(appState -> batcher.flush().andThen(importAppState(appState)));
+    })
+        .doOnSubscribe(d -> mEntryRepo.beginBatchUpdates())
+        .doFinally(mEntryRepo::completeBatchUpdates);
+  }
+
+  /**
+   * Like {@link #importFrom(Callable)} but with the entries gathered from several files. Each
+   * source is read in order, keeping the entries which pass its filter. Everything other than the
+   * entries comes from {@code stateIn}.
+   */
+  public Completable importFrom(Callable<InputStream> stateIn, List<EntrySource> entrySources) {
+    return Completable.defer(() -> {
+      EntryBatcher batcher = new EntryBatcher();
+      List<Completable> actions = new ArrayList<>();
+      for (EntrySource source : entrySources) {
+        actions.add(AppStateParser
+            .parse(source.mIn, e -> {
+              if (source.mFilter.test(e.entryDate)) {
+                batcher.add(e);
+              }
+            })
+            .ignoreElement());
+      }
+      actions.add(Completable.defer(batcher::flush));
+      actions.add(AppStateParser.parse(stateIn).flatMapCompletable(this::importAppState));
+      return Completable.concat(actions);
+    })
+        .doOnSubscribe(d -> mEntryRepo.beginBatchUpdates())
+        .doFinally(mEntryRepo::completeBatchUpdates);
+  }
+
+  public static class EntrySource {
+    private final Callable<InputStream> mIn;
+    private final Predicate<LocalDate> mFilter;
+
+    public EntrySource(Callable<InputStream> in, Predicate<LocalDate> filter) {
+      mIn = in;
+      mFilter = filter;
+    }
+  }
+
+  private class EntryBatcher {
+    private final List<ChartEntry> mBatch = new ArrayList<>(ENTRY_BATCH_SIZE);
+
+    void add(ChartEntry entry) {
+      mBatch.add(entry);
+      if (mBatch.size() >= ENTRY_BATCH_SIZE) {
+        insertEntries(mBatch).blockingAwait();
+        mBatch.clear();
+      }
+    }
+
+    Completable flush() {
+      return insertEntries(new ArrayList<>(mBatch))
+          .doOnComplete(() -> {
+            mBatch.clear();
+            Timber.d("Done inserting entries");
+          });
+    }
+  }
+
   public Completable importAppState(AppState appState) {
     Timber.d("Setting up import");
     List<Completable> actions = new ArrayList<>();
@@ -54,17 +132,24 @@ public class AppStateImporter {
           c.startDate = previousCycle.endDate.plusDays(1);
         }
       }
-      actions.add(mCycleRepo.insertOrUpdate(c)
-          .doOnError(t -> Timber.d(t, "Error inserting cycle starting: %s", c.startDate)));
       previousCycle = c;
     }
-    for (ChartEntry e : appState.entries) {
-      actions.add(mEntryRepo.insert(e)
-          .doOnError(t -> Timber.d(t, "Error inserting entry: %s", e.entryDate)));
-    }
+    actions.add(mCycleRepo.insertOrUpdateAll(cycles)
+        .doOnComplete(() -> Timber.d("Done inserting cycles"))
+        .doOnError(t -> Timber.d(t, "Error inserting cycles")));
+    actions.add(insertEntries(appState.entries));
     return Completable.concat(actions)
         .doOnSubscribe(d -> Timber.d("Starting import"))
         .doOnError(t -> Timber.w("Error during import"))
         .doOnComplete(() -> Timber.d("Finished import"));
   }
+
+  private Completable insertEntries(List<ChartEntry> entries) {
+    if (entries.isEmpty()) {
+      return Completable.complete();
+    }
+    LocalDate firstDate = entries.get(0).entryDate;
+    return mEntryRepo.insertAll(entries)
+        .doOnError(t -> Timber.d(t, "Error inserting %d entries from %s", entries.size(), firstDate));
+  }
 }
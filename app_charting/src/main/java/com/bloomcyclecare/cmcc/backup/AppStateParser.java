@@ -1,28 +1,100 @@
 package com.bloomcyclecare.cmcc.backup;
 
 import com.bloomcyclecare.cmcc.backup.models.AppState;
+import com.bloomcyclecare.cmcc.data.models.charting.ChartEntry;
+import com.bloomcyclecare.cmcc.data.models.charting.Cycle;
+import com.bloomcyclecare.cmcc.data.models.instructions.Instructions;
+import com.bloomcyclecare.cmcc.data.models.pregnancy.Pregnancy;
 import com.bloomcyclecare.cmcc.data.utils.GsonUtil;
+import com.bloomcyclecare.cmcc.logic.profile.Profile;
+import com.google.common.base.Charsets;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.zip.GZIPInputStream;
 
 import io.reactivex.Single;
+import io.reactivex.functions.Consumer;
 
 public class AppStateParser {
 
   public static Single<AppState> parse(Callable<InputStream> in) {
+    return Single.defer(() -> {
+      List<ChartEntry> entries = new ArrayList<>();
+      return parse(in, entries::add).map(appState -> new AppState(
+          appState.cycles, entries, appState.profile, appState.instructions, appState.pregnancies));
+    });
+  }
+
+  /**
+   * Reads the app state without holding all of the entries in memory. Entries are handed to the
+   * consumer as they are read and the emitted {@link AppState} has none of its own.
+   *
+   * Both plain and gzipped JSON are accepted.
+   */
+  public static Single<AppState> parse(Callable<InputStream> in, Consumer<ChartEntry> entryConsumer) {
     return Single
         .fromCallable(in)
         .map(inputStream -> {
-          BufferedReader r = new BufferedReader(new InputStreamReader(inputStream));
-          StringBuilder total = new StringBuilder();
-          String line;
-          while ((line = r.readLine()) != null) {
-            total.append(line);
+          Gson gson = GsonUtil.getGsonInstance();
+          List<Cycle> cycles = new ArrayList<>();
+          List<Instructions> instructions = new ArrayList<>();
+          List<Pregnancy> pregnancies = new ArrayList<>();
+          Profile profile = null;
+          try (JsonReader reader = gson.newJsonReader(newReader(inputStream))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+              switch (reader.nextName()) {
+                case "cycles":
+                  readArray(gson, reader, Cycle.class, cycles::add);
+                  break;
+                case "entries":
+                  readArray(gson, reader, ChartEntry.class, entryConsumer);
+                  break;
+                case "profile":
+                  profile = gson.fromJson(reader, Profile.class);
+                  break;
+                case "instructions":
+                  readArray(gson, reader, Instructions.class, instructions::add);
+                  break;
+                case "pregnancies":
+                  readArray(gson, reader, Pregnancy.class, pregnancies::add);
+                  break;
+                default:
+                  reader.skipValue();
+              }
+            }
+            reader.endObject();
           }
-          return GsonUtil.getGsonInstance().fromJson(total.toString(), AppState.class);
+          return new AppState(cycles, new ArrayList<>(), profile, instructions, pregnancies);
         });
   }
+
+  private static <T> void readArray(
+      Gson gson, JsonReader reader, Class<T> clazz, Consumer<? super T> consumer) throws Exception {
+    reader.beginArray();
+    while (reader.hasNext()) {
+      consumer.accept(gson.fromJson(reader, clazz));
+    }
+    reader.endArray();
+  }
+
+  private static Reader newReader(InputStream inputStream) throws IOException {
+    BufferedInputStream in = new BufferedInputStream(inputStream);
+    in.mark(2);
+    int magic = in.read() | (in.read() << 8);
+    in.reset();
+    if (magic == GZIPInputStream.GZIP_MAGIC) {
+      return new InputStreamReader(new GZIPInputStream(in), Charsets.UTF_8);
+    }
+    return new InputStreamReader(in, Charsets.UTF_8);
+  }
 }
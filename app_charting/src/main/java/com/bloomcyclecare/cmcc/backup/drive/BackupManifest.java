@@ -0,0 +1,100 @@
+package com.bloomcyclecare.cmcc.backup.drive;
+
+import com.bloomcyclecare.cmcc.data.utils.GsonUtil;
+import com.bloomcyclecare.cmcc.utils.DateUtil;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Range;
+import com.google.common.io.Files;
+
+import org.joda.time.LocalDate;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import androidx.annotation.Nullable;
+import timber.log.Timber;
+
+/**
+ * Tracks what {@link IncrementalBackup} has uploaded to Drive. The snapshot and chunk fields are
+ * also written into the index file in Drive so that a restore can put the pieces back together.
+ */
+class BackupManifest {
+
+  String indexFileId;
+  String snapshotFileId;
+  String metadataHash;
+  /** Hash of each cycle in the snapshot, keyed by the cycle's start date. */
+  Map<String, String> snapshotHashes = new HashMap<>();
+  /** Hash of the snapshot's entries which aren't in any cycle, these never go in a chunk. */
+  String outsideCyclesHash;
+  /** Cycles uploaded since the snapshot, these take precedence over its entries. */
+  List<Chunk> chunks = new ArrayList<>();
+
+  static class Chunk {
+    String fileId;
+    LocalDate startDate;
+    @Nullable LocalDate endDate;
+    String hash;
+
+    Chunk(String fileId, LocalDate startDate, @Nullable LocalDate endDate, String hash) {
+      this.fileId = fileId;
+      this.startDate = startDate;
+      this.endDate = endDate;
+      this.hash = hash;
+    }
+
+    Range<LocalDate> dateRange() {
+      return endDate == null ? Range.atLeast(startDate) : Range.closed(startDate, endDate);
+    }
+  }
+
+  @Nullable
+  String hashFor(LocalDate cycleStart) {
+    Chunk chunk = chunkFor(cycleStart);
+    if (chunk != null) {
+      return chunk.hash;
+    }
+    return snapshotHashes.get(DateUtil.toWireStr(cycleStart));
+  }
+
+  @Nullable
+  Chunk chunkFor(LocalDate cycleStart) {
+    for (Chunk chunk : chunks) {
+      if (chunk.startDate.equals(cycleStart)) {
+        return chunk;
+      }
+    }
+    return null;
+  }
+
+  boolean inAnyChunk(LocalDate date) {
+    for (Chunk chunk : chunks) {
+      if (chunk.dateRange().contains(date)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Nullable
+  static BackupManifest load(File file) {
+    if (!file.exists()) {
+      return null;
+    }
+    try {
+      return GsonUtil.getGsonInstance().fromJson(
+          Files.asCharSource(file, Charsets.UTF_8).read(), BackupManifest.class);
+    } catch (IOException | RuntimeException e) {
+      Timber.w(e, "Ignoring unreadable backup manifest");
+      return null;
+    }
+  }
+
+  void save(File file) throws IOException {
+    Files.asCharSink(file, Charsets.UTF_8).write(GsonUtil.getGsonInstance().toJson(this));
+  }
+}
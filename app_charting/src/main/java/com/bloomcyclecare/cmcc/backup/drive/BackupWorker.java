@@ -4,12 +4,8 @@ import android.content.Context;
 
 import com.bloomcyclecare.cmcc.apps.charting.ChartingApp;
 import com.bloomcyclecare.cmcc.backup.AppStateExporter;
-import com.bloomcyclecare.cmcc.data.utils.GsonUtil;
 import com.bloomcyclecare.cmcc.utils.GoogleAuthHelper;
-import com.google.api.client.http.FileContent;
-import com.google.common.base.Charsets;
 import com.google.common.collect.Range;
-import com.google.common.io.Files;
 
 import org.joda.time.LocalDate;
 
@@ -27,7 +23,6 @@ public class BackupWorker extends RxWorker {
 
   public static final String BACKUP_DIRECTORY_NAME_IN_DRIVE = "My Charts";
   public static final String BACKUP_FILE_NAME_IN_DRIVE = "cmcc_backup.json";
-  private static final String LOCAL_BACKUP_FILE_NAME = "local_cmcc_backup.json";
 
   private final Context mContext;
   private final ChartingApp mApp;
@@ -49,32 +44,14 @@ public class BackupWorker extends RxWorker {
     Timber.d("Creating work");
     return GoogleAuthHelper.googleAccount(mContext)
         .map(account -> DriveServiceHelper.forAccount(account, mContext))
-        .flatMapSingle(driveService -> AppStateExporter.forApp(mApp).export()
-            .flatMapCompletable(appState -> {
-              String json = GsonUtil.getGsonInstance().toJson(appState);
-              Timber.v("Writing local file");
-              File path = new File(mContext.getFilesDir(), "backup/");
-              if (!path.exists()) {
-                path.mkdir();
-              }
-              File file = new File(path, LOCAL_BACKUP_FILE_NAME);
-              Files.write(json, file, Charsets.UTF_8);
-              return driveService
-                  .getOrCreateFolder(BACKUP_DIRECTORY_NAME_IN_DRIVE)
-                  .flatMap(folder -> {
-                    Timber.v("Uploading file to Drive");
-                    com.google.api.services.drive.model.File driveFile =
-                        new com.google.api.services.drive.model.File();
-                    driveFile.setName(BACKUP_FILE_NAME_IN_DRIVE);
-                    driveFile.setProperties(appState.properties());
-                    FileContent mediaContent = new FileContent("application/json", file);
-                    return driveService
-                        .deleteFileFromFolder(folder, BACKUP_FILE_NAME_IN_DRIVE)
-                        .andThen(Single.defer(() -> driveService.addFileToFolder(folder, driveFile, mediaContent)));
-                  })
-                  .doOnSuccess(driveFile -> file.delete())
-                  .ignoreElement();
-            })
-            .toSingleDefault(Result.success()));
+        .flatMapSingle(driveService -> {
+          File path = new File(mContext.getFilesDir(), "backup/");
+          if (!path.exists()) {
+            path.mkdir();
+          }
+          return new IncrementalBackup(driveService, AppStateExporter.forApp(mApp), path)
+              .run()
+              .toSingleDefault(Result.success());
+        });
   }
 }
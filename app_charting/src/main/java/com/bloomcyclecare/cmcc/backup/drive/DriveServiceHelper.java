@@ -129,6 +129,12 @@ public class DriveServiceHelper {
         ;
   }
 
+  public Completable deleteFile(String fileId) {
+    return Completable.fromAction(() -> mDrive.files().delete(fileId).execute())
+        .doOnComplete(() -> Timber.d("Deleted file %s", fileId))
+        .subscribeOn(Schedulers.io());
+  }
+
   public Single<File> addFileToFolder(@NonNull File folder, File fileMetadata, FileContent fileContent) {
     Timber.d("Adding file to %s", folder.getName());
     fileMetadata.setParents(ImmutableList.of(folder.getId()));
@@ -0,0 +1,286 @@
+package com.bloomcyclecare.cmcc.backup.drive;
+
+import com.bloomcyclecare.cmcc.backup.AppStateExporter;
+import com.bloomcyclecare.cmcc.backup.AppStateImporter;
+import com.bloomcyclecare.cmcc.backup.models.AppState;
+import com.bloomcyclecare.cmcc.data.models.charting.Cycle;
+import com.bloomcyclecare.cmcc.data.utils.GsonUtil;
+import com.bloomcyclecare.cmcc.utils.DateUtil;
+import com.google.api.client.http.FileContent;
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import org.joda.time.LocalDate;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import androidx.annotation.Nullable;
+import io.reactivex.Completable;
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+import timber.log.Timber;
+
+/**
+ * Backs up to Drive by uploading only the cycles which changed since the last run.
+ *
+ * Drive holds a full snapshot (the same file a non-incremental backup would write), one chunk
+ * file per cycle changed since the snapshot and an index. The index is in the same format as the
+ * snapshot minus the entries, plus the ids of the snapshot and chunks. Once there are too many
+ * chunks the next run uploads a fresh snapshot instead.
+ *
+ * New files are always uploaded before the index which references them, and old files are only
+ * deleted afterwards, so a failed run leaves the previous backup intact.
+ */
+public class IncrementalBackup {
+
+  public static final String INDEX_FILE_NAME = "cmcc_backup_index.json";
+  private static final String CHUNK_FILE_PREFIX = "cmcc_backup_chunk_";
+  private static final String MANIFEST_FILE_NAME = "backup_manifest.json";
+  private static final String MIME_TYPE = "application/json";
+  private static final int MAX_CHUNKS = 12;
+
+  private final DriveServiceHelper mDrive;
+  private final AppStateExporter mExporter;
+  private final File mLocalDir;
+
+  IncrementalBackup(DriveServiceHelper drive, AppStateExporter exporter, File localDir) {
+    mDrive = drive;
+    mExporter = exporter;
+    mLocalDir = localDir;
+  }
+
+  Completable run() {
+    return mExporter.exportWithoutEntries()
+        .flatMapCompletable(appState -> mDrive
+            .getOrCreateFolder(BackupWorker.BACKUP_DIRECTORY_NAME_IN_DRIVE)
+            // Everything below blocks on the repos and Drive
+            .observeOn(Schedulers.io())
+            .flatMapCompletable(folder -> Completable.fromAction(() -> run(folder, appState))));
+  }
+
+  private void run(com.google.api.services.drive.model.File folder, AppState appState) throws IOException {
+    AppStateExporter.Digest digest = mExporter.digest(appState);
+    File manifestFile = new File(mLocalDir, MANIFEST_FILE_NAME);
+    BackupManifest manifest = BackupManifest.load(manifestFile);
+    if (manifest != null && !existsInFolder(folder, INDEX_FILE_NAME, manifest.indexFileId)) {
+      Timber.w("Index from the last backup is missing");
+      manifest = null;
+    }
+
+    List<Cycle> changedCycles = new ArrayList<>();
+    for (Cycle cycle : appState.cycles) {
+      if (manifest == null || !digest.cycleHashes.get(cycle.startDate).equals(manifest.hashFor(cycle.startDate))) {
+        changedCycles.add(cycle);
+      }
+    }
+    if (manifest != null && changedCycles.isEmpty() && digest.metadataHash.equals(manifest.metadataHash)
+        && digest.outsideCyclesHash.equals(manifest.outsideCyclesHash)) {
+      Timber.d("Backup is up to date");
+      return;
+    }
+
+    List<String> obsoleteFileIds = new ArrayList<>();
+    BackupManifest next;
+    // Entries outside of the cycles only live in the snapshot so a change to them needs a new one
+    boolean compacting = manifest == null
+        || manifest.chunks.size() + changedCycles.size() > MAX_CHUNKS
+        || !digest.outsideCyclesHash.equals(manifest.outsideCyclesHash);
+    if (compacting) {
+      Timber.d("Uploading a new snapshot");
+      next = uploadSnapshot(folder, digest);
+      if (manifest != null) {
+        obsoleteFileIds.add(manifest.snapshotFileId);
+        for (BackupManifest.Chunk chunk : manifest.chunks) {
+          obsoleteFileIds.add(chunk.fileId);
+        }
+      }
+    } else {
+      Timber.d("Uploading %d changed cycles", changedCycles.size());
+      next = manifest;
+      Set<String> currentStarts = new HashSet<>();
+      for (Cycle cycle : appState.cycles) {
+        currentStarts.add(DateUtil.toWireStr(cycle.startDate));
+      }
+      for (BackupManifest.Chunk chunk : new ArrayList<>(next.chunks)) {
+        if (!currentStarts.contains(DateUtil.toWireStr(chunk.startDate))) {
+          next.chunks.remove(chunk);
+          obsoleteFileIds.add(chunk.fileId);
+        }
+      }
+      for (Cycle cycle : changedCycles) {
+        BackupManifest.Chunk previous = next.chunkFor(cycle.startDate);
+        if (previous != null) {
+          next.chunks.remove(previous);
+          obsoleteFileIds.add(previous.fileId);
+        }
+        next.chunks.add(uploadChunk(folder, cycle, digest.cycleHashes.get(cycle.startDate)));
+      }
+    }
+    next.metadataHash = digest.metadataHash;
+
+    String previousIndexId = manifest == null ? null : manifest.indexFileId;
+    next.indexFileId = uploadIndex(folder, appState, next, digest.properties);
+    next.save(manifestFile);
+
+    if (previousIndexId != null) {
+      obsoleteFileIds.add(previousIndexId);
+    }
+    if (compacting) {
+      obsoleteFileIds.addAll(strayFileIds(folder, next));
+    }
+    for (String fileId : obsoleteFileIds) {
+      mDrive.deleteFile(fileId)
+          .doOnError(t -> Timber.w(t, "Failed to clean up %s", fileId))
+          .onErrorComplete()
+          .blockingAwait();
+    }
+  }
+
+  private BackupManifest uploadSnapshot(
+      com.google.api.services.drive.model.File folder, AppStateExporter.Digest digest) {
+    File file = new File(mLocalDir, BackupWorker.BACKUP_FILE_NAME_IN_DRIVE);
+    Map<String, String> properties = mExporter.exportTo(file, false).blockingGet();
+    BackupManifest manifest = new BackupManifest();
+    manifest.snapshotFileId = upload(folder, file, BackupWorker.BACKUP_FILE_NAME_IN_DRIVE, properties);
+    manifest.outsideCyclesHash = digest.outsideCyclesHash;
+    manifest.snapshotHashes = new HashMap<>();
+    for (Map.Entry<LocalDate, String> e : digest.cycleHashes.entrySet()) {
+      manifest.snapshotHashes.put(DateUtil.toWireStr(e.getKey()), e.getValue());
+    }
+    return manifest;
+  }
+
+  private BackupManifest.Chunk uploadChunk(
+      com.google.api.services.drive.model.File folder, Cycle cycle, String hash) {
+    String name = CHUNK_FILE_PREFIX + DateUtil.toWireStr(cycle.startDate) + ".json";
+    File file = new File(mLocalDir, name);
+    mExporter.exportCycleTo(cycle, file).blockingAwait();
+    return new BackupManifest.Chunk(upload(folder, file, name, null), cycle.startDate, cycle.endDate, hash);
+  }
+
+  private String uploadIndex(
+      com.google.api.services.drive.model.File folder, AppState appState,
+      BackupManifest manifest, Map<String, String> properties) throws IOException {
+    Gson gson = GsonUtil.getGsonInstance();
+    JsonObject index = gson.toJsonTree(appState).getAsJsonObject();
+    index.addProperty("snapshotFileId", manifest.snapshotFileId);
+    index.add("chunks", gson.toJsonTree(manifest.chunks));
+    File file = new File(mLocalDir, INDEX_FILE_NAME);
+    Files.asCharSink(file, Charsets.UTF_8).write(gson.toJson(index));
+    return upload(folder, file, INDEX_FILE_NAME, properties);
+  }
+
+  private String upload(
+      com.google.api.services.drive.model.File folder, File file, String name,
+      @Nullable Map<String, String> properties) {
+    com.google.api.services.drive.model.File driveFile = new com.google.api.services.drive.model.File();
+    driveFile.setName(name);
+    driveFile.setProperties(properties);
+    String fileId = mDrive.addFileToFolder(folder, driveFile, new FileContent(MIME_TYPE, file))
+        .blockingGet()
+        .getId();
+    file.delete();
+    return fileId;
+  }
+
+  private boolean existsInFolder(
+      com.google.api.services.drive.model.File folder, String name, @Nullable String fileId) {
+    if (fileId == null) {
+      return false;
+    }
+    for (com.google.api.services.drive.model.File file : mDrive.getFilesInFolder(folder, name).blockingGet(new ArrayList<>())) {
+      if (file.getId().equals(fileId)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Backup files which the new manifest doesn't reference, e.g. from before incremental backups or
+   * from a manifest which was lost.
+   */
+  private List<String> strayFileIds(
+      com.google.api.services.drive.model.File folder, BackupManifest manifest) {
+    Set<String> referenced = new HashSet<>();
+    referenced.add(manifest.indexFileId);
+    referenced.add(manifest.snapshotFileId);
+    for (BackupManifest.Chunk chunk : manifest.chunks) {
+      referenced.add(chunk.fileId);
+    }
+    List<String> out = new ArrayList<>();
+    for (com.google.api.services.drive.model.File file : mDrive.getFilesInFolder(folder).toList().blockingGet()) {
+      String name = file.getName();
+      boolean isBackupFile = name.equals(INDEX_FILE_NAME)
+          || name.equals(BackupWorker.BACKUP_FILE_NAME_IN_DRIVE)
+          || name.startsWith(CHUNK_FILE_PREFIX);
+      if (isBackupFile && !referenced.contains(file.getId())) {
+        out.add(file.getId());
+      }
+    }
+    return out;
+  }
+
+  /**
+   * Restores from an index file: snapshot entries outside of the chunks' date ranges, then the
+   * entries from each chunk, then the cycles, instructions and pregnancies from the index itself.
+   */
+  public static Completable restore(
+      DriveServiceHelper drive, com.google.api.services.drive.model.File indexFile,
+      File cacheDir, AppStateImporter importer) {
+    List<File> localFiles = new ArrayList<>();
+    return Single
+        .fromCallable(() -> {
+          File localIndex = download(drive, indexFile.getId(), new File(cacheDir, INDEX_FILE_NAME));
+          localFiles.add(localIndex);
+          BackupManifest index = GsonUtil.getGsonInstance().fromJson(
+              Files.asCharSource(localIndex, Charsets.UTF_8).read(), BackupManifest.class);
+
+          List<AppStateImporter.EntrySource> sources = new ArrayList<>();
+          if (index.snapshotFileId != null) {
+            File snapshot = download(
+                drive, index.snapshotFileId, new File(cacheDir, BackupWorker.BACKUP_FILE_NAME_IN_DRIVE));
+            localFiles.add(snapshot);
+            sources.add(new AppStateImporter.EntrySource(
+                () -> new FileInputStream(snapshot), date -> !index.inAnyChunk(date)));
+          }
+          for (BackupManifest.Chunk chunk : index.chunks) {
+            File chunkFile = download(
+                drive, chunk.fileId, new File(cacheDir, CHUNK_FILE_PREFIX + DateUtil.toWireStr(chunk.startDate) + ".json"));
+            localFiles.add(chunkFile);
+            sources.add(new AppStateImporter.EntrySource(
+                () -> new FileInputStream(chunkFile), date -> true));
+          }
+          Timber.d("Restoring from snapshot and %d chunks", index.chunks.size());
+          return importer.importFrom(() -> new FileInputStream(localIndex), sources);
+        })
+        .subscribeOn(Schedulers.io())
+        .flatMapCompletable(importCompletable -> importCompletable)
+        .doFinally(() -> {
+          for (File file : localFiles) {
+            file.delete();
+          }
+        });
+  }
+
+  private static File download(DriveServiceHelper drive, String fileId, File out) throws IOException {
+    com.google.api.services.drive.model.File driveFile = new com.google.api.services.drive.model.File();
+    driveFile.setId(fileId);
+    try (OutputStream outputStream = new FileOutputStream(out)) {
+      drive.downloadFile(driveFile, outputStream).blockingGet();
+    }
+    return out;
+  }
+}
@@ -0,0 +1,68 @@
+package com.bloomcyclecare.cmcc.backup.drive;
+
+import com.bloomcyclecare.cmcc.data.utils.GsonUtil;
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import androidx.annotation.Nullable;
+import timber.log.Timber;
+
+/**
+ * Tracks which chart PDFs {@link PublishWorker} has uploaded to Drive, keyed by file name.
+ */
+class PublishManifest {
+
+  Map<String, Page> pages = new HashMap<>();
+
+  static class Page {
+    String fileId;
+    String contentHash;
+
+    Page(String fileId, String contentHash) {
+      this.fileId = fileId;
+      this.contentHash = contentHash;
+    }
+  }
+
+  /**
+   * Whether the PDF in Drive for the page is current, i.e. was rendered from the same content and
+   * hasn't been removed from the folder since.
+   */
+  boolean isPublished(String name, String contentHash, Set<String> fileIdsInDrive) {
+    Page page = pages.get(name);
+    return page != null && page.contentHash.equals(contentHash) && fileIdsInDrive.contains(page.fileId);
+  }
+
+  boolean references(String fileId) {
+    for (Page page : pages.values()) {
+      if (page.fileId.equals(fileId)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Nullable
+  static PublishManifest load(File file) {
+    if (!file.exists()) {
+      return null;
+    }
+    try {
+      return GsonUtil.getGsonInstance().fromJson(
+          Files.asCharSource(file, Charsets.UTF_8).read(), PublishManifest.class);
+    } catch (IOException | RuntimeException e) {
+      Timber.w(e, "Ignoring unreadable publish manifest");
+      return null;
+    }
+  }
+
+  void save(File file) throws IOException {
+    Files.asCharSink(file, Charsets.UTF_8).write(GsonUtil.getGsonInstance().toJson(this));
+  }
+}
@@ -4,27 +4,33 @@ import android.content.Context;
 
 import com.bloomcyclecare.cmcc.ViewMode;
 import com.bloomcyclecare.cmcc.apps.charting.ChartingApp;
-import com.bloomcyclecare.cmcc.data.repos.DataRepos;
-import com.bloomcyclecare.cmcc.logic.chart.CycleRenderer;
 import com.bloomcyclecare.cmcc.logic.print.ChartPrinter;
 import com.bloomcyclecare.cmcc.logic.print.PageRenderer;
 import com.bloomcyclecare.cmcc.utils.DateUtil;
 import com.bloomcyclecare.cmcc.utils.GoogleAuthHelper;
 import com.google.api.client.http.FileContent;
 import com.google.api.services.drive.model.File;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Range;
 
 import org.joda.time.LocalDate;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import androidx.annotation.NonNull;
 import androidx.work.Data;
 import androidx.work.OneTimeWorkRequest;
 import androidx.work.RxWorker;
 import androidx.work.WorkerParameters;
-import io.reactivex.Flowable;
-import io.reactivex.Observable;
+import io.reactivex.Completable;
 import io.reactivex.Single;
 import io.reactivex.schedulers.Schedulers;
 import timber.log.Timber;
@@ -32,6 +38,8 @@ import timber.log.Timber;
 
 public class PublishWorker extends RxWorker {
 
+  private static final String MANIFEST_FILE_NAME = "publish_manifest.json";
+
   private final Context mContext;
 
   private enum Params {
@@ -61,69 +69,105 @@ public class PublishWorker extends RxWorker {
   }
 
   private Single<ChartPrinter> chartPrinter() {
-    DataRepos dataRepos = DataRepos.fromApp(ChartingApp.getInstance());
-    return Single.merge(Single.zip(
-        dataRepos.instructionsRepo(ViewMode.CHARTING).getAll().firstOrError(),
-        dataRepos.cycleRepo(ViewMode.CHARTING).getStream().firstOrError(),
-        (instructions, cycles) -> Observable.fromIterable(cycles)
-            /*.filter(cycle -> {
-              int daysInCycle = Days.daysBetween(cycle.startDate, Optional.fromNullable(cycle.endDate).or(LocalDate.now())).getDays();
-              if (PageRenderer.numRows(daysInCycle) >= 6) {
-                Timber.w("Skipping long cycle");
-                return false;
-              }
-              return true;
-            })*/
-            .sorted((a, b) -> a.startDate.compareTo(b.startDate))
-            .flatMapSingle(cycle -> dataRepos.entryRepo(ViewMode.CHARTING)
-                .getStreamForCycle(Flowable.just(cycle))
-                .doOnSubscribe(d -> Timber.d("Fetching entries for cycle"))
-                .firstOrError()
-                .map(entries -> new CycleRenderer(cycle, Optional.empty(), entries, instructions)))
-            .toList()
-            .map(PageRenderer::new)
-            .map(pageRenderer -> new ChartPrinter(pageRenderer, null, mContext))));
+    return ChartingApp.getInstance().renderedChartRepo()
+        .renderedCycles(ViewMode.CHARTING)
+        .firstOrError()
+        .map(renderedCycles -> PageRenderer.forRenderableCycles(ImmutableList.copyOf(renderedCycles.values())))
+        .map(pageRenderer -> new ChartPrinter(pageRenderer, null, mContext));
   }
 
   @NonNull
   @Override
   public Single<Result> createWork() {
+    // The range of updated dates is only logged. A change to one day can move page breaks or
+    // instructions for later cycles, so changed pages are found by content hash in publish().
     Timber.i("Doing work from %s to %s",
         getInputData().getString(Params.START_DATE.name()),
         getInputData().getString(Params.END_DATE.name()));
 
-    // TODO: incremental updates
     // TODO: cache drive service
 
     return GoogleAuthHelper.googleAccount(mContext)
         .map(account -> DriveServiceHelper.forAccount(account, mContext))
         .flatMapSingle(driveService -> chartPrinter()
-            .doOnSuccess(p -> Timber.d("Saving PDFs"))
-            .flatMap(ChartPrinter::savePDFs)
-            .observeOn(Schedulers.io())
-            .doOnSuccess(charts -> Timber.d("Uploading PDFs to Drive"))
-            .flatMap(savedCharts -> {
-              if (savedCharts.isEmpty()) {
-                Timber.d("No charts to upload, bailing out");
-                return Single.just(Result.success());
-              }
-              return driveService.getOrCreateFolder("My Charts")
-                  .flatMap(folder -> driveService.clearFolder(folder, "pdf")
-                      .andThen(Observable.fromIterable(savedCharts)
-                          .flatMap(savedChart -> {
-                            File file = new File();
-                            file.setName(String.format("chart_starting_%s.pdf", DateUtil.toFileStr(savedChart.firstCycle.startDate)));
-                            FileContent mediaContent = new FileContent("application/pdf", savedChart.file);
-                            return driveService
-                                .addFileToFolder(folder, file, mediaContent)
-                                .doOnSuccess(f -> savedChart.file.delete())
-                                .toObservable();
-                          })
-                          .sorted((f1, f2) -> f1.getName().compareTo(f2.getName()))
-                          .toList()))
-                  .map(files -> Result.success());
-            })
+            .flatMap(printer -> printer.renderPages()
+                .flatMap(pages -> driveService.getOrCreateFolder(DriveServiceHelper.FOLDER_NAME_MY_CHARTS)
+                    .observeOn(Schedulers.io())
+                    .flatMapCompletable(folder -> Completable.fromAction(
+                        () -> publish(driveService, folder, printer, pages)))
+                    .toSingleDefault(Result.success())))
             .doOnError(t -> Timber.w(t, "Problem with pubish"))
             .subscribeOn(Schedulers.computation()));
   }
+
+  /**
+   * Saves and uploads only the pages whose content changed since they were last published. PDFs
+   * for pages which no longer exist are removed once the new ones are in place.
+   */
+  private void publish(DriveServiceHelper driveService, File folder, ChartPrinter printer,
+                       List<PageRenderer.RenderedPage> pages) throws IOException {
+    java.io.File manifestFile = new java.io.File(mContext.getFilesDir(), MANIFEST_FILE_NAME);
+    PublishManifest previous = Optional.ofNullable(PublishManifest.load(manifestFile))
+        .orElseGet(PublishManifest::new);
+    Set<String> pdfIdsInDrive = new HashSet<>();
+    for (File file : driveService.getFilesInFolder(folder).toList().blockingGet()) {
+      if (file.getName().endsWith(".pdf")) {
+        pdfIdsInDrive.add(file.getId());
+      }
+    }
+
+    PublishManifest next = new PublishManifest();
+    // By page rather than by hash since pages with the same content still need their own names
+    Map<PageRenderer.RenderedPage, String> namesByPage = new IdentityHashMap<>();
+    Set<String> takenNames = new HashSet<>();
+    List<PageRenderer.RenderedPage> changedPages = new ArrayList<>();
+    for (PageRenderer.RenderedPage page : pages) {
+      String name = fileName(page, takenNames);
+      takenNames.add(name);
+      namesByPage.put(page, name);
+      if (previous.isPublished(name, page.contentHash(), pdfIdsInDrive)) {
+        next.pages.put(name, previous.pages.get(name));
+      } else {
+        changedPages.add(page);
+      }
+    }
+    if (changedPages.isEmpty() && next.pages.size() == pdfIdsInDrive.size()) {
+      Timber.d("Published charts are up to date");
+      return;
+    }
+
+    Timber.d("Saving %d of %d pages", changedPages.size(), pages.size());
+    List<ChartPrinter.SavedChart> savedCharts = changedPages.isEmpty()
+        ? new ArrayList<>() : printer.savePDFs(changedPages).blockingGet();
+    Timber.d("Uploading PDFs to Drive");
+    for (ChartPrinter.SavedChart savedChart : savedCharts) {
+      String name = namesByPage.get(savedChart.page);
+      File file = new File();
+      file.setName(name);
+      FileContent mediaContent = new FileContent("application/pdf", savedChart.file);
+      File uploaded = driveService.addFileToFolder(folder, file, mediaContent).blockingGet();
+      savedChart.file.delete();
+      next.pages.put(name, new PublishManifest.Page(uploaded.getId(), savedChart.contentHash));
+    }
+    next.save(manifestFile);
+
+    for (String fileId : pdfIdsInDrive) {
+      if (!next.references(fileId)) {
+        driveService.deleteFile(fileId)
+            .doOnError(t -> Timber.w(t, "Failed to remove old chart %s", fileId))
+            .onErrorComplete()
+            .blockingAwait();
+      }
+    }
+  }
+
+  private static String fileName(PageRenderer.RenderedPage page, Collection<String> takenNames) {
+    // Cycles longer than a page span several of them, number the rest to keep the names unique
+    String base = String.format("chart_starting_%s", DateUtil.toFileStr(page.firstCycle().startDate));
+    String name = base + ".pdf";
+    for (int i = 2; takenNames.contains(name); i++) {
+      name = String.format("%s_%d.pdf", base, i);
+    }
+    return name;
+  }
 }
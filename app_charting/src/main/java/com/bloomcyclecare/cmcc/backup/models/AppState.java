@@ -41,27 +41,57 @@ public class AppState {
   }
 
   public Map<String, String> properties() {
-    ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
-    int numEntries = 0;
-    LocalDate lastEntry = null;
+    PropertiesBuilder builder = new PropertiesBuilder();
+    for (Cycle cycle : cycles) {
+      builder.addCycle(cycle);
+    }
     for (ChartEntry entry : entries) {
-      numEntries++;
+      builder.addEntry(entry);
+    }
+    for (Instructions i : instructions) {
+      builder.addInstructions(i);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Accumulates {@link #properties()} one item at a time, for when the state is streamed rather
+   * than held in memory.
+   */
+  public static class PropertiesBuilder {
+    private int mNumCycles = 0;
+    private int mNumEntries = 0;
+    private LocalDate mLastEntry = null;
+    private int mNumInstructions = 0;
+    private LocalDate mLastInstructionStart = null;
+
+    public void addCycle(Cycle cycle) {
+      mNumCycles++;
+    }
+
+    public void addEntry(ChartEntry entry) {
+      mNumEntries++;
       if (entry.observationEntry.hasObservation() && (
-          lastEntry == null || entry.entryDate.isAfter(lastEntry))) {
-        lastEntry = entry.entryDate;
+          mLastEntry == null || entry.entryDate.isAfter(mLastEntry))) {
+        mLastEntry = entry.entryDate;
       }
     }
-    LocalDate lastInstructionStart = null;
-    for (Instructions i : instructions) {
-      if (lastInstructionStart == null || i.startDate.isAfter(lastInstructionStart)) {
-        lastInstructionStart = i.startDate;
+
+    public void addInstructions(Instructions instructions) {
+      mNumInstructions++;
+      if (mLastInstructionStart == null || instructions.startDate.isAfter(mLastInstructionStart)) {
+        mLastInstructionStart = instructions.startDate;
       }
     }
-    builder.put(Property.NUM_CYCLES.name(), String.valueOf(cycles.size()));
-    builder.put(Property.NUM_ENTRIES.name(), String.valueOf(numEntries));
-    builder.put(Property.LAST_ENTRY.name(), DateUtil.toWireStr(lastEntry));
-    builder.put(Property.NUM_INSTRUCTIONS.name(), String.valueOf(instructions.size()));
-    builder.put(Property.LAST_INSTRUCTION_START.name(), DateUtil.toWireStr(lastInstructionStart));
-    return builder.build();
+
+    public Map<String, String> build() {
+      ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+      builder.put(Property.NUM_CYCLES.name(), String.valueOf(mNumCycles));
+      builder.put(Property.NUM_ENTRIES.name(), String.valueOf(mNumEntries));
+      builder.put(Property.LAST_ENTRY.name(), DateUtil.toWireStr(mLastEntry));
+      builder.put(Property.NUM_INSTRUCTIONS.name(), String.valueOf(mNumInstructions));
+      builder.put(Property.LAST_INSTRUCTION_START.name(), DateUtil.toWireStr(mLastInstructionStart));
+      return builder.build();
+    }
   }
 }
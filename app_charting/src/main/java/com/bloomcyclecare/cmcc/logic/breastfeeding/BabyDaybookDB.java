@@ -7,20 +7,16 @@ import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
 import android.text.TextUtils;
 
-import com.google.common.collect.ImmutableList;
-
-import org.joda.time.DateTime;
-import org.joda.time.DateTimeZone;
-import org.joda.time.Interval;
+import org.joda.time.DateTimeConstants;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Collections;
-import java.util.List;
-import java.util.Objects;
 
+import androidx.annotation.VisibleForTesting;
+import io.reactivex.Completable;
 import io.reactivex.Maybe;
 import io.reactivex.Single;
 import timber.log.Timber;
@@ -31,46 +27,57 @@ public class BabyDaybookDB {
 
   private final SQLiteDatabase mDB;
 
-  private BabyDaybookDB(SQLiteDatabase db) {
+  @VisibleForTesting
+  BabyDaybookDB(SQLiteDatabase db) {
     mDB = db;
   }
 
-  public Single<List<ActionInterval>> actionIntervals(String babyName, String... types) {
+  /**
+   * Streams the start and end of every action of the given types which started at or after
+   * sinceMillis to the consumer, ordered by start time.
+   */
+  public Completable forEachAction(
+      String babyName, long sinceMillis, ActionConsumer consumer, String... types) {
     return babyId(babyName).toSingle()
-        .flatMap(babyUID -> actionIntervalsForBabyID(babyUID, types));
+        .flatMapCompletable(babyUID -> forEachActionForBabyID(babyUID, sinceMillis, consumer, types));
   }
 
-  private Single<ImmutableList<ActionInterval>> actionIntervalsForBabyID(String babyID, String... types) {
-    return Single.create(emitter -> {
+  private Completable forEachActionForBabyID(
+      String babyID, long sinceMillis, ActionConsumer consumer, String... types) {
+    return Completable.fromAction(() -> {
       String inClause = TextUtils.join(",", Collections.nCopies(types.length, "?"));
-      String[] args = new String[types.length + 1];
+      String[] args = new String[types.length + 2];
       System.arraycopy(types, 0, args, 0, types.length);
-      args[args.length - 1] = babyID;
-      Cursor c = mDB.rawQuery("SELECT start_millis, end_millis, type FROM daily_actions WHERE type IN (" + inClause + ") AND baby_uid=? ORDER BY start_millis", args, null);
-
-      ImmutableList.Builder<ActionInterval> out = ImmutableList.builder();
-      while (c.moveToNext()) {
-        DateTime start = new DateTime(c.getLong(0), DateTimeZone.getDefault());
-        String type = c.getString(2);
-        DateTime end;
-        long endMillis = c.getLong(1);
-        if (endMillis > 0) {
-          end = new DateTime(endMillis, DateTimeZone.getDefault());
-        } else if (type.equals("pump")){
-          end = start.plusMinutes(1);
-        } else {
-          Timber.w("Skipping entry missing end time {type: %s, start: %s}", type, start);
-          continue;
-        }
-        if (start.isAfter(end)) {
-          Timber.w("Skipping malformed interval start (%s) end (%s)", start, end);
-          continue;
+      args[args.length - 2] = babyID;
+      args[args.length - 1] = String.valueOf(sinceMillis);
+      // Arguments are bound as text, the cast keeps the comparison numeric whatever the column's affinity
+      Cursor c = mDB.rawQuery("SELECT start_millis, end_millis, type FROM daily_actions WHERE type IN (" + inClause + ") AND baby_uid=? AND start_millis>=CAST(? AS INTEGER) ORDER BY start_millis", args, null);
+
+      int numActions = 0;
+      try {
+        while (c.moveToNext()) {
+          long startMillis = c.getLong(0);
+          String type = c.getString(2);
+          long endMillis = c.getLong(1);
+          if (endMillis <= 0) {
+            if (type.equals("pump")) {
+              endMillis = startMillis + DateTimeConstants.MILLIS_PER_MINUTE;
+            } else {
+              Timber.w("Skipping entry missing end time {type: %s, start: %d}", type, startMillis);
+              continue;
+            }
+          }
+          if (startMillis > endMillis) {
+            Timber.w("Skipping malformed interval start (%d) end (%d)", startMillis, endMillis);
+            continue;
+          }
+          consumer.accept(startMillis, endMillis);
+          numActions++;
         }
-        out.add(new ActionInterval(type, new Interval(start, end)));
+      } finally {
+        c.close();
       }
-      ImmutableList<ActionInterval> is = out.build();
-      Timber.v("Found %d entries for %s", is.size(), babyID);
-      emitter.onSuccess(is);
+      Timber.v("Found %d entries for %s", numActions, babyID);
     });
   }
 
@@ -127,40 +134,7 @@ public class BabyDaybookDB {
     }
  }
 
- public static class ActionInterval implements Comparable<ActionInterval> {
-   public final String type;
-   public final Interval interval;
-
-   public ActionInterval(String type, Interval interval) {
-     this.type = type;
-     this.interval = interval;
-   }
-
-   @Override
-   public String toString() {
-     return "ActionInterval{" +
-         "type='" + type + '\'' +
-         ", interval=" + interval +
-         '}';
-   }
-
-   @Override
-   public boolean equals(Object o) {
-     if (this == o) return true;
-     if (o == null || getClass() != o.getClass()) return false;
-     ActionInterval that = (ActionInterval) o;
-     return type.equals(that.type) &&
-         interval.equals(that.interval);
-   }
-
-   @Override
-   public int hashCode() {
-     return Objects.hash(type, interval);
-   }
-
-   @Override
-   public int compareTo(ActionInterval that) {
-     return this.interval.getStart().compareTo(that.interval.getStart());
-   }
+ public interface ActionConsumer {
+   void accept(long startMillis, long endMillis);
  }
 }
@@ -1,6 +1,5 @@
 package com.bloomcyclecare.cmcc.logic.breastfeeding;
 
-import android.util.Pair;
 import android.util.Range;
 
 import com.bloomcyclecare.cmcc.data.models.breastfeeding.BreastfeedingEntry;
@@ -8,26 +7,19 @@ import com.bloomcyclecare.cmcc.data.models.charting.ChartEntry;
 import com.bloomcyclecare.cmcc.data.models.pregnancy.Pregnancy;
 import com.bloomcyclecare.cmcc.data.repos.entry.ROChartEntryRepo;
 import com.bloomcyclecare.cmcc.data.repos.pregnancy.ROPregnancyRepo;
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSortedMap;
-import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.math.Quantiles;
 
+import org.joda.time.DateTimeZone;
 import org.joda.time.Duration;
-import org.joda.time.Interval;
 import org.joda.time.LocalDate;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
-import io.reactivex.Observable;
 import io.reactivex.Single;
-import timber.log.Timber;
 
 public class BreastfeedingStats {
 
@@ -140,10 +132,6 @@ public class BreastfeedingStats {
     public final int nNight;
     public final Duration longestGapDuration;
 
-    public DailyStats(LocalDate day, ImmutableSortedSet<Interval> gaps, int nDay, int nNight) {
-      this(day, new Duration(gaps.last().getStart(), gaps.last().getEnd()), nDay, nNight);
-    }
-
     public DailyStats(BreastfeedingEntry entry) {
       this(entry.mEntryDate, entry.maxGapBetweenFeedings, entry.numDayFeedings, entry.numNightFeedings);
     }
@@ -195,126 +183,18 @@ public class BreastfeedingStats {
   }
 
   public Single<ImmutableSortedMap<LocalDate, DailyStats>> dailyStatsFromBabyDaybook(String babyName) {
-    return indexByDay(mDB.actionIntervals(babyName, "breastfeeding", "pump"), true, MIN_GAP)
-        .flatMap(m -> Observable.fromIterable(m.entrySet())
-            .map(e -> {
-              int nDay = 0, nNight = 0;
-              for (BabyDaybookDB.ActionInterval ai : e.getValue()) {
-                int startHour = ai.interval.getStart().getHourOfDay();
-                if (startHour < 8 || startHour > 21) {
-                  nNight++;
-                } else {
-                  nDay++;
-                }
-              }
-              ImmutableSortedSet<Interval> gaps = getGaps(e.getValue());
-              return new DailyStats(e.getKey(), gaps, nDay, nNight);
-            })
-            .collectInto(ImmutableSortedMap.<LocalDate, DailyStats>naturalOrder(), (b, s) -> b.put(s.day, s))
-            .map(ImmutableSortedMap.Builder::build));
-  }
-
-  private static Single<ImmutableMap<LocalDate, ImmutableSortedSet<BabyDaybookDB.ActionInterval>>> indexByDay(
-      Single<List<BabyDaybookDB.ActionInterval>> actions, boolean includeOverlaps, Duration minGap) {
-    return actions
-        // Merge adjacent intervals with < minGap
-        .map(intervals -> mergeAdjacent(intervals, minGap))
-        .flatMap(startTimes -> Observable.fromIterable(startTimes)
-            .groupBy(ai -> new LocalDate(ai.interval.getStart()))
-            // Flatten group into (day, [intervals])
-            .flatMap(group -> group
-                .sorted()
-                .collectInto(new LinkedList<BabyDaybookDB.ActionInterval>(), LinkedList::add)
-                .map(is -> Pair.create(group.getKey(), is))
-                .toObservable()
-            )
-            // Add pairs to the index builder
-            .collectInto(
-                new HashMap<LocalDate, LinkedList<BabyDaybookDB.ActionInterval>>(),
-                (b, p) -> b.put(p.first, p.second)))
-        .map(index -> {
-          if (!includeOverlaps) {
-            return index;
-          }
-          return addOverlaps(index);
-        })
-        // Finalize the index
-        .map(index -> {
-          ImmutableMap.Builder<LocalDate, ImmutableSortedSet<BabyDaybookDB.ActionInterval>> out =
-              ImmutableMap.builder();
-          for (Map.Entry<LocalDate, ? extends List<BabyDaybookDB.ActionInterval>> e : index.entrySet()) {
-            out.put(e.getKey(), ImmutableSortedSet.copyOf(e.getValue()));
-          }
-          return out.build();
-        });
-  }
-
-  private static List<BabyDaybookDB.ActionInterval> mergeAdjacent(List<BabyDaybookDB.ActionInterval> intervals, Duration minGap) {
-    List<BabyDaybookDB.ActionInterval> out = new ArrayList<>();
-    BabyDaybookDB.ActionInterval previousInterval = null;
-    for (BabyDaybookDB.ActionInterval ai : intervals) {
-      if (previousInterval == null) {
-        previousInterval = ai;
-        continue;
-      }
-      Duration gap = new Duration(previousInterval.interval.getEnd(), ai.interval.getStart());
-      if (gap.isShorterThan(minGap)) {
-        Timber.v("Merging %s and %s", previousInterval, ai);
-        previousInterval = new BabyDaybookDB.ActionInterval(
-            ai.type, new Interval(previousInterval.interval.getStart(), ai.interval.getEnd()));
-      } else {
-        out.add(previousInterval);
-        previousInterval = ai;
-      }
-    }
-    if (previousInterval != null) {
-      out.add(previousInterval);
-    }
-    return out;
-  }
-
-  private static Map<LocalDate, ? extends List<BabyDaybookDB.ActionInterval>> addOverlaps(
-      Map<LocalDate, LinkedList<BabyDaybookDB.ActionInterval>> index) {
-    for (Map.Entry<LocalDate, LinkedList<BabyDaybookDB.ActionInterval>> entry : index.entrySet()) {
-      // Check last interval of previous day
-      /*Optional.ofNullable(index.get(entry.getKey().minusDays(1)))
-          .flatMap(entries -> entries.isEmpty() ?
-              Optional.empty() : Optional.of(entries.getLast()))
-          .flatMap(i -> new LocalDate(i.interval.getEnd()).equals(entry.getKey()) ?
-              Optional.empty() : Optional.of(i))
-          .ifPresent(i -> entry.getValue().addFirst(i));*/
-      // Check first interval of next day
-      Optional.ofNullable(index.get(entry.getKey().plusDays(1)))
-          .flatMap(entries -> entries.isEmpty() ?
-              Optional.empty() : Optional.of(entries.getFirst()))
-          .flatMap(i -> new LocalDate(i.interval.getStart()).equals(entry.getKey()) ?
-              Optional.empty() : Optional.of(i))
-          .ifPresent(i -> entry.getValue().addLast(i));
-    }
-    return index;
-  }
-
-  private static ImmutableSortedSet<Interval> getGaps(ImmutableSortedSet<BabyDaybookDB.ActionInterval> intervals) {
-    ImmutableSortedSet.Builder<Interval> gaps = ImmutableSortedSet.orderedBy((a, b) -> new Duration(a.getStart(), a.getEnd()).compareTo(new Duration(b.getStart(), b.getEnd())));
-    Interval previousInterval = null;
-    for (BabyDaybookDB.ActionInterval ai : intervals) {
-      if (previousInterval != null) {
-        if (ai.interval.isBefore(previousInterval)) {
-          throw new IllegalArgumentException("Intervals should be sorted!");
-        }
-        Interval gap = previousInterval.gap(ai.interval);
-        if (gap == null) {
-          Timber.d("No gap between interval");
-        } else {
-          gaps.add(gap);
-        }
-      }
-      previousInterval = ai.interval;
-    }
-    return gaps.build();
+    return dailyStatsFromBabyDaybook(babyName, 0);
   }
 
-  private static Duration duration(Interval interval) {
-    return new Duration(interval.getStart(), interval.getEnd());
+  /**
+   * Stats for every day from the one containing resumeFromMillis on, so an import only needs to
+   * read what's been logged since the last one.
+   */
+  public Single<ImmutableSortedMap<LocalDate, DailyStats>> dailyStatsFromBabyDaybook(String babyName, long resumeFromMillis) {
+    return Single.defer(() -> {
+      DailyStatsSweep sweep = new DailyStatsSweep(DateTimeZone.getDefault(), MIN_GAP, resumeFromMillis);
+      return mDB.forEachAction(babyName, sweep.readFromMillis(), sweep::add, "breastfeeding", "pump")
+          .andThen(Single.fromCallable(sweep::finish));
+    });
   }
 }
@@ -0,0 +1,108 @@
+package com.bloomcyclecare.cmcc.logic.breastfeeding;
+
+import com.google.common.collect.ImmutableSortedMap;
+
+import org.joda.time.DateTimeConstants;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Duration;
+import org.joda.time.LocalDate;
+
+/**
+ * Builds {@link BreastfeedingStats.DailyStats} in one pass over feedings ordered by start time.
+ * Feedings closer together than the min gap are merged into one, each feeding counts towards the
+ * day it starts on and so does the gap which follows it. Only the feeding being merged and the
+ * totals for the current day are kept so a whole history can go through without being loaded.
+ *
+ * <p>Days before the one containing the resume timestamp are only read so the first resumed
+ * feeding can be merged with the ones before it.
+ */
+class DailyStatsSweep {
+
+  private static final long MILLIS_PER_DAY = DateTimeConstants.MILLIS_PER_DAY;
+  private static final long MILLIS_PER_HOUR = DateTimeConstants.MILLIS_PER_HOUR;
+
+  private final DateTimeZone mZone;
+  private final long mMinGapMillis;
+  private final long mFirstDay;
+  private final ImmutableSortedMap.Builder<LocalDate, BreastfeedingStats.DailyStats> mStats =
+      ImmutableSortedMap.naturalOrder();
+
+  private boolean mHasFeeding = false;
+  private long mFeedingStart;
+  private long mFeedingEnd;
+
+  // Days are local epoch days
+  private long mDay = Long.MIN_VALUE;
+  private int mNumDay;
+  private int mNumNight;
+  private long mMaxGapMillis = -1;
+
+  DailyStatsSweep(DateTimeZone zone, Duration minGap, long resumeFromMillis) {
+    mZone = zone;
+    mMinGapMillis = minGap.getMillis();
+    mFirstDay = Math.floorDiv(zone.convertUTCToLocal(resumeFromMillis), MILLIS_PER_DAY);
+  }
+
+  /**
+   * Where reading should start, the beginning of the day before the resumed one.
+   */
+  long readFromMillis() {
+    return mZone.convertLocalToUTC((mFirstDay - 1) * MILLIS_PER_DAY, false);
+  }
+
+  void add(long startMillis, long endMillis) {
+    if (mHasFeeding && startMillis < mFeedingStart) {
+      throw new IllegalArgumentException("Feedings should be sorted!");
+    }
+    if (mHasFeeding && startMillis - mFeedingEnd < mMinGapMillis) {
+      mFeedingEnd = Math.max(mFeedingEnd, endMillis);
+      return;
+    }
+    if (mHasFeeding) {
+      countFeeding(startMillis - mFeedingEnd);
+    }
+    mHasFeeding = true;
+    mFeedingStart = startMillis;
+    mFeedingEnd = endMillis;
+  }
+
+  /**
+   * Stats for each day from the resumed one on. The last day is left out if it only had one
+   * feeding since there's no gap to report for it yet.
+   */
+  ImmutableSortedMap<LocalDate, BreastfeedingStats.DailyStats> finish() {
+    if (mHasFeeding) {
+      countFeeding(-1);
+      mHasFeeding = false;
+    }
+    finishDay();
+    return mStats.build();
+  }
+
+  private void countFeeding(long gapMillis) {
+    long localStart = mZone.convertUTCToLocal(mFeedingStart);
+    long day = Math.floorDiv(localStart, MILLIS_PER_DAY);
+    if (day != mDay) {
+      finishDay();
+      mDay = day;
+    }
+    long startHour = Math.floorMod(localStart, MILLIS_PER_DAY) / MILLIS_PER_HOUR;
+    if (startHour < 8 || startHour > 21) {
+      mNumNight++;
+    } else {
+      mNumDay++;
+    }
+    mMaxGapMillis = Math.max(mMaxGapMillis, gapMillis);
+  }
+
+  private void finishDay() {
+    if (mDay >= mFirstDay && mMaxGapMillis >= 0) {
+      LocalDate date = new LocalDate(mDay * MILLIS_PER_DAY, DateTimeZone.UTC);
+      mStats.put(date, new BreastfeedingStats.DailyStats(
+          date, Duration.millis(mMaxGapMillis), mNumDay, mNumNight));
+    }
+    mNumDay = 0;
+    mNumNight = 0;
+    mMaxGapMillis = -1;
+  }
+}
@@ -0,0 +1,251 @@
+package com.bloomcyclecare.cmcc.logic.chart;
+
+import com.bloomcyclecare.cmcc.data.models.charting.ChartEntry;
+import com.bloomcyclecare.cmcc.data.models.observation.DischargeSummary;
+import com.bloomcyclecare.cmcc.data.models.observation.DischargeType;
+import com.bloomcyclecare.cmcc.data.models.observation.Flow;
+import com.bloomcyclecare.cmcc.data.models.observation.MucusModifier;
+import com.bloomcyclecare.cmcc.data.models.observation.Observation;
+import com.bloomcyclecare.cmcc.data.models.observation.ObservationEntry;
+
+import org.joda.time.LocalDate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import androidx.annotation.Nullable;
+
+/**
+ * The parts of a run of {@link ChartEntry}s which analytics need, stored one primitive array per
+ * field. Days are in date order and identified by their epoch day, reading a day doesn't allocate
+ * anything so code can walk years of entries without creating garbage.
+ *
+ * <p>Views from {@link #between(LocalDate, LocalDate)} share the arrays with the columns they
+ * came from.
+ */
+public final class CycleColumns {
+
+  public static final int HAS_OBSERVATION = 1;
+  public static final int HAS_MUCUS = 1 << 1;
+  public static final int PEAK_DAY = 1 << 2;
+  public static final int POINT_OF_CHANGE = 1 << 3;
+  public static final int INTERCOURSE = 1 << 4;
+  public static final int UNCERTAIN = 1 << 5;
+  public static final int BLOOD = 1 << 6;
+
+  private static final Flow[] FLOWS = Flow.values();
+  private static final DischargeType[] DISCHARGE_TYPES = DischargeType.values();
+
+  private final int[] mEpochDays;
+  private final byte[] mFlags;
+  // Ordinal + 1 so zero can mean none
+  private final byte[] mFlows;
+  private final byte[] mDischargeTypes;
+  // There are more modifiers than fit in a byte
+  private final short[] mModifiers;
+  private final int mOffset;
+  private final int mSize;
+
+  private CycleColumns(int[] epochDays, byte[] flags, byte[] flows, byte[] dischargeTypes,
+                       short[] modifiers, int offset, int size) {
+    mEpochDays = epochDays;
+    mFlags = flags;
+    mFlows = flows;
+    mDischargeTypes = dischargeTypes;
+    mModifiers = modifiers;
+    mOffset = offset;
+    mSize = size;
+  }
+
+  public static CycleColumns of(Collection<ChartEntry> entries) {
+    List<ChartEntry> sortedEntries = new ArrayList<>(entries);
+    if (!isSorted(sortedEntries)) {
+      Collections.sort(sortedEntries, (a, b) -> a.entryDate.compareTo(b.entryDate));
+    }
+    int size = sortedEntries.size();
+    int[] epochDays = new int[size];
+    byte[] flags = new byte[size];
+    byte[] flows = new byte[size];
+    byte[] dischargeTypes = new byte[size];
+    short[] modifiers = new short[size];
+    for (int i = 0; i < size; i++) {
+      ChartEntry entry = sortedEntries.get(i);
+      epochDays[i] = epochDay(entry.entryDate);
+      ObservationEntry observationEntry = entry.observationEntry;
+      if (observationEntry == null) {
+        continue;
+      }
+      flags[i] = flags(observationEntry);
+      Observation observation = observationEntry.observation;
+      if (observation == null) {
+        continue;
+      }
+      if (observation.flow != null) {
+        flows[i] = (byte) (observation.flow.ordinal() + 1);
+      }
+      DischargeSummary dischargeSummary = observation.dischargeSummary;
+      if (dischargeSummary != null) {
+        if (dischargeSummary.mType != null) {
+          dischargeTypes[i] = (byte) (dischargeSummary.mType.ordinal() + 1);
+        }
+        modifiers[i] = modifierBits(dischargeSummary.mModifiers);
+      }
+    }
+    return new CycleColumns(epochDays, flags, flows, dischargeTypes, modifiers, 0, size);
+  }
+
+  /**
+   * The days between the two dates, inclusive, without copying any of the columns. A null last
+   * day includes everything from the first day on, same as an ongoing cycle.
+   */
+  public CycleColumns between(LocalDate firstDay, @Nullable LocalDate lastDay) {
+    int from = lowerBound(epochDay(firstDay));
+    int to = lastDay == null ? mSize : Math.max(from, lowerBound(epochDay(lastDay) + 1));
+    return new CycleColumns(
+        mEpochDays, mFlags, mFlows, mDischargeTypes, mModifiers, mOffset + from, to - from);
+  }
+
+  public int size() {
+    return mSize;
+  }
+
+  public int epochDay(int index) {
+    return mEpochDays[mOffset + index];
+  }
+
+  public boolean has(int index, int flag) {
+    return (mFlags[mOffset + index] & flag) != 0;
+  }
+
+  @Nullable
+  public Flow flow(int index) {
+    int ordinal = mFlows[mOffset + index];
+    return ordinal == 0 ? null : FLOWS[ordinal - 1];
+  }
+
+  @Nullable
+  public DischargeType dischargeType(int index) {
+    int ordinal = mDischargeTypes[mOffset + index];
+    return ordinal == 0 ? null : DISCHARGE_TYPES[ordinal - 1];
+  }
+
+  public boolean hasModifier(int index, MucusModifier modifier) {
+    return hasModifier(mModifiers[mOffset + index], modifier);
+  }
+
+  public int modifierBits(int index) {
+    return mModifiers[mOffset + index];
+  }
+
+  /**
+   * The number of days with all of the flags.
+   */
+  public int count(int flags) {
+    int count = 0;
+    for (int i = mOffset; i < mOffset + mSize; i++) {
+      if ((mFlags[i] & flags) == flags) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * The index of the last day with all of the flags, -1 if there isn't one.
+   */
+  public int lastIndexOf(int flags) {
+    for (int i = mOffset + mSize - 1; i >= mOffset; i--) {
+      if ((mFlags[i] & flags) == flags) {
+        return i - mOffset;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * The index of the first day on or after the epoch day, size() if there isn't one.
+   */
+  public int indexOf(int epochDay) {
+    return lowerBound(epochDay);
+  }
+
+  public static boolean hasModifier(int modifierBits, MucusModifier modifier) {
+    return (modifierBits & (1 << modifier.ordinal())) != 0;
+  }
+
+  public static short modifierBits(Collection<MucusModifier> modifiers) {
+    int bits = 0;
+    for (MucusModifier modifier : modifiers) {
+      bits |= 1 << modifier.ordinal();
+    }
+    return (short) bits;
+  }
+
+  /**
+   * Days since 1970-01-01, computed from the date's fields so no {@link org.joda.time.Days} or
+   * instants are created.
+   */
+  public static int epochDay(LocalDate date) {
+    // See http://howardhinnant.github.io/date_algorithms.html#days_from_civil
+    int year = date.getYear();
+    int month = date.getMonthOfYear();
+    int day = date.getDayOfMonth();
+    year -= month <= 2 ? 1 : 0;
+    int era = Math.floorDiv(year, 400);
+    int yearOfEra = year - era * 400;
+    int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+    int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097 + dayOfEra - 719468;
+  }
+
+  private int lowerBound(int epochDay) {
+    int lo = mOffset;
+    int hi = mOffset + mSize;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (mEpochDays[mid] < epochDay) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo - mOffset;
+  }
+
+  private static byte flags(ObservationEntry entry) {
+    int flags = 0;
+    if (entry.observation != null) {
+      flags |= HAS_OBSERVATION;
+    }
+    if (entry.hasMucus()) {
+      flags |= HAS_MUCUS;
+    }
+    if (entry.peakDay) {
+      flags |= PEAK_DAY;
+    }
+    if (entry.pointOfChange) {
+      flags |= POINT_OF_CHANGE;
+    }
+    if (entry.intercourse) {
+      flags |= INTERCOURSE;
+    }
+    if (entry.uncertain) {
+      flags |= UNCERTAIN;
+    }
+    if (entry.hasBlood()) {
+      flags |= BLOOD;
+    }
+    return (byte) flags;
+  }
+
+  private static boolean isSorted(List<ChartEntry> entries) {
+    for (int i = 1; i < entries.size(); i++) {
+      if (entries.get(i - 1).entryDate.isAfter(entries.get(i).entryDate)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -4,6 +4,7 @@ import com.bloomcyclecare.cmcc.data.models.charting.ChartEntry;
 import com.bloomcyclecare.cmcc.data.models.charting.Cycle;
 import com.bloomcyclecare.cmcc.data.models.instructions.AbstractInstruction;
 import com.bloomcyclecare.cmcc.data.models.instructions.BasicInstruction;
+import com.bloomcyclecare.cmcc.data.models.instructions.CompiledInstructions;
 import com.bloomcyclecare.cmcc.data.models.instructions.InstructionSet;
 import com.bloomcyclecare.cmcc.data.models.instructions.Instructions;
 import com.bloomcyclecare.cmcc.data.models.instructions.SpecialInstruction;
@@ -16,10 +17,11 @@ import com.bloomcyclecare.cmcc.data.models.stickering.Sticker;
 import com.bloomcyclecare.cmcc.data.models.stickering.StickerSelection;
 import com.bloomcyclecare.cmcc.data.models.stickering.StickerText;
 import com.bloomcyclecare.cmcc.utils.DateUtil;
+import com.bloomcyclecare.cmcc.utils.Lazy;
 import com.google.auto.value.AutoValue;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterators;
+import com.google.common.collect.ImmutableMap;
 
 import org.joda.time.Days;
 import org.joda.time.LocalDate;
@@ -28,8 +30,8 @@ import org.parceler.ParcelConstructor;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -38,6 +40,7 @@ import java.util.TreeSet;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.core.util.Pair;
 import timber.log.Timber;
 
@@ -48,379 +51,538 @@ public class CycleRenderer {
 
   private final Cycle mCycle;
   private final Optional<Cycle> mPreviousCycle;
-  private final TreeSet<ChartEntry> mEntries;
-  private final TreeSet<Instructions> mInstructions;
+  // Sorted by date and indexed so rules can look back at earlier entries in constant time
+  private final List<ChartEntry> mEntries;
+  private final InstructionTimeline mInstructionTimeline;
+
+  // Bookkeeping from the last render pass, used to resume rendering from the first changed entry.
+  private final List<ChartEntry> mRenderedEntries = new ArrayList<>();
+  private final List<Integer> mRenderedEntryHashes = new ArrayList<>();
+  private final List<Checkpoint> mCheckpoints = new ArrayList<>();
+  private final List<RenderableEntry> mRenderableEntries = new ArrayList<>();
+  // Scratch space for the rules, reused for every entry since render() is synchronized
+  private final State mState = new State();
 
   public CycleRenderer(Cycle cycle, Optional<Cycle> previousCycle, Collection<ChartEntry> entries, Collection<Instructions> allInstructions) {
+    this(cycle, previousCycle, entries, allInstructions, new ArrayList<>());
+  }
+
+  /**
+   * The sorted entries are kept in the given empty list, which lets tests see how often they're
+   * read.
+   */
+  @VisibleForTesting
+  CycleRenderer(Cycle cycle, Optional<Cycle> previousCycle, Collection<ChartEntry> entries, Collection<Instructions> allInstructions, List<ChartEntry> entryList) {
     mCycle = cycle;
     mPreviousCycle = previousCycle;
-    mEntries = new TreeSet<>((a, b) -> a.entryDate.compareTo(b.entryDate));
-    mEntries.addAll(entries);
-    mInstructions = new TreeSet<>((a, b) -> a.startDate.compareTo(b.startDate));
-    mInstructions.addAll(allInstructions);
+    mEntries = entryList;
+    setEntries(entries);
+    mInstructionTimeline = new InstructionTimeline(allInstructions, cycle.startDate);
   }
 
   public Cycle cycle() {
     return mCycle;
   }
 
-  public RenderableCycle render() {
+  /**
+   * Replaces the entries for the cycle and renders them. Entries up to the first one which differs
+   * from the previous render are reused as is, rendering resumes from the checkpoint of the day
+   * before.
+   */
+  public synchronized RenderableCycle render(Collection<ChartEntry> entries) {
+    setEntries(entries);
+    return render();
+  }
+
+  private void setEntries(Collection<ChartEntry> entries) {
+    TreeSet<ChartEntry> sortedEntries = new TreeSet<>((a, b) -> a.entryDate.compareTo(b.entryDate));
+    sortedEntries.addAll(entries);
+    mEntries.clear();
+    mEntries.addAll(sortedEntries);
+  }
+
+  public synchronized RenderableCycle render() {
     long renderStartMs = System.currentTimeMillis();
+    int resumeIndex = firstChangedIndex();
     try {
-      Timber.v("Rendering cycle starting %s", mCycle.startDate);
-
-      Set<LocalDate> daysWithAnObservation = new HashSet<>();
-      TreeSet<LocalDate> entriesEvaluated = new TreeSet<>();
-      TreeSet<LocalDate> daysOfFlow = new TreeSet<>();
-      Set<LocalDate> daysOfMucus = new HashSet<>();
-      TreeSet<LocalDate> daysOfUnusualBleeding = new TreeSet<>();
-      TreeSet<LocalDate> daysOfUncertainty = new TreeSet<>();
-      TreeSet<LocalDate> peakDays = new TreeSet<>();
-      TreeSet<LocalDate> pointsOfChangeToward = new TreeSet<>();
-      TreeSet<LocalDate> pointsOfChangeAway = new TreeSet<>();
-      Map<LocalDate, Boolean> daysOfIntercourse = new HashMap<>();
-      LocalDate mostRecentPeakTypeMucus = null;
-      LocalDate lastDayOfThreeOrMoreDaysOfMucus = null;
-      int consecutiveDaysOfNonPeakMucus = 0;
-      ChartEntry previousEntry = null;
-      boolean hasHadLegitFlow = false;
+      Timber.v("Rendering cycle starting %s from entry %d", mCycle.startDate, resumeIndex);
 
       List<RenderableEntry> renderableEntries = new ArrayList<>(mEntries.size());
-
-      // For every day before the current entry...
-      for (ChartEntry e : mEntries) {
-        entriesEvaluated.add(e.entryDate);
-        LocalDate yesterday = e.entryDate.minusDays(1);
-
-        State state = new State();
-        state.cycle = mCycle;
-        state.previousCycle = mPreviousCycle;
-        state.entry = e;
-        state.entryDate = e.entryDate;
-        state.entryNum = Days.daysBetween(mCycle.startDate, e.entryDate).getDays() + 1;
-        state.previousEntry = previousEntry;
-
-        // Step 1: Gather basic info which does not depend on the active instructions
-        if (e.observationEntry.peakDay) {
-          peakDays.add(e.entryDate);
-        }
-        if (e.observationEntry.pointOfChange) {
-          if (pointsOfChangeToward.size() == pointsOfChangeAway.size()) {
-            pointsOfChangeToward.add(e.entryDate);
-          } else {
-            pointsOfChangeAway.add(e.entryDate);
-          }
-        }
-        state.firstPointOfChangeToward = pointsOfChangeToward.isEmpty() ? Optional.empty()
-            : Optional.of(pointsOfChangeToward.first());
-        state.mostRecentPointOfChangeToward = pointsOfChangeToward.isEmpty() ? Optional.empty()
-            : Optional.of(pointsOfChangeToward.last());
-        state.mostRecentPointOfChangeAway = pointsOfChangeAway.isEmpty() ? Optional.empty()
-            : Optional.of(pointsOfChangeAway.last());
-        if (e.observationEntry.hasMucus()) {
-          daysOfMucus.add(e.entryDate);
-        }
-        daysOfIntercourse.put(e.entryDate, e.observationEntry.intercourseTimeOfDay != IntercourseTimeOfDay.NONE);
-        state.todayHasMucus = false;
-        state.todayHasBlood = false;
-        state.todaysFlow = null;
-        if (e.observationEntry.observation == null) {
-          consecutiveDaysOfNonPeakMucus = 0;
+      List<Checkpoint> checkpoints = new ArrayList<>(mEntries.size());
+      List<Integer> entryHashes = new ArrayList<>(mEntries.size());
+      Checkpoint checkpoint = resumeIndex == 0 ? new Checkpoint() : mCheckpoints.get(resumeIndex - 1);
+
+      for (int index = 0; index < mEntries.size(); index++) {
+        ChartEntry e = mEntries.get(index);
+        if (index < resumeIndex) {
+          renderableEntries.add(mRenderableEntries.get(index));
+          checkpoints.add(mCheckpoints.get(index));
         } else {
-          daysWithAnObservation.add(e.entryDate);
-          Observation observation = e.observationEntry.observation;
-          state.todayHasMucus = observation.hasMucus();
-          boolean hasNonPeakMucus = observation.hasMucus() && !observation.dischargeSummary.isPeakType();
-          if (observation.flow != null) {
-            state.todaysFlow = observation.flow;
-            hasHadLegitFlow |= observation.flow.isLegit();
-          }
-          state.todayHasBlood = state.todaysFlow != null
-              || observation.dischargeSummary != null && observation.dischargeSummary.hasBlood();
-          if (hasNonPeakMucus) {
-            consecutiveDaysOfNonPeakMucus++;
-            if (consecutiveDaysOfNonPeakMucus >= 3) {
-              lastDayOfThreeOrMoreDaysOfMucus = e.entryDate;
-            }
-          } else {
-            consecutiveDaysOfNonPeakMucus = 0;
-            if (state.todayHasMucus) {
-              mostRecentPeakTypeMucus = e.entryDate;
-            }
-          }
-        }
-        state.hasHadLegitFlow = hasHadLegitFlow;
-        if (state.todayHasBlood || state.todaysFlow != null) {
-          daysOfFlow.add(e.entryDate);
-        }
-        state.isInMenstrualFlow = entriesEvaluated.size() == daysOfFlow.size();
-        if (!state.isInMenstrualFlow && state.todayHasBlood && !e.observationEntry.isEssentiallyTheSame) {
-          daysOfUnusualBleeding.add(e.entryDate);
-        }
-        if (e.observationEntry.uncertain) {
-          daysOfUncertainty.add(e.entryDate);
-        }
-        if (peakDays.isEmpty()) {
-          state.firstPeakDay = Optional.empty();
-          state.mostRecentPeakDay = Optional.empty();
-        } else {
-          state.firstPeakDay = Optional.of(peakDays.first());
-          state.mostRecentPeakDay = Optional.of(peakDays.last());
-        }
-        state.hasHadAnyMucus = !daysOfMucus.isEmpty();
-        state.hadIntercourseYesterday = daysOfIntercourse.containsKey(yesterday) && daysOfIntercourse.get(yesterday);
-        if (!peakDays.isEmpty()) {
-          state.countsOfThree.put(
-              CountOfThreeReason.PEAK_DAY,
-              Days.daysBetween(peakDays.last(), e.entryDate).getDays());
-        }
-        if (lastDayOfThreeOrMoreDaysOfMucus != null) {
-          state.countsOfThree.put(
-              CountOfThreeReason.CONSECUTIVE_DAYS_OF_MUCUS,
-              Days.daysBetween(lastDayOfThreeOrMoreDaysOfMucus, e.entryDate).getDays());
-        }
-        if (mostRecentPeakTypeMucus != null) {
-          state.countsOfThree.put(
-              CountOfThreeReason.PEAK_TYPE_MUCUS,
-              Days.daysBetween(mostRecentPeakTypeMucus, e.entryDate).getDays());
-        }
-        if (!daysOfUnusualBleeding.isEmpty()) {
-          state.countsOfThree.put(
-              CountOfThreeReason.UNUSUAL_BLEEDING,
-              Days.daysBetween(daysOfUnusualBleeding.last(), e.entryDate).getDays());
-        }
-        if (!pointsOfChangeAway.isEmpty()) {
-          state.countsOfThree.put(
-              CountOfThreeReason.POINT_OF_CHANGE,
-              Days.daysBetween(pointsOfChangeAway.last().minusDays(1), e.entryDate).getDays());
-        }
-        Optional<LocalDate> effectivePointOfChange = effectivePointOfChange(pointsOfChangeToward, pointsOfChangeAway);
-        if (effectivePointOfChange.isPresent()) {
-          Integer existingCount = state.countsOfThree.get(CountOfThreeReason.POINT_OF_CHANGE);
-          int count = Days.daysBetween(effectivePointOfChange.get(), e.entryDate).getDays();
-          if (existingCount == null || count < existingCount) {
-            state.countsOfThree.put(CountOfThreeReason.POINT_OF_CHANGE, count);
-          }
-        }
-        if (!daysOfUncertainty.isEmpty()) {
-          state.countsOfThree.put(
-              CountOfThreeReason.UNCERTAIN,
-              Days.daysBetween(daysOfUncertainty.last(), e.entryDate).getDays());
+          checkpoint = new Checkpoint(checkpoint);
+          renderableEntries.add(renderEntry(e, checkpoint));
+          checkpoints.add(checkpoint);
         }
+        entryHashes.add(e.hashCode());
+      }
 
-        // Step 2: Evaluate fertility reasons
-        Instructions instructions = null;
-        for (Instructions i : mInstructions.descendingSet()) {
-          if (!e.entryDate.isBefore(i.startDate)) {
-            instructions = i;
-            break;
-          }
-        }
-        state.instructions = Optional.ofNullable(instructions).orElse(new Instructions(e.entryDate, ImmutableList.of(), ImmutableList.of(), ImmutableList.of()));
+      mRenderedEntries.clear();
+      mRenderedEntries.addAll(mEntries);
+      mRenderedEntryHashes.clear();
+      mRenderedEntryHashes.addAll(entryHashes);
+      mCheckpoints.clear();
+      mCheckpoints.addAll(checkpoints);
+      mRenderableEntries.clear();
+      mRenderableEntries.addAll(renderableEntries);
 
-        // Basic Instruction fertility reasons (section D)
-        if (state.instructions.isActive(BasicInstruction.D_1)
-            && state.isInMenstrualFlow) {
-          state.fertilityReasons.add(BasicInstruction.D_1);
-        }
-        if (state.instructions.isActive(BasicInstruction.D_2)
-            && state.todayHasMucus
-            && !state.isPostPeakPlus(3)) {
-          state.fertilityReasons.add(BasicInstruction.D_2);
-          state.countOfThreeReasons.put(BasicInstruction.D_2, CountOfThreeReason.PEAK_DAY);
-        }
-        if (state.instructions.isActive(BasicInstruction.D_3)
-            && state.isPrePeak()
-            && consecutiveDaysOfNonPeakMucus > 0
-            && consecutiveDaysOfNonPeakMucus < 3) {
-          state.fertilityReasons.add(BasicInstruction.D_3);
-        }
-        if (state.instructions.isActive(BasicInstruction.D_4)
-            && state.isPrePeak()
-            && state.isWithinCountOfThree(CountOfThreeReason.CONSECUTIVE_DAYS_OF_MUCUS)) {
-          state.fertilityReasons.add(BasicInstruction.D_4);
-          state.countOfThreeReasons.put(BasicInstruction.D_4, CountOfThreeReason.CONSECUTIVE_DAYS_OF_MUCUS);
-        }
-        if (state.instructions.isActive(BasicInstruction.D_5)
-            && state.isWithinCountOfThree(CountOfThreeReason.PEAK_TYPE_MUCUS)) {
-          state.fertilityReasons.add(BasicInstruction.D_5);
-          state.countOfThreeReasons.put(BasicInstruction.D_5, CountOfThreeReason.PEAK_TYPE_MUCUS);
-        }
-        if (state.instructions.isActive(BasicInstruction.D_6)
-            && state.isWithinCountOfThree(CountOfThreeReason.UNUSUAL_BLEEDING)) {
-          state.fertilityReasons.add(BasicInstruction.D_6);
-          state.countOfThreeReasons.put(BasicInstruction.D_6, CountOfThreeReason.UNUSUAL_BLEEDING);
-        }
+      return RenderableCycle.builder()
+          .cycle(mCycle)
+          .entries(renderableEntries)
+          .stats(stats(mCycle, mEntries,
+              Optional.ofNullable(checkpoint.mostRecentPeakDay), checkpoint.numDaysWithAnObservation))
+          .build();
+    } finally {
+      Timber.v("Rendered cycle starting %s in %d ms (%d of %d entries reused)",
+          mCycle.startDate, System.currentTimeMillis() - renderStartMs, resumeIndex, mEntries.size());
+    }
+  }
 
-        // Basic Instruction infertility reasons (section E)
-        if (!state.todayHasMucus && !state.isInMenstrualFlow && state.isPrePeak()) {
-          if (state.instructions.isActive(BasicInstruction.E_1)) {
-            state.infertilityReasons.add(BasicInstruction.E_1);
-          }
-          if (state.instructions.isActive(BasicInstruction.E_2)) {
-            state.infertilityReasons.add(BasicInstruction.E_2);
-          }
-        }
-        if (state.instructions.isActive(BasicInstruction.E_3)
-            && state.isExactlyPostPeakPlus(4)) {
-          state.infertilityReasons.add(BasicInstruction.E_3);
-        }
-        if (!state.todayHasMucus && state.isPostPeakPlus(4)) {
-          if (state.instructions.isActive(BasicInstruction.E_4)) {
-            state.infertilityReasons.add(BasicInstruction.E_4);
-          }
-          if (state.instructions.isActive(BasicInstruction.E_5)) {
-            state.infertilityReasons.add(BasicInstruction.E_5);
-          }
-          if (state.instructions.isActive(BasicInstruction.E_6)) {
-            state.infertilityReasons.add(BasicInstruction.E_6);
-          }
-        }
-        if (!state.todayHasMucus && state.isInMenstrualFlow && (
-            (state.todaysFlow != null && !state.todaysFlow.isLegit()) || state.todayHasBlood)) {
-          state.infertilityReasons.add(BasicInstruction.E_7);
-        }
-        if (state.instructions.isActive(BasicInstruction.H)
-            && state.isWithinCountOfThree(CountOfThreeReason.UNCERTAIN)) {
-          state.fertilityReasons.add(BasicInstruction.H);
-          state.countOfThreeReasons.put(BasicInstruction.H, CountOfThreeReason.UNCERTAIN);
-        }
-        // Basic Instruction yellow stamp reasons (section K)
-        if (state.instructions.isActive(BasicInstruction.K_1)
-            && state.isPrePeak()
-            && !state.isInMenstrualFlow
-            && (!effectivePointOfChange.isPresent()
-            || state.entryDate.isBefore(effectivePointOfChange.get()))) {
-          state.suppressBasicInstructions(BasicInstruction.suppressableByPrePeakYellow, BasicInstruction.K_1);
-        }
-        if (state.isPostPeak()) {
-          if (state.instructions.isActive(BasicInstruction.K_2)) {
-            state.suppressBasicInstructions(BasicInstruction.suppressableByPostPeakYellow, BasicInstruction.K_2);
-          }
-          if (state.instructions.isActive(BasicInstruction.K_3)) {
-            state.suppressBasicInstructions(BasicInstruction.suppressableByPostPeakYellow, BasicInstruction.K_3);
-          }
-          if (state.instructions.isActive(BasicInstruction.K_4)) {
-            state.suppressBasicInstructions(BasicInstruction.suppressableByPostPeakYellow, BasicInstruction.K_4);
-          }
-        }
+  /**
+   * Returns the index of the first entry which differs from the last render pass. The hash taken at
+   * render time is compared as well as the entries themselves since some repos update entries in
+   * place.
+   */
+  private int firstChangedIndex() {
+    int numEntries = Math.min(mEntries.size(), mRenderedEntries.size());
+    for (int index = 0; index < numEntries; index++) {
+      ChartEntry e = mEntries.get(index);
+      if (mRenderedEntryHashes.get(index) != e.hashCode() || !mRenderedEntries.get(index).equals(e)) {
+        return index;
+      }
+    }
+    return numEntries;
+  }
 
-        // Special Instruction Yellow Stamp fertility reasons (section 1)
-        if (state.instructions.isActive(YellowStampInstruction.YS_1_A)
-            && state.isInMenstrualFlow) {
-          state.fertilityReasons.add(YellowStampInstruction.YS_1_A);
-        }
-        if (state.instructions.isActive(YellowStampInstruction.YS_1_B)
-            // This is to catch cases where you have a peak day w/o a point of change...
-            // TODO: flag this as an issue?
-            && (state.isWithinCountOfThree(CountOfThreeReason.PEAK_DAY)
-            || effectivePointOfChange.isPresent()
-            && !state.entryDate.isBefore(effectivePointOfChange.get())
-            && state.isPrePeak())) {
-          state.fertilityReasons.add(YellowStampInstruction.YS_1_B);
-          state.countOfThreeReasons.put(YellowStampInstruction.YS_1_B, CountOfThreeReason.PEAK_DAY);
+  /**
+   * The same stats as a full render but without evaluating any instructions, only the peak day and
+   * observations are needed. Cheap enough to compute for every cycle in the chart.
+   */
+  public static CycleStats computeStats(Cycle cycle, Collection<ChartEntry> entries) {
+    LocalDate peakDay = null;
+    int numDaysWithAnObservation = 0;
+    for (ChartEntry e : entries) {
+      if (e.observationEntry.peakDay && (peakDay == null || e.entryDate.isAfter(peakDay))) {
+        peakDay = e.entryDate;
+      }
+      if (e.observationEntry.observation != null) {
+        numDaysWithAnObservation++;
+      }
+    }
+    return stats(cycle, entries, Optional.ofNullable(peakDay), numDaysWithAnObservation);
+  }
+
+  /**
+   * Same as {@link #computeStats(Cycle, Collection)} over the cycle's columns, nothing is created
+   * per day.
+   */
+  public static CycleStats computeStats(Cycle cycle, CycleColumns columns) {
+    int peakIndex = columns.lastIndexOf(CycleColumns.PEAK_DAY);
+    CycleStats.Builder statsBuilder = CycleStats.builder()
+        .cycleStartDate(cycle.startDate)
+        .isPregnancy(cycle.isPregnancy())
+        .daysWithAnObservation(columns.count(CycleColumns.HAS_OBSERVATION))
+        .mcs(MccScorer.getScore(columns, peakIndex));
+    if (cycle.endDate != null) {
+      statsBuilder.cycleLength(Optional.of(
+          CycleColumns.epochDay(cycle.endDate) - CycleColumns.epochDay(cycle.startDate) + 1));
+    }
+    if (peakIndex >= 0) {
+      int peakEpochDay = columns.epochDay(peakIndex);
+      statsBuilder.daysPrePeak(Optional.of(peakEpochDay - CycleColumns.epochDay(cycle.startDate)));
+      if (cycle.endDate != null) {
+        statsBuilder.daysPostPeak(Optional.of(CycleColumns.epochDay(cycle.endDate) - peakEpochDay));
+      }
+    }
+    return statsBuilder.build();
+  }
+
+  private static CycleStats stats(
+      Cycle cycle, Collection<ChartEntry> entries, Optional<LocalDate> peakDay, int numDaysWithAnObservation) {
+    CycleStats.Builder statsBuilder = CycleStats.builder()
+        .cycleStartDate(cycle.startDate)
+        .isPregnancy(cycle.isPregnancy())
+        .daysWithAnObservation(numDaysWithAnObservation)
+        .mcs(MccScorer.getScore(entries, peakDay));
+    if (cycle.endDate != null) {
+      statsBuilder.cycleLength(Optional.of(Days.daysBetween(cycle.startDate, cycle.endDate).getDays() + 1));
+    }
+    if (peakDay.isPresent()) {
+      statsBuilder.daysPrePeak(Optional.of(Days.daysBetween(cycle.startDate, peakDay.get()).getDays()));
+      if (cycle.endDate != null) {
+        statsBuilder.daysPostPeak(Optional.of(Days.daysBetween(peakDay.get(), cycle.endDate).getDays()));
+      }
+    }
+    return statsBuilder.build();
+  }
+
+  /**
+   * Renders a single entry, advancing the running totals in the provided {@link Checkpoint}.
+   */
+  private RenderableEntry renderEntry(ChartEntry e, Checkpoint checkpoint) {
+    checkpoint.numEntriesEvaluated++;
+    LocalDate yesterday = e.entryDate.minusDays(1);
+
+    State state = mState;
+    state.reset();
+    state.cycle = mCycle;
+    state.previousCycle = mPreviousCycle;
+    state.entry = e;
+    state.entryDate = e.entryDate;
+    state.entryNum = Days.daysBetween(mCycle.startDate, e.entryDate).getDays() + 1;
+    state.previousEntry = checkpoint.previousEntry;
+
+    // Step 1: Gather basic info which does not depend on the active instructions
+    if (e.observationEntry.peakDay) {
+      if (checkpoint.firstPeakDay == null) {
+        checkpoint.firstPeakDay = e.entryDate;
+      }
+      checkpoint.mostRecentPeakDay = e.entryDate;
+    }
+    if (e.observationEntry.pointOfChange) {
+      if (checkpoint.numPointsOfChangeToward == checkpoint.numPointsOfChangeAway) {
+        if (checkpoint.firstPointOfChangeToward == null) {
+          checkpoint.firstPointOfChangeToward = e.entryDate;
         }
-        if (state.instructions.isActive(YellowStampInstruction.YS_1_C)
-            && Optional.ofNullable(state.countsOfThree.get(CountOfThreeReason.POINT_OF_CHANGE)).map(c -> c < 4).orElse(false)
-            ) {
-          state.fertilityReasons.add(YellowStampInstruction.YS_1_C);
-          state.countOfThreeReasons.put(YellowStampInstruction.YS_1_C, CountOfThreeReason.POINT_OF_CHANGE);
+        checkpoint.mostRecentPointOfChangeToward = e.entryDate;
+        checkpoint.numPointsOfChangeToward++;
+      } else {
+        checkpoint.mostRecentPointOfChangeAway = e.entryDate;
+        checkpoint.numPointsOfChangeAway++;
+      }
+    }
+    state.firstPointOfChangeToward = Optional.ofNullable(checkpoint.firstPointOfChangeToward);
+    state.mostRecentPointOfChangeToward = Optional.ofNullable(checkpoint.mostRecentPointOfChangeToward);
+    state.mostRecentPointOfChangeAway = Optional.ofNullable(checkpoint.mostRecentPointOfChangeAway);
+    if (e.observationEntry.hasMucus()) {
+      checkpoint.hasHadAnyMucus = true;
+    }
+    state.todayHasMucus = false;
+    state.todayHasBlood = false;
+    state.todaysFlow = null;
+    if (e.observationEntry.observation == null) {
+      checkpoint.consecutiveDaysOfNonPeakMucus = 0;
+    } else {
+      checkpoint.numDaysWithAnObservation++;
+      Observation observation = e.observationEntry.observation;
+      state.todayHasMucus = observation.hasMucus();
+      boolean hasNonPeakMucus = observation.hasMucus() && !observation.dischargeSummary.isPeakType();
+      if (observation.flow != null) {
+        state.todaysFlow = observation.flow;
+        checkpoint.hasHadLegitFlow |= observation.flow.isLegit();
+      }
+      state.todayHasBlood = state.todaysFlow != null
+          || observation.dischargeSummary != null && observation.dischargeSummary.hasBlood();
+      if (hasNonPeakMucus) {
+        checkpoint.consecutiveDaysOfNonPeakMucus++;
+        if (checkpoint.consecutiveDaysOfNonPeakMucus >= 3) {
+          checkpoint.lastDayOfThreeOrMoreDaysOfMucus = e.entryDate;
         }
-        if (state.instructions.isActive(YellowStampInstruction.YS_1_D)
-            && state.isWithinCountOfThree(CountOfThreeReason.UNUSUAL_BLEEDING)) {
-          state.fertilityReasons.add(YellowStampInstruction.YS_1_D);
-          state.countOfThreeReasons.put(YellowStampInstruction.YS_1_D, CountOfThreeReason.UNUSUAL_BLEEDING);
+      } else {
+        checkpoint.consecutiveDaysOfNonPeakMucus = 0;
+        if (state.todayHasMucus) {
+          checkpoint.mostRecentPeakTypeMucus = e.entryDate;
         }
+      }
+    }
+    int consecutiveDaysOfNonPeakMucus = checkpoint.consecutiveDaysOfNonPeakMucus;
+    state.hasHadLegitFlow = checkpoint.hasHadLegitFlow;
+    if (state.todayHasBlood || state.todaysFlow != null) {
+      checkpoint.numDaysOfFlow++;
+    }
+    state.isInMenstrualFlow = checkpoint.numEntriesEvaluated == checkpoint.numDaysOfFlow;
+    if (!state.isInMenstrualFlow && state.todayHasBlood && !e.observationEntry.isEssentiallyTheSame) {
+      checkpoint.mostRecentUnusualBleeding = e.entryDate;
+    }
+    if (e.observationEntry.uncertain) {
+      checkpoint.mostRecentUncertainty = e.entryDate;
+    }
+    state.firstPeakDay = Optional.ofNullable(checkpoint.firstPeakDay);
+    state.mostRecentPeakDay = Optional.ofNullable(checkpoint.mostRecentPeakDay);
+    state.hasHadAnyMucus = checkpoint.hasHadAnyMucus;
+    state.hadIntercourseYesterday = checkpoint.previousEntry != null
+        && checkpoint.previousEntry.entryDate.equals(yesterday)
+        && checkpoint.previousEntry.observationEntry.intercourseTimeOfDay != IntercourseTimeOfDay.NONE;
+    if (checkpoint.mostRecentPeakDay != null) {
+      state.countsOfThree.put(
+          CountOfThreeReason.PEAK_DAY,
+          Days.daysBetween(checkpoint.mostRecentPeakDay, e.entryDate).getDays());
+    }
+    if (checkpoint.lastDayOfThreeOrMoreDaysOfMucus != null) {
+      state.countsOfThree.put(
+          CountOfThreeReason.CONSECUTIVE_DAYS_OF_MUCUS,
+          Days.daysBetween(checkpoint.lastDayOfThreeOrMoreDaysOfMucus, e.entryDate).getDays());
+    }
+    if (checkpoint.mostRecentPeakTypeMucus != null) {
+      state.countsOfThree.put(
+          CountOfThreeReason.PEAK_TYPE_MUCUS,
+          Days.daysBetween(checkpoint.mostRecentPeakTypeMucus, e.entryDate).getDays());
+    }
+    if (checkpoint.mostRecentUnusualBleeding != null) {
+      state.countsOfThree.put(
+          CountOfThreeReason.UNUSUAL_BLEEDING,
+          Days.daysBetween(checkpoint.mostRecentUnusualBleeding, e.entryDate).getDays());
+    }
+    if (checkpoint.mostRecentPointOfChangeAway != null) {
+      state.countsOfThree.put(
+          CountOfThreeReason.POINT_OF_CHANGE,
+          Days.daysBetween(checkpoint.mostRecentPointOfChangeAway.minusDays(1), e.entryDate).getDays());
+    }
+    Optional<LocalDate> effectivePointOfChange = checkpoint.effectivePointOfChange();
+    if (effectivePointOfChange.isPresent()) {
+      Integer existingCount = state.countsOfThree.get(CountOfThreeReason.POINT_OF_CHANGE);
+      int count = Days.daysBetween(effectivePointOfChange.get(), e.entryDate).getDays();
+      if (existingCount == null || count < existingCount) {
+        state.countsOfThree.put(CountOfThreeReason.POINT_OF_CHANGE, count);
+      }
+    }
+    if (checkpoint.mostRecentUncertainty != null) {
+      state.countsOfThree.put(
+          CountOfThreeReason.UNCERTAIN,
+          Days.daysBetween(checkpoint.mostRecentUncertainty, e.entryDate).getDays());
+    }
+    checkpoint.previousEntry = e;
 
-        // Special Instruction Yellow Stamp infertility reasons (section 2)
-        if (state.instructions.isActive(YellowStampInstruction.YS_2_A)
-            && state.isPrePeak()
-            && !state.isInMenstrualFlow
-            && (!effectivePointOfChange.isPresent()
-            || state.entryDate.isBefore(effectivePointOfChange.get()))) {
-          state.suppressBasicInstructions(BasicInstruction.suppressableByPrePeakYellow, YellowStampInstruction.YS_2_A);
-        }
-        if (state.isPostPeakPlus(4)) {
-          if (state.instructions.isActive(YellowStampInstruction.YS_2_B)) {
-            state.suppressBasicInstructions(BasicInstruction.suppressableByPostPeakYellow, YellowStampInstruction.YS_2_B);
-          }
-          if (state.instructions.isActive(YellowStampInstruction.YS_2_C)) {
-            state.suppressBasicInstructions(BasicInstruction.suppressableByPostPeakYellow, YellowStampInstruction.YS_2_C);
-          }
-          if (state.instructions.isActive(YellowStampInstruction.YS_2_D)) {
-            state.suppressBasicInstructions(BasicInstruction.suppressableByPostPeakYellow, YellowStampInstruction.YS_2_D);
-          }
-        }
+    // Step 2: Evaluate fertility reasons
+    state.instructions = mInstructionTimeline.activeOn(e.entryDate);
 
-        // Super special infertility instructions...
-        if (state.instructions.isActive(SpecialInstruction.BREASTFEEDING_SEMINAL_FLUID_YELLOW_STAMPS)) {
-          if (state.hadIntercourseYesterday
-              && state.entry.observationEntry.observation != null
-              && state.entry.observationEntry.observation.dischargeSummary.isPeakType()
-              && state.entry.observationEntry.isEssentiallyTheSame) {
-            state.suppressBasicInstructions(BasicInstruction.suppressableByPrePeakYellow, SpecialInstruction.BREASTFEEDING_SEMINAL_FLUID_YELLOW_STAMPS);
-          }
-          if (state.countOfThreeReasons.containsKey(BasicInstruction.D_5)) {
-            int count = state.countsOfThree.get(state.countOfThreeReasons.get(BasicInstruction.D_5));
-            int previousIndex = entriesEvaluated.size() - count - 2;
-            if (previousIndex >= 0) {
-              ChartEntry pe = Iterators.get(mEntries.iterator(), previousIndex);
-              ChartEntry cse = Iterators.get(mEntries.iterator(), previousIndex + 1);
-              if (pe.observationEntry.intercourse && cse.observationEntry.isEssentiallyTheSame) {
-                state.suppressBasicInstructions(BasicInstruction.suppressableByPrePeakYellow, SpecialInstruction.BREASTFEEDING_SEMINAL_FLUID_YELLOW_STAMPS);
-              }
-            }
-          }
-        }
+    // Basic Instruction fertility reasons (section D)
+    if (state.instructions.isActive(BasicInstruction.D_1)
+        && state.isInMenstrualFlow) {
+      state.fertilityReasons.add(BasicInstruction.D_1);
+    }
+    if (state.instructions.isActive(BasicInstruction.D_2)
+        && state.todayHasMucus
+        && !state.isPostPeakPlus(3)) {
+      state.fertilityReasons.add(BasicInstruction.D_2);
+      state.countOfThreeReasons.put(BasicInstruction.D_2, CountOfThreeReason.PEAK_DAY);
+    }
+    if (state.instructions.isActive(BasicInstruction.D_3)
+        && state.isPrePeak()
+        && consecutiveDaysOfNonPeakMucus > 0
+        && consecutiveDaysOfNonPeakMucus < 3) {
+      state.fertilityReasons.add(BasicInstruction.D_3);
+    }
+    if (state.instructions.isActive(BasicInstruction.D_4)
+        && state.isPrePeak()
+        && state.isWithinCountOfThree(CountOfThreeReason.CONSECUTIVE_DAYS_OF_MUCUS)) {
+      state.fertilityReasons.add(BasicInstruction.D_4);
+      state.countOfThreeReasons.put(BasicInstruction.D_4, CountOfThreeReason.CONSECUTIVE_DAYS_OF_MUCUS);
+    }
+    if (state.instructions.isActive(BasicInstruction.D_5)
+        && state.isWithinCountOfThree(CountOfThreeReason.PEAK_TYPE_MUCUS)) {
+      state.fertilityReasons.add(BasicInstruction.D_5);
+      state.countOfThreeReasons.put(BasicInstruction.D_5, CountOfThreeReason.PEAK_TYPE_MUCUS);
+    }
+    if (state.instructions.isActive(BasicInstruction.D_6)
+        && state.isWithinCountOfThree(CountOfThreeReason.UNUSUAL_BLEEDING)) {
+      state.fertilityReasons.add(BasicInstruction.D_6);
+      state.countOfThreeReasons.put(BasicInstruction.D_6, CountOfThreeReason.UNUSUAL_BLEEDING);
+    }
 
-        for (Map.Entry<AbstractInstruction, CountOfThreeReason> mapEntry : state.countOfThreeReasons.entrySet()) {
-          Optional<Integer> count = state.getCount(mapEntry.getValue());
-          if (!count.isPresent()) {
-            continue;
-          }
-          if (state.effectiveCountOfThree.first == null || count.get() < state.effectiveCountOfThree.first) {
-            state.effectiveCountOfThree = Pair.create(count.get(), mapEntry.getKey());
+    // Basic Instruction infertility reasons (section E)
+    if (!state.todayHasMucus && !state.isInMenstrualFlow && state.isPrePeak()) {
+      if (state.instructions.isActive(BasicInstruction.E_1)) {
+        state.infertilityReasons.add(BasicInstruction.E_1);
+      }
+      if (state.instructions.isActive(BasicInstruction.E_2)) {
+        state.infertilityReasons.add(BasicInstruction.E_2);
+      }
+    }
+    if (state.instructions.isActive(BasicInstruction.E_3)
+        && state.isExactlyPostPeakPlus(4)) {
+      state.infertilityReasons.add(BasicInstruction.E_3);
+    }
+    if (!state.todayHasMucus && state.isPostPeakPlus(4)) {
+      if (state.instructions.isActive(BasicInstruction.E_4)) {
+        state.infertilityReasons.add(BasicInstruction.E_4);
+      }
+      if (state.instructions.isActive(BasicInstruction.E_5)) {
+        state.infertilityReasons.add(BasicInstruction.E_5);
+      }
+      if (state.instructions.isActive(BasicInstruction.E_6)) {
+        state.infertilityReasons.add(BasicInstruction.E_6);
+      }
+    }
+    if (!state.todayHasMucus && state.isInMenstrualFlow && (
+        (state.todaysFlow != null && !state.todaysFlow.isLegit()) || state.todayHasBlood)) {
+      state.infertilityReasons.add(BasicInstruction.E_7);
+    }
+    if (state.instructions.isActive(BasicInstruction.H)
+        && state.isWithinCountOfThree(CountOfThreeReason.UNCERTAIN)) {
+      state.fertilityReasons.add(BasicInstruction.H);
+      state.countOfThreeReasons.put(BasicInstruction.H, CountOfThreeReason.UNCERTAIN);
+    }
+    // Basic Instruction yellow stamp reasons (section K)
+    if (state.instructions.isActive(BasicInstruction.K_1)
+        && state.isPrePeak()
+        && !state.isInMenstrualFlow
+        && (!effectivePointOfChange.isPresent()
+        || state.entryDate.isBefore(effectivePointOfChange.get()))) {
+      state.suppressBasicInstructions(BasicInstruction.suppressableByPrePeakYellow, BasicInstruction.K_1);
+    }
+    if (state.isPostPeak()) {
+      if (state.instructions.isActive(BasicInstruction.K_2)) {
+        state.suppressBasicInstructions(BasicInstruction.suppressableByPostPeakYellow, BasicInstruction.K_2);
+      }
+      if (state.instructions.isActive(BasicInstruction.K_3)) {
+        state.suppressBasicInstructions(BasicInstruction.suppressableByPostPeakYellow, BasicInstruction.K_3);
+      }
+      if (state.instructions.isActive(BasicInstruction.K_4)) {
+        state.suppressBasicInstructions(BasicInstruction.suppressableByPostPeakYellow, BasicInstruction.K_4);
+      }
+    }
+
+    // Special Instruction Yellow Stamp fertility reasons (section 1)
+    if (state.instructions.isActive(YellowStampInstruction.YS_1_A)
+        && state.isInMenstrualFlow) {
+      state.fertilityReasons.add(YellowStampInstruction.YS_1_A);
+    }
+    if (state.instructions.isActive(YellowStampInstruction.YS_1_B)
+        // This is to catch cases where you have a peak day w/o a point of change...
+        // TODO: flag this as an issue?
+        && (state.isWithinCountOfThree(CountOfThreeReason.PEAK_DAY)
+        || effectivePointOfChange.isPresent()
+        && !state.entryDate.isBefore(effectivePointOfChange.get())
+        && state.isPrePeak())) {
+      state.fertilityReasons.add(YellowStampInstruction.YS_1_B);
+      state.countOfThreeReasons.put(YellowStampInstruction.YS_1_B, CountOfThreeReason.PEAK_DAY);
+    }
+    if (state.instructions.isActive(YellowStampInstruction.YS_1_C)
+        && state.isWithinCountOfThree(CountOfThreeReason.POINT_OF_CHANGE)) {
+      state.fertilityReasons.add(YellowStampInstruction.YS_1_C);
+      state.countOfThreeReasons.put(YellowStampInstruction.YS_1_C, CountOfThreeReason.POINT_OF_CHANGE);
+    }
+    if (state.instructions.isActive(YellowStampInstruction.YS_1_D)
+        && state.isWithinCountOfThree(CountOfThreeReason.UNUSUAL_BLEEDING)) {
+      state.fertilityReasons.add(YellowStampInstruction.YS_1_D);
+      state.countOfThreeReasons.put(YellowStampInstruction.YS_1_D, CountOfThreeReason.UNUSUAL_BLEEDING);
+    }
+
+    // Special Instruction Yellow Stamp infertility reasons (section 2)
+    if (state.instructions.isActive(YellowStampInstruction.YS_2_A)
+        && state.isPrePeak()
+        && !state.isInMenstrualFlow
+        && (!effectivePointOfChange.isPresent()
+        || state.entryDate.isBefore(effectivePointOfChange.get()))) {
+      state.suppressBasicInstructions(BasicInstruction.suppressableByPrePeakYellow, YellowStampInstruction.YS_2_A);
+    }
+    if (state.isPostPeakPlus(4)) {
+      if (state.instructions.isActive(YellowStampInstruction.YS_2_B)) {
+        state.suppressBasicInstructions(BasicInstruction.suppressableByPostPeakYellow, YellowStampInstruction.YS_2_B);
+      }
+      if (state.instructions.isActive(YellowStampInstruction.YS_2_C)) {
+        state.suppressBasicInstructions(BasicInstruction.suppressableByPostPeakYellow, YellowStampInstruction.YS_2_C);
+      }
+      if (state.instructions.isActive(YellowStampInstruction.YS_2_D)) {
+        state.suppressBasicInstructions(BasicInstruction.suppressableByPostPeakYellow, YellowStampInstruction.YS_2_D);
+      }
+    }
+
+    // Super special infertility instructions...
+    if (state.instructions.isActive(SpecialInstruction.BREASTFEEDING_SEMINAL_FLUID_YELLOW_STAMPS)) {
+      if (state.hadIntercourseYesterday
+          && state.entry.observationEntry.observation != null
+          && state.entry.observationEntry.observation.dischargeSummary.isPeakType()
+          && state.entry.observationEntry.isEssentiallyTheSame) {
+        state.suppressBasicInstructions(BasicInstruction.suppressableByPrePeakYellow, SpecialInstruction.BREASTFEEDING_SEMINAL_FLUID_YELLOW_STAMPS);
+      }
+      if (state.countOfThreeReasons.containsKey(BasicInstruction.D_5)) {
+        int count = state.countsOfThree.get(state.countOfThreeReasons.get(BasicInstruction.D_5));
+        int previousIndex = checkpoint.numEntriesEvaluated - count - 2;
+        if (previousIndex >= 0) {
+          ChartEntry pe = mEntries.get(previousIndex);
+          ChartEntry cse = mEntries.get(previousIndex + 1);
+          if (pe.observationEntry.intercourse && cse.observationEntry.isEssentiallyTheSame) {
+            state.suppressBasicInstructions(BasicInstruction.suppressableByPrePeakYellow, SpecialInstruction.BREASTFEEDING_SEMINAL_FLUID_YELLOW_STAMPS);
           }
         }
-        renderableEntries.add(RenderableEntry.fromState(state));
-        previousEntry = e;
-      }
-
-      CycleStats.Builder statsBuilder = CycleStats.builder()
-          .cycleStartDate(mCycle.startDate)
-          .isPregnancy(mCycle.isPregnancy())
-          .daysWithAnObservation(daysWithAnObservation.size())
-          .mcs(MccScorer.getScore(mEntries, peakDays.isEmpty() ? Optional.empty() : Optional.of(peakDays.last())));
-      if (!peakDays.isEmpty()) {
-        statsBuilder.daysPrePeak(Optional.of(Days.daysBetween(mCycle.startDate, peakDays.last()).getDays()));
-        if (mCycle.endDate != null) {
-          statsBuilder.daysPostPeak(Optional.of(Days.daysBetween(peakDays.last(), mCycle.endDate).getDays()));
-        }
       }
+    }
 
-      return RenderableCycle.builder()
-          .cycle(mCycle)
-          .entries(renderableEntries)
-          .stats(statsBuilder.build())
-          .build();
-    } finally {
-      Timber.v("Rendered cycle starting %s in %d ms", mCycle.startDate, System.currentTimeMillis() - renderStartMs);
+    for (Map.Entry<AbstractInstruction, CountOfThreeReason> mapEntry : state.countOfThreeReasons.entrySet()) {
+      Integer count = state.countsOfThree.get(mapEntry.getValue());
+      if (count == null) {
+        continue;
+      }
+      if (state.effectiveCountOfThree.first == null || count < state.effectiveCountOfThree.first) {
+        state.effectiveCountOfThree = Pair.create(count, mapEntry.getKey());
+      }
     }
+    return RenderableEntry.fromState(state);
   }
 
-  private static Optional<LocalDate> effectivePointOfChange(TreeSet<LocalDate> toward, TreeSet<LocalDate> away) {
-    if (toward.isEmpty() || toward.size() == away.size()) {
-      return Optional.empty();
+  /**
+   * Running totals carried from one day of the cycle to the next. A copy is kept for every entry
+   * of the last render so that a later render can resume from the day before the first change.
+   */
+  private static class Checkpoint {
+    int numEntriesEvaluated;
+    int numDaysOfFlow;
+    int numDaysWithAnObservation;
+    int numPointsOfChangeToward;
+    int numPointsOfChangeAway;
+    int consecutiveDaysOfNonPeakMucus;
+    boolean hasHadAnyMucus;
+    boolean hasHadLegitFlow;
+    @Nullable LocalDate firstPeakDay;
+    @Nullable LocalDate mostRecentPeakDay;
+    @Nullable LocalDate firstPointOfChangeToward;
+    @Nullable LocalDate mostRecentPointOfChangeToward;
+    @Nullable LocalDate mostRecentPointOfChangeAway;
+    @Nullable LocalDate mostRecentPeakTypeMucus;
+    @Nullable LocalDate lastDayOfThreeOrMoreDaysOfMucus;
+    @Nullable LocalDate mostRecentUnusualBleeding;
+    @Nullable LocalDate mostRecentUncertainty;
+    @Nullable ChartEntry previousEntry;
+
+    Checkpoint() {}
+
+    Checkpoint(Checkpoint that) {
+      this.numEntriesEvaluated = that.numEntriesEvaluated;
+      this.numDaysOfFlow = that.numDaysOfFlow;
+      this.numDaysWithAnObservation = that.numDaysWithAnObservation;
+      this.numPointsOfChangeToward = that.numPointsOfChangeToward;
+      this.numPointsOfChangeAway = that.numPointsOfChangeAway;
+      this.consecutiveDaysOfNonPeakMucus = that.consecutiveDaysOfNonPeakMucus;
+      this.hasHadAnyMucus = that.hasHadAnyMucus;
+      this.hasHadLegitFlow = that.hasHadLegitFlow;
+      this.firstPeakDay = that.firstPeakDay;
+      this.mostRecentPeakDay = that.mostRecentPeakDay;
+      this.firstPointOfChangeToward = that.firstPointOfChangeToward;
+      this.mostRecentPointOfChangeToward = that.mostRecentPointOfChangeToward;
+      this.mostRecentPointOfChangeAway = that.mostRecentPointOfChangeAway;
+      this.mostRecentPeakTypeMucus = that.mostRecentPeakTypeMucus;
+      this.lastDayOfThreeOrMoreDaysOfMucus = that.lastDayOfThreeOrMoreDaysOfMucus;
+      this.mostRecentUnusualBleeding = that.mostRecentUnusualBleeding;
+      this.mostRecentUncertainty = that.mostRecentUncertainty;
+      this.previousEntry = that.previousEntry;
+    }
+
+    Optional<LocalDate> effectivePointOfChange() {
+      if (numPointsOfChangeToward == 0 || numPointsOfChangeToward == numPointsOfChangeAway) {
+        return Optional.empty();
+      }
+      return Optional.of(mostRecentPointOfChangeToward);
     }
-    return Optional.of(toward.last());
   }
 
   public static class State {
+    private static final Pair<Integer, AbstractInstruction> NO_COUNT_OF_THREE = Pair.create(null, null);
+
     public Cycle cycle;
     public Optional<Cycle> previousCycle;
     @Deprecated  ChartEntry entry;
     public LocalDate entryDate;
-    public Instructions instructions;
+    public CompiledInstructions instructions;
     public int entryNum;
     public Optional<LocalDate> firstPeakDay;
     public Optional<LocalDate> mostRecentPeakDay;
@@ -434,16 +596,29 @@ public class CycleRenderer {
     public boolean todayHasMucus;
     public boolean hasHadAnyMucus;
     public boolean hadIntercourseYesterday;
-    public Map<CountOfThreeReason, Integer> countsOfThree = new HashMap<>();
+    public Map<CountOfThreeReason, Integer> countsOfThree = new EnumMap<>(CountOfThreeReason.class);
 
     public InstructionSet fertilityReasons = new InstructionSet();
     public InstructionSet infertilityReasons = new InstructionSet();
     public Map<AbstractInstruction, AbstractInstruction> suppressedFertilityReasons = new HashMap<>();
 
     public Map<AbstractInstruction, CountOfThreeReason> countOfThreeReasons = new HashMap<>();
-    public Pair<Integer, AbstractInstruction> effectiveCountOfThree = Pair.create(null, null);
+    public Pair<Integer, AbstractInstruction> effectiveCountOfThree = NO_COUNT_OF_THREE;
     public ChartEntry previousEntry;
 
+    /**
+     * Clears what the rules collect so the state can be reused for the next entry. Every other
+     * field is set before the rules run.
+     */
+    void reset() {
+      countsOfThree.clear();
+      fertilityReasons.clear();
+      infertilityReasons.clear();
+      suppressedFertilityReasons.clear();
+      countOfThreeReasons.clear();
+      effectiveCountOfThree = NO_COUNT_OF_THREE;
+    }
+
     boolean isPrePeak() {
       return !firstPeakDay.isPresent() || entryDate.isBefore(firstPeakDay.get());
     }
@@ -477,8 +652,8 @@ public class CycleRenderer {
     }
 
     boolean isWithinCountOfThree(CountOfThreeReason reason) {
-      Optional<Integer> count = getCount(reason);
-      return count.isPresent() && count.get() < 4;
+      Integer count = countsOfThree.get(reason);
+      return count != null && count < 4;
     }
 
     void suppressBasicInstructions(Collection<BasicInstruction> instructionsToSuppress,
@@ -493,7 +668,15 @@ public class CycleRenderer {
     }
 
     String getInstructionSummary() {
-      if (entry.observationEntry.observation == null) {
+      return instructionSummary(entry.observationEntry.observation != null,
+          fertilityReasons, infertilityReasons, suppressedFertilityReasons);
+    }
+
+    static String instructionSummary(boolean hasObservation,
+                                     Collection<AbstractInstruction> fertilityReasons,
+                                     Collection<AbstractInstruction> infertilityReasons,
+                                     Map<AbstractInstruction, AbstractInstruction> suppressedFertilityReasons) {
+      if (!hasObservation) {
         return "Please provide an observation by clicking edit below.";
       }
       List<String> instructionSummaryLines = new ArrayList<>();
@@ -570,9 +753,10 @@ public class CycleRenderer {
           todaysFlow != null || todayHasBlood,
           todayHasMucus,
           isInMenstrualFlow,
-          hasInstructions && instructions.specialInstructions.size() + instructions.yellowStampInstructions.size() > 0,
-          fertilityReasons,
-          infertilityReasons);
+          hasInstructions && (instructions.hasSpecialInstructions() || instructions.hasYellowStampInstructions()),
+          // Copied since the state is reused for the next entry
+          fertilityReasons.copyOf(),
+          infertilityReasons.copyOf());
     }
   }
 
@@ -610,6 +794,7 @@ public class CycleRenderer {
     public abstract Optional<Float> mcs();
     public abstract Optional<Integer> daysPrePeak();
     public abstract Optional<Integer> daysPostPeak();
+    public abstract Optional<Integer> cycleLength();
 
     @Override
     public int compareTo(CycleStats other) {
@@ -622,7 +807,8 @@ public class CycleRenderer {
           .isPregnancy(false)
           .daysWithAnObservation(0)
           .daysPrePeak(Optional.empty())
-          .daysPostPeak(Optional.empty());
+          .daysPostPeak(Optional.empty())
+          .cycleLength(Optional.empty());
     }
 
     @AutoValue.Builder
@@ -639,6 +825,8 @@ public class CycleRenderer {
 
       public abstract Builder daysPostPeak(Optional<Integer> daysPostPeak);
 
+      public abstract Builder cycleLength(Optional<Integer> cycleLength);
+
       public abstract CycleStats build();
     }
   }
@@ -648,9 +836,9 @@ public class CycleRenderer {
     public abstract boolean hasObservation();
     public abstract Optional<String> entrySummary();
     public abstract int entryNum();
-    public abstract String dateSummary();
-    public abstract String dateSummaryShort();
-    public abstract String instructionSummary();
+    abstract Lazy<String> lazyDateSummary();
+    abstract Lazy<String> lazyDateSummaryShort();
+    abstract Lazy<String> lazyInstructionSummary();
     public abstract String essentialSamenessSummary();
     public abstract IntercourseTimeOfDay intercourseTimeOfDay();
     public abstract String pocSummary();
@@ -658,10 +846,37 @@ public class CycleRenderer {
     public abstract String trainingMarker();
     public abstract boolean canSelectYellowStamps();
     public abstract StickerSelectionContext stickerSelectionContext();
-    public abstract StickerSelection expectedStickerSelection();
+    abstract Lazy<StickerSelection> lazyExpectedStickerSelection();
     public abstract Optional<StickerSelection> manualStickerSelection();
     public abstract Optional<MonitorReading> monitorReading();
 
+    // Text fields are only needed for the handful of entries on screen so they're computed on
+    // first access rather than for every day of every cycle.
+
+    public String dateSummary() {
+      return lazyDateSummary().get();
+    }
+
+    public String dateSummaryShort() {
+      return lazyDateSummaryShort().get();
+    }
+
+    public String instructionSummary() {
+      return lazyInstructionSummary().get();
+    }
+
+    public StickerSelection expectedStickerSelection() {
+      return lazyExpectedStickerSelection().get();
+    }
+
+    @VisibleForTesting
+    boolean isTextComputed() {
+      return lazyDateSummary().isInitialized()
+          || lazyDateSummaryShort().isInitialized()
+          || lazyInstructionSummary().isInitialized()
+          || lazyExpectedStickerSelection().isInitialized();
+    }
+
     // TODO: add EoD / any time of day accounting for double peak Q's
 
     public static RenderableEntry fromState(State state) {
@@ -673,33 +888,45 @@ public class CycleRenderer {
       } else {
         pocSummary = "";
       }
+      EntryModificationContext modificationContext = state.entryModificationContext();
       String essentialSamenessSummary;
-      if (state.entryModificationContext().shouldAskEssentialSameness) {
+      if (modificationContext.shouldAskEssentialSameness) {
         essentialSamenessSummary = state.entry.observationEntry.isEssentiallyTheSame ? "yes" : "no";
       } else {
         essentialSamenessSummary = "";
       }
       StickerSelectionContext stickerSelectionContext = state.stickerSelectionContext();
+      // The lazy fields only capture their inputs since the state is reused for the next entry
+      LocalDate entryDate = state.entryDate;
+      boolean hasObservation = state.entry.observationEntry.observation != null;
+      InstructionSet fertilityReasons = stickerSelectionContext.fertilityReasons;
+      InstructionSet infertilityReasons = stickerSelectionContext.infertilityReasons;
+      ImmutableMap<AbstractInstruction, AbstractInstruction> suppressedFertilityReasons =
+          ImmutableMap.copyOf(state.suppressedFertilityReasons);
       return builder()
           .manualStickerSelection(Optional.ofNullable(state.entry.stickerSelection))
           .hasObservation(state.entry.hasObservation())
           .entryNum(state.entryNum)
-          .dateSummary(DateUtil.toNewUiStr(state.entryDate))
-          .dateSummaryShort(DateUtil.toPrintUiStr(state.entryDate))
+          .lazyDateSummary(Lazy.of(entryDate, () -> DateUtil.toNewUiStr(entryDate)))
+          .lazyDateSummaryShort(Lazy.of(entryDate, () -> DateUtil.toPrintUiStr(entryDate)))
           .entrySummary(state.entry.observationEntry.getListUiText())
           .intercourseTimeOfDay(Optional.ofNullable(state.entry.observationEntry.intercourseTimeOfDay)
               .orElse(IntercourseTimeOfDay.NONE))
           .pocSummary(pocSummary)
-          .instructionSummary(state.getInstructionSummary())
-          .modificationContext(state.entryModificationContext())
+          .lazyInstructionSummary(Lazy.of(
+              ImmutableList.of(hasObservation, fertilityReasons, infertilityReasons, suppressedFertilityReasons),
+              () -> State.instructionSummary(
+                  hasObservation, fertilityReasons, infertilityReasons, suppressedFertilityReasons)))
+          .modificationContext(modificationContext)
           .essentialSamenessSummary(essentialSamenessSummary)
           .trainingMarker(state.entry.marker)
           .canSelectYellowStamps(
               state.instructions.anyActive(BasicInstruction.yellowBasicInstructions)
-              || !state.instructions.yellowStampInstructions.isEmpty()
-              || state.instructions.specialInstructions.contains(SpecialInstruction.BREASTFEEDING_SEMINAL_FLUID_YELLOW_STAMPS))
+              || state.instructions.hasYellowStampInstructions()
+              || state.instructions.isActive(SpecialInstruction.BREASTFEEDING_SEMINAL_FLUID_YELLOW_STAMPS))
           .stickerSelectionContext(stickerSelectionContext)
-          .expectedStickerSelection(stickerSelectionContext.expectedSelection())
+          .lazyExpectedStickerSelection(
+              Lazy.of(stickerSelectionContext, stickerSelectionContext::expectedSelection))
           .monitorReading(Optional.ofNullable(state.entry.measurementEntry)
               .map(me -> me.monitorReading)
               .flatMap(r -> r == MonitorReading.UNKNOWN ? Optional.empty() : Optional.of(r)))
@@ -722,9 +949,17 @@ public class CycleRenderer {
 
       public abstract Builder entryNum(int entryNum);
 
-      public abstract Builder dateSummary(String dateSummary);
+      public Builder dateSummary(String dateSummary) {
+        return lazyDateSummary(Lazy.value(dateSummary));
+      }
+
+      abstract Builder lazyDateSummary(Lazy<String> dateSummary);
 
-      public abstract Builder instructionSummary(String instructionSummary);
+      public Builder instructionSummary(String instructionSummary) {
+        return lazyInstructionSummary(Lazy.value(instructionSummary));
+      }
+
+      abstract Builder lazyInstructionSummary(Lazy<String> instructionSummary);
 
       public abstract Builder essentialSamenessSummary(String essentialSamenessSummary);
 
@@ -736,7 +971,11 @@ public class CycleRenderer {
 
       public abstract Builder trainingMarker(String trainingMarker);
 
-      public abstract Builder dateSummaryShort(String dateSummaryShort);
+      public Builder dateSummaryShort(String dateSummaryShort) {
+        return lazyDateSummaryShort(Lazy.value(dateSummaryShort));
+      }
+
+      abstract Builder lazyDateSummaryShort(Lazy<String> dateSummaryShort);
 
       public abstract Builder hasObservation(boolean hasObservation);
 
@@ -744,7 +983,11 @@ public class CycleRenderer {
 
       public abstract Builder canSelectYellowStamps(boolean canSelectYellowStamps);
 
-      public abstract Builder expectedStickerSelection(StickerSelection stickerSelection);
+      public Builder expectedStickerSelection(StickerSelection stickerSelection) {
+        return lazyExpectedStickerSelection(Lazy.value(stickerSelection));
+      }
+
+      abstract Builder lazyExpectedStickerSelection(Lazy<StickerSelection> stickerSelection);
 
       public abstract Builder stickerSelectionContext(StickerSelectionContext context);
 
@@ -805,7 +1048,7 @@ public class CycleRenderer {
     }
 
     private Sticker getSticker() {
-      return StickerSelector.select(this).sticker;
+      return StickerSelector.selectSticker(this);
     }
 
     @Nullable
@@ -0,0 +1,148 @@
+package com.bloomcyclecare.cmcc.logic.chart;
+
+import com.bloomcyclecare.cmcc.data.db.CycleStatsDao;
+import com.bloomcyclecare.cmcc.data.models.charting.ChartEntry;
+import com.bloomcyclecare.cmcc.data.models.charting.Cycle;
+import com.bloomcyclecare.cmcc.data.models.charting.CycleStats;
+import com.bloomcyclecare.cmcc.data.repos.entry.ROChartEntryRepo;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
+
+import org.joda.time.LocalDate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import timber.log.Timber;
+
+/**
+ * Keeps the {@link CycleRenderer.CycleStats} of each cycle in the CycleStats table so screens
+ * which only need cycle level numbers don't have to read every entry, let alone render them.
+ * Rows are dropped when entries or cycles in their date range change and are recomputed on the
+ * next read.
+ */
+class CycleStatsStore {
+
+  private final CycleStatsDao mDao;
+  private final ROChartEntryRepo mEntryRepo;
+
+  CycleStatsStore(CycleStatsDao dao, ROChartEntryRepo entryRepo) {
+    mDao = dao;
+    mEntryRepo = entryRepo;
+  }
+
+  /**
+   * Stats for the cycles, in the same order. Only cycles without a current row are computed.
+   */
+  Flowable<List<CycleRenderer.CycleStats>> stats(List<Cycle> cycles) {
+    return mDao.getStream()
+        .observeOn(Schedulers.computation())
+        .switchMapMaybe(rows -> {
+          Map<LocalDate, CycleStats> rowsByStartDate = new HashMap<>();
+          for (CycleStats row : rows) {
+            rowsByStartDate.put(row.cycleStartDate, row);
+          }
+          List<Cycle> staleCycles = new ArrayList<>();
+          List<CycleRenderer.CycleStats> stats = new ArrayList<>(cycles.size());
+          for (Cycle cycle : cycles) {
+            CycleStats row = rowsByStartDate.get(cycle.startDate);
+            if (row == null || !row.matches(cycle)) {
+              staleCycles.add(cycle);
+            } else {
+              stats.add(fromRow(row));
+            }
+          }
+          if (staleCycles.isEmpty()) {
+            return Maybe.just(stats);
+          }
+          Timber.v("Computing stats for %d of %d cycles", staleCycles.size(), cycles.size());
+          // Writing the rows brings us back around with all of them current
+          return compute(mEntryRepo, staleCycles)
+              .firstOrError()
+              .flatMapCompletable(computedStats -> mDao.insert(toRows(staleCycles, computedStats)))
+              .andThen(Maybe.empty());
+        })
+        .distinctUntilChanged();
+  }
+
+  /**
+   * Drops the stats of every cycle including one of the updated days. An unbounded range, e.g.
+   * after all entries are deleted, drops every row.
+   */
+  Disposable invalidateOn(Flowable<Range<LocalDate>> updatedRanges) {
+    return updatedRanges
+        .observeOn(Schedulers.io())
+        .concatMapCompletable(range -> range.hasLowerBound() && range.hasUpperBound()
+            ? mDao.deleteOverlapping(range.lowerEndpoint(), range.upperEndpoint())
+            : mDao.deleteAll())
+        .subscribe(() -> {}, t -> Timber.e(t, "Error invalidating cycle stats"));
+  }
+
+  /**
+   * Stats for the cycles, in the same order, from one query over all of their entries.
+   */
+  static Flowable<List<CycleRenderer.CycleStats>> compute(ROChartEntryRepo entryRepo, List<Cycle> cycles) {
+    if (cycles.isEmpty()) {
+      return Flowable.just(ImmutableList.of());
+    }
+    LocalDate firstDay = cycles.get(0).startDate;
+    LocalDate lastDay = LocalDate.now();
+    for (Cycle cycle : cycles) {
+      if (cycle.startDate.isBefore(firstDay)) {
+        firstDay = cycle.startDate;
+      }
+      if (cycle.endDate != null && cycle.endDate.isAfter(lastDay)) {
+        lastDay = cycle.endDate;
+      }
+    }
+    return entryRepo.getAllBetween(firstDay, lastDay)
+        .observeOn(Schedulers.computation())
+        .map(entries -> statsByCycle(cycles, entries));
+  }
+
+  private static List<CycleRenderer.CycleStats> statsByCycle(List<Cycle> cycles, List<ChartEntry> entries) {
+    // One set of columns for every cycle, each cycle only looks at its slice
+    CycleColumns columns = CycleColumns.of(entries);
+    List<CycleRenderer.CycleStats> stats = new ArrayList<>(cycles.size());
+    for (Cycle cycle : cycles) {
+      stats.add(CycleRenderer.computeStats(cycle, columns.between(cycle.startDate, cycle.endDate)));
+    }
+    return stats;
+  }
+
+  private static List<CycleStats> toRows(List<Cycle> cycles, List<CycleRenderer.CycleStats> stats) {
+    List<CycleStats> rows = new ArrayList<>(cycles.size());
+    for (int i = 0; i < cycles.size(); i++) {
+      CycleStats row = new CycleStats();
+      row.cycleStartDate = cycles.get(i).startDate;
+      row.cycleEndDate = cycles.get(i).endDate;
+      row.mcs = stats.get(i).mcs().orElse(null);
+      row.daysPrePeak = stats.get(i).daysPrePeak().orElse(null);
+      row.daysPostPeak = stats.get(i).daysPostPeak().orElse(null);
+      row.daysWithAnObservation = stats.get(i).daysWithAnObservation();
+      row.isPregnancy = stats.get(i).isPregnancy();
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  private static CycleRenderer.CycleStats fromRow(CycleStats row) {
+    return CycleRenderer.CycleStats.builder()
+        .cycleStartDate(row.cycleStartDate)
+        .mcs(Optional.ofNullable(row.mcs))
+        .daysPrePeak(Optional.ofNullable(row.daysPrePeak))
+        .daysPostPeak(Optional.ofNullable(row.daysPostPeak))
+        .daysWithAnObservation(row.daysWithAnObservation)
+        .isPregnancy(row.isPregnancy)
+        .cycleLength(row.cycleEndDate == null ? Optional.empty() : Optional.of(
+            CycleColumns.epochDay(row.cycleEndDate) - CycleColumns.epochDay(row.cycleStartDate) + 1))
+        .build();
+  }
+}
@@ -0,0 +1,179 @@
+package com.bloomcyclecare.cmcc.logic.chart;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Distributions of the {@link CycleRenderer.CycleStats} of every finished cycle. The current cycle
+ * and pregnancies are left out since they would skew the phase lengths. Only needs the per cycle
+ * stats so it's cheap to recompute whenever a cycle closes or is edited.
+ */
+public final class CycleTrends {
+
+  public enum Metric {
+    CYCLE_LENGTH, DAYS_PRE_PEAK, DAYS_POST_PEAK, MCS
+  }
+
+  // Oldest first
+  private final List<CycleRenderer.CycleStats> mCycles;
+  private final Map<Metric, Distribution> mDistributions = new EnumMap<>(Metric.class);
+
+  private CycleTrends(List<CycleRenderer.CycleStats> cycles) {
+    mCycles = cycles;
+    for (Metric metric : Metric.values()) {
+      mDistributions.put(metric, Distribution.of(values(cycles, metric)));
+    }
+  }
+
+  public static CycleTrends of(Collection<CycleRenderer.CycleStats> stats) {
+    List<CycleRenderer.CycleStats> cycles = new ArrayList<>(stats.size());
+    for (CycleRenderer.CycleStats cycleStats : stats) {
+      if (cycleStats.cycleLength().isPresent() && !cycleStats.isPregnancy()) {
+        cycles.add(cycleStats);
+      }
+    }
+    Collections.sort(cycles);
+    return new CycleTrends(ImmutableList.copyOf(cycles));
+  }
+
+  public int numCycles() {
+    return mCycles.size();
+  }
+
+  public Distribution distribution(Metric metric) {
+    return mDistributions.get(metric);
+  }
+
+  /**
+   * The trends over only the most recent cycles.
+   */
+  public CycleTrends mostRecent(int numCycles) {
+    if (numCycles >= mCycles.size()) {
+      return this;
+    }
+    return new CycleTrends(mCycles.subList(mCycles.size() - numCycles, mCycles.size()));
+  }
+
+  /**
+   * The median over each run of windowSize cycles, oldest first, starting with the window ending
+   * on the windowSize-th cycle. Windows without any values for the metric are empty.
+   */
+  public List<Optional<Float>> rollingMedians(Metric metric, int windowSize) {
+    List<Optional<Float>> medians = new ArrayList<>();
+    for (int end = windowSize; end <= mCycles.size(); end++) {
+      medians.add(Distribution.of(values(mCycles.subList(end - windowSize, end), metric)).median());
+    }
+    return medians;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof CycleTrends && mCycles.equals(((CycleTrends) o).mCycles);
+  }
+
+  @Override
+  public int hashCode() {
+    return mCycles.hashCode();
+  }
+
+  private static float[] values(List<CycleRenderer.CycleStats> cycles, Metric metric) {
+    float[] values = new float[cycles.size()];
+    int numValues = 0;
+    for (CycleRenderer.CycleStats cycleStats : cycles) {
+      Optional<? extends Number> value = value(cycleStats, metric);
+      if (value.isPresent()) {
+        values[numValues++] = value.get().floatValue();
+      }
+    }
+    return Arrays.copyOf(values, numValues);
+  }
+
+  private static Optional<? extends Number> value(CycleRenderer.CycleStats cycleStats, Metric metric) {
+    switch (metric) {
+      case CYCLE_LENGTH:
+        return cycleStats.cycleLength();
+      case DAYS_PRE_PEAK:
+        return cycleStats.daysPrePeak();
+      case DAYS_POST_PEAK:
+        return cycleStats.daysPostPeak();
+      case MCS:
+        return cycleStats.mcs();
+      default:
+        throw new IllegalArgumentException("Unknown metric: " + metric);
+    }
+  }
+
+  /**
+   * The values of one metric, sorted.
+   */
+  public static final class Distribution {
+
+    private final float[] mSortedValues;
+
+    private Distribution(float[] sortedValues) {
+      mSortedValues = sortedValues;
+    }
+
+    static Distribution of(float[] values) {
+      Arrays.sort(values);
+      return new Distribution(values);
+    }
+
+    public int count() {
+      return mSortedValues.length;
+    }
+
+    public Optional<Float> min() {
+      return count() == 0 ? Optional.empty() : Optional.of(mSortedValues[0]);
+    }
+
+    public Optional<Float> max() {
+      return count() == 0 ? Optional.empty() : Optional.of(mSortedValues[count() - 1]);
+    }
+
+    public Optional<Float> median() {
+      return percentile(50);
+    }
+
+    /**
+     * Interpolates between the closest values, so the 50th percentile of an even number of values
+     * is the mean of the middle two.
+     */
+    public Optional<Float> percentile(float percentile) {
+      if (percentile < 0 || percentile > 100) {
+        throw new IllegalArgumentException("Percentile out of range: " + percentile);
+      }
+      if (count() == 0) {
+        return Optional.empty();
+      }
+      float rank = percentile / 100 * (count() - 1);
+      int lower = (int) Math.floor(rank);
+      int upper = (int) Math.ceil(rank);
+      float fraction = rank - lower;
+      return Optional.of(mSortedValues[lower] + fraction * (mSortedValues[upper] - mSortedValues[lower]));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Distribution && Arrays.equals(mSortedValues, ((Distribution) o).mSortedValues);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(mSortedValues);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Distribution{count=%d, median=%s}", count(), median().orElse(null));
+    }
+  }
+}
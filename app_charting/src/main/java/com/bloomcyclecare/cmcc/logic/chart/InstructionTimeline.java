@@ -0,0 +1,53 @@
+package com.bloomcyclecare.cmcc.logic.chart;
+
+import com.bloomcyclecare.cmcc.data.models.instructions.CompiledInstructions;
+import com.bloomcyclecare.cmcc.data.models.instructions.Instructions;
+
+import org.joda.time.LocalDate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Instructions compiled once and sorted by start date. Lookups for increasing dates advance a
+ * cursor so a pass over a cycle is linear in the number of days plus instruction revisions.
+ */
+class InstructionTimeline {
+
+  private final LocalDate[] mStartDates;
+  private final CompiledInstructions[] mInstructions;
+  private final CompiledInstructions mNoInstructions;
+  private int mCursor = -1;
+
+  InstructionTimeline(Collection<Instructions> allInstructions, LocalDate earliestDate) {
+    List<Instructions> sortedInstructions = new ArrayList<>(allInstructions);
+    Collections.sort(sortedInstructions, (a, b) -> a.startDate.compareTo(b.startDate));
+    mStartDates = new LocalDate[sortedInstructions.size()];
+    mInstructions = new CompiledInstructions[sortedInstructions.size()];
+    for (int i = 0; i < sortedInstructions.size(); i++) {
+      mStartDates[i] = sortedInstructions.get(i).startDate;
+      mInstructions[i] = CompiledInstructions.compile(sortedInstructions.get(i));
+    }
+    mNoInstructions = CompiledInstructions.empty(earliestDate);
+  }
+
+  /**
+   * Returns the instructions active on the given date, or an empty set of instructions if none
+   * have started yet.
+   */
+  @NonNull
+  CompiledInstructions activeOn(LocalDate date) {
+    if (mCursor >= 0 && date.isBefore(mStartDates[mCursor])) {
+      // Moving backwards (e.g. resuming a render) so start over
+      mCursor = -1;
+    }
+    while (mCursor + 1 < mStartDates.length && !date.isBefore(mStartDates[mCursor + 1])) {
+      mCursor++;
+    }
+    return mCursor < 0 ? mNoInstructions : mInstructions[mCursor];
+  }
+}
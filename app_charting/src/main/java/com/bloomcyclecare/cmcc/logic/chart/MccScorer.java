@@ -11,16 +11,15 @@ import com.bloomcyclecare.cmcc.utils.DateUtil;
 import org.joda.time.LocalDate;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
-import java.util.SortedSet;
 
 public class MccScorer {
 
   private static final int EVALUATION_INTERVAL_DAYS = 6;
 
-  public static Optional<Float> getScore(SortedSet<ChartEntry> unfilteredEntries, Optional<LocalDate> peakDay) {
+  public static Optional<Float> getScore(Collection<ChartEntry> unfilteredEntries, Optional<LocalDate> peakDay) {
     if (!peakDay.isPresent()) {
       return Optional.empty();
     }
@@ -45,31 +44,53 @@ public class MccScorer {
     return Optional.of((float) totalPoints / EVALUATION_INTERVAL_DAYS);
   }
 
+  /**
+   * Same as {@link #getScore(Collection, Optional)} for the day at peakIndex, without creating
+   * anything per day.
+   */
+  public static Optional<Float> getScore(CycleColumns columns, int peakIndex) {
+    if (peakIndex < 0) {
+      return Optional.empty();
+    }
+    int firstEpochDay = columns.epochDay(peakIndex) - (EVALUATION_INTERVAL_DAYS - 1);
+    int totalPoints = 0;
+    for (int i = columns.indexOf(firstEpochDay); i <= peakIndex; i++) {
+      if (columns.has(i, CycleColumns.HAS_MUCUS)) {
+        totalPoints += getScore(columns.dischargeType(i), columns.modifierBits(i), true);
+      }
+    }
+    return Optional.of((float) totalPoints / EVALUATION_INTERVAL_DAYS);
+  }
+
   private static int getScore(ChartEntry entry) {
     Observation observation = entry.observationEntry.observation;
     if (observation == null) {
       Log.e(MccScorer.class.getSimpleName(), "Missing Observation for " + DateUtil.toWireStr(entry.entryDate));
       return 0;
     }
-    Set<MucusModifier> modifiers = observation.dischargeSummary.mModifiers;
-    DischargeType type = observation.dischargeSummary.mType;
+    return getScore(
+        observation.dischargeSummary.mType,
+        CycleColumns.modifierBits(observation.dischargeSummary.mModifiers),
+        observation.hasMucus());
+  }
 
+  private static int getScore(DischargeType type, int modifiers, boolean hasMucus) {
     int points = 0;
 
     // Check color
-    if (modifiers.contains(MucusModifier.B)) {
+    if (CycleColumns.hasModifier(modifiers, MucusModifier.B)) {
       points += 0;
     }
-    if (modifiers.contains(MucusModifier.C) || modifiers.contains(MucusModifier.Y)) {
+    if (CycleColumns.hasModifier(modifiers, MucusModifier.C) || CycleColumns.hasModifier(modifiers, MucusModifier.Y)) {
       points += 2;
     }
-    if (modifiers.contains(MucusModifier.K) || modifiers.contains(MucusModifier.CK)) {
+    if (CycleColumns.hasModifier(modifiers, MucusModifier.K) || CycleColumns.hasModifier(modifiers, MucusModifier.CK)) {
       points += 4;
     }
 
     // Check consistency
     if (type == DischargeType.STICKY) {
-      if (modifiers.contains(MucusModifier.C)) {
+      if (CycleColumns.hasModifier(modifiers, MucusModifier.C)) {
         points -= 2; // only score 2 points for a PC or 6PC observation
       }
       points += 2;
@@ -80,14 +101,14 @@ public class MccScorer {
     }
 
     // Check sensation
-    if (modifiers.contains(MucusModifier.L)) {
+    if (CycleColumns.hasModifier(modifiers, MucusModifier.L)) {
       points += 4;
     }
 
     // Check "transition"
-    if (observation.hasMucus()) {
+    if (hasMucus) {
       points += 2;
-      if (modifiers.contains(MucusModifier.L)) {
+      if (CycleColumns.hasModifier(modifiers, MucusModifier.L)) {
         points += 2;
       }
     }
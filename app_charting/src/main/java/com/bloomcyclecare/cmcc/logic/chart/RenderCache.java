@@ -0,0 +1,182 @@
+package com.bloomcyclecare.cmcc.logic.chart;
+
+import com.bloomcyclecare.cmcc.data.models.charting.ChartEntry;
+import com.bloomcyclecare.cmcc.data.models.charting.Cycle;
+import com.bloomcyclecare.cmcc.data.models.instructions.Instructions;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import org.joda.time.LocalDate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * LRU cache of {@link CycleRenderer.RenderableCycle}s keyed by everything a render depends on:
+ * the cycle, the previous cycle, the cycle's entries and the instructions which overlap the
+ * cycle. Closed cycles keep the same key when other cycles change so they are only rendered once.
+ */
+public class RenderCache {
+
+  private final int mMaxSize;
+  private final Map<Key, CycleRenderer.RenderableCycle> mCache;
+  private final AtomicLong mHits = new AtomicLong();
+  private final AtomicLong mMisses = new AtomicLong();
+
+  public RenderCache(int maxSize) {
+    mMaxSize = maxSize;
+    mCache = new LinkedHashMap<Key, CycleRenderer.RenderableCycle>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, CycleRenderer.RenderableCycle> eldest) {
+        return size() > mMaxSize;
+      }
+    };
+  }
+
+  /**
+   * Returns the cached render for the given key or invokes the renderer and caches the result.
+   */
+  public CycleRenderer.RenderableCycle getOrRender(
+      Key key, Supplier<CycleRenderer.RenderableCycle> renderer) {
+    synchronized (mCache) {
+      CycleRenderer.RenderableCycle cached = mCache.get(key);
+      if (cached != null) {
+        mHits.incrementAndGet();
+        return cached;
+      }
+    }
+    mMisses.incrementAndGet();
+    // Render outside the lock so cycles can still be rendered in parallel
+    CycleRenderer.RenderableCycle renderableCycle = renderer.get();
+    synchronized (mCache) {
+      mCache.put(key, renderableCycle);
+    }
+    return renderableCycle;
+  }
+
+  public long hitCount() {
+    return mHits.get();
+  }
+
+  public long missCount() {
+    return mMisses.get();
+  }
+
+  public int size() {
+    synchronized (mCache) {
+      return mCache.size();
+    }
+  }
+
+  public void clear() {
+    synchronized (mCache) {
+      mCache.clear();
+    }
+  }
+
+  @NonNull
+  @Override
+  public String toString() {
+    return String.format("RenderCache{size=%d, hits=%d, misses=%d}", size(), hitCount(), missCount());
+  }
+
+  /**
+   * Key for the inputs to {@link CycleRenderer} for the given cycle. Instructions which start
+   * after the cycle ends, or are superseded before it starts, don't change the key.
+   */
+  public static Key key(Cycle cycle,
+                        Optional<Cycle> previousCycle,
+                        Collection<ChartEntry> entries,
+                        Collection<Instructions> allInstructions) {
+    List<ChartEntry> sortedEntries = new ArrayList<>(entries);
+    Collections.sort(sortedEntries, (a, b) -> a.entryDate.compareTo(b.entryDate));
+    return new Key(cycle, previousCycle.orElse(null), ImmutableList.copyOf(sortedEntries),
+        ImmutableList.copyOf(relevantInstructions(cycle, allInstructions)));
+  }
+
+  /**
+   * Keeps the inputs themselves so a hit is only returned when they're equal, the digest of
+   * their hash codes just picks the bucket.
+   */
+  public static final class Key {
+    private final Cycle mCycle;
+    @Nullable private final Cycle mPreviousCycle;
+    private final ImmutableList<ChartEntry> mEntries;
+    private final ImmutableList<Instructions> mInstructions;
+    private final HashCode mDigest;
+
+    private Key(Cycle cycle,
+                @Nullable Cycle previousCycle,
+                ImmutableList<ChartEntry> entries,
+                ImmutableList<Instructions> instructions) {
+      mCycle = cycle;
+      mPreviousCycle = previousCycle;
+      mEntries = entries;
+      mInstructions = instructions;
+
+      Hasher hasher = Hashing.murmur3_128().newHasher();
+      hasher.putInt(cycle.hashCode());
+      hasher.putInt(previousCycle == null ? 0 : previousCycle.hashCode());
+      hasher.putInt(entries.size());
+      for (ChartEntry entry : entries) {
+        hasher.putInt(entry.hashCode());
+      }
+      for (Instructions i : instructions) {
+        hasher.putInt(i.hashCode());
+      }
+      mDigest = hasher.hash();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return mDigest.equals(that.mDigest)
+          && mCycle.equals(that.mCycle)
+          && Objects.equal(mPreviousCycle, that.mPreviousCycle)
+          && mEntries.equals(that.mEntries)
+          && mInstructions.equals(that.mInstructions);
+    }
+
+    @Override
+    public int hashCode() {
+      return mDigest.asInt();
+    }
+  }
+
+  private static List<Instructions> relevantInstructions(Cycle cycle, Collection<Instructions> allInstructions) {
+    List<Instructions> sortedInstructions = new ArrayList<>(allInstructions);
+    Collections.sort(sortedInstructions, (a, b) -> a.startDate.compareTo(b.startDate));
+    List<Instructions> out = new ArrayList<>();
+    for (Instructions instructions : sortedInstructions) {
+      LocalDate startDate = instructions.startDate;
+      if (cycle.endDate != null && startDate.isAfter(cycle.endDate)) {
+        break;
+      }
+      if (!startDate.isAfter(cycle.startDate)) {
+        // Only the latest instructions starting on or before the cycle start are active in it
+        out.clear();
+      }
+      out.add(instructions);
+    }
+    return out;
+  }
+}
@@ -0,0 +1,262 @@
+package com.bloomcyclecare.cmcc.logic.chart;
+
+import com.bloomcyclecare.cmcc.ViewMode;
+import com.bloomcyclecare.cmcc.data.db.CycleStatsDao;
+import com.bloomcyclecare.cmcc.data.models.charting.Cycle;
+import com.bloomcyclecare.cmcc.data.models.instructions.Instructions;
+import com.bloomcyclecare.cmcc.data.models.training.Exercise;
+import com.bloomcyclecare.cmcc.data.repos.DataRepos;
+import com.bloomcyclecare.cmcc.data.repos.cycle.ROCycleRepo;
+import com.bloomcyclecare.cmcc.data.repos.entry.ROChartEntryRepo;
+import com.bloomcyclecare.cmcc.data.repos.entry.RWChartEntryRepo;
+import com.bloomcyclecare.cmcc.data.repos.instructions.ROInstructionsRepo;
+import com.bloomcyclecare.cmcc.utils.RxUtil;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Range;
+
+import org.joda.time.LocalDate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import io.reactivex.Flowable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import timber.log.Timber;
+
+/**
+ * App scoped source of {@link CycleRenderer.RenderableCycle}s. Every screen or worker showing
+ * the same chart shares one render pipeline per cycle, and one set of repo subscriptions, for as
+ * long as any of them is subscribed.
+ */
+public class RenderedChartRepo {
+
+  // Enough for 5+ years of cycles in both CHARTING and DEMO mode
+  private static final int MAX_CACHED_CYCLES = 160;
+
+  private final DataRepos mDataRepos;
+  private final CycleStatsStore mChartingStatsStore;
+  private final RenderCache mRenderCache = new RenderCache(MAX_CACHED_CYCLES);
+  private final Map<ViewMode, Chart> mViewModeCharts = new HashMap<>();
+  private final Map<Exercise.ID, Chart> mExerciseCharts = new HashMap<>();
+
+  public RenderedChartRepo(DataRepos dataRepos, CycleStatsDao cycleStatsDao) {
+    mDataRepos = dataRepos;
+    // Only the user's own chart is worth persisting, the others are small and fixed
+    mChartingStatsStore = new CycleStatsStore(cycleStatsDao, dataRepos.entryRepo(ViewMode.CHARTING));
+  }
+
+  /**
+   * Drops persisted stats as entries and cycles are updated, and all of them when the entries are
+   * cleared. Instructions aren't tracked since none of the stats depend on them.
+   */
+  public Disposable invalidateStatsOnUpdates() {
+    RWChartEntryRepo entryRepo = mDataRepos.entryRepo(ViewMode.CHARTING);
+    return mChartingStatsStore.invalidateOn(Flowable.merge(
+        mDataRepos.cycleRepo(ViewMode.CHARTING).updateEvents().map(e -> e.dateRange),
+        entryRepo.updateEvents().flatMapIterable(e -> e.dateRanges),
+        entryRepo.allEntriesDeleted().map(deleted -> Range.<LocalDate>all())));
+  }
+
+  /**
+   * The latest render of every cycle. The first subscriber starts the pipeline and it is torn
+   * down again once the last one goes away.
+   */
+  public Flowable<Map<Cycle, CycleRenderer.RenderableCycle>> renderedCycles(ViewMode viewMode) {
+    return chart(viewMode).mAllCycles;
+  }
+
+  public Flowable<Map<Cycle, CycleRenderer.RenderableCycle>> renderedCycles(Exercise exercise) {
+    return chart(exercise).mAllCycles;
+  }
+
+  /**
+   * The latest render of a single cycle, without rendering any of the others.
+   */
+  public Flowable<CycleRenderer.RenderableCycle> renderedCycle(ViewMode viewMode, Cycle cycle) {
+    return chart(viewMode).renderedCycle(cycle);
+  }
+
+  public Flowable<CycleRenderer.RenderableCycle> renderedCycle(Exercise exercise, Cycle cycle) {
+    return chart(exercise).renderedCycle(cycle);
+  }
+
+  /**
+   * The latest render of the cycle at the center index, in the order of the cycle repo, and up to
+   * numNeighbors cycles either side of it. Cycles outside the window aren't rendered or subscribed
+   * to, moving the center renders the cycles which come into view.
+   */
+  public Flowable<Map<Cycle, CycleRenderer.RenderableCycle>> renderedWindow(
+      ViewMode viewMode, Flowable<Integer> centerIndex, int numNeighbors) {
+    return chart(viewMode).renderedWindow(centerIndex, numNeighbors);
+  }
+
+  public Flowable<Map<Cycle, CycleRenderer.RenderableCycle>> renderedWindow(
+      Exercise exercise, Flowable<Integer> centerIndex, int numNeighbors) {
+    return chart(exercise).renderedWindow(centerIndex, numNeighbors);
+  }
+
+  /**
+   * Stats for every cycle, in the order of the cycle repo. These never need a render, CHARTING
+   * stats are read from the database and the others come from one query over all the entries.
+   */
+  public Flowable<List<CycleRenderer.CycleStats>> cycleStats(ViewMode viewMode) {
+    return chart(viewMode).mStats;
+  }
+
+  public Flowable<List<CycleRenderer.CycleStats>> cycleStats(Exercise exercise) {
+    return chart(exercise).mStats;
+  }
+
+  /**
+   * Trends over every finished cycle. Built from {@link #cycleStats(ViewMode)} so, like those,
+   * they come from the database and only change when a cycle's stats do.
+   */
+  public Flowable<CycleTrends> cycleTrends(ViewMode viewMode) {
+    return chart(viewMode).mTrends;
+  }
+
+  public Flowable<CycleTrends> cycleTrends(Exercise exercise) {
+    return chart(exercise).mTrends;
+  }
+
+  private synchronized Chart chart(ViewMode viewMode) {
+    return mViewModeCharts.computeIfAbsent(viewMode, vm -> new Chart(
+        mDataRepos.cycleRepo(vm), mDataRepos.entryRepo(vm), mDataRepos.instructionsRepo(vm),
+        vm == ViewMode.CHARTING ? mChartingStatsStore : null));
+  }
+
+  private synchronized Chart chart(Exercise exercise) {
+    return mExerciseCharts.computeIfAbsent(exercise.id(), id -> new Chart(
+        mDataRepos.cycleRepo(exercise), mDataRepos.entryRepo(exercise), mDataRepos.instructionsRepo(ViewMode.TRAINING),
+        null));
+  }
+
+  @VisibleForTesting
+  static List<Cycle> window(List<Cycle> cycles, int centerIndex, int numNeighbors) {
+    int fromIndex = Math.max(0, centerIndex - numNeighbors);
+    int toIndex = Math.min(cycles.size(), centerIndex + numNeighbors + 1);
+    if (fromIndex >= toIndex) {
+      return ImmutableList.of();
+    }
+    return ImmutableList.copyOf(cycles.subList(fromIndex, toIndex));
+  }
+
+  private static Map<Cycle, CycleRenderer.RenderableCycle> byCycle(List<CycleRenderer.RenderableCycle> renderableCycles) {
+    ImmutableMap.Builder<Cycle, CycleRenderer.RenderableCycle> builder = ImmutableMap.builder();
+    for (CycleRenderer.RenderableCycle renderableCycle : renderableCycles) {
+      builder.put(renderableCycle.cycle(), renderableCycle);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Render pipelines for one set of repos.
+   */
+  private class Chart {
+
+    private final ROCycleRepo mCycleRepo;
+    private final ROChartEntryRepo mEntryRepo;
+    @Nullable private final CycleStatsStore mStatsStore;
+    private final Flowable<List<Instructions>> mInstructions;
+    private final Map<Cycle, Flowable<CycleRenderer.RenderableCycle>> mCycleStreams = new HashMap<>();
+    private final Flowable<Map<Cycle, CycleRenderer.RenderableCycle>> mAllCycles;
+    private final Flowable<List<CycleRenderer.CycleStats>> mStats;
+    private final Flowable<CycleTrends> mTrends;
+
+    Chart(ROCycleRepo cycleRepo, ROChartEntryRepo entryRepo, ROInstructionsRepo instructionsRepo,
+          @Nullable CycleStatsStore statsStore) {
+      mCycleRepo = cycleRepo;
+      mEntryRepo = entryRepo;
+      mStatsStore = statsStore;
+      mInstructions = instructionsRepo.getAll()
+          .distinctUntilChanged()
+          .replay(1)
+          .refCount();
+      mAllCycles = cycleRepo.getStream()
+          .distinctUntilChanged()
+          .switchMap(this::renderedCycles)
+          .replay(1)
+          .refCount();
+      mStats = cycleRepo.getStream()
+          .distinctUntilChanged()
+          .switchMap(this::stats)
+          .replay(1)
+          .refCount();
+      mTrends = mStats
+          .map(CycleTrends::of)
+          .distinctUntilChanged()
+          .replay(1)
+          .refCount();
+    }
+
+    synchronized Flowable<CycleRenderer.RenderableCycle> renderedCycle(Cycle cycle) {
+      Flowable<CycleRenderer.RenderableCycle> stream = mCycleStreams.get(cycle);
+      if (stream == null) {
+        stream = render(cycle)
+            .doFinally(() -> removeCycleStream(cycle))
+            .replay(1)
+            .refCount();
+        mCycleStreams.put(cycle, stream);
+      }
+      return stream;
+    }
+
+    private synchronized void removeCycleStream(Cycle cycle) {
+      mCycleStreams.remove(cycle);
+    }
+
+    Flowable<Map<Cycle, CycleRenderer.RenderableCycle>> renderedWindow(Flowable<Integer> centerIndex, int numNeighbors) {
+      return Flowable.combineLatest(
+          mCycleRepo.getStream().distinctUntilChanged(),
+          centerIndex.distinctUntilChanged(),
+          (cycles, center) -> window(cycles, center, numNeighbors))
+          .distinctUntilChanged()
+          .doOnNext(window -> Timber.v("Rendering window of %d cycles", window.size()))
+          .switchMap(this::renderedCycles);
+    }
+
+    private Flowable<Map<Cycle, CycleRenderer.RenderableCycle>> renderedCycles(List<Cycle> cycles) {
+      List<Flowable<CycleRenderer.RenderableCycle>> streams = new ArrayList<>(cycles.size());
+      for (Cycle cycle : cycles) {
+        streams.add(renderedCycle(cycle));
+      }
+      return RxUtil.combineLatest(streams)
+          .map(RenderedChartRepo::byCycle)
+          .doOnNext(renderableCycles -> Timber.v("%s", mRenderCache));
+    }
+
+    private Flowable<CycleRenderer.RenderableCycle> render(Cycle cycle) {
+      return mInstructions.switchMap(instructions -> mCycleRepo.getPreviousCycle(cycle)
+          .map(Optional::of).defaultIfEmpty(Optional.empty())
+          .toFlowable()
+          .switchMap(previousCycle -> {
+            // One renderer per cycle so entry updates only re-render from the changed day
+            CycleRenderer renderer = new CycleRenderer(cycle, previousCycle, ImmutableList.of(), instructions);
+            return mEntryRepo.getStreamForCycle(Flowable.just(cycle))
+                .doOnNext(ces -> Timber.v("Got new stream for cycle starting %s", cycle.startDate))
+                // Each cycle gets its own worker so cycles still render in parallel
+                .observeOn(Schedulers.computation())
+                .map(entries -> mRenderCache.getOrRender(
+                    RenderCache.key(cycle, previousCycle, entries, instructions),
+                    () -> {
+                      Timber.v("Triggering render for cycle starting %s", cycle.startDate);
+                      return renderer.render(entries);
+                    }));
+          }));
+    }
+
+    private Flowable<List<CycleRenderer.CycleStats>> stats(List<Cycle> cycles) {
+      if (mStatsStore != null) {
+        return mStatsStore.stats(cycles);
+      }
+      return CycleStatsStore.compute(mEntryRepo, cycles);
+    }
+  }
+}
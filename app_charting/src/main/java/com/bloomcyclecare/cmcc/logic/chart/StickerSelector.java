@@ -152,6 +152,14 @@ public class StickerSelector {
     return result;
   }
 
+  /**
+   * Same as {@link #select(CycleRenderer.StickerSelectionContext)} without collecting the
+   * matched criteria.
+   */
+  public static Sticker selectSticker(CycleRenderer.StickerSelectionContext context) {
+    return TREE.select(context, null);
+  }
+
   public static class SelectResult {
     public Sticker sticker;
     public List<String> matchedCriteria;
@@ -0,0 +1,160 @@
+package com.bloomcyclecare.cmcc.logic.print;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+
+import com.bloomcyclecare.cmcc.R;
+import com.bloomcyclecare.cmcc.data.models.stickering.StickerColor;
+import com.bloomcyclecare.cmcc.logic.chart.CycleRenderer;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import static com.bloomcyclecare.cmcc.logic.print.PageRenderer.NUM_DAYS_PER_CHART;
+import static com.bloomcyclecare.cmcc.logic.print.PageRenderer.NUM_ROWS_PER_PAGE;
+
+/**
+ * Draws {@link PageRenderer.RenderedPage}s directly onto a canvas with the same layout as their
+ * HTML. Unlike a WebView this doesn't need the main thread.
+ */
+class CanvasPageRenderer {
+
+  // Sizes are in the units of PageRenderer's stylesheet, the table is scaled to fit the page
+  private static final float MARGIN = 20;
+  private static final float CELL_WIDTH = 34;
+  private static final float CELL_HEIGHT = 66;
+  private static final float DAY_NUM_HEIGHT = 34;
+  private static final float STATS_WIDTH = 60;
+  private static final float CELL_PADDING = 2;
+  private static final float THICK_LINE = 4;
+  private static final float THIN_LINE = 1;
+  private static final float DAY_NUM_TEXT_SIZE = 12;
+  private static final float STICKER_TEXT_SIZE = 18;
+  private static final float ENTRY_TEXT_SIZE = 10;
+  private static final float BABY_SIZE = 24;
+  private static final float TABLE_WIDTH = CELL_WIDTH * NUM_DAYS_PER_CHART + STATS_WIDTH;
+  private static final float TABLE_HEIGHT = DAY_NUM_HEIGHT + 2 * CELL_HEIGHT * NUM_ROWS_PER_PAGE;
+
+  private final Paint mLinePaint = new Paint();
+  private final Paint mFillPaint = new Paint();
+  private final Paint mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+  @Nullable private final Drawable mBabyDrawable;
+
+  CanvasPageRenderer(Context context) {
+    mLinePaint.setColor(Color.BLACK);
+    mLinePaint.setStyle(Paint.Style.STROKE);
+    mFillPaint.setStyle(Paint.Style.FILL);
+    mTextPaint.setColor(Color.BLACK);
+    mTextPaint.setTextAlign(Paint.Align.CENTER);
+    mBabyDrawable = ContextCompat.getDrawable(context, R.drawable.ic_child_care_33_24dp);
+  }
+
+  void draw(PageRenderer.RenderedPage page, Canvas canvas, int width, int height) {
+    float scale = Math.min((width - 2 * MARGIN) / TABLE_WIDTH, (height - 2 * MARGIN) / TABLE_HEIGHT);
+    canvas.save();
+    canvas.translate(MARGIN, MARGIN);
+    canvas.scale(scale, scale);
+
+    for (int i = 0; i < NUM_DAYS_PER_CHART; i++) {
+      drawLines(canvas, ImmutableList.of(String.valueOf(i + 1)), i, 0, DAY_NUM_TEXT_SIZE, false);
+    }
+    float top = DAY_NUM_HEIGHT;
+    for (int r = 0; r < NUM_ROWS_PER_PAGE; r++) {
+      // Pages are padded with empty rows, same as the HTML
+      List<CycleRenderer.RenderableEntry> entries = r < page.rows.size()
+          ? page.rows.get(r).entries : ImmutableList.of();
+      for (int i = 0; i < entries.size(); i++) {
+        drawSticker(canvas, entries.get(i), i, top);
+        drawLines(canvas, PageRenderer.entryLines(entries.get(i)), i, top + CELL_HEIGHT, ENTRY_TEXT_SIZE, false);
+      }
+      drawHorizontalLine(canvas, top, TABLE_WIDTH, THICK_LINE);
+      drawHorizontalLine(canvas, top + CELL_HEIGHT, TABLE_WIDTH - STATS_WIDTH, THIN_LINE);
+      top += 2 * CELL_HEIGHT;
+    }
+    for (int i = 1; i <= NUM_DAYS_PER_CHART; i++) {
+      mLinePaint.setStrokeWidth(i % 7 == 0 ? THICK_LINE : THIN_LINE);
+      canvas.drawLine(i * CELL_WIDTH, 0, i * CELL_WIDTH, TABLE_HEIGHT, mLinePaint);
+    }
+    drawHorizontalLine(canvas, DAY_NUM_HEIGHT, TABLE_WIDTH, THIN_LINE);
+    mLinePaint.setStrokeWidth(THICK_LINE);
+    canvas.drawRect(0, 0, TABLE_WIDTH, TABLE_HEIGHT, mLinePaint);
+
+    canvas.restore();
+  }
+
+  private void drawSticker(Canvas canvas, CycleRenderer.RenderableEntry entry, int index, float top) {
+    float left = index * CELL_WIDTH;
+    Integer color = fillColor(PageRenderer.stickerColor(entry));
+    if (color != null) {
+      mFillPaint.setColor(color);
+      canvas.drawRect(left, top, left + CELL_WIDTH, top + CELL_HEIGHT, mFillPaint);
+    }
+    if (mBabyDrawable != null && PageRenderer.hasBaby(entry)) {
+      int babyLeft = Math.round(left + (CELL_WIDTH - BABY_SIZE) / 2);
+      int babyTop = Math.round(top + (CELL_HEIGHT - BABY_SIZE) / 2);
+      mBabyDrawable.setBounds(babyLeft, babyTop, babyLeft + (int) BABY_SIZE, babyTop + (int) BABY_SIZE);
+      mBabyDrawable.draw(canvas);
+    }
+    String[] lines = PageRenderer.stickerLines(entry);
+    float lineHeight = CELL_HEIGHT / lines.length;
+    for (int l = 0; l < lines.length; l++) {
+      // The monitor reading isn't bold, see em.measurement
+      drawLines(canvas, ImmutableList.of(lines[l]), index, top + l * lineHeight, STICKER_TEXT_SIZE, l > 0);
+    }
+  }
+
+  /**
+   * Draws the lines centered in the cell's column, starting at the top. Text which is too wide for
+   * the cell is shrunk to fit.
+   */
+  private void drawLines(Canvas canvas, List<String> lines, int index, float top, float textSize, boolean bold) {
+    float centerX = index * CELL_WIDTH + CELL_WIDTH / 2;
+    float maxWidth = CELL_WIDTH - 2 * CELL_PADDING;
+    mTextPaint.setTypeface(bold ? Typeface.DEFAULT_BOLD : Typeface.DEFAULT);
+    float baseline = top + CELL_PADDING;
+    for (String line : lines) {
+      mTextPaint.setTextSize(textSize);
+      baseline += textSize;
+      float lineWidth = mTextPaint.measureText(line);
+      if (lineWidth > maxWidth) {
+        mTextPaint.setTextSize(textSize * maxWidth / lineWidth);
+      }
+      canvas.drawText(line, centerX, baseline, mTextPaint);
+      baseline += textSize * 0.2f;
+    }
+  }
+
+  private void drawHorizontalLine(Canvas canvas, float y, float width, float strokeWidth) {
+    mLinePaint.setStrokeWidth(strokeWidth);
+    canvas.drawLine(0, y, width, y, mLinePaint);
+  }
+
+  /**
+   * Matches the background colors in PageRenderer's stylesheet, null for no background.
+   */
+  @Nullable
+  private static Integer fillColor(StickerColor color) {
+    switch (color) {
+      case RED:
+        return Color.RED;
+      case YELLOW:
+        return Color.YELLOW;
+      case WHITE:
+      case GREY:
+        return null;
+      case GREEN:
+        return Color.rgb(0, 128, 0);
+      case LIGHTGREEN:
+        return Color.rgb(0xE2, 0xFF, 0xCC);
+      default:
+        throw new IllegalArgumentException("Unkown color id: " + color);
+    }
+  }
+}
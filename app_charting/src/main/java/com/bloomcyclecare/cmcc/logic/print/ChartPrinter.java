@@ -2,25 +2,17 @@ package com.bloomcyclecare.cmcc.logic.print;
 
 import android.app.Activity;
 import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.Canvas;
 import android.graphics.pdf.PdfDocument;
 import android.os.Bundle;
 import android.os.CancellationSignal;
 import android.os.ParcelFileDescriptor;
 import android.print.PageRange;
-import android.print.PdfPrint;
 import android.print.PrintAttributes;
 import android.print.PrintDocumentAdapter;
 import android.print.PrintDocumentInfo;
 import android.print.PrintJob;
 import android.print.PrintManager;
 import android.print.pdf.PrintedPdfDocument;
-import android.util.Log;
-import android.view.Display;
-import android.view.WindowManager;
-import android.webkit.WebView;
-import android.webkit.WebViewClient;
 
 import com.bloomcyclecare.cmcc.data.models.charting.Cycle;
 import com.bloomcyclecare.cmcc.logic.chart.CycleRenderer;
@@ -30,18 +22,13 @@ import org.joda.time.LocalDate;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
-import java.util.TreeSet;
 
-import io.reactivex.Completable;
 import io.reactivex.Observable;
 import io.reactivex.Single;
 import io.reactivex.android.schedulers.AndroidSchedulers;
-import io.reactivex.functions.Function;
-import io.reactivex.functions.Predicate;
 import io.reactivex.schedulers.Schedulers;
-import io.reactivex.subjects.BehaviorSubject;
-import io.reactivex.subjects.Subject;
 import timber.log.Timber;
 
 /**
@@ -50,6 +37,9 @@ import timber.log.Timber;
 
 public class ChartPrinter {
 
+  private static final int POINTS_PER_INCH = 72;
+  private static final int MILS_PER_INCH = 1000;
+
   private final Context mContext;
   private final PrintAttributes mPrintAttributes;
   private final PrintManager mPrintManager;
@@ -67,51 +57,60 @@ public class ChartPrinter {
   }
 
   public static ChartPrinter create(Activity activity, List<CycleRenderer> renderers) {
-    PrintManager printManager = (PrintManager) activity.getSystemService(Context.PRINT_SERVICE);
-    PageRenderer pageRenderer = new PageRenderer(renderers);
-    return new ChartPrinter(pageRenderer, printManager, activity);
+    return create(activity, new PageRenderer(renderers));
   }
 
-  public Completable savePDF() {
-    WebView.enableSlowWholeDocumentDraw();
-    return mPageRenderer.createPages()
-        .observeOn(AndroidSchedulers.mainThread())
-        .flatMapSingle(this::createWebView)
-        .flatMapCompletable(printedPage -> {
-          String jobName = String.format("Chart %s", LocalDate.now().toString());
-          //File path = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DCIM + "/PDFTest/");
-          File path = mContext.getCacheDir();
-          PdfPrint pdfPrint = new PdfPrint(mPrintAttributes);
-          return pdfPrint.save(printedPage.webView.createPrintDocumentAdapter(jobName), path, "saved_chart").toCompletable();
-        });
+  public static ChartPrinter create(Activity activity, PageRenderer pageRenderer) {
+    PrintManager printManager = (PrintManager) activity.getSystemService(Context.PRINT_SERVICE);
+    return new ChartPrinter(pageRenderer, printManager, activity);
   }
 
   public class SavedChart {
     public final File file;
     public final Cycle firstCycle;
+    public final String contentHash;
+    public final PageRenderer.RenderedPage page;
 
-    private SavedChart(File file, Cycle firstCycle) {
+    private SavedChart(File file, PageRenderer.RenderedPage page) {
       this.file = file;
-      this.firstCycle = firstCycle;
+      this.firstCycle = page.firstCycle();
+      this.contentHash = page.contentHash();
+      this.page = page;
     }
   }
 
+  public Single<List<PageRenderer.RenderedPage>> renderPages() {
+    return mPageRenderer.createPages().toList();
+  }
+
   public Single<List<SavedChart>> savePDFs() {
-    WebView.enableSlowWholeDocumentDraw();
-    return mPageRenderer.createPages()
-        .observeOn(AndroidSchedulers.mainThread())
-        .flatMapSingle(this::createWebView)
-        .flatMapSingle(printedPage -> {
-          String jobName = String.format("Chart %s", LocalDate.now().toString());
-          //File path = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DCIM + "/PDFTest/");
-          File path = mContext.getCacheDir();
-          PdfPrint pdfPrint = new PdfPrint(mPrintAttributes);
-          return pdfPrint
-              .save(printedPage.webView.createPrintDocumentAdapter(jobName), path, "saved_chart_" + System.currentTimeMillis())
-              .map(f -> new SavedChart(f, printedPage.cycles.first()))
-              .doOnSuccess(f -> Timber.d("Done saving file %s", f.file.getAbsolutePath()));
-        })
+    return savePDFs(mPageRenderer.createPages());
+  }
+
+  /**
+   * Saves only the given pages, e.g. the ones from {@link #renderPages()} which changed since they
+   * were last saved.
+   */
+  public Single<List<SavedChart>> savePDFs(List<PageRenderer.RenderedPage> pages) {
+    return savePDFs(Observable.fromIterable(pages));
+  }
+
+  private Single<List<SavedChart>> savePDFs(Observable<PageRenderer.RenderedPage> pages) {
+    CanvasPageRenderer canvasRenderer = new CanvasPageRenderer(mContext);
+    return pages
         .observeOn(Schedulers.computation())
+        .map(page -> {
+          File file = File.createTempFile("saved_chart_", ".pdf", mContext.getCacheDir());
+          PdfDocument document = new PdfDocument();
+          try (OutputStream out = new FileOutputStream(file)) {
+            addPageToDocument(document, canvasRenderer, page);
+            document.writeTo(out);
+          } finally {
+            document.close();
+          }
+          Timber.d("Done saving file %s", file.getAbsolutePath());
+          return new SavedChart(file, page);
+        })
         .sorted((a, b) -> a.firstCycle.startDate.compareTo(b.firstCycle.startDate))
         .toList()
         .doOnSuccess(charts -> Timber.d("Saved %d charts", charts.size()))
@@ -119,70 +118,37 @@ public class ChartPrinter {
   }
 
   public Observable<PrintJob> print() {
-    WebView.enableSlowWholeDocumentDraw();
+    CanvasPageRenderer canvasRenderer = new CanvasPageRenderer(mContext);
     return mPageRenderer.createPages()
+        .toList()
+        .map(pages -> {
+          PrintedPdfDocument document = new PrintedPdfDocument(mContext, mPrintAttributes);
+          for (PageRenderer.RenderedPage page : pages) {
+            addPageToDocument(document, canvasRenderer, page);
+          }
+          return document;
+        })
+        .subscribeOn(Schedulers.computation())
         .observeOn(AndroidSchedulers.mainThread())
-        .flatMapSingle(this::createWebView)
-        .map(printedPage -> {
+        .map(document -> {
           String jobName = String.format("Chart %s", LocalDate.now().toString());
-          PrintDocumentAdapter documentAdapter = printedPage.webView.createPrintDocumentAdapter(jobName);
-          return mPrintManager.print(jobName, documentAdapter, mPrintAttributes);
-        });
-  }
-
-  private static class PrintedPage {
-    final WebView webView;
-    final TreeSet<Cycle> cycles;
-
-    private PrintedPage(WebView webView, TreeSet<Cycle> cycles) {
-      this.webView = webView;
-      this.cycles = cycles;
-    }
-  }
-
-  private Single<PrintedPage> createWebView(PageRenderer.RenderedPage page) {
-    return Single.create(emitter -> {
-      WebView webView = new WebView(mContext);
-      webView.setWebViewClient(new WebViewClient() {
-        private WebView ref = webView;
-        @Override
-        public void onPageFinished(WebView view, String url) {
-          emitter.onSuccess(new PrintedPage(view, page.cycles));
-          ref = null;
-        }
-      });
-      /*final MyWebView webView = new MyWebView(mContext);
-      webView.setWebViewClient(new WebViewClient() {
-        @Override
-        public void onPageFinished(WebView view, String url) {
-          emitter.onSuccess(view);
-        }
-      });*/
-      webView.setPadding(0, 100,0, 0);
-      Display display = ((WindowManager) mContext.getSystemService(Context.WINDOW_SERVICE)).getDefaultDisplay();
-      double scale = display.getWidth() * 0.0625;
-      webView.setInitialScale((int) scale);
-      webView.loadDataWithBaseURL("file:///android_asset/", page.html, "text/HTML", "UTF-8", null);
-    });
+          return mPrintManager.print(jobName, new PdfPrintAdapter(document), mPrintAttributes);
+        })
+        .toObservable();
   }
 
-  private PrintedPdfDocument addPageToDocument(PrintedPdfDocument document, WebView webView) {
+  private void addPageToDocument(
+      PdfDocument document, CanvasPageRenderer canvasRenderer, PageRenderer.RenderedPage page) {
+    PrintAttributes.MediaSize mediaSize = mPrintAttributes.getMediaSize();
+    int width = mediaSize.getWidthMils() * POINTS_PER_INCH / MILS_PER_INCH;
+    int height = mediaSize.getHeightMils() * POINTS_PER_INCH / MILS_PER_INCH;
     int pageNum = document.getPages().size() + 1;
-    PdfDocument.PageInfo pageInfo =
-        new PdfDocument.PageInfo.Builder(WIDTH_IN_POINTS, HEIGHT_IN_POINTS, pageNum).create();
-    PdfDocument.Page page = document.startPage(pageInfo);
-    Canvas canvas = page.getCanvas();
-    canvas.setDensity(Bitmap.DENSITY_NONE);
-    webView.draw(canvas);
-    //(webView.capturePicture()).draw(canvas);
-    document.finishPage(page);
-    return document;
+    PdfDocument.PageInfo pageInfo = new PdfDocument.PageInfo.Builder(width, height, pageNum).create();
+    PdfDocument.Page pdfPage = document.startPage(pageInfo);
+    canvasRenderer.draw(page, pdfPage.getCanvas(), width, height);
+    document.finishPage(pdfPage);
   }
 
-  private static final int POINTS_PER_INCH = 72;
-  private static final int HEIGHT_IN_POINTS = 11 * POINTS_PER_INCH;
-  private static final int WIDTH_IN_POINTS = 17 * POINTS_PER_INCH;
-
   private static class PdfPrintAdapter extends PrintDocumentAdapter {
 
     private final PrintedPdfDocument mPdfDocument;
@@ -226,8 +192,9 @@ public class ChartPrinter {
 
       // check for cancellation
       if (cancellationSignal.isCanceled()) {
+        // The framework can ask for another write after a cancelled one, the document is closed in
+        // onFinish()
         callback.onWriteCancelled();
-        mPdfDocument.close();
         return;
       }
 
@@ -243,39 +210,10 @@ public class ChartPrinter {
       // Signal the print framework the document is complete
       callback.onWriteFinished(pageRanges);
     }
-  }
-
-  private static class MyWebView extends WebView {
-
-    private final Subject<Integer> mHeightSubject;
-
-    public MyWebView(Context context) {
-      super(context);
-      mHeightSubject = BehaviorSubject.create();
-    }
 
     @Override
-    public void invalidate() {
-      super.invalidate();
-      Log.v("MyWebView", "invalidate: " + getContentHeight());
-      mHeightSubject.onNext(getContentHeight());
-    }
-
-    public Single<WebView> source() {
-      return mHeightSubject
-          .filter(new Predicate<Integer>() {
-            @Override
-            public boolean test(Integer integer) throws Exception {
-              return integer > 0;
-            }
-          })
-          .firstOrError()
-          .map(new Function<Integer, WebView>() {
-            @Override
-            public WebView apply(Integer integer) throws Exception {
-              return MyWebView.this;
-            }
-          });
+    public void onFinish() {
+      mPdfDocument.close();
     }
   }
 }
@@ -6,11 +6,13 @@ import com.bloomcyclecare.cmcc.data.models.stickering.StickerColor;
 import com.bloomcyclecare.cmcc.data.models.stickering.StickerText;
 import com.bloomcyclecare.cmcc.logic.chart.CycleRenderer;
 import com.bloomcyclecare.cmcc.utils.DateUtil;
+import com.google.common.base.Charsets;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -19,7 +21,6 @@ import java.util.TreeSet;
 import androidx.annotation.NonNull;
 import io.reactivex.Observable;
 import io.reactivex.ObservableSource;
-import io.reactivex.annotations.Nullable;
 import timber.log.Timber;
 
 /**
@@ -28,23 +29,51 @@ import timber.log.Timber;
 
 public class PageRenderer {
 
-  private static final int NUM_ROWS_PER_PAGE = 6;
-  private static final int NUM_DAYS_PER_CHART = 35;
-  private static final Joiner ON_SPACE = Joiner.on(" ");
+  static final int NUM_ROWS_PER_PAGE = 6;
+  static final int NUM_DAYS_PER_CHART = 35;
   private static final Joiner ON_BR = Joiner.on("<br>");
+  // A full page is ~70K characters, start big enough that the pooled builder rarely grows
+  private static final int INITIAL_PAGE_CAPACITY = 80 * 1024;
+
+  // Everything which doesn't depend on the entries is built once
+  private static final String[] OPEN_CELL_TAGS = new String[NUM_DAYS_PER_CHART];
+  static {
+    for (int i = 0; i < NUM_DAYS_PER_CHART; i++) {
+      OPEN_CELL_TAGS[i] = openCellTag(i, ImmutableList.of());
+    }
+  }
+  private static final String PAGE_START = createPageStart();
+  private static final String PAGE_END = "</table></div></html>";
+  private static final String EMPTY_CYCLE = createEmptyCycle();
 
-  private final List<CycleRenderer> renderers;
+  private final Observable<CycleRenderer.RenderableCycle> renderableCycles;
 
   public PageRenderer(List<CycleRenderer> renderers) {
-    this.renderers = renderers;
+    this(Observable.fromIterable(renderers).map(CycleRenderer::render));
+  }
+
+  private PageRenderer(Observable<CycleRenderer.RenderableCycle> renderableCycles) {
+    this.renderableCycles = renderableCycles;
+  }
+
+  /**
+   * For callers which already have the rendered cycles, e.g. from the chart's view state, so the
+   * rules don't need to be evaluated again.
+   */
+  public static PageRenderer forRenderableCycles(List<CycleRenderer.RenderableCycle> renderableCycles) {
+    return new PageRenderer(Observable.fromIterable(renderableCycles));
   }
 
   public Observable<RenderedPage> createPages() {
-    return Observable.fromIterable(renderers)
-        .sorted((a, b) -> a.cycle().startDate.compareTo(b.cycle().startDate))
-        .flatMap(PageRenderer::createCycleRows)
-        .buffer(NUM_ROWS_PER_PAGE)
-        .map(PageRenderer::createPage);
+    return Observable.defer(() -> {
+      // Pages are created one at a time so they can share a builder
+      StringBuilder pageBuilder = new StringBuilder(INITIAL_PAGE_CAPACITY);
+      return renderableCycles
+          .sorted((a, b) -> a.cycle().startDate.compareTo(b.cycle().startDate))
+          .flatMap(PageRenderer::createCycleRows)
+          .buffer(NUM_ROWS_PER_PAGE)
+          .map(rows -> createPage(pageBuilder, rows));
+    });
   }
 
   public static int numRowsPerPage() {
@@ -63,13 +92,15 @@ public class PageRenderer {
     return numEntries % NUM_DAYS_PER_CHART != 0;
   }
 
-  private static class RenderedRow {
+  static class RenderedRow {
     final Cycle cycle;
-    final String html;
+    final List<CycleRenderer.RenderableEntry> entries;
+    final int startIndex;
 
-    private RenderedRow(Cycle cycle, String html) {
+    private RenderedRow(Cycle cycle, List<CycleRenderer.RenderableEntry> entries, int startIndex) {
       this.cycle = cycle;
-      this.html = html;
+      this.entries = entries;
+      this.startIndex = startIndex;
     }
 
     @NonNull
@@ -79,13 +110,29 @@ public class PageRenderer {
     }
   }
 
-  static class RenderedPage {
+  public static class RenderedPage {
     final TreeSet<Cycle> cycles;
+    final List<RenderedRow> rows;
     final String html;
+    private final String contentHash;
 
-    private RenderedPage(String html) {
+    private RenderedPage(List<RenderedRow> rows, String html) {
       this.cycles = new TreeSet<>();
+      this.rows = rows;
       this.html = html;
+      this.contentHash = Hashing.murmur3_128().hashString(html, Charsets.UTF_8).toString();
+    }
+
+    public Cycle firstCycle() {
+      return cycles.first();
+    }
+
+    /**
+     * Hash of the page's HTML. Pages with the same hash print the same so a PDF saved from one
+     * can stand in for the other.
+     */
+    public String contentHash() {
+      return contentHash;
     }
 
     @NonNull
@@ -95,46 +142,62 @@ public class PageRenderer {
     }
   }
 
-  private static ObservableSource<RenderedRow> createCycleRows(CycleRenderer renderer) {
-    CycleRenderer.RenderableCycle renderableCycle = renderer.render();
+  private static ObservableSource<RenderedRow> createCycleRows(CycleRenderer.RenderableCycle renderableCycle) {
     if (renderableCycle.stats().daysWithAnObservation() == 0) {
       Timber.d("Skipping renderer without observations");
       return Observable.empty();
     }
     List<CycleRenderer.RenderableEntry> renderableEntries = renderableCycle.entries();
-    List<RenderedRow> rows = new ArrayList<>();
-    int numFullRows = numFullRows(renderableEntries.size());
-    boolean hasPartialRow = hasPartialRow(renderableEntries.size());
-    for (int i=0; i < numFullRows; i++) {
-      StringBuilder builder = new StringBuilder();
-      int startIndex = i * NUM_DAYS_PER_CHART;
-      int endIndex = startIndex + NUM_DAYS_PER_CHART - 1;
-      appendCycle(builder, renderableEntries, startIndex, endIndex);
-      rows.add(new RenderedRow(renderer.cycle(), builder.toString()));
-    }
-    if (hasPartialRow) {
-      StringBuilder builder = new StringBuilder();
-      int startIndex = numFullRows * NUM_DAYS_PER_CHART;
-      int endIndex = renderableEntries.size() - 1;
-      appendCycle(builder, renderableEntries, startIndex, endIndex);
-      rows.add(new RenderedRow(renderer.cycle(), builder.toString()));
+    List<RenderedRow> rows = new ArrayList<>(numRows(renderableEntries.size()));
+    for (int startIndex = 0; startIndex < renderableEntries.size(); startIndex += NUM_DAYS_PER_CHART) {
+      int endIndex = Math.min(startIndex + NUM_DAYS_PER_CHART, renderableEntries.size());
+      rows.add(new RenderedRow(
+          renderableCycle.cycle(), renderableEntries.subList(startIndex, endIndex), startIndex));
     }
     return Observable.fromIterable(rows);
   }
 
-  private static RenderedPage createPage(List<RenderedRow> cycleRows) {
-    StringBuilder html = new StringBuilder();
-    html.append("<html>");
-    appendHead(html);
-    appendBody(html, cycleRows);
-    html.append("</html>");
-    RenderedPage page = new RenderedPage(html.toString());
+  private static RenderedPage createPage(StringBuilder html, List<RenderedRow> cycleRows) {
+    Preconditions.checkArgument(cycleRows.size() <= NUM_ROWS_PER_PAGE);
+    html.setLength(0);
+    html.append(PAGE_START);
+    for (RenderedRow row : cycleRows) {
+      appendStickers(html, row);
+      appendEntries(html, row);
+    }
+    for (int i=cycleRows.size(); i < NUM_ROWS_PER_PAGE; i++) {
+      html.append(EMPTY_CYCLE);
+    }
+    html.append(PAGE_END);
+    RenderedPage page = new RenderedPage(cycleRows, html.toString());
     for (RenderedRow row : cycleRows) {
       page.cycles.add(row.cycle);
     }
     return page;
   }
 
+  private static String createPageStart() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("<html>");
+    appendHead(builder);
+    builder.append("<div id=\"container\">");
+    builder.append("<table class=\"outer\">");
+    appendDays(builder);
+    return builder.toString();
+  }
+
+  private static String createEmptyCycle() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("<tr class=\"stickers\">");
+    fillEmptyDays(builder, 0);
+    appendStatsCell(builder);
+    builder.append("</tr>");
+    builder.append("<tr>");
+    fillEmptyDays(builder, 0);
+    builder.append("</tr>");
+    return builder.toString();
+  }
+
   private static void appendHead(StringBuilder builder) {
     builder.append("<head>");
     builder.append("<style>");
@@ -158,47 +221,67 @@ public class PageRenderer {
     builder.append("</head>");
   }
 
-  private static void appendBody(StringBuilder builder, List<RenderedRow> cycleRows) {
-    Preconditions.checkArgument(cycleRows.size() <= NUM_ROWS_PER_PAGE);
-    builder.append("<div id=\"container\">");
-    builder.append("<table class=\"outer\">");
-    appendDays(builder);
-    for (RenderedRow row : cycleRows) {
-      builder.append(row.html);
-    }
-    for (int i=cycleRows.size(); i < NUM_ROWS_PER_PAGE; i++) {
-      appendEmptyCycle(builder);
-    }
-    builder.append("</table>");
-    builder.append("</div>");
-  }
-
   private static void appendDays(StringBuilder builder) {
     builder.append("<tr class=\"day-num\">");
     for (int i=0; i<NUM_DAYS_PER_CHART; i++) {
-      builder.append(openCellTag(i)).append(i+1).append("</td>");
+      builder.append(OPEN_CELL_TAGS[i]).append(i+1).append("</td>");
     }
     builder.append("</tr>");
   }
 
-  private static String openCellTag(int index) {
-    return openCellTag(index, ImmutableList.<String>of());
+  private static String openCellTag(int index, List<String> extraClasses) {
+    StringBuilder builder = new StringBuilder();
+    appendOpenCellTag(builder, index, extraClasses);
+    return builder.toString();
   }
 
-  private static String openCellTag(int index, List<String> extraClasses) {
-    List<String> classes = new ArrayList<>();
-    classes.add("cell");
-    classes.addAll(extraClasses);
+  private static void appendOpenCellTag(StringBuilder builder, int index, List<String> extraClasses) {
+    builder.append("<td valign=\"top\" class=\"cell");
+    for (String extraClass : extraClasses) {
+      builder.append(' ').append(extraClass);
+    }
     if (index % 7 == 6) {
-      classes.add("separator");
+      builder.append(" separator");
     }
-    StringBuilder builder = new StringBuilder();
-    builder.append("<td valign=\"top\"");
-    if (!classes.isEmpty()) {
-      builder.append(" class=\"").append(ON_SPACE.join(classes)).append("\"");
+    builder.append("\">");
+  }
+
+  /**
+   * The monitor reading, sticker text and intercourse marker shown in an entry's sticker cell.
+   * Blank lines are empty strings.
+   */
+  static String[] stickerLines(CycleRenderer.RenderableEntry entry) {
+    return new String[] {
+        entry.monitorReading().map(Enum::name).orElse(""),
+        entry.manualStickerSelection().map(ss -> ss.text).map(StickerText::toString).orElse(""),
+        // TODO: add differentiation based on entry.intercourseTimeOfDay()
+        entry.intercourseTimeOfDay() == IntercourseTimeOfDay.NONE ? "" : "I",
+    };
+  }
+
+  static StickerColor stickerColor(CycleRenderer.RenderableEntry entry) {
+    return entry.manualStickerSelection().map(ss -> ss.sticker.color).orElse(StickerColor.GREY);
+  }
+
+  static boolean hasBaby(CycleRenderer.RenderableEntry entry) {
+    return entry.manualStickerSelection().map(ss -> ss.sticker.hasBaby).orElse(false);
+  }
+
+  /**
+   * The date, observation summary and POC summary shown below an entry's sticker.
+   */
+  static List<String> entryLines(CycleRenderer.RenderableEntry entry) {
+    List<String> lines = new ArrayList<>();
+    lines.add(DateUtil.toPrintStr(entry.modificationContext().entry.entryDate));
+    List<String> summaryPieces = Lists.newArrayList(entry.entrySummary().orElse("---").split(" "));
+    if (summaryPieces.size() > 0 && summaryPieces.get(summaryPieces.size() - 1).equals("I")) {
+      summaryPieces.remove(summaryPieces.size() - 1);
     }
-    builder.append(">");
-    return builder.toString();
+    lines.addAll(summaryPieces);
+    if (!Strings.isNullOrEmpty(entry.pocSummary())) {
+      lines.add(entry.pocSummary());
+    }
+    return lines;
   }
 
   private static String getColorClass(StickerColor color) {
@@ -219,100 +302,61 @@ public class PageRenderer {
     }
   }
 
-  private static void appendCycle(StringBuilder builder, List<CycleRenderer.RenderableEntry> renderableEntries, int startIndex, int endIndex) {
-    Preconditions.checkArgument(startIndex >= 0 && endIndex < renderableEntries.size());
-    appendStickers(builder, renderableEntries, startIndex, endIndex);
-    appendEntries(builder, renderableEntries, startIndex, endIndex);
-  }
-
-  private static void appendEmptyCycle(StringBuilder builder) {
-    // Starting at 1 and ending at 0 is a horrible hack and I only have myself to blame when this
-    // causes problems later.
-    appendStickers(builder, null, 1, 0);
-    appendEntries(builder, null, 1, 0);
-  }
-
-  private static void appendStickers(StringBuilder builder, @Nullable List<CycleRenderer.RenderableEntry> renderableEntries, int startIndex, int endIndex) {
+  private static void appendStickers(StringBuilder builder, RenderedRow row) {
     builder.append("<tr class=\"stickers\">");
-    if (renderableEntries != null) {
-      for (int i = startIndex; i <= endIndex; i++) {
-        CycleRenderer.RenderableEntry entry = renderableEntries.get(i);
-
-        int numLines = 3;
-        String[] textLines = new String[numLines];
-        for (int l=0; l<numLines; l++) {
-          textLines[l] = "";
-        }
-
-        textLines[0] = entry.monitorReading()
-            .map(Enum::name)
-            .map(v -> String.format("<em class=\"measurement\">%s</em>", v))
-            .orElse("");
+    List<String> classes = new ArrayList<>(2);
+    for (int i = 0; i < row.entries.size(); i++) {
+      CycleRenderer.RenderableEntry entry = row.entries.get(i);
+      String[] textLines = stickerLines(entry);
+      if (!textLines[0].isEmpty()) {
+        textLines[0] = "<em class=\"measurement\">" + textLines[0] + "</em>";
+      }
 
-        textLines[1] = entry.manualStickerSelection().map(ss -> ss.text)
-            .map(StickerText::toString)
-            .orElse("");
+      classes.clear();
+      classes.add(getColorClass(stickerColor(entry)));
+      if (hasBaby(entry)) {
+        classes.add("baby");
+      }
 
-        // TODO: add differentiation based on entry.intercourseTimeOfDay()
-        textLines[2] = entry.intercourseTimeOfDay() == IntercourseTimeOfDay.NONE ? "" : "I";
-
-        List<String> classes = new ArrayList<>();
-        classes.add(getColorClass(entry.manualStickerSelection().map(ss -> ss.sticker.color).orElse(StickerColor.GREY)));
-        if (entry.manualStickerSelection().map(ss -> ss.sticker.hasBaby).orElse(false)) {
-          classes.add("baby");
-        }
-
-        builder.append(openCellTag(i, classes));
-        builder.append("<table class=\"sticker\">");
-        for (int l=0; l<numLines; l++) {
-          builder.append("<tr><td valign=\"top\">");
-          builder.append(textLines[l]);
-          builder.append("</td></tr>");
-        }
-        builder.append("</table>");
-        builder.append("</td>");
+      appendOpenCellTag(builder, row.startIndex + i, classes);
+      builder.append("<table class=\"sticker\">");
+      for (String textLine : textLines) {
+        builder.append("<tr><td valign=\"top\">");
+        builder.append(textLine);
+        builder.append("</td></tr>");
       }
+      builder.append("</table>");
+      builder.append("</td>");
     }
-    fillEmptyDays(builder, startIndex, endIndex);
+    fillEmptyDays(builder, row.entries.size());
+    appendStatsCell(builder);
+    builder.append("</tr>");
+  }
+
+  private static void appendStatsCell(StringBuilder builder) {
     builder.append("<td class=\"stats\" rowspan=\"2\" valign=\"top\">");
-    if (startIndex == 0 && renderableEntries != null) {
-      //fillStats(builder, entryList.getStats());
-    }
+    //fillStats(builder, entryList.getStats());
     builder.append("</td>");
-    builder.append("</tr>");
   }
 
-  private static void appendEntries(StringBuilder builder, List<CycleRenderer.RenderableEntry> renderableEntries, int startIndex, int endIndex) {
+  private static void appendEntries(StringBuilder builder, RenderedRow row) {
     builder.append("<tr>");
-    if (renderableEntries != null) {
-      for (int i = startIndex; i <= endIndex; i++) {
-        CycleRenderer.RenderableEntry entry = renderableEntries.get(i);
-        List<String> lines = new ArrayList<>();
-        lines.add(DateUtil.toPrintStr(entry.modificationContext().entry.entryDate));
-        List<String> summaryPieces = Lists.newArrayList(entry.entrySummary().orElse("---").split(" "));
-        if (summaryPieces.size() > 0 && summaryPieces.get(summaryPieces.size() - 1).equals("I")) {
-          summaryPieces.remove(summaryPieces.size() - 1);
-        }
-        lines.addAll(summaryPieces);
-        if (!Strings.isNullOrEmpty(entry.pocSummary())) {
-          lines.add(entry.pocSummary());
-        }
-        while (lines.size() < 4) {
-          lines.add("&nbsp;");
-        }
-        builder.append(openCellTag(i));
-        builder.append(ON_BR.join(lines));
-        builder.append("</td>");
+    for (int i = 0; i < row.entries.size(); i++) {
+      List<String> lines = entryLines(row.entries.get(i));
+      while (lines.size() < 4) {
+        lines.add("&nbsp;");
       }
+      builder.append(OPEN_CELL_TAGS[(row.startIndex + i) % NUM_DAYS_PER_CHART]);
+      ON_BR.appendTo(builder, lines);
+      builder.append("</td>");
     }
-    fillEmptyDays(builder, startIndex, endIndex);
+    fillEmptyDays(builder, row.entries.size());
     builder.append("</tr>");
   }
 
-  private static void fillEmptyDays(StringBuilder builder, int startIndex, int endIndex) {
-    int numEntriesAdded = endIndex - startIndex;
-    for (int i=numEntriesAdded + 1; i < NUM_DAYS_PER_CHART; i++) {
-      builder.append(openCellTag(i)).append("</td>");
+  private static void fillEmptyDays(StringBuilder builder, int numEntries) {
+    for (int i = numEntries; i < NUM_DAYS_PER_CHART; i++) {
+      builder.append(OPEN_CELL_TAGS[i]).append("</td>");
     }
   }
 }
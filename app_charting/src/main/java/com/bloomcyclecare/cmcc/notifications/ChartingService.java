@@ -16,12 +16,12 @@ import android.widget.Toast;
 import com.bloomcyclecare.cmcc.R;
 import com.bloomcyclecare.cmcc.ViewMode;
 import com.bloomcyclecare.cmcc.apps.charting.ChartingApp;
-import com.bloomcyclecare.cmcc.data.models.charting.ChartEntry;
 import com.bloomcyclecare.cmcc.data.models.charting.Cycle;
 import com.bloomcyclecare.cmcc.data.repos.cycle.RWCycleRepo;
 import com.bloomcyclecare.cmcc.data.repos.entry.RWChartEntryRepo;
 import com.bloomcyclecare.cmcc.logic.PreferenceRepo;
 import com.bloomcyclecare.cmcc.ui.main.MainActivity;
+import com.bloomcyclecare.cmcc.utils.DateUtil;
 import com.google.common.base.Strings;
 
 import org.joda.time.DateTime;
@@ -101,16 +101,11 @@ public class ChartingService extends Service {
     RWChartEntryRepo entryRepo = app.entryRepo(ViewMode.CHARTING);
     RWCycleRepo cycleRepo = app.cycleRepo(ViewMode.CHARTING);
     PreferenceRepo preferenceRepo = app.preferenceRepo();
-    Flowable<Boolean> entryStopStream = entryRepo
-        .getLatestN(2)
-        .map(entries -> {
-          if (entries.size() != 2) {
-            throw new IllegalStateException();
-          }
-          ChartEntry entryForYesterday = entries.get(0);
-          return entryForYesterday.observationEntry.observation != null;
-        })
-        .flatMap(yesterdayHadObservation -> {
+    // Only wakes at midnight or when yesterday's entry is written, nothing is polled
+    Flowable<Boolean> entryStopStream = DateUtil.nowStream()
+        .map(today -> today.minusDays(1))
+        .switchMap(entryRepo::hasObservation)
+        .switchMap(yesterdayHadObservation -> {
           if (yesterdayHadObservation) {
             return Flowable.just(true);
           }
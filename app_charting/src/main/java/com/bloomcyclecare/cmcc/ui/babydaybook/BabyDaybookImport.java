@@ -85,7 +85,9 @@ public class BabyDaybookImport extends SplashFragment {
           updateStatus(String.format("Reading data for %s", pregnancy.babyDaybookName));
           LocalDate lastEntryDate = Optional.ofNullable(pregnancy.breastfeedingEndDate).orElse(LocalDate.now());
           return Single.merge(Single.zip(
-              stats.dailyStatsFromBabyDaybook(pregnancy.babyDaybookName),
+              stats.dailyStatsFromBabyDaybook(
+                  pregnancy.babyDaybookName,
+                  pregnancy.breastfeedingStartDate.toDateTimeAtStartOfDay().getMillis()),
               chartEntryRepo
                   .getAllBetween(pregnancy.breastfeedingStartDate, lastEntryDate)
                   .firstOrError(),
@@ -49,9 +49,15 @@ public abstract class BaseCycleListFragment extends Fragment {
   @NonNull
   protected abstract NavDirections reinitAction();
 
+  /**
+   * How many cycles either side of the focused one to keep rendered, the rest are rendered when
+   * they come into view.
+   */
+  protected abstract int numNeighborCycles();
+
   @Override
   public void onCreate(@Nullable Bundle savedInstanceState) {
-    mViewModel = CycleListViewModel.forFragment(this, initialViewModeFromArgs(requireArguments()), exerciseIdFromArgs(requireArguments()));
+    mViewModel = CycleListViewModel.forFragment(this, initialViewModeFromArgs(requireArguments()), exerciseIdFromArgs(requireArguments()), numNeighborCycles());
 
     super.onCreate(savedInstanceState);
 
@@ -8,15 +8,14 @@ import android.net.Uri;
 import com.bloomcyclecare.cmcc.ViewMode;
 import com.bloomcyclecare.cmcc.apps.charting.ChartingApp;
 import com.bloomcyclecare.cmcc.backup.AppStateExporter;
+import com.bloomcyclecare.cmcc.data.models.charting.Cycle;
 import com.bloomcyclecare.cmcc.data.models.stickering.StickerSelection;
 import com.bloomcyclecare.cmcc.data.models.training.Exercise;
-import com.bloomcyclecare.cmcc.data.repos.cycle.ROCycleRepo;
-import com.bloomcyclecare.cmcc.data.repos.entry.ROChartEntryRepo;
 import com.bloomcyclecare.cmcc.data.repos.sticker.RWStickerSelectionRepo;
 import com.bloomcyclecare.cmcc.data.utils.GsonUtil;
 import com.bloomcyclecare.cmcc.logic.PreferenceRepo;
 import com.bloomcyclecare.cmcc.logic.chart.CycleRenderer;
-import com.bloomcyclecare.cmcc.utils.RxUtil;
+import com.bloomcyclecare.cmcc.logic.chart.CycleTrends;
 import com.google.auto.value.AutoValue;
 import com.google.common.base.Charsets;
 import com.google.common.io.Files;
@@ -42,7 +41,6 @@ import io.reactivex.Completable;
 import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import io.reactivex.Single;
-import io.reactivex.schedulers.Schedulers;
 import io.reactivex.subjects.BehaviorSubject;
 import io.reactivex.subjects.PublishSubject;
 import io.reactivex.subjects.Subject;
@@ -55,22 +53,27 @@ public class CycleListViewModel extends AndroidViewModel {
   private final Subject<Boolean> mToggles = PublishSubject.create();
   private final Subject<Boolean> mShowMonitorReadingsToggles = BehaviorSubject.create();
   private final Subject<Boolean> mShowMonitorReadings = BehaviorSubject.create();
+  private final Subject<Integer> mFocusedCycleIndex = BehaviorSubject.createDefault(0);
 
   private final Activity mActivity;
   private final ChartingApp mApplication;
+  private final Optional<Exercise> mExercise;
+  private final int mNumNeighborCycles;
 
-  public static CycleListViewModel forFragment(Fragment fragment, ViewMode initialViewMode, Optional<Exercise.ID> exerciseID) {
-    Factory factory = new Factory(fragment.requireActivity(), initialViewMode, exerciseID);
+  public static CycleListViewModel forFragment(Fragment fragment, ViewMode initialViewMode, Optional<Exercise.ID> exerciseID, int numNeighborCycles) {
+    Factory factory = new Factory(fragment.requireActivity(), initialViewMode, exerciseID, numNeighborCycles);
     return new ViewModelProvider(fragment, factory).get(CycleListViewModel.class);
   }
 
   public CycleListViewModel(@NonNull Application application,
                             @NonNull Activity activity,
                             @NonNull ViewMode initialViewMode,
-                            @NonNull Optional<Exercise.ID> exerciseID) {
+                            @NonNull Optional<Exercise.ID> exerciseID,
+                            int numNeighborCycles) {
     super(application);
     mApplication = ChartingApp.cast(application);
     mActivity = activity;
+    mNumNeighborCycles = numNeighborCycles;
 
     Observable<ViewMode> viewModeStream = mToggles
         .scan(initialViewMode, (previousVideMode, toggle) -> {
@@ -85,7 +88,7 @@ public class CycleListViewModel extends AndroidViewModel {
 
     viewModeStream.map(mApplication::stickerSelectionRepo).subscribe(mStickerSelectionRepoSubject);
 
-    Optional<Exercise> exercise = Exercise.forID(exerciseID.orElse(Exercise.ID.CYCLE_REVIEW_REGULAR_CYCLES));
+    mExercise = Exercise.forID(exerciseID.orElse(Exercise.ID.CYCLE_REVIEW_REGULAR_CYCLES));
 
     mShowMonitorReadingsToggles
         .scan(1, (v, t) -> ++v)
@@ -98,11 +101,6 @@ public class CycleListViewModel extends AndroidViewModel {
       if (viewMode == ViewMode.TRAINING && !exerciseID.isPresent()) {
         Timber.w("Need exercise ID for TRAINING mode!, defaulting to regular cycle");
       }
-      ROChartEntryRepo entryRepo = viewMode == ViewMode.TRAINING
-          ? mApplication.entryRepo(exercise.orElse(null)) : mApplication.entryRepo(viewMode);
-      ROCycleRepo cycleRepo = viewMode == ViewMode.TRAINING
-          ? mApplication.cycleRepo(exercise.orElse(null)) : mApplication.cycleRepo(viewMode);
-
       Flowable<Boolean> autoStickeringStream = mApplication.preferenceRepo()
           .summaries().map(PreferenceRepo.PreferenceSummary::autoStickeringEnabled)
           .distinctUntilChanged();
@@ -110,43 +108,73 @@ public class CycleListViewModel extends AndroidViewModel {
       Flowable<Map<LocalDate, StickerSelection>> stickerSelectionStream = mApplication.stickerSelectionRepo(viewMode)
           .getSelections().distinctUntilChanged();
 
-      Flowable<List<CycleRenderer.RenderableCycle>> renderableCycleStream = Flowable.merge(Flowable.combineLatest(
-          mApplication.instructionsRepo(viewMode).getAll()
-              .distinctUntilChanged(),
-          cycleRepo.getStream()
-              .distinctUntilChanged(),
-          (instructions, cycles) -> Flowable.merge(Flowable
-              .fromIterable(cycles)
-              .observeOn(Schedulers.computation())
-              .parallel()
-              .map(cycle -> Flowable.combineLatest(
-                  entryRepo.getStreamForCycle(Flowable.just(cycle))
-                      .doOnNext(ces -> Timber.v("Got new stream for cycle starting %s", cycle.startDate)),
-                  cycleRepo.getPreviousCycle(cycle)
-                      .map(Optional::of).defaultIfEmpty(Optional.empty())
-                      .toFlowable(),
-                  (entries, previousCycle) -> new CycleRenderer(cycle, previousCycle, entries, instructions))
-                  .doOnNext(r -> Timber.v("Triggering render for cycle starting %s", r.cycle().startDate))
-                  .map(CycleRenderer::render)
-              )
-              .sequential()
-              .toList()
-              .toFlowable()
-              .map(RxUtil::combineLatest))));
-
       return Flowable.combineLatest(
-          renderableCycleStream,
+          cycles(viewMode),
+          renderedCycles(viewMode),
           autoStickeringStream,
           mApplication.preferenceRepo().summaries()
               .map(PreferenceRepo.PreferenceSummary::clearblueMachineMeasurementEnabled),
           showMonitorReadings(),
           stickerSelectionStream,
-          (renderableCycles, autoStickeringEnabled, monitorReadingsEnabled, showMonitorReadings, stickerSelections) -> ViewState.create(
-              viewMode, renderableCycles, autoStickeringEnabled, monitorReadingsEnabled, showMonitorReadings, stickerSelections))
+          (cycles, renderableCycles, autoStickeringEnabled, monitorReadingsEnabled, showMonitorReadings, stickerSelections) -> ViewState.create(
+              viewMode, cycles, renderableCycles, autoStickeringEnabled, monitorReadingsEnabled, showMonitorReadings, stickerSelections))
           .toObservable();
     }).subscribe(mViewStateSubject);
   }
 
+  /**
+   * The latest render of a single cycle, shared with every other view of the same chart.
+   */
+  public Flowable<CycleRenderer.RenderableCycle> renderableCycleStream(ViewMode viewMode, Cycle cycle) {
+    if (viewMode == ViewMode.TRAINING && mExercise.isPresent()) {
+      return mApplication.renderedChartRepo().renderedCycle(mExercise.get(), cycle);
+    }
+    return mApplication.renderedChartRepo().renderedCycle(viewMode, cycle);
+  }
+
+  /**
+   * Stats for every cycle, including the ones which haven't been rendered.
+   */
+  public Flowable<List<CycleRenderer.CycleStats>> cycleStatsStream(ViewMode viewMode) {
+    if (viewMode == ViewMode.TRAINING && mExercise.isPresent()) {
+      return mApplication.renderedChartRepo().cycleStats(mExercise.get());
+    }
+    return mApplication.renderedChartRepo().cycleStats(viewMode);
+  }
+
+  /**
+   * Trends over every finished cycle, from the same stats as {@link #cycleStatsStream(ViewMode)}.
+   */
+  public Flowable<CycleTrends> cycleTrendsStream(ViewMode viewMode) {
+    if (viewMode == ViewMode.TRAINING && mExercise.isPresent()) {
+      return mApplication.renderedChartRepo().cycleTrends(mExercise.get());
+    }
+    return mApplication.renderedChartRepo().cycleTrends(viewMode);
+  }
+
+  /**
+   * Moves the window of rendered cycles to be centered on the cycle at the given index.
+   */
+  public void focusCycle(int index) {
+    mFocusedCycleIndex.onNext(index);
+  }
+
+  private Flowable<List<Cycle>> cycles(ViewMode viewMode) {
+    if (viewMode == ViewMode.TRAINING && mExercise.isPresent()) {
+      return mApplication.cycleRepo(mExercise.get()).getStream().distinctUntilChanged();
+    }
+    return mApplication.cycleRepo(viewMode).getStream().distinctUntilChanged();
+  }
+
+  private Flowable<Map<Cycle, CycleRenderer.RenderableCycle>> renderedCycles(ViewMode viewMode) {
+    if (viewMode == ViewMode.TRAINING && mExercise.isPresent()) {
+      // Exercises only have a few cycles and the progress subtitle needs all of them
+      return mApplication.renderedChartRepo().renderedCycles(mExercise.get());
+    }
+    return mApplication.renderedChartRepo().renderedWindow(
+        viewMode, mFocusedCycleIndex.toFlowable(BackpressureStrategy.LATEST), mNumNeighborCycles);
+  }
+
   public Flowable<ViewState> viewStateStream() {
     return mViewStateSubject.toFlowable(BackpressureStrategy.BUFFER);
   }
@@ -178,14 +206,16 @@ public class CycleListViewModel extends AndroidViewModel {
   @AutoValue
   public static abstract class ViewState {
     public abstract ViewMode viewMode();
-    public abstract List<CycleRenderer.RenderableCycle> renderableCycles();
+    public abstract List<Cycle> cycles();
+    /** Renders of the cycles around the focused one, the others are only rendered once focused. */
+    public abstract Map<Cycle, CycleRenderer.RenderableCycle> renderableCycles();
     public abstract boolean autoStickeringEnabled();
     public abstract boolean monitorReadingsEnabled();
     public abstract boolean showMonitorReadings();
     public abstract Map<LocalDate, StickerSelection> stickerSelections();
 
-    public static ViewState create(ViewMode viewMode, List<CycleRenderer.RenderableCycle> renderableCycles, boolean autoStickeringEnabled, boolean monitorReadingsEnabled, boolean showMonitorReadings, Map<LocalDate, StickerSelection> stickerSelections) {
-      return new AutoValue_CycleListViewModel_ViewState(viewMode, renderableCycles, autoStickeringEnabled, monitorReadingsEnabled, showMonitorReadings, stickerSelections);
+    public static ViewState create(ViewMode viewMode, List<Cycle> cycles, Map<Cycle, CycleRenderer.RenderableCycle> renderableCycles, boolean autoStickeringEnabled, boolean monitorReadingsEnabled, boolean showMonitorReadings, Map<LocalDate, StickerSelection> stickerSelections) {
+      return new AutoValue_CycleListViewModel_ViewState(viewMode, cycles, renderableCycles, autoStickeringEnabled, monitorReadingsEnabled, showMonitorReadings, stickerSelections);
     }
 
   }
@@ -208,17 +238,19 @@ public class CycleListViewModel extends AndroidViewModel {
     private final Activity mActivity;
     private final ViewMode mInitialViewMode;
     private final Optional<Exercise.ID> mExerciseId;
+    private final int mNumNeighborCycles;
 
-    public Factory(Activity activity, ViewMode initialViewMode, Optional<Exercise.ID> exerciseID) {
+    public Factory(Activity activity, ViewMode initialViewMode, Optional<Exercise.ID> exerciseID, int numNeighborCycles) {
       mActivity = activity;
       mInitialViewMode = initialViewMode;
       mExerciseId = exerciseID;
+      mNumNeighborCycles = numNeighborCycles;
     }
 
     @NonNull
     @Override
     public <T extends ViewModel> T create(@NonNull Class<T> modelClass) {
-      return (T) new CycleListViewModel(mActivity.getApplication(), mActivity, mInitialViewMode, mExerciseId);
+      return (T) new CycleListViewModel(mActivity.getApplication(), mActivity, mInitialViewMode, mExerciseId, mNumNeighborCycles);
     }
   }
 }
@@ -30,6 +30,9 @@ import static android.content.res.Configuration.ORIENTATION_PORTRAIT;
 
 public class EntryGridPageFragment extends BaseCycleListFragment {
 
+  // A screen of rows can span a few cycles, render a few more either side for scrolling
+  private static final int NUM_NEIGHBOR_CYCLES = 3;
+
   private MainViewModel mMainViewModel;
   private EntryGridPageViewModel mViewModel;
   private GridRowAdapter mGridRowAdapter;
@@ -68,6 +71,11 @@ public class EntryGridPageFragment extends BaseCycleListFragment {
     return EntryGridPageFragmentDirections.actionReinitApp();
   }
 
+  @Override
+  protected int numNeighborCycles() {
+    return NUM_NEIGHBOR_CYCLES;
+  }
+
   @Override
   public void onCreate(@Nullable Bundle savedInstanceState) {
     super.onCreate(savedInstanceState);
@@ -120,6 +128,19 @@ public class EntryGridPageFragment extends BaseCycleListFragment {
     LinearLayoutManager llm = new LinearLayoutManager(requireContext());
     rowRecyclerView.setLayoutManager(llm);
     rowRecyclerView.setAdapter(mGridRowAdapter);
+    rowRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+      @Override
+      public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+        if (newState != RecyclerView.SCROLL_STATE_IDLE) {
+          return;
+        }
+        int firstRow = llm.findFirstVisibleItemPosition();
+        int lastRow = llm.findLastVisibleItemPosition();
+        if (firstRow != RecyclerView.NO_POSITION && lastRow != RecyclerView.NO_POSITION) {
+          mViewModel.focusGridPosition(mGridRowAdapter.cyclePosition((firstRow + lastRow) / 2));
+        }
+      }
+    });
 
     mViewModel.viewStates().observe(getViewLifecycleOwner(), viewState -> {
       llm.setStackFromEnd(viewState.viewMode() != ViewMode.TRAINING);
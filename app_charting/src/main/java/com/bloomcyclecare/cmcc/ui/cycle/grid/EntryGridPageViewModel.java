@@ -4,6 +4,7 @@ import android.app.Application;
 
 import com.bloomcyclecare.cmcc.ViewMode;
 import com.bloomcyclecare.cmcc.apps.charting.ChartingApp;
+import com.bloomcyclecare.cmcc.data.models.charting.Cycle;
 import com.bloomcyclecare.cmcc.data.models.stickering.StickerSelection;
 import com.bloomcyclecare.cmcc.data.models.training.Exercise;
 import com.bloomcyclecare.cmcc.data.repos.entry.RWChartEntryRepo;
@@ -16,9 +17,11 @@ import com.google.auto.value.AutoValue;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 
+import org.joda.time.Days;
 import org.joda.time.LocalDate;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -59,15 +62,18 @@ public class EntryGridPageViewModel extends AndroidViewModel {
     mCycleListViewModel.viewStateStream()
         .toObservable()
         .map(cycleListViewState -> {
-          List<List<RenderedEntry>> lofl = new ArrayList<>(cycleListViewState.renderableCycles().size());
-          List<CycleRenderer.RenderableCycle> renderableCycles = cycleListViewState.viewMode() == ViewMode.TRAINING
-              ? cycleListViewState.renderableCycles()
-              : Lists.reverse(cycleListViewState.renderableCycles());
-          for (CycleRenderer.RenderableCycle rc : renderableCycles) {
-            List<RenderedEntry> renderedEntries = new ArrayList<>(rc.entries().size());
+          List<List<Optional<RenderedEntry>>> lofl = new ArrayList<>(cycleListViewState.cycles().size());
+          for (Cycle cycle : gridOrder(cycleListViewState)) {
+            CycleRenderer.RenderableCycle rc = cycleListViewState.renderableCycles().get(cycle);
+            if (rc == null) {
+              // Not rendered until it scrolls into view, keep its rows so the scroll position holds
+              lofl.add(Collections.nCopies(numDays(cycle), Optional.empty()));
+              continue;
+            }
+            List<Optional<RenderedEntry>> renderedEntries = new ArrayList<>(rc.entries().size());
             for (CycleRenderer.RenderableEntry re : rc.entries()) {
-              renderedEntries.add(RenderedEntry.create(
-                  re, cycleListViewState.autoStickeringEnabled(), cycleListViewState.viewMode(), false));
+              renderedEntries.add(Optional.of(RenderedEntry.create(
+                  re, cycleListViewState.autoStickeringEnabled(), cycleListViewState.viewMode(), false)));
             }
             lofl.add(renderedEntries);
           }
@@ -79,12 +85,21 @@ public class EntryGridPageViewModel extends AndroidViewModel {
         .subscribe(mViewStates);
   }
 
+  private static List<Cycle> gridOrder(CycleListViewModel.ViewState viewState) {
+    return viewState.viewMode() == ViewMode.TRAINING ? viewState.cycles() : Lists.reverse(viewState.cycles());
+  }
+
+  private static int numDays(Cycle cycle) {
+    LocalDate lastDay = Optional.ofNullable(cycle.endDate).orElse(LocalDate.now());
+    return Math.max(1, Days.daysBetween(cycle.startDate, lastDay).getDays() + 1);
+  }
+
   private String getSubtitle(CycleListViewModel.ViewState viewState) {
     switch (viewState.viewMode()) {
       case TRAINING:
         int entriesWithCorrectAnswer = 0;
         int entriesWithMarker = 0;
-        for (CycleRenderer.RenderableCycle rc : viewState.renderableCycles()) {
+        for (CycleRenderer.RenderableCycle rc : viewState.renderableCycles().values()) {
           for (CycleRenderer.RenderableEntry re : rc.entries()) {
             if (!Strings.isNullOrEmpty(re.trainingMarker())) {
               entriesWithMarker++;
@@ -107,6 +122,17 @@ public class EntryGridPageViewModel extends AndroidViewModel {
     }
   }
 
+  /**
+   * Renders the cycles around the one at the given position in the grid.
+   */
+  void focusGridPosition(int position) {
+    CycleListViewModel.ViewState viewState = mCycleListViewModel.currentViewState();
+    List<Cycle> cycles = gridOrder(viewState);
+    if (position >= 0 && position < cycles.size()) {
+      mCycleListViewModel.focusCycle(viewState.cycles().indexOf(cycles.get(position)));
+    }
+  }
+
   ViewMode currentViewMode() {
     return mCycleListViewModel.currentViewMode();
   }
@@ -122,11 +148,11 @@ public class EntryGridPageViewModel extends AndroidViewModel {
   @AutoValue
   public static abstract class ViewState {
 
-    public abstract List<List<RenderedEntry>> renderedEntries();
+    public abstract List<List<Optional<RenderedEntry>>> renderedEntries();
     public abstract String subtitle();
     public abstract ViewMode viewMode();
 
-    public static ViewState create(List<List<RenderedEntry>> renderedEntries, String subtitle, ViewMode viewMode) {
+    public static ViewState create(List<List<Optional<RenderedEntry>>> renderedEntries, String subtitle, ViewMode viewMode) {
       return new AutoValue_EntryGridPageViewModel_ViewState(renderedEntries, subtitle, viewMode);
     }
 
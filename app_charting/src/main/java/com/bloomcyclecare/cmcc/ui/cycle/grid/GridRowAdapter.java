@@ -11,7 +11,6 @@ import com.bloomcyclecare.cmcc.ui.cycle.RenderedEntry;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 import androidx.annotation.NonNull;
 import androidx.core.util.Consumer;
@@ -20,6 +19,8 @@ import androidx.recyclerview.widget.RecyclerView;
 public class GridRowAdapter extends RecyclerView.Adapter<GridRowViewHolder> {
 
   private final List<List<Optional<RenderedEntry>>> mEntryLists = new ArrayList<>();
+  // Position of the cycle each row belongs to
+  private final List<Integer> mRowCyclePositions = new ArrayList<>();
   private final Consumer<RenderedEntry> mImageClickConsumer;
   private final Consumer<RenderedEntry> mTextClickConsumer;
 
@@ -31,25 +32,38 @@ public class GridRowAdapter extends RecyclerView.Adapter<GridRowViewHolder> {
   }
 
   public void updateData(
-      List<List<RenderedEntry>> renderedEntryLists,
+      List<List<Optional<RenderedEntry>>> renderedEntryLists,
       ViewMode viewMode) {
     this.mViewMode = viewMode;
     List<List<Optional<RenderedEntry>>> entryLists = new ArrayList<>();
-    for (List<RenderedEntry> renderedEntryList : renderedEntryLists) {
-      append(entryLists, renderedEntryList);
+    List<Integer> rowCyclePositions = new ArrayList<>();
+    for (int i = 0; i < renderedEntryLists.size(); i++) {
+      append(entryLists, renderedEntryLists.get(i));
       List<Optional<RenderedEntry>> lastList = entryLists.get(entryLists.size() - 1);
       while (lastList.size() < 35) {
         lastList.add(Optional.empty());
       }
+      while (rowCyclePositions.size() < entryLists.size()) {
+        rowCyclePositions.add(i);
+      }
     }
     this.mEntryLists.clear();
     this.mEntryLists.addAll(entryLists);
+    this.mRowCyclePositions.clear();
+    this.mRowCyclePositions.addAll(rowCyclePositions);
     notifyDataSetChanged();
   }
 
-  private static <T> void append(List<List<Optional<T>>> listOfLists, List<T> entries) {
+  /**
+   * The position, in the lists given to {@link #updateData}, of the cycle shown in the row.
+   */
+  public int cyclePosition(int row) {
+    return mRowCyclePositions.get(row);
+  }
+
+  private static <T> void append(List<List<Optional<T>>> listOfLists, List<Optional<T>> entries) {
     if (entries.size() <= 35) {
-      listOfLists.add(entries.stream().map(Optional::of).collect(Collectors.toList()));
+      listOfLists.add(new ArrayList<>(entries));
     } else {
       append(listOfLists, entries.subList(0, 35));
       append(listOfLists, entries.subList(35, entries.size()));
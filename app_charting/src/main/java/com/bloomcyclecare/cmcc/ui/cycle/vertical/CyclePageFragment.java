@@ -8,13 +8,11 @@ import android.view.ViewGroup;
 import com.bloomcyclecare.cmcc.R;
 import com.bloomcyclecare.cmcc.ViewMode;
 import com.bloomcyclecare.cmcc.data.models.training.Exercise;
-import com.bloomcyclecare.cmcc.logic.chart.CycleRenderer;
 import com.bloomcyclecare.cmcc.ui.cycle.BaseCycleListFragment;
 import com.bloomcyclecare.cmcc.ui.main.MainViewModel;
 import com.bloomcyclecare.cmcc.utils.DateUtil;
 
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -25,6 +23,8 @@ import timber.log.Timber;
 
 public class CyclePageFragment extends BaseCycleListFragment {
 
+  private static final int OFFSCREEN_PAGE_LIMIT = 4;
+
   private MainViewModel mMainViewModel;
   private CyclePageViewModel mViewModel;
   private CyclePageAdapter mPageAdapter;
@@ -61,6 +61,12 @@ public class CyclePageFragment extends BaseCycleListFragment {
     return CyclePageFragmentDirections.actionReinitApp();
   }
 
+  @Override
+  protected int numNeighborCycles() {
+    // Matches the pages the ViewPager keeps around so they share their renders with the window
+    return OFFSCREEN_PAGE_LIMIT;
+  }
+
   @Override
   public void onCreate(@Nullable Bundle savedInstanceState) {
     super.onCreate(savedInstanceState);
@@ -99,17 +105,13 @@ public class CyclePageFragment extends BaseCycleListFragment {
       @Override
       public void onPageScrollStateChanged(int state) {}
     });
-    mViewPager.setOffscreenPageLimit(4);
+    mViewPager.setOffscreenPageLimit(OFFSCREEN_PAGE_LIMIT);
 
     mViewModel.viewStates().observe(getViewLifecycleOwner(), viewState -> {
       mMainViewModel.updateTitle(viewState.title);
       mMainViewModel.updateSubtitle(viewState.subtitle);
 
-      mPageAdapter.update(
-          viewState.renderableCycles.stream()
-              .map(CycleRenderer.RenderableCycle::cycle)
-              .collect(Collectors.toList()),
-          viewState.viewMode);
+      mPageAdapter.update(viewState.cycles, viewState.viewMode);
       mPageAdapter.onPageActive(viewState.currentCycleIndex);
       if (mViewPager.getCurrentItem() != viewState.currentCycleIndex) {
         mViewPager.setCurrentItem(viewState.currentCycleIndex);
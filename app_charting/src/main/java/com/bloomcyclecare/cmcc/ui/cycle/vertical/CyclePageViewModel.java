@@ -5,10 +5,12 @@ import android.app.Application;
 
 import com.bloomcyclecare.cmcc.ViewMode;
 import com.bloomcyclecare.cmcc.apps.charting.ChartingApp;
+import com.bloomcyclecare.cmcc.data.models.charting.Cycle;
 import com.bloomcyclecare.cmcc.data.models.pregnancy.Pregnancy;
 import com.bloomcyclecare.cmcc.data.models.stickering.StickerSelection;
 import com.bloomcyclecare.cmcc.data.repos.cycle.ROCycleRepo;
 import com.bloomcyclecare.cmcc.logic.chart.CycleRenderer;
+import com.bloomcyclecare.cmcc.logic.chart.CycleTrends;
 import com.bloomcyclecare.cmcc.ui.cycle.CycleListViewModel;
 import com.google.common.collect.ImmutableList;
 
@@ -19,7 +21,6 @@ import org.joda.time.LocalDate;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
@@ -41,9 +42,13 @@ import timber.log.Timber;
 
 public class CyclePageViewModel extends AndroidViewModel {
 
+  // Same as the number of previous cycles needed to predict the end of the post peak phase
+  private static final int MIN_CYCLES_FOR_TRENDS = 3;
+
   public Subject<Integer> currentPageUpdates = BehaviorSubject.createDefault(0);
 
   private final ChartingApp mApplication;
+  private final CycleListViewModel mCycleListViewModel;
 
   private final Subject<ViewState> mViewStates = BehaviorSubject.create();
 
@@ -55,13 +60,17 @@ public class CyclePageViewModel extends AndroidViewModel {
   private CyclePageViewModel(@NonNull Application application, CycleListViewModel cycleListViewModel) {
     super(application);
     mApplication = ChartingApp.cast(application);
+    mCycleListViewModel = cycleListViewModel;
+
+    currentPageUpdates.subscribe(cycleListViewModel::focusCycle);
 
     cycleListViewModel.viewStateStream()
+        // Renders coming in for the cycles around the current page don't change the pages
+        .distinctUntilChanged((a, b) -> a.viewMode() == b.viewMode() && a.cycles().equals(b.cycles()))
         .switchMap(viewState ->  Flowable.combineLatest(
             currentPageUpdates.toFlowable(BackpressureStrategy.BUFFER).distinctUntilChanged(),
-            subtitleStream(viewState.viewMode(), Flowable.just(viewState.renderableCycles())).distinctUntilChanged().onErrorReturnItem("ERROR!"),
-            Flowable.just(viewState.renderableCycles()),
-            (currentPage, subtitle, renderableCycles) -> new ViewState(currentPage, subtitle, renderableCycles, viewState.viewMode())))
+            subtitleStream(viewState.viewMode(), viewState.cycles()).distinctUntilChanged().onErrorReturnItem("ERROR!"),
+            (currentPage, subtitle) -> new ViewState(currentPage, subtitle, viewState.cycles(), viewState.viewMode())))
         .toObservable().subscribe(mViewStates);
   }
 
@@ -75,14 +84,13 @@ public class CyclePageViewModel extends AndroidViewModel {
         .subscribe(index -> currentPageUpdates.onNext(index));
   }
 
-  private Flowable<String> subtitleStream(
-      ViewMode viewMode, Flowable<List<CycleRenderer.RenderableCycle>> renderableCycleStream) {
+  private Flowable<String> subtitleStream(ViewMode viewMode, List<Cycle> cycles) {
     switch (viewMode) {
       case TRAINING:
         return currentPageUpdates
             .toFlowable(BackpressureStrategy.BUFFER)
-            .flatMap(index -> renderableCycleStream
-                .map(renderableCycles -> renderableCycles.get(index))
+            .filter(index -> index < cycles.size())
+            .switchMap(index -> mCycleListViewModel.renderableCycleStream(viewMode, cycles.get(index))
                 .map(renderableCycle -> {
                   int numWithStickers = 0;
                   for (CycleRenderer.RenderableEntry re : renderableCycle.entries()) {
@@ -97,14 +105,9 @@ public class CyclePageViewModel extends AndroidViewModel {
       case CHARTING:
       case DEMO:
       default:
-        Flowable<List<CycleRenderer.CycleStats>> statsStream = renderableCycleStream
-            .map(renderableCycles -> renderableCycles
-                .stream()
-                .map(CycleRenderer.RenderableCycle::stats)
-                .collect(Collectors.toList()));
         return Flowable.combineLatest(
             currentPageUpdates.toFlowable(BackpressureStrategy.BUFFER).distinctUntilChanged(),
-            statsStream,
+            mCycleListViewModel.cycleStatsStream(viewMode),
             currentPageUpdates.flatMap(index -> mApplication.cycleRepo(viewMode)
                 .getStream()
                 .firstOrError()
@@ -115,7 +118,8 @@ public class CyclePageViewModel extends AndroidViewModel {
                     : mApplication.pregnancyRepo(viewMode).get(id.get()).map(Optional::of).toSingle(Optional.empty()))
                 .toObservable())
                 .toFlowable(BackpressureStrategy.BUFFER).distinctUntilChanged(),
-            (currentPage, stats, pregnancy) -> subtitle(stats, currentPage, LocalDate::now, pregnancy));
+            mCycleListViewModel.cycleTrendsStream(viewMode),
+            (currentPage, stats, pregnancy, trends) -> subtitle(stats, currentPage, LocalDate::now, pregnancy, trends));
     }
   }
 
@@ -128,7 +132,7 @@ public class CyclePageViewModel extends AndroidViewModel {
   }
 
   @VisibleForTesting
-  static String subtitle(List<CycleRenderer.CycleStats> statsList, int index, Supplier<LocalDate> todaySupplier, Optional<Pregnancy> pregnancy) {
+  static String subtitle(List<CycleRenderer.CycleStats> statsList, int index, Supplier<LocalDate> todaySupplier, Optional<Pregnancy> pregnancy, CycleTrends trends) {
     if (statsList.isEmpty()) {
       return "No data...";
     }
@@ -150,7 +154,11 @@ public class CyclePageViewModel extends AndroidViewModel {
       return "Pregnant, due date TBD";
     }
     if (!currentStats.daysPrePeak().isPresent()) {
-      return "In prepeak phase";
+      CycleTrends.Distribution prePeakLengths = trends.distribution(CycleTrends.Metric.DAYS_PRE_PEAK);
+      if (prePeakLengths.count() < MIN_CYCLES_FOR_TRENDS) {
+        return "In prepeak phase";
+      }
+      return String.format(Locale.getDefault(), "In prepeak phase, usually %d days", Math.round(prePeakLengths.median().get()));
     }
     if (currentStats.daysPostPeak().isPresent()) {
       return String.format(Locale.getDefault(), "Pre: %d Post: %d", currentStats.daysPrePeak().orElse(-1), currentStats.daysPostPeak().orElse(-1));
@@ -178,17 +186,16 @@ public class CyclePageViewModel extends AndroidViewModel {
 
     public final int currentCycleIndex;
     public final ViewMode viewMode;
-    @Deprecated
-    public final ImmutableList<CycleRenderer.RenderableCycle> renderableCycles;
+    public final ImmutableList<Cycle> cycles;
 
-    ViewState(int currentPage, String subtitle, List<CycleRenderer.RenderableCycle> renderableCycles, ViewMode viewMode) {
+    ViewState(int currentPage, String subtitle, List<Cycle> cycles, ViewMode viewMode) {
       this.title = currentPage == 0 ? "Current Cycle" : String.format("%d Cycles Ago", currentPage);
       this.subtitle = subtitle;
-      this.showFab = currentPage == renderableCycles.size() - 1;
+      this.showFab = currentPage == cycles.size() - 1;
       this.viewMode = viewMode;
 
       this.currentCycleIndex = currentPage;
-      this.renderableCycles = ImmutableList.copyOf(renderableCycles);
+      this.cycles = ImmutableList.copyOf(cycles);
     }
   }
 
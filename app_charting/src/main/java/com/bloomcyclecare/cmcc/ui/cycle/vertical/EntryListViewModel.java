@@ -60,17 +60,7 @@ class EntryListViewModel extends AndroidViewModel {
     mStickerSelectionRepo = myApp.stickerSelectionRepo(viewMode);
     mViewMode = viewMode;
 
-    Flowable<CycleRenderer.RenderableCycle> cycleStream  = cycleListViewModel.viewStateStream().map(vs -> {
-      if (vs.viewMode() != viewMode) {
-        throw new IllegalStateException(String.format("View model in wrong view mode %s != %s", vs.viewMode().name(), viewMode.name()));
-      }
-      for (CycleRenderer.RenderableCycle rc : vs.renderableCycles()) {
-        if (rc.cycle().equals(cycle)) {
-          return rc;
-        }
-      }
-      throw new IllegalStateException("Couldn't find renderable cycle for cycle starting " + cycle.startDate);
-    });
+    Flowable<CycleRenderer.RenderableCycle> cycleStream = cycleListViewModel.renderableCycleStream(viewMode, cycle);
 
     Flowable<ScrollState> scrollStateFlowable = mScrollEventsFromUI
         .sample(500, TimeUnit.MILLISECONDS)
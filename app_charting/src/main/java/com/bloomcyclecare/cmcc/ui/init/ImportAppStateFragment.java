@@ -18,6 +18,9 @@ import com.bloomcyclecare.cmcc.ui.main.MainViewModel;
 
 import org.parceler.Parcels;
 
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+
 import androidx.lifecycle.ViewModelProvider;
 import io.reactivex.Completable;
 import io.reactivex.Single;
@@ -71,18 +74,21 @@ public class ImportAppStateFragment extends SplashFragment {
           }
           showProgress("Importing data.");
           AppStateImporter importer = new AppStateImporter(ChartingApp.cast(requireActivity().getApplication()));
-          return AppStateParser.parse(() -> getActivity()
+          Callable<InputStream> in = () -> requireActivity()
               .getContentResolver()
-              .openInputStream(requireActivity().getIntent().getData()))
+              .openInputStream(requireActivity().getIntent().getData());
+          // Parse once up front so a bad file fails before the old data is cleared
+          return AppStateParser.parse(in, entry -> {})
               .doOnSuccess(appState -> showProgress("Successfully parsed data."))
-              .flatMapCompletable(appState -> Completable.mergeArray(
+              .ignoreElement()
+              .andThen(Completable.mergeArray(
                   mCycleRepo.deleteAll(),
                   mInstructionRepo.deleteAll(),
                   mEntryRepo.deleteAll())
                   .doOnSubscribe(d -> showProgress("Clearing old data."))
-                  .doOnComplete(() -> showProgress("Importing new data."))
-                  .andThen(importer.importAppState(appState))
-                  .doOnComplete(() -> showProgress("Done importing data.")))
+                  .doOnComplete(() -> showProgress("Importing new data.")))
+              .andThen(importer.importFrom(in))
+              .doOnComplete(() -> showProgress("Done importing data."))
               .andThen(mCycleRepo
                   .getCurrentCycle()
                   .toSingle());
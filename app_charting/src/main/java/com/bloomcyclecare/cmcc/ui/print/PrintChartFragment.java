@@ -13,8 +13,8 @@ import com.bloomcyclecare.cmcc.apps.charting.ChartingApp;
 import com.bloomcyclecare.cmcc.data.repos.cycle.RWCycleRepo;
 import com.bloomcyclecare.cmcc.data.repos.entry.RWChartEntryRepo;
 import com.bloomcyclecare.cmcc.data.repos.instructions.RWInstructionsRepo;
-import com.bloomcyclecare.cmcc.logic.chart.CycleRenderer;
 import com.bloomcyclecare.cmcc.logic.print.ChartPrinter;
+import com.bloomcyclecare.cmcc.logic.print.PageRenderer;
 import com.bloomcyclecare.cmcc.ui.main.MainViewModel;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
@@ -83,9 +83,8 @@ public class PrintChartFragment extends Fragment {
               Toast.makeText(requireActivity(), "Continuous selection required", Toast.LENGTH_LONG).show();
               return;
             }
-            Observable<CycleRenderer> renderers = mPrintChartViewModel.getRenderers(adapter.getSelectedCycles());
-            mDisposables.add(renderers.toList()
-                .map(r -> ChartPrinter.create(requireActivity(), r))
+            mDisposables.add(mPrintChartViewModel.getRenderableCycles(adapter.getSelectedCycles())
+                .map(r -> ChartPrinter.create(requireActivity(), PageRenderer.forRenderableCycles(r)))
                 .flatMapObservable(ChartPrinter::print)
                 .flatMap(printJob -> pollPrintJob(printJob))
                 .toList()
@@ -4,16 +4,17 @@ import android.app.Application;
 import android.view.View;
 
 import com.bloomcyclecare.cmcc.ViewMode;
+import com.bloomcyclecare.cmcc.apps.charting.ChartingApp;
 import com.bloomcyclecare.cmcc.data.models.charting.Cycle;
 import com.bloomcyclecare.cmcc.data.repos.DataRepos;
 import com.bloomcyclecare.cmcc.data.repos.cycle.ROCycleRepo;
 import com.bloomcyclecare.cmcc.data.repos.entry.ROChartEntryRepo;
-import com.bloomcyclecare.cmcc.data.repos.instructions.ROInstructionsRepo;
 import com.bloomcyclecare.cmcc.logic.chart.CycleRenderer;
+import com.bloomcyclecare.cmcc.logic.chart.RenderedChartRepo;
 import com.google.auto.value.AutoValue;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
@@ -29,7 +30,8 @@ public class PrintChartViewModel extends AndroidViewModel {
 
   private final ROCycleRepo mCycleRepo;
   private final ROChartEntryRepo mEntryRepo;
-  private final ROInstructionsRepo mInstructionsRepo;
+  private final RenderedChartRepo mRenderedChartRepo;
+  private final ViewMode mViewMode;
 
   public PrintChartViewModel(@NonNull Application application, @NonNull ViewMode viewMode) {
     super(application);
@@ -37,7 +39,8 @@ public class PrintChartViewModel extends AndroidViewModel {
     DataRepos repos = DataRepos.fromApp(application);
     mCycleRepo = repos.cycleRepo(viewMode);
     mEntryRepo = repos.entryRepo(viewMode);
-    mInstructionsRepo = repos.instructionsRepo(viewMode);
+    mRenderedChartRepo = ChartingApp.cast(application).renderedChartRepo();
+    mViewMode = viewMode;
 
   }
 
@@ -51,14 +54,19 @@ public class PrintChartViewModel extends AndroidViewModel {
         .toList();
   }
 
-  public Observable<CycleRenderer> getRenderers(List<Cycle> cycles) {
-    return Observable.fromIterable(cycles)
-        .sorted()
-        .flatMap(cycle -> Single.zip(
-            mEntryRepo.getStreamForCycle(Flowable.just(cycle)).firstOrError(),
-            mInstructionsRepo.getAll().firstOrError(),
-            (entries, instructions) -> new CycleRenderer(cycle, Optional.empty(), entries, instructions))
-            .toObservable());
+  public Single<List<CycleRenderer.RenderableCycle>> getRenderableCycles(List<Cycle> cycles) {
+    return mRenderedChartRepo.renderedCycles(mViewMode)
+        .firstOrError()
+        .map(renderedCycles -> {
+          List<CycleRenderer.RenderableCycle> renderableCycles = new ArrayList<>(cycles.size());
+          for (Cycle cycle : cycles) {
+            CycleRenderer.RenderableCycle renderableCycle = renderedCycles.get(cycle);
+            if (renderableCycle != null) {
+              renderableCycles.add(renderableCycle);
+            }
+          }
+          return renderableCycles;
+        });
   }
 
   public static class Factory implements ViewModelProvider.Factory {
@@ -7,17 +7,17 @@ import android.util.Pair;
 
 import com.bloomcyclecare.cmcc.apps.charting.ChartingApp;
 import com.bloomcyclecare.cmcc.backup.AppStateImporter;
-import com.bloomcyclecare.cmcc.backup.AppStateParser;
 import com.bloomcyclecare.cmcc.backup.drive.BackupWorker;
 import com.bloomcyclecare.cmcc.backup.drive.DriveServiceHelper;
+import com.bloomcyclecare.cmcc.backup.drive.IncrementalBackup;
 import com.bloomcyclecare.cmcc.utils.GoogleAuthHelper;
 import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
 import com.google.api.services.drive.model.File;
 import com.google.auto.value.AutoValue;
 import com.google.common.collect.ImmutableList;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.util.Optional;
 
 import androidx.annotation.NonNull;
@@ -56,7 +56,9 @@ public class RestoreFromDriveViewModel extends AndroidViewModel {
           DriveServiceHelper driveService = DriveServiceHelper.forAccount(account.get(), mContext);
           return driveService
               .getFolder(BackupWorker.BACKUP_DIRECTORY_NAME_IN_DRIVE)
-              .flatMap(folder -> driveService.getFilesInFolder(folder, BackupWorker.BACKUP_FILE_NAME_IN_DRIVE))
+              // Prefer the index of an incremental backup, falling back to a plain snapshot
+              .flatMap(folder -> driveService.getFilesInFolder(folder, IncrementalBackup.INDEX_FILE_NAME)
+                  .switchIfEmpty(driveService.getFilesInFolder(folder, BackupWorker.BACKUP_FILE_NAME_IN_DRIVE)))
               .switchIfEmpty(Single.just(ImmutableList.of()))
               .map(files -> {
                 Timber.v("Found %d files", files.size());
@@ -93,20 +95,24 @@ public class RestoreFromDriveViewModel extends AndroidViewModel {
         throw new IllegalStateException();
       }
       DriveServiceHelper driveService = DriveServiceHelper.forAccount(account.get(), mContext);
-      ByteArrayOutputStream out = new ByteArrayOutputStream();
-      return driveService.downloadFile(backupFile, out)
-          .map(outputStream -> out.toByteArray())
+      if (IncrementalBackup.INDEX_FILE_NAME.equals(backupFile.getName())) {
+        Timber.d("Restoring incremental backup");
+        return IncrementalBackup.restore(
+            driveService, backupFile, mContext.getCacheDir(), new AppStateImporter(ChartingApp.getInstance()));
+      }
+      // Download to disk rather than memory so the import can stream from it
+      java.io.File localFile = new java.io.File(mContext.getCacheDir(), BackupWorker.BACKUP_FILE_NAME_IN_DRIVE);
+      return Single.using(
+          () -> new FileOutputStream(localFile),
+          out -> driveService.downloadFile(backupFile, out),
+          FileOutputStream::close)
           .observeOn(Schedulers.computation())
-          .flatMap(bytes -> {
-            Timber.d("Parsing backup file");
-            ByteArrayInputStream in = new ByteArrayInputStream(bytes);
-            return AppStateParser.parse(() -> in);
-          })
-          .flatMapCompletable(appState -> {
+          .flatMapCompletable(out -> {
             Timber.d("Importing app state");
             AppStateImporter importer = new AppStateImporter(ChartingApp.getInstance());
-            return importer.importAppState(appState);
+            return importer.importFrom(() -> new FileInputStream(localFile));
           })
+          .doFinally(localFile::delete)
           .subscribeOn(Schedulers.io());
     });
   }
@@ -29,7 +29,11 @@ public class DecisionTree {
 
   public interface Node {
 
-    Sticker select(CycleRenderer.StickerSelectionContext context, List<String> matchedCriteria);
+    /**
+     * @param matchedCriteria collects the reasons for the selection, may be null if only the
+     *                        sticker is needed.
+     */
+    Sticker select(CycleRenderer.StickerSelectionContext context, @Nullable List<String> matchedCriteria);
 
     void setParent(ParentNode node);
 
@@ -185,9 +189,9 @@ public class DecisionTree {
       return decorator.apply(branch, critera.getReason(branch, context));
     }
 
-    public Sticker select(CycleRenderer.StickerSelectionContext context, List<String> matchedCriteria) {
+    public Sticker select(CycleRenderer.StickerSelectionContext context, @Nullable List<String> matchedCriteria) {
       boolean branch = critera.predicate.test(context);
-      if (shouldLogFn.test(branch, context)) {
+      if (matchedCriteria != null && shouldLogFn.test(branch, context)) {
         matchedCriteria.add(critera.getReason(branch, context));
       }
       return branch
@@ -245,7 +249,7 @@ public class DecisionTree {
     }
 
     @Override
-    public Sticker select(CycleRenderer.StickerSelectionContext context, List<String> matchedCriteria) {
+    public Sticker select(CycleRenderer.StickerSelectionContext context, @Nullable List<String> matchedCriteria) {
       return sticker;
     }
 
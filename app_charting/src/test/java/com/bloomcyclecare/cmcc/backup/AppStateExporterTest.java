@@ -0,0 +1,91 @@
+package com.bloomcyclecare.cmcc.backup;
+
+import com.bloomcyclecare.cmcc.data.models.charting.Cycle;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+public class AppStateExporterTest {
+
+  private static final LocalDate START_DATE = new LocalDate(2020, 1, 1);
+
+  @Test
+  public void testRange_openCycleIncludesFutureDays() {
+    Cycle cycle = new Cycle("a", START_DATE, null, null);
+
+    assertThat(AppStateExporter.range(cycle)).isEqualTo(Range.atLeast(START_DATE));
+    assertThat(AppStateExporter.range(cycle).contains(LocalDate.now().plusYears(1))).isTrue();
+  }
+
+  @Test
+  public void testRangesOutsideCycles_noCycles() {
+    assertThat(AppStateExporter.rangesOutsideCycles(ImmutableList.of()))
+        .containsExactly(Range.all());
+  }
+
+  @Test
+  public void testRangesOutsideCycles_openLastCycle() {
+    List<Cycle> cycles = ImmutableList.of(
+        new Cycle("a", START_DATE, START_DATE.plusDays(9), null),
+        new Cycle("b", START_DATE.plusDays(10), null, null));
+
+    assertThat(AppStateExporter.rangesOutsideCycles(cycles))
+        .containsExactly(Range.atMost(START_DATE.minusDays(1)));
+  }
+
+  @Test
+  public void testRangesOutsideCycles_closedLastCycle() {
+    List<Cycle> cycles = ImmutableList.of(
+        new Cycle("a", START_DATE, START_DATE.plusDays(9), null));
+
+    assertThat(AppStateExporter.rangesOutsideCycles(cycles))
+        .containsExactly(
+            Range.atMost(START_DATE.minusDays(1)),
+            Range.atLeast(START_DATE.plusDays(10)))
+        .inOrder();
+  }
+
+  @Test
+  public void testRangesOutsideCycles_gapBetweenCycles() {
+    List<Cycle> cycles = ImmutableList.of(
+        new Cycle("a", START_DATE, START_DATE.plusDays(9), null),
+        new Cycle("b", START_DATE.plusDays(15), null, null));
+
+    assertThat(AppStateExporter.rangesOutsideCycles(cycles))
+        .containsExactly(
+            Range.atMost(START_DATE.minusDays(1)),
+            Range.closed(START_DATE.plusDays(10), START_DATE.plusDays(14)))
+        .inOrder();
+  }
+
+  @Test
+  public void testEveryDayIsExportedOnce() {
+    List<Cycle> cycles = ImmutableList.of(
+        new Cycle("a", START_DATE, START_DATE.plusDays(9), null),
+        new Cycle("b", START_DATE.plusDays(12), START_DATE.plusDays(20), null),
+        new Cycle("c", START_DATE.plusDays(21), null, null));
+    List<Range<LocalDate>> ranges = new ArrayList<>();
+    for (Cycle cycle : cycles) {
+      ranges.add(AppStateExporter.range(cycle));
+    }
+    ranges.addAll(AppStateExporter.rangesOutsideCycles(cycles));
+
+    for (LocalDate d = START_DATE.minusDays(5); d.isBefore(START_DATE.plusDays(40)); d = d.plusDays(1)) {
+      int numRanges = 0;
+      for (Range<LocalDate> range : ranges) {
+        if (range.contains(d)) {
+          numRanges++;
+        }
+      }
+      assertWithMessage(d.toString()).that(numRanges).isEqualTo(1);
+    }
+  }
+}
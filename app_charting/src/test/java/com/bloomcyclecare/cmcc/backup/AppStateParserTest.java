@@ -0,0 +1,79 @@
+package com.bloomcyclecare.cmcc.backup;
+
+import com.bloomcyclecare.cmcc.backup.models.AppState;
+import com.bloomcyclecare.cmcc.data.models.charting.ChartEntry;
+import com.bloomcyclecare.cmcc.data.models.charting.Cycle;
+import com.bloomcyclecare.cmcc.data.utils.GsonUtil;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class AppStateParserTest {
+
+  private static final LocalDate START_DATE = new LocalDate(2020, 1, 1);
+
+  private static AppState appState() {
+    List<ChartEntry> entries = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      ChartEntry entry = ChartEntry.emptyEntry(START_DATE.plusDays(i));
+      entry.observationEntry.peakDay = i == 1;
+      entries.add(entry);
+    }
+    return new AppState(
+        ImmutableList.of(
+            new Cycle("a", START_DATE, START_DATE.plusDays(1), null),
+            new Cycle("b", START_DATE.plusDays(2), null, null)),
+        entries, null, ImmutableList.of(), ImmutableList.of());
+  }
+
+  @Test
+  public void testParse_streamsEntries() {
+    AppState expected = appState();
+    byte[] json = GsonUtil.getGsonInstance().toJson(expected).getBytes(Charsets.UTF_8);
+
+    List<ChartEntry> entries = new ArrayList<>();
+    AppState parsed = AppStateParser.parse(() -> new ByteArrayInputStream(json), entries::add)
+        .blockingGet();
+
+    assertThat(parsed.entries).isEmpty();
+    assertThat(parsed.cycles).containsExactlyElementsIn(expected.cycles).inOrder();
+    assertThat(entries).containsExactlyElementsIn(expected.entries).inOrder();
+  }
+
+  @Test
+  public void testParse_gzip() throws Exception {
+    AppState expected = appState();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(GsonUtil.getGsonInstance().toJson(expected).getBytes(Charsets.UTF_8));
+    }
+
+    AppState parsed = AppStateParser.parse(() -> new ByteArrayInputStream(out.toByteArray()))
+        .blockingGet();
+
+    assertThat(parsed.cycles).containsExactlyElementsIn(expected.cycles).inOrder();
+    assertThat(parsed.entries).containsExactlyElementsIn(expected.entries).inOrder();
+    assertThat(parsed.properties()).isEqualTo(expected.properties());
+  }
+
+  @Test
+  public void testParse_skipsUnknownFields() {
+    String json = "{\"version\": {\"a\": [1, 2]}, \"cycles\": [], \"entries\": []}";
+
+    AppState parsed = AppStateParser.parse(() -> new ByteArrayInputStream(json.getBytes(Charsets.UTF_8)))
+        .blockingGet();
+
+    assertThat(parsed.cycles).isEmpty();
+    assertThat(parsed.instructions).isEmpty();
+  }
+}
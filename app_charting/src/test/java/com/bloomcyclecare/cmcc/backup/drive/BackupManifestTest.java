@@ -0,0 +1,76 @@
+package com.bloomcyclecare.cmcc.backup.drive;
+
+import com.bloomcyclecare.cmcc.utils.DateUtil;
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+import org.joda.time.LocalDate;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class BackupManifestTest {
+
+  private static final LocalDate FIRST_START = new LocalDate(2020, 1, 1);
+  private static final LocalDate SECOND_START = new LocalDate(2020, 2, 1);
+
+  @Rule
+  public TemporaryFolder mFolder = new TemporaryFolder();
+
+  private static BackupManifest manifest() {
+    BackupManifest manifest = new BackupManifest();
+    manifest.indexFileId = "index";
+    manifest.snapshotFileId = "snapshot";
+    manifest.snapshotHashes.put(DateUtil.toWireStr(FIRST_START), "a");
+    manifest.snapshotHashes.put(DateUtil.toWireStr(SECOND_START), "b");
+    manifest.chunks.add(new BackupManifest.Chunk("chunk", SECOND_START, null, "c"));
+    return manifest;
+  }
+
+  @Test
+  public void testHashFor_chunkTakesPrecedence() {
+    BackupManifest manifest = manifest();
+
+    assertThat(manifest.hashFor(FIRST_START)).isEqualTo("a");
+    assertThat(manifest.hashFor(SECOND_START)).isEqualTo("c");
+    assertThat(manifest.hashFor(SECOND_START.plusDays(1))).isNull();
+  }
+
+  @Test
+  public void testInAnyChunk() {
+    BackupManifest manifest = manifest();
+    manifest.chunks.add(new BackupManifest.Chunk("closed", FIRST_START, FIRST_START.plusDays(3), "d"));
+
+    assertThat(manifest.inAnyChunk(FIRST_START.minusDays(1))).isFalse();
+    assertThat(manifest.inAnyChunk(FIRST_START.plusDays(3))).isTrue();
+    assertThat(manifest.inAnyChunk(FIRST_START.plusDays(4))).isFalse();
+    assertThat(manifest.inAnyChunk(SECOND_START.plusYears(1))).isTrue();
+  }
+
+  @Test
+  public void testSaveAndLoad() throws Exception {
+    File file = new File(mFolder.getRoot(), "manifest.json");
+    manifest().save(file);
+
+    BackupManifest loaded = BackupManifest.load(file);
+
+    assertThat(loaded.indexFileId).isEqualTo("index");
+    assertThat(loaded.snapshotHashes).isEqualTo(manifest().snapshotHashes);
+    assertThat(loaded.chunks).hasSize(1);
+    assertThat(loaded.chunks.get(0).startDate).isEqualTo(SECOND_START);
+    assertThat(loaded.chunks.get(0).endDate).isNull();
+  }
+
+  @Test
+  public void testLoad_missingOrCorrupt() throws Exception {
+    File file = new File(mFolder.getRoot(), "manifest.json");
+    assertThat(BackupManifest.load(file)).isNull();
+
+    Files.asCharSink(file, Charsets.UTF_8).write("{not json");
+    assertThat(BackupManifest.load(file)).isNull();
+  }
+}
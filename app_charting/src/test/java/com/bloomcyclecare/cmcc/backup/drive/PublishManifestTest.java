@@ -0,0 +1,58 @@
+package com.bloomcyclecare.cmcc.backup.drive;
+
+import com.google.common.collect.ImmutableSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class PublishManifestTest {
+
+  private static final String NAME = "chart_starting_2020_01_01.pdf";
+
+  @Rule
+  public TemporaryFolder mFolder = new TemporaryFolder();
+
+  private static PublishManifest manifest() {
+    PublishManifest manifest = new PublishManifest();
+    manifest.pages.put(NAME, new PublishManifest.Page("file", "hash"));
+    return manifest;
+  }
+
+  @Test
+  public void testIsPublished() {
+    PublishManifest manifest = manifest();
+
+    assertThat(manifest.isPublished(NAME, "hash", ImmutableSet.of("file"))).isTrue();
+    assertThat(manifest.isPublished(NAME, "changed", ImmutableSet.of("file"))).isFalse();
+    assertThat(manifest.isPublished("other.pdf", "hash", ImmutableSet.of("file"))).isFalse();
+  }
+
+  @Test
+  public void testIsPublished_removedFromDrive() {
+    assertThat(manifest().isPublished(NAME, "hash", ImmutableSet.of("other"))).isFalse();
+  }
+
+  @Test
+  public void testReferences() {
+    PublishManifest manifest = manifest();
+
+    assertThat(manifest.references("file")).isTrue();
+    assertThat(manifest.references("other")).isFalse();
+  }
+
+  @Test
+  public void testSaveAndLoad() throws Exception {
+    File file = new File(mFolder.getRoot(), "manifest.json");
+    manifest().save(file);
+
+    PublishManifest loaded = PublishManifest.load(file);
+
+    assertThat(loaded.isPublished(NAME, "hash", ImmutableSet.of("file"))).isTrue();
+    assertThat(PublishManifest.load(new File(mFolder.getRoot(), "missing.json"))).isNull();
+  }
+}
@@ -0,0 +1,85 @@
+package com.bloomcyclecare.cmcc.logic.breastfeeding;
+
+import android.app.Application;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.joda.time.DateTimeConstants;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class BabyDaybookDBTest {
+
+  private static final long START_MILLIS = 1_600_000_000_000L;
+
+  private SQLiteDatabase mSqliteDb;
+  private BabyDaybookDB mDb;
+
+  @Before
+  public void setUp() {
+    mSqliteDb = SQLiteDatabase.create(null);
+    mSqliteDb.execSQL("CREATE TABLE babies (uid TEXT, name TEXT)");
+    // No declared types so the columns have no affinity to convert a text argument with
+    mSqliteDb.execSQL("CREATE TABLE daily_actions (baby_uid, type, start_millis, end_millis)");
+    mSqliteDb.execSQL("INSERT INTO babies VALUES ('b1', 'Ada'), ('b2', 'Bo')");
+    mDb = new BabyDaybookDB(mSqliteDb);
+  }
+
+  @After
+  public void tearDown() {
+    mSqliteDb.close();
+  }
+
+  @Test
+  public void testForEachAction_since() {
+    addAction("b1", "breastfeeding", START_MILLIS - 1000, START_MILLIS - 500);
+    addAction("b1", "breastfeeding", START_MILLIS + 2000, START_MILLIS + 3000);
+    addAction("b1", "breastfeeding", START_MILLIS, START_MILLIS + 1000);
+    // Would come after START_MILLIS if the two were compared as text
+    addAction("b1", "breastfeeding", 5, 10);
+
+    assertThat(actions("Ada", START_MILLIS, "breastfeeding")).containsExactly(
+        START_MILLIS, START_MILLIS + 1000,
+        START_MILLIS + 2000, START_MILLIS + 3000).inOrder();
+    assertThat(actions("Ada", 0, "breastfeeding")).hasSize(8);
+  }
+
+  @Test
+  public void testForEachAction_filtersAndFixesUp() {
+    addAction("b1", "breastfeeding", START_MILLIS, START_MILLIS + 1000);
+    addAction("b2", "breastfeeding", START_MILLIS + 1000, START_MILLIS + 2000);
+    addAction("b1", "sleep", START_MILLIS + 2000, START_MILLIS + 3000);
+    addAction("b1", "pump", START_MILLIS + 3000, 0);
+    addAction("b1", "breastfeeding", START_MILLIS + 4000, 0);
+    addAction("b1", "breastfeeding", START_MILLIS + 6000, START_MILLIS + 5000);
+
+    assertThat(actions("Ada", START_MILLIS, "breastfeeding", "pump")).containsExactly(
+        START_MILLIS, START_MILLIS + 1000,
+        START_MILLIS + 3000, START_MILLIS + 3000 + DateTimeConstants.MILLIS_PER_MINUTE).inOrder();
+  }
+
+  private void addAction(String babyUid, String type, long startMillis, long endMillis) {
+    mSqliteDb.execSQL(
+        "INSERT INTO daily_actions VALUES (?, ?, ?, ?)",
+        new Object[]{babyUid, type, startMillis, endMillis});
+  }
+
+  private List<Long> actions(String babyName, long sinceMillis, String... types) {
+    List<Long> out = new ArrayList<>();
+    mDb.forEachAction(babyName, sinceMillis, (start, end) -> {
+      out.add(start);
+      out.add(end);
+    }, types).blockingAwait();
+    return out;
+  }
+}
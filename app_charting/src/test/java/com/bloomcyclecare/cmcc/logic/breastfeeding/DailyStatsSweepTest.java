@@ -0,0 +1,110 @@
+package com.bloomcyclecare.cmcc.logic.breastfeeding;
+
+import com.google.common.collect.ImmutableSortedMap;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Duration;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class DailyStatsSweepTest {
+
+  private static final DateTimeZone ZONE = DateTimeZone.forID("America/Chicago");
+  private static final Duration MIN_GAP = Duration.standardMinutes(15);
+  private static final LocalDate DAY_ONE = new LocalDate(2021, 3, 1);
+
+  @Test
+  public void testCountsAndGaps() {
+    DailyStatsSweep sweep = new DailyStatsSweep(ZONE, MIN_GAP, 0);
+    feed(sweep, DAY_ONE, 2, 0, 20);
+    feed(sweep, DAY_ONE, 9, 0, 30);
+    // Less than MIN_GAP after the last one so it's the same feeding
+    feed(sweep, DAY_ONE, 9, 40, 10);
+    feed(sweep, DAY_ONE, 14, 0, 30);
+    feed(sweep, DAY_ONE, 18, 0, 30);
+    feed(sweep, DAY_ONE, 22, 30, 30);
+    // The gap over midnight counts towards the day it started on
+    feed(sweep, DAY_ONE.plusDays(1), 6, 0, 30);
+    feed(sweep, DAY_ONE.plusDays(1), 12, 0, 30);
+
+    ImmutableSortedMap<LocalDate, BreastfeedingStats.DailyStats> stats = sweep.finish();
+
+    assertThat(stats.keySet()).containsExactly(DAY_ONE, DAY_ONE.plusDays(1)).inOrder();
+    BreastfeedingStats.DailyStats first = stats.get(DAY_ONE);
+    assertThat(first.nDay).isEqualTo(3);
+    assertThat(first.nNight).isEqualTo(2);
+    assertThat(first.longestGapDuration).isEqualTo(Duration.standardMinutes(7 * 60));
+    BreastfeedingStats.DailyStats second = stats.get(DAY_ONE.plusDays(1));
+    assertThat(second.nDay).isEqualTo(1);
+    assertThat(second.nNight).isEqualTo(1);
+    assertThat(second.longestGapDuration).isEqualTo(Duration.standardMinutes(5 * 60 + 30));
+  }
+
+  @Test
+  public void testSkipsLastDayWithoutGap() {
+    DailyStatsSweep sweep = new DailyStatsSweep(ZONE, MIN_GAP, 0);
+    feed(sweep, DAY_ONE, 10, 0, 30);
+    feed(sweep, DAY_ONE.plusDays(1), 10, 0, 30);
+
+    assertThat(sweep.finish().keySet()).containsExactly(DAY_ONE);
+  }
+
+  @Test
+  public void testResume() {
+    LocalDate resumeDay = DAY_ONE.plusDays(2);
+    DailyStatsSweep sweep = new DailyStatsSweep(
+        ZONE, MIN_GAP, resumeDay.toDateTime(new LocalTime(13, 0), ZONE).getMillis());
+
+    assertThat(sweep.readFromMillis())
+        .isEqualTo(resumeDay.minusDays(1).toDateTimeAtStartOfDay(ZONE).getMillis());
+
+    feed(sweep, resumeDay.minusDays(1), 23, 50, 5);
+    // Merged with the feeding from the day before
+    feed(sweep, resumeDay, 0, 5, 20);
+    feed(sweep, resumeDay, 10, 0, 20);
+    feed(sweep, resumeDay, 14, 0, 20);
+
+    ImmutableSortedMap<LocalDate, BreastfeedingStats.DailyStats> stats = sweep.finish();
+
+    assertThat(stats.keySet()).containsExactly(resumeDay);
+    assertThat(stats.get(resumeDay).nDay).isEqualTo(2);
+    assertThat(stats.get(resumeDay).nNight).isEqualTo(0);
+    assertThat(stats.get(resumeDay).longestGapDuration).isEqualTo(Duration.standardMinutes(3 * 60 + 40));
+  }
+
+  @Test
+  public void testDaylightSavingTime() {
+    // Clocks in Chicago jumped from 2:00 to 3:00 on 2021-03-14
+    LocalDate dstDay = new LocalDate(2021, 3, 14);
+    DailyStatsSweep sweep = new DailyStatsSweep(ZONE, MIN_GAP, 0);
+    feed(sweep, dstDay.minusDays(1), 23, 0, 30);
+    feed(sweep, dstDay, 7, 30, 30);
+    feed(sweep, dstDay, 8, 30, 30);
+    feed(sweep, dstDay, 23, 30, 30);
+    feed(sweep, dstDay.plusDays(1), 1, 0, 30);
+
+    ImmutableSortedMap<LocalDate, BreastfeedingStats.DailyStats> stats = sweep.finish();
+
+    // 23:30 to 7:30 is only seven hours on the day the clocks change
+    assertThat(stats.get(dstDay.minusDays(1)).longestGapDuration)
+        .isEqualTo(Duration.standardMinutes(7 * 60));
+    assertThat(stats.get(dstDay).nDay).isEqualTo(1);
+    assertThat(stats.get(dstDay).nNight).isEqualTo(2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsortedFeedings() {
+    DailyStatsSweep sweep = new DailyStatsSweep(ZONE, MIN_GAP, 0);
+    feed(sweep, DAY_ONE, 10, 0, 30);
+    feed(sweep, DAY_ONE, 8, 0, 30);
+  }
+
+  private static void feed(DailyStatsSweep sweep, LocalDate day, int hour, int minute, int durationMinutes) {
+    DateTime start = day.toDateTimeAtStartOfDay(ZONE).withHourOfDay(hour).withMinuteOfHour(minute);
+    sweep.add(start.getMillis(), start.plusMinutes(durationMinutes).getMillis());
+  }
+}
@@ -0,0 +1,92 @@
+package com.bloomcyclecare.cmcc.logic.chart;
+
+import com.google.common.collect.ImmutableList;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class CycleTrendsTest {
+
+  private static final LocalDate FIRST_START_DATE = new LocalDate(2020, 1, 1);
+
+  @Test
+  public void testDistribution() {
+    List<CycleRenderer.CycleStats> stats = new ArrayList<>();
+    LocalDate startDate = FIRST_START_DATE;
+    for (int length : new int[]{30, 26, 28, 32}) {
+      stats.add(stats(startDate, length, length - 14, 2.5f + length / 2));
+      startDate = startDate.plusDays(length);
+    }
+
+    CycleTrends trends = CycleTrends.of(stats);
+
+    CycleTrends.Distribution lengths = trends.distribution(CycleTrends.Metric.CYCLE_LENGTH);
+    assertThat(lengths.count()).isEqualTo(4);
+    assertThat(lengths.min().get()).isEqualTo(26f);
+    assertThat(lengths.max().get()).isEqualTo(32f);
+    assertThat(lengths.median().get()).isEqualTo(29f);
+    assertThat(lengths.percentile(25).get()).isEqualTo(27.5f);
+    assertThat(trends.distribution(CycleTrends.Metric.DAYS_PRE_PEAK).median().get()).isEqualTo(15f);
+    assertThat(trends.distribution(CycleTrends.Metric.DAYS_POST_PEAK).median().get()).isEqualTo(13f);
+    assertThat(trends.distribution(CycleTrends.Metric.MCS).median().get()).isEqualTo(17f);
+  }
+
+  @Test
+  public void testSkipsUnfinishedAndPregnancyCycles() {
+    CycleRenderer.CycleStats finished = stats(FIRST_START_DATE, 28, 14, 8f);
+    CycleRenderer.CycleStats pregnancy = CycleRenderer.CycleStats.builder()
+        .cycleStartDate(FIRST_START_DATE.plusDays(28))
+        .cycleLength(Optional.of(280))
+        .daysPrePeak(Optional.of(16))
+        .isPregnancy(true)
+        .build();
+    CycleRenderer.CycleStats current = CycleRenderer.CycleStats.builder()
+        .cycleStartDate(FIRST_START_DATE.plusDays(308))
+        .daysPrePeak(Optional.of(20))
+        .build();
+
+    CycleTrends trends = CycleTrends.of(ImmutableList.of(current, pregnancy, finished));
+
+    assertThat(trends.numCycles()).isEqualTo(1);
+    assertThat(trends.distribution(CycleTrends.Metric.DAYS_PRE_PEAK).median().get()).isEqualTo(14f);
+  }
+
+  @Test
+  public void testRollingMedians() {
+    List<CycleRenderer.CycleStats> stats = new ArrayList<>();
+    LocalDate startDate = FIRST_START_DATE;
+    for (int length : new int[]{30, 26, 28, 32, 40}) {
+      stats.add(stats(startDate, length, length - 14, 8f));
+      startDate = startDate.plusDays(length);
+    }
+    // Without a peak day there's nothing to add to the window
+    stats.add(CycleRenderer.CycleStats.builder()
+        .cycleStartDate(startDate)
+        .cycleLength(Optional.of(35))
+        .build());
+
+    CycleTrends trends = CycleTrends.of(stats);
+
+    assertThat(trends.rollingMedians(CycleTrends.Metric.CYCLE_LENGTH, 3)).containsExactly(
+        Optional.of(28f), Optional.of(28f), Optional.of(32f), Optional.of(35f)).inOrder();
+    assertThat(trends.mostRecent(2).distribution(CycleTrends.Metric.DAYS_PRE_PEAK).count()).isEqualTo(1);
+    assertThat(trends.mostRecent(2).distribution(CycleTrends.Metric.CYCLE_LENGTH).median().get()).isEqualTo(37.5f);
+    assertThat(CycleTrends.of(ImmutableList.of()).rollingMedians(CycleTrends.Metric.MCS, 3)).isEmpty();
+  }
+
+  private static CycleRenderer.CycleStats stats(LocalDate startDate, int length, int daysPrePeak, float mcs) {
+    return CycleRenderer.CycleStats.builder()
+        .cycleStartDate(startDate)
+        .cycleLength(Optional.of(length))
+        .daysPrePeak(Optional.of(daysPrePeak))
+        .daysPostPeak(Optional.of(length - 1 - daysPrePeak))
+        .mcs(Optional.of(mcs))
+        .build();
+  }
+}
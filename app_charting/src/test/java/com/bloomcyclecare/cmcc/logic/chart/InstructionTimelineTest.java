@@ -0,0 +1,43 @@
+package com.bloomcyclecare.cmcc.logic.chart;
+
+import com.bloomcyclecare.cmcc.data.models.instructions.BasicInstruction;
+import com.bloomcyclecare.cmcc.data.models.instructions.Instructions;
+import com.google.common.collect.ImmutableList;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class InstructionTimelineTest {
+
+  private static final LocalDate START = new LocalDate(2020, 1, 1);
+
+  private static Instructions instructions(LocalDate startDate, BasicInstruction... active) {
+    return new Instructions(startDate, ImmutableList.copyOf(active), ImmutableList.of(), ImmutableList.of());
+  }
+
+  @Test
+  public void testActiveOn() {
+    InstructionTimeline timeline = new InstructionTimeline(ImmutableList.of(
+        instructions(START.plusDays(10), BasicInstruction.D_2),
+        instructions(START.plusDays(2), BasicInstruction.D_1)), START);
+
+    assertThat(timeline.activeOn(START).isActive(BasicInstruction.D_1)).isFalse();
+    assertThat(timeline.activeOn(START.plusDays(2)).isActive(BasicInstruction.D_1)).isTrue();
+    assertThat(timeline.activeOn(START.plusDays(9)).isActive(BasicInstruction.D_2)).isFalse();
+    assertThat(timeline.activeOn(START.plusDays(10)).isActive(BasicInstruction.D_2)).isTrue();
+    assertThat(timeline.activeOn(START.plusDays(10)).isActive(BasicInstruction.D_1)).isFalse();
+  }
+
+  @Test
+  public void testActiveOn_movingBackwards() {
+    InstructionTimeline timeline = new InstructionTimeline(ImmutableList.of(
+        instructions(START, BasicInstruction.D_1),
+        instructions(START.plusDays(5), BasicInstruction.D_2)), START);
+
+    assertThat(timeline.activeOn(START.plusDays(6)).isActive(BasicInstruction.D_2)).isTrue();
+    assertThat(timeline.activeOn(START.plusDays(1)).isActive(BasicInstruction.D_1)).isTrue();
+    assertThat(timeline.activeOn(START.plusDays(1)).isActive(BasicInstruction.D_2)).isFalse();
+  }
+}
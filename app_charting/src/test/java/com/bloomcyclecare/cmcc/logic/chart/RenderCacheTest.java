@@ -0,0 +1,113 @@
+package com.bloomcyclecare.cmcc.logic.chart;
+
+import com.bloomcyclecare.cmcc.data.models.charting.ChartEntry;
+import com.bloomcyclecare.cmcc.data.models.charting.Cycle;
+import com.bloomcyclecare.cmcc.data.models.instructions.BasicInstruction;
+import com.bloomcyclecare.cmcc.data.models.instructions.Instructions;
+import com.google.common.collect.ImmutableList;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class RenderCacheTest {
+
+  private static final LocalDate START = new LocalDate(2020, 1, 1);
+  private static final Cycle CLOSED_CYCLE = new Cycle("", START, START.plusDays(29), null);
+  private static final Cycle CURRENT_CYCLE = new Cycle("", START.plusDays(30), null, null);
+
+  @Test
+  public void testKey_ignoresInstructionsOutsideCycle() {
+    List<ChartEntry> entries = entries(CLOSED_CYCLE.startDate, 3);
+    Instructions active = instructions(START.minusDays(10), BasicInstruction.D_1);
+    RenderCache.Key key = RenderCache.key(
+        CLOSED_CYCLE, Optional.empty(), entries, ImmutableList.of(active));
+
+    assertThat(RenderCache.key(CLOSED_CYCLE, Optional.empty(), entries, ImmutableList.of(
+        instructions(START.minusDays(20), BasicInstruction.D_2),
+        active,
+        instructions(CURRENT_CYCLE.startDate, BasicInstruction.D_3)))).isEqualTo(key);
+    assertThat(RenderCache.key(CLOSED_CYCLE, Optional.empty(), entries, ImmutableList.of(
+        active,
+        instructions(START.plusDays(5), BasicInstruction.D_3)))).isNotEqualTo(key);
+  }
+
+  @Test
+  public void testKey_changesWithEntries() {
+    List<ChartEntry> entries = entries(CLOSED_CYCLE.startDate, 3);
+    RenderCache.Key key = RenderCache.key(CLOSED_CYCLE, Optional.empty(), entries, ImmutableList.of());
+
+    assertThat(RenderCache.key(CLOSED_CYCLE, Optional.empty(), ImmutableList.copyOf(entries).reverse(), ImmutableList.of()))
+        .isEqualTo(key);
+    assertThat(RenderCache.key(CLOSED_CYCLE, Optional.empty(), entries(CLOSED_CYCLE.startDate, 4), ImmutableList.of()))
+        .isNotEqualTo(key);
+    assertThat(RenderCache.key(CLOSED_CYCLE, Optional.of(CURRENT_CYCLE), entries, ImmutableList.of()))
+        .isNotEqualTo(key);
+  }
+
+  @Test
+  public void testGetOrRender_hashCollision() {
+    RenderCache cache = new RenderCache(2);
+    List<ChartEntry> entries = entries(START, 3);
+    // "Aa" and "BB" have the same hash code
+    RenderCache.Key a = RenderCache.key(
+        CLOSED_CYCLE, Optional.of(new Cycle("Aa", START.minusDays(30), START.minusDays(1), null)),
+        entries, ImmutableList.of());
+    RenderCache.Key b = RenderCache.key(
+        CLOSED_CYCLE, Optional.of(new Cycle("BB", START.minusDays(30), START.minusDays(1), null)),
+        entries, ImmutableList.of());
+    assertThat(a.hashCode()).isEqualTo(b.hashCode());
+    CycleRenderer.RenderableCycle first = render();
+
+    assertThat(cache.getOrRender(a, () -> first)).isSameInstanceAs(first);
+    assertThat(cache.getOrRender(b, RenderCacheTest::render)).isNotSameInstanceAs(first);
+    assertThat(cache.missCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void testGetOrRender_hitsAndEviction() {
+    RenderCache cache = new RenderCache(2);
+    RenderCache.Key a = keyFor(1);
+    RenderCache.Key b = keyFor(2);
+    RenderCache.Key c = keyFor(3);
+    CycleRenderer.RenderableCycle first = render();
+
+    assertThat(cache.getOrRender(a, () -> first)).isSameInstanceAs(first);
+    assertThat(cache.getOrRender(a, RenderCacheTest::render)).isSameInstanceAs(first);
+    cache.getOrRender(b, RenderCacheTest::render);
+    // Touch a so b is the least recently used
+    cache.getOrRender(a, RenderCacheTest::render);
+    cache.getOrRender(c, RenderCacheTest::render);
+
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.hitCount()).isEqualTo(2);
+    assertThat(cache.missCount()).isEqualTo(3);
+    assertThat(cache.getOrRender(a, RenderCacheTest::render)).isSameInstanceAs(first);
+    cache.getOrRender(b, RenderCacheTest::render);
+    assertThat(cache.missCount()).isEqualTo(4);
+  }
+
+  private static RenderCache.Key keyFor(int numEntries) {
+    return RenderCache.key(CLOSED_CYCLE, Optional.empty(), entries(START, numEntries), ImmutableList.of());
+  }
+
+  private static CycleRenderer.RenderableCycle render() {
+    return new CycleRenderer(CLOSED_CYCLE, Optional.empty(), entries(START, 3), ImmutableList.of()).render();
+  }
+
+  private static List<ChartEntry> entries(LocalDate startDate, int numEntries) {
+    ImmutableList.Builder<ChartEntry> entries = ImmutableList.builder();
+    for (int i = 0; i < numEntries; i++) {
+      entries.add(ChartEntry.emptyEntry(startDate.plusDays(i)));
+    }
+    return entries.build();
+  }
+
+  private static Instructions instructions(LocalDate startDate, BasicInstruction... active) {
+    return new Instructions(startDate, ImmutableList.copyOf(active), ImmutableList.of(), ImmutableList.of());
+  }
+}
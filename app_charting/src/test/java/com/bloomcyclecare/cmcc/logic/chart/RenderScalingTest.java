@@ -0,0 +1,118 @@
+package com.bloomcyclecare.cmcc.logic.chart;
+
+import com.bloomcyclecare.cmcc.data.models.charting.ChartEntry;
+import com.bloomcyclecare.cmcc.data.models.charting.Cycle;
+import com.bloomcyclecare.cmcc.data.models.instructions.Instructions;
+import com.bloomcyclecare.cmcc.data.models.instructions.SpecialInstruction;
+import com.bloomcyclecare.cmcc.data.models.training.TrainingEntry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+
+/**
+ * Regression test for long breastfeeding cycles. The renderer's entry list is swapped for one
+ * which counts reads, a rule which walks back from the start of the cycle makes that count grow
+ * quadratically with the length of the cycle.
+ */
+public class RenderScalingTest {
+
+  private static final LocalDate CYCLE_START_DATE = new LocalDate(2017, 1, 1);
+  private static final Instructions INSTRUCTIONS = Instructions.createBasicInstructions(CYCLE_START_DATE)
+      .addInstructions(SpecialInstruction.BREASTFEEDING_SEMINAL_FLUID_YELLOW_STAMPS);
+  private static final int NUM_DAYS = 150;
+
+  private static final ImmutableList<Supplier<TrainingEntry>> BREASTFEEDING_PATTERN = ImmutableList.of(
+      () -> TrainingEntry.forText("0AD"),
+      () -> TrainingEntry.forText("0AD").intercourse(),
+      () -> TrainingEntry.forText("10Cx1").essentiallyTheSame(),
+      () -> TrainingEntry.forText("2AD"),
+      () -> TrainingEntry.forText("0AD").intercourse(),
+      () -> TrainingEntry.forText("10Cx1"),
+      () -> TrainingEntry.forText("0AD"),
+      () -> TrainingEntry.forText("0AD"));
+
+  @Test
+  public void testBreastfeedingEntriesReadIsLinear() {
+    int reads = numEntriesRead(NUM_DAYS);
+    int readsForLongCycle = numEntriesRead(4 * NUM_DAYS);
+
+    // Linear growth gives about 4x as many reads, quadratic growth about 16x
+    assertWithMessage("reads for %s days vs %s days", 4 * NUM_DAYS, NUM_DAYS)
+        .that(readsForLongCycle).isAtMost(5 * reads);
+    assertWithMessage("reads for %s days", 4 * NUM_DAYS)
+        .that(readsForLongCycle).isAtLeast(4 * NUM_DAYS);
+  }
+
+  private static int numEntriesRead(int numDays) {
+    Cycle cycle = new Cycle("", CYCLE_START_DATE, null, null);
+    CountingList entryList = new CountingList();
+    CycleRenderer renderer = new CycleRenderer(
+        cycle, Optional.empty(), createEntries(numDays), ImmutableSet.of(INSTRUCTIONS), entryList);
+    entryList.numReads = 0;
+    renderer.render();
+    return entryList.numReads;
+  }
+
+  private static List<ChartEntry> createEntries(int numDays) {
+    List<ChartEntry> entries = new ArrayList<>(numDays);
+    for (int i = 0; i < numDays; i++) {
+      TrainingEntry trainingEntry = BREASTFEEDING_PATTERN.get(i % BREASTFEEDING_PATTERN.size()).get();
+      LocalDate entryDate = CYCLE_START_DATE.plusDays(i);
+      entries.add(new ChartEntry(entryDate, trainingEntry.asChartEntry(entryDate, observation -> {
+        try {
+          return ObservationParser.parse(observation);
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      }), null, null, null, null, null));
+    }
+    return entries;
+  }
+
+  private static class CountingList extends AbstractList<ChartEntry> {
+
+    private final List<ChartEntry> mDelegate = new ArrayList<>();
+    int numReads;
+
+    @Override
+    public ChartEntry get(int index) {
+      numReads++;
+      return mDelegate.get(index);
+    }
+
+    @Override
+    public int size() {
+      return mDelegate.size();
+    }
+
+    @Override
+    public void add(int index, ChartEntry entry) {
+      mDelegate.add(index, entry);
+    }
+
+    @Override
+    public ChartEntry set(int index, ChartEntry entry) {
+      return mDelegate.set(index, entry);
+    }
+
+    @Override
+    public ChartEntry remove(int index) {
+      return mDelegate.remove(index);
+    }
+
+    @Override
+    public void clear() {
+      mDelegate.clear();
+    }
+  }
+}
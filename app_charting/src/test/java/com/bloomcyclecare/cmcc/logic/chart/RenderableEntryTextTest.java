@@ -0,0 +1,112 @@
+package com.bloomcyclecare.cmcc.logic.chart;
+
+import com.bloomcyclecare.cmcc.data.models.charting.ChartEntry;
+import com.bloomcyclecare.cmcc.data.models.charting.Cycle;
+import com.bloomcyclecare.cmcc.data.models.instructions.Instructions;
+import com.bloomcyclecare.cmcc.data.models.training.TrainingEntry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+/**
+ * Checks that the text fields of each {@link CycleRenderer.RenderableEntry} are only computed for
+ * the entries which are actually displayed.
+ */
+public class RenderableEntryTextTest {
+
+  private static final LocalDate CYCLE_START_DATE = new LocalDate(2017, 1, 1);
+  private static final Instructions BASIC_INSTRUCTIONS = Instructions.createBasicInstructions(CYCLE_START_DATE);
+  private static final int NUM_DAYS = 300;
+
+  private static final ImmutableList<Supplier<TrainingEntry>> PATTERN = ImmutableList.of(
+      () -> TrainingEntry.forText("H"),
+      () -> TrainingEntry.forText("M"),
+      () -> TrainingEntry.forText("0AD"),
+      () -> TrainingEntry.forText("6Cx1"),
+      () -> TrainingEntry.forText("10KLx2"),
+      () -> TrainingEntry.forText("10KLx1").peakDay(),
+      () -> TrainingEntry.forText("2AD"),
+      () -> TrainingEntry.forText("0AD"));
+
+  @Test
+  public void testTextIsComputedOnce() {
+    CycleRenderer.RenderableEntry entry = createRenderer().render().entries().get(4);
+
+    assertThat(entry.instructionSummary()).isSameInstanceAs(entry.instructionSummary());
+    assertThat(entry.dateSummary()).isSameInstanceAs(entry.dateSummary());
+    assertThat(entry.expectedStickerSelection()).isSameInstanceAs(entry.expectedStickerSelection());
+  }
+
+  @Test
+  public void testRenderDoesNotComputeText() {
+    CycleRenderer.RenderableCycle renderableCycle = createRenderer().render();
+
+    for (CycleRenderer.RenderableEntry entry : renderableCycle.entries()) {
+      assertWithMessage("entry %s", entry.entryNum()).that(entry.isTextComputed()).isFalse();
+    }
+  }
+
+  @Test
+  public void testOnlyReadEntriesComputeText() {
+    List<CycleRenderer.RenderableEntry> entries = createRenderer().render().entries();
+    CycleRenderer.RenderableEntry displayedEntry = entries.get(4);
+
+    readText(displayedEntry);
+
+    for (CycleRenderer.RenderableEntry entry : entries) {
+      assertWithMessage("entry %s", entry.entryNum())
+          .that(entry.isTextComputed()).isEqualTo(entry == displayedEntry);
+    }
+  }
+
+  @Test
+  public void testEqualityDoesNotComputeText() {
+    List<CycleRenderer.RenderableEntry> entries = createRenderer().render().entries();
+    List<CycleRenderer.RenderableEntry> otherEntries = createRenderer().render().entries();
+
+    // Everything before the contexts matches so every lazy field is compared
+    entries.get(4).equals(otherEntries.get(4));
+    entries.get(4).hashCode();
+
+    assertThat(entries.get(4).isTextComputed()).isFalse();
+    assertThat(otherEntries.get(4).isTextComputed()).isFalse();
+  }
+
+  private static void readText(CycleRenderer.RenderableEntry entry) {
+    entry.dateSummary();
+    entry.dateSummaryShort();
+    entry.instructionSummary();
+    entry.expectedStickerSelection();
+  }
+
+  private static CycleRenderer createRenderer() {
+    Cycle cycle = new Cycle("", CYCLE_START_DATE, null, null);
+    return new CycleRenderer(cycle, Optional.empty(), createEntries(), ImmutableSet.of(BASIC_INSTRUCTIONS));
+  }
+
+  private static List<ChartEntry> createEntries() {
+    List<ChartEntry> entries = new ArrayList<>(NUM_DAYS);
+    for (int i = 0; i < NUM_DAYS; i++) {
+      TrainingEntry trainingEntry = PATTERN.get(i % PATTERN.size()).get();
+      LocalDate entryDate = CYCLE_START_DATE.plusDays(i);
+      entries.add(new ChartEntry(entryDate, trainingEntry.asChartEntry(entryDate, observation -> {
+        try {
+          return ObservationParser.parse(observation);
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      }), null, null, null, null, null));
+    }
+    return entries;
+  }
+}
@@ -0,0 +1,231 @@
+package com.bloomcyclecare.cmcc.logic.chart;
+
+import com.bloomcyclecare.cmcc.ViewMode;
+import com.bloomcyclecare.cmcc.data.db.CycleStatsDao;
+import com.bloomcyclecare.cmcc.data.models.charting.ChartEntry;
+import com.bloomcyclecare.cmcc.data.models.charting.Cycle;
+import com.bloomcyclecare.cmcc.data.models.charting.CycleStats;
+import com.bloomcyclecare.cmcc.data.models.instructions.Instructions;
+import com.bloomcyclecare.cmcc.data.repos.DataRepos;
+import com.bloomcyclecare.cmcc.data.repos.cycle.RWCycleRepo;
+import com.bloomcyclecare.cmcc.data.repos.entry.RWChartEntryRepo;
+import com.bloomcyclecare.cmcc.data.repos.instructions.RWInstructionsRepo;
+import com.google.common.collect.ImmutableList;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.processors.BehaviorProcessor;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.subscribers.TestSubscriber;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RenderedChartRepoTest {
+
+  private static final LocalDate START_DATE = LocalDate.parse("2020-01-01");
+  private static final Cycle FIRST_CYCLE = new Cycle("", START_DATE, START_DATE.plusDays(27), null);
+  private static final Cycle SECOND_CYCLE = new Cycle("", START_DATE.plusDays(28), null, null);
+
+  private final AtomicInteger mCycleSubscriptions = new AtomicInteger();
+  private final AtomicInteger mEntrySubscriptions = new AtomicInteger();
+  private final AtomicInteger mEntryRangeQueries = new AtomicInteger();
+  private final BehaviorProcessor<List<CycleStats>> mStatsRows =
+      BehaviorProcessor.createDefault(ImmutableList.of());
+  private final PublishProcessor<Boolean> mAllEntriesDeleted = PublishProcessor.create();
+  private final CountDownLatch mStatsCleared = new CountDownLatch(1);
+  private DataRepos mDataRepos;
+  private CycleStatsDao mCycleStatsDao;
+  private RenderedChartRepo mRepo;
+
+  @Before
+  public void setUp() {
+    RWCycleRepo cycleRepo = mock(RWCycleRepo.class);
+    when(cycleRepo.getStream()).thenReturn(Flowable
+        .<List<Cycle>>just(ImmutableList.of(FIRST_CYCLE, SECOND_CYCLE))
+        .concatWith(Flowable.never())
+        .doOnSubscribe(s -> mCycleSubscriptions.incrementAndGet()));
+    when(cycleRepo.getPreviousCycle(any())).thenReturn(Maybe.empty());
+    when(cycleRepo.updateEvents()).thenReturn(Flowable.never());
+
+    RWChartEntryRepo entryRepo = mock(RWChartEntryRepo.class);
+    when(entryRepo.getStreamForCycle(any())).thenReturn(Flowable
+        .<List<ChartEntry>>just(ImmutableList.of())
+        .concatWith(Flowable.never())
+        .doOnSubscribe(s -> mEntrySubscriptions.incrementAndGet()));
+    when(entryRepo.getAllBetween(any(), any())).thenReturn(Flowable
+        .<List<ChartEntry>>just(ImmutableList.of())
+        .concatWith(Flowable.never())
+        .doOnSubscribe(s -> mEntryRangeQueries.incrementAndGet()));
+    when(entryRepo.updateEvents()).thenReturn(Flowable.never());
+    when(entryRepo.allEntriesDeleted()).thenReturn(mAllEntriesDeleted);
+
+    RWInstructionsRepo instructionsRepo = mock(RWInstructionsRepo.class);
+    when(instructionsRepo.getAll()).thenReturn(Flowable
+        .<List<Instructions>>just(ImmutableList.of(Instructions.createBasicInstructions(START_DATE)))
+        .concatWith(Flowable.never()));
+
+    // Stands in for the CycleStats table
+    mCycleStatsDao = mock(CycleStatsDao.class);
+    when(mCycleStatsDao.getStream()).thenReturn(mStatsRows);
+    when(mCycleStatsDao.insert(anyCollection())).thenAnswer(invocation -> Completable.fromAction(() -> {
+      Map<LocalDate, CycleStats> rows = new HashMap<>();
+      for (CycleStats row : mStatsRows.getValue()) {
+        rows.put(row.cycleStartDate, row);
+      }
+      for (CycleStats row : invocation.<Collection<CycleStats>>getArgument(0)) {
+        rows.put(row.cycleStartDate, row);
+      }
+      mStatsRows.onNext(ImmutableList.copyOf(rows.values()));
+    }));
+    when(mCycleStatsDao.deleteAll()).thenReturn(Completable.fromAction(() -> {
+      mStatsRows.onNext(ImmutableList.of());
+      mStatsCleared.countDown();
+    }));
+
+    mDataRepos = mock(DataRepos.class);
+    when(mDataRepos.cycleRepo(ViewMode.CHARTING)).thenReturn(cycleRepo);
+    when(mDataRepos.entryRepo(ViewMode.CHARTING)).thenReturn(entryRepo);
+    when(mDataRepos.instructionsRepo(ViewMode.CHARTING)).thenReturn(instructionsRepo);
+    mRepo = new RenderedChartRepo(mDataRepos, mCycleStatsDao);
+  }
+
+  @Test
+  public void testSubscribersShareOnePipeline() throws Exception {
+    TestSubscriber<Map<Cycle, CycleRenderer.RenderableCycle>> first = mRepo.renderedCycles(ViewMode.CHARTING).test();
+    TestSubscriber<Map<Cycle, CycleRenderer.RenderableCycle>> second = mRepo.renderedCycles(ViewMode.CHARTING).test();
+
+    first.awaitCount(1).assertValueCount(1);
+    second.awaitCount(1).assertValueCount(1);
+    assertThat(first.values().get(0)).isSameInstanceAs(second.values().get(0));
+    assertThat(first.values().get(0).keySet()).containsExactly(FIRST_CYCLE, SECOND_CYCLE);
+    assertThat(mCycleSubscriptions.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testPipelineRestartsAfterLastSubscriberLeaves() {
+    mRepo.renderedCycles(ViewMode.CHARTING).test().awaitCount(1).dispose();
+    mRepo.renderedCycles(ViewMode.CHARTING).test().awaitCount(1).dispose();
+
+    assertThat(mCycleSubscriptions.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testRenderedCycle() throws Exception {
+    CycleRenderer.RenderableCycle renderableCycle = mRepo.renderedCycle(ViewMode.CHARTING, SECOND_CYCLE)
+        .timeout(5, TimeUnit.SECONDS)
+        .blockingFirst();
+
+    assertThat(renderableCycle.cycle()).isEqualTo(SECOND_CYCLE);
+  }
+
+  @Test
+  public void testWindowOnlyRendersNeighbors() {
+    BehaviorProcessor<Integer> centerIndex = BehaviorProcessor.createDefault(0);
+    TestSubscriber<Map<Cycle, CycleRenderer.RenderableCycle>> subscriber =
+        mRepo.renderedWindow(ViewMode.CHARTING, centerIndex, 0).test();
+
+    subscriber.awaitCount(1);
+    assertThat(subscriber.values().get(0).keySet()).containsExactly(FIRST_CYCLE);
+    assertThat(mEntrySubscriptions.get()).isEqualTo(1);
+
+    centerIndex.onNext(1);
+    subscriber.awaitCount(2);
+    assertThat(subscriber.values().get(1).keySet()).containsExactly(SECOND_CYCLE);
+    assertThat(mEntrySubscriptions.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testWindow() {
+    List<Cycle> cycles = ImmutableList.of(FIRST_CYCLE, SECOND_CYCLE);
+
+    assertThat(RenderedChartRepo.window(cycles, 0, 1)).containsExactly(FIRST_CYCLE, SECOND_CYCLE).inOrder();
+    assertThat(RenderedChartRepo.window(cycles, 1, 0)).containsExactly(SECOND_CYCLE);
+    assertThat(RenderedChartRepo.window(cycles, 5, 1)).isEmpty();
+  }
+
+  @Test
+  public void testCycleStatsDoNotRender() throws Exception {
+    List<CycleRenderer.CycleStats> stats = mRepo.cycleStats(ViewMode.CHARTING)
+        .timeout(5, TimeUnit.SECONDS)
+        .blockingFirst();
+
+    assertThat(stats).hasSize(2);
+    assertThat(stats.get(0).cycleStartDate()).isEqualTo(FIRST_CYCLE.startDate);
+    assertThat(stats.get(1).cycleStartDate()).isEqualTo(SECOND_CYCLE.startDate);
+    assertThat(mEntrySubscriptions.get()).isEqualTo(0);
+    assertThat(mStatsRows.getValue()).hasSize(2);
+  }
+
+  @Test
+  public void testPersistedCycleStatsSkipEntries() throws Exception {
+    List<CycleRenderer.CycleStats> stats = mRepo.cycleStats(ViewMode.CHARTING)
+        .timeout(5, TimeUnit.SECONDS)
+        .blockingFirst();
+    assertThat(mEntryRangeQueries.get()).isEqualTo(1);
+
+    // Same as after a restart
+    List<CycleRenderer.CycleStats> persistedStats = new RenderedChartRepo(mDataRepos, mCycleStatsDao)
+        .cycleStats(ViewMode.CHARTING)
+        .timeout(5, TimeUnit.SECONDS)
+        .blockingFirst();
+
+    assertThat(persistedStats).containsExactlyElementsIn(stats).inOrder();
+    assertThat(mEntryRangeQueries.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testStaleCycleStatsAreRecomputed() throws Exception {
+    CycleStats staleRow = new CycleStats();
+    staleRow.cycleStartDate = FIRST_CYCLE.startDate;
+    staleRow.cycleEndDate = FIRST_CYCLE.endDate.plusDays(1);
+    staleRow.daysPrePeak = 10;
+    mStatsRows.onNext(ImmutableList.of(staleRow));
+
+    List<CycleRenderer.CycleStats> stats = mRepo.cycleStats(ViewMode.CHARTING)
+        .timeout(5, TimeUnit.SECONDS)
+        .blockingFirst();
+
+    assertThat(stats.get(0).daysPrePeak().isPresent()).isFalse();
+    assertThat(mEntryRangeQueries.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testCycleStatsRecomputedAfterEntriesDeleted() throws Exception {
+    mRepo.cycleStats(ViewMode.CHARTING)
+        .timeout(5, TimeUnit.SECONDS)
+        .blockingFirst();
+    assertThat(mEntryRangeQueries.get()).isEqualTo(1);
+
+    Disposable invalidation = mRepo.invalidateStatsOnUpdates();
+    mAllEntriesDeleted.onNext(true);
+    assertThat(mStatsCleared.await(5, TimeUnit.SECONDS)).isTrue();
+    invalidation.dispose();
+
+    // The same cycles are recreated, e.g. by an import, so the old rows would still match them
+    List<CycleRenderer.CycleStats> stats = new RenderedChartRepo(mDataRepos, mCycleStatsDao)
+        .cycleStats(ViewMode.CHARTING)
+        .timeout(5, TimeUnit.SECONDS)
+        .blockingFirst();
+
+    assertThat(stats).hasSize(2);
+    assertThat(mEntryRangeQueries.get()).isEqualTo(2);
+  }
+}
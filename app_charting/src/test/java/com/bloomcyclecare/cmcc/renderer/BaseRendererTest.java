@@ -47,13 +47,7 @@ public abstract class BaseRendererTest {
     List<Predicate<CycleRenderer.RenderableEntry>> tests = new ArrayList<>(numEntries);
     for (Map.Entry<TrainingEntry, Optional<StickerExpectations>> anEntry : entries.entrySet()) {
       LocalDate entryDate = CYCLE_START_DATE.plusDays(chartEntries.size());
-      chartEntries.add(new ChartEntry(entryDate, anEntry.getKey().asChartEntry(entryDate, observation -> {
-        try {
-          return ObservationParser.parse(observation);
-        } catch (Exception e) {
-          throw new IllegalStateException(e);
-        }
-      }), null, null, null, null, null));
+      chartEntries.add(createChartEntry(anEntry.getKey(), entryDate));
       Optional<StickerExpectations> stickerExpectations = anEntry.getValue();
       stickerExpectations.ifPresent(expectations -> tests.add(renderableEntry -> {
         StandardSubjectBuilder baseAssert = assertWithMessage(
@@ -86,6 +80,24 @@ public abstract class BaseRendererTest {
     }
   }
 
+  static ChartEntry createChartEntry(TrainingEntry trainingEntry, LocalDate entryDate) {
+    return new ChartEntry(entryDate, trainingEntry.asChartEntry(entryDate, observation -> {
+      try {
+        return ObservationParser.parse(observation);
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    }), null, null, null, null, null);
+  }
+
+  static List<ChartEntry> createChartEntries(TrainingCycle trainingCycle) {
+    List<ChartEntry> chartEntries = new ArrayList<>();
+    for (TrainingEntry trainingEntry : trainingCycle.entries().keySet()) {
+      chartEntries.add(createChartEntry(trainingEntry, CYCLE_START_DATE.plusDays(chartEntries.size())));
+    }
+    return chartEntries;
+  }
+
   static Instructions createInstructions(List<BasicInstruction> basicInstructions,
                                   List<SpecialInstruction> specialInstructions,
                                   List<YellowStampInstruction> yellowStampInstructions) {
@@ -0,0 +1,92 @@
+package com.bloomcyclecare.cmcc.renderer;
+
+import com.bloomcyclecare.cmcc.data.models.charting.ChartEntry;
+import com.bloomcyclecare.cmcc.data.models.charting.Cycle;
+import com.bloomcyclecare.cmcc.data.models.charting.DemoCycles;
+import com.bloomcyclecare.cmcc.data.models.training.TrainingCycle;
+import com.bloomcyclecare.cmcc.data.models.training.TrainingCycles;
+import com.bloomcyclecare.cmcc.data.models.training.TrainingEntry;
+import com.bloomcyclecare.cmcc.logic.chart.CycleColumns;
+import com.bloomcyclecare.cmcc.logic.chart.CycleRenderer;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+public class CycleColumnsTest extends BaseRendererTest {
+
+  private static final LocalDate EPOCH = new LocalDate(1970, 1, 1);
+
+  @Test
+  public void testEpochDay() {
+    for (LocalDate date = new LocalDate(1899, 12, 25); date.isBefore(new LocalDate(2101, 1, 1)); date = date.plusDays(17)) {
+      assertWithMessage(date.toString())
+          .that(CycleColumns.epochDay(date)).isEqualTo(Days.daysBetween(EPOCH, date).getDays());
+    }
+  }
+
+  @Test
+  public void testStatsMatchEntries() {
+    List<ChartEntry> allEntries = new ArrayList<>();
+    List<Cycle> cycles = new ArrayList<>();
+    LocalDate startDate = CYCLE_START_DATE;
+    for (TrainingCycle trainingCycle : Iterables.concat(
+        DemoCycles.forRepos(), TrainingCycles.REGULAR_CYCLES, TrainingCycles.LONG_CYCLES)) {
+      List<ChartEntry> entries = new ArrayList<>();
+      for (TrainingEntry trainingEntry : trainingCycle.entries().keySet()) {
+        entries.add(createChartEntry(trainingEntry, startDate.plusDays(entries.size())));
+      }
+      Cycle cycle = new Cycle("", startDate, startDate.plusDays(entries.size() - 1), null);
+      cycles.add(cycle);
+
+      assertWithMessage("cycle starting %s", startDate)
+          .that(CycleRenderer.computeStats(cycle, CycleColumns.of(entries)))
+          .isEqualTo(CycleRenderer.computeStats(cycle, entries));
+
+      allEntries.addAll(entries);
+      startDate = startDate.plusDays(entries.size());
+    }
+
+    // Slices of one set of columns, built from unsorted entries, give the same stats
+    CycleColumns columns = CycleColumns.of(Lists.reverse(allEntries));
+    assertThat(columns.size()).isEqualTo(allEntries.size());
+    for (Cycle cycle : cycles) {
+      CycleColumns cycleColumns = columns.between(cycle.startDate, cycle.endDate);
+      assertThat(cycleColumns.epochDay(0)).isEqualTo(CycleColumns.epochDay(cycle.startDate));
+      assertThat(CycleRenderer.computeStats(cycle, cycleColumns))
+          .isEqualTo(CycleRenderer.computeStats(cycle, CycleColumns.of(entriesIn(allEntries, cycle))));
+    }
+  }
+
+  @Test
+  public void testBetween_emptyRange() {
+    List<ChartEntry> entries = new ArrayList<>();
+    for (TrainingEntry trainingEntry : TrainingCycles.REGULAR_CYCLES_A.entries().keySet()) {
+      entries.add(createChartEntry(trainingEntry, CYCLE_START_DATE.plusDays(entries.size())));
+    }
+    CycleColumns columns = CycleColumns.of(entries);
+
+    assertThat(columns.between(CYCLE_START_DATE.minusDays(10), CYCLE_START_DATE.minusDays(1)).size()).isEqualTo(0);
+    assertThat(columns.between(CYCLE_START_DATE.plusDays(5), CYCLE_START_DATE).size()).isEqualTo(0);
+    assertThat(columns.between(CYCLE_START_DATE.plusDays(5), null).size()).isEqualTo(entries.size() - 5);
+    assertThat(columns.between(CYCLE_START_DATE, CYCLE_START_DATE).lastIndexOf(CycleColumns.PEAK_DAY)).isEqualTo(-1);
+  }
+
+  private static List<ChartEntry> entriesIn(List<ChartEntry> entries, Cycle cycle) {
+    List<ChartEntry> out = new ArrayList<>();
+    for (ChartEntry entry : entries) {
+      if (!entry.entryDate.isBefore(cycle.startDate) && !entry.entryDate.isAfter(cycle.endDate)) {
+        out.add(entry);
+      }
+    }
+    return out;
+  }
+}
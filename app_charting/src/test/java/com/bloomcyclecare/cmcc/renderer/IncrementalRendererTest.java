@@ -0,0 +1,83 @@
+package com.bloomcyclecare.cmcc.renderer;
+
+import com.bloomcyclecare.cmcc.data.models.charting.ChartEntry;
+import com.bloomcyclecare.cmcc.data.models.charting.Cycle;
+import com.bloomcyclecare.cmcc.data.models.charting.DemoCycles;
+import com.bloomcyclecare.cmcc.data.models.training.TrainingEntry;
+import com.bloomcyclecare.cmcc.logic.chart.CycleRenderer;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class IncrementalRendererTest extends BaseRendererTest {
+
+  private static final Cycle CYCLE = new Cycle("", CYCLE_START_DATE, null, null);
+
+  @Test
+  public void testUnchangedEntriesAreReused() {
+    List<ChartEntry> entries = createChartEntries(DemoCycles.BASIC_B1A);
+    CycleRenderer renderer = newRenderer(ImmutableList.of());
+
+    CycleRenderer.RenderableCycle initial = renderer.render(entries);
+    CycleRenderer.RenderableCycle rerendered = renderer.render(new ArrayList<>(entries));
+
+    for (int i = 0; i < entries.size(); i++) {
+      assertThat(rerendered.entries().get(i)).isSameInstanceAs(initial.entries().get(i));
+    }
+  }
+
+  @Test
+  public void testRenderResumesFromChangedEntry() {
+    List<ChartEntry> entries = createChartEntries(DemoCycles.BASIC_B1A);
+    CycleRenderer renderer = newRenderer(ImmutableList.of());
+    CycleRenderer.RenderableCycle initial = renderer.render(entries);
+
+    int changedIndex = 8;
+    List<ChartEntry> updatedEntries = new ArrayList<>(entries);
+    updatedEntries.set(changedIndex, createChartEntry(
+        TrainingEntry.forText("0AD"), CYCLE_START_DATE.plusDays(changedIndex)));
+    CycleRenderer.RenderableCycle incremental = renderer.render(updatedEntries);
+    CycleRenderer.RenderableCycle full = newRenderer(updatedEntries).render();
+
+    assertThat(incremental.entries()).hasSize(full.entries().size());
+    for (int i = 0; i < changedIndex; i++) {
+      assertThat(incremental.entries().get(i)).isSameInstanceAs(initial.entries().get(i));
+    }
+    for (int i = 0; i < full.entries().size(); i++) {
+      CycleRenderer.RenderableEntry expected = full.entries().get(i);
+      CycleRenderer.RenderableEntry actual = incremental.entries().get(i);
+      assertThat(actual.expectedStickerSelection()).isEqualTo(expected.expectedStickerSelection());
+      assertThat(actual.instructionSummary()).isEqualTo(expected.instructionSummary());
+    }
+    assertThat(incremental.stats()).isEqualTo(full.stats());
+  }
+
+  @Test
+  public void testRenderAppendedEntry() {
+    List<ChartEntry> entries = createChartEntries(DemoCycles.BASIC_B1A);
+    CycleRenderer renderer = newRenderer(entries.subList(0, entries.size() - 1));
+    CycleRenderer.RenderableCycle initial = renderer.render();
+
+    CycleRenderer.RenderableCycle incremental = renderer.render(entries);
+    CycleRenderer.RenderableCycle full = newRenderer(entries).render();
+
+    assertThat(incremental.entries()).hasSize(entries.size());
+    for (int i = 0; i < initial.entries().size(); i++) {
+      assertThat(incremental.entries().get(i)).isSameInstanceAs(initial.entries().get(i));
+    }
+    int last = entries.size() - 1;
+    assertThat(incremental.entries().get(last).expectedStickerSelection())
+        .isEqualTo(full.entries().get(last).expectedStickerSelection());
+  }
+
+  private static CycleRenderer newRenderer(List<ChartEntry> entries) {
+    return new CycleRenderer(CYCLE, Optional.empty(), entries, ImmutableSet.of(BASIC_INSTRUCTIONS));
+  }
+}
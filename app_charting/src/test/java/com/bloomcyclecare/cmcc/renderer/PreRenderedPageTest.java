@@ -0,0 +1,285 @@
+package com.bloomcyclecare.cmcc.renderer;
+
+import com.bloomcyclecare.cmcc.data.models.charting.ChartEntry;
+import com.bloomcyclecare.cmcc.data.models.charting.Cycle;
+import com.bloomcyclecare.cmcc.data.models.charting.DemoCycles;
+import com.bloomcyclecare.cmcc.data.models.instructions.Instructions;
+import com.bloomcyclecare.cmcc.data.models.observation.IntercourseTimeOfDay;
+import com.bloomcyclecare.cmcc.data.models.stickering.StickerColor;
+import com.bloomcyclecare.cmcc.data.models.stickering.StickerText;
+import com.bloomcyclecare.cmcc.data.models.training.TrainingCycle;
+import com.bloomcyclecare.cmcc.data.models.training.TrainingCycles;
+import com.bloomcyclecare.cmcc.data.models.training.TrainingEntry;
+import com.bloomcyclecare.cmcc.logic.chart.CycleRenderer;
+import com.bloomcyclecare.cmcc.logic.print.PageRenderer;
+import com.bloomcyclecare.cmcc.utils.DateUtil;
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Builds pages for the demo and training cycles laid end to end. Pages built from cycles which
+ * were already rendered skip all of the rule evaluation and should come out byte for byte the same,
+ * both as each other and as the pages from the original row by row renderer kept in
+ * {@link BaselinePages}.
+ */
+public class PreRenderedPageTest extends BaseRendererTest {
+
+  @Test
+  public void testPreRenderedCyclesMatch() {
+    List<CycleRenderer> renderers = createRenderers();
+
+    List<String> hashes = contentHashes(new PageRenderer(renderers));
+    List<String> preRenderedHashes = contentHashes(PageRenderer.forRenderableCycles(render(renderers)));
+
+    assertThat(hashes).isNotEmpty();
+    assertThat(preRenderedHashes).containsExactlyElementsIn(hashes).inOrder();
+  }
+
+  @Test
+  public void testPagesMatchBaseline() {
+    List<CycleRenderer.RenderableCycle> renderableCycles = render(createRenderers());
+
+    List<String> hashes = contentHashes(PageRenderer.forRenderableCycles(renderableCycles));
+    List<String> baselineHashes = new ArrayList<>();
+    for (String html : BaselinePages.createPages(renderableCycles)) {
+      baselineHashes.add(Hashing.murmur3_128().hashString(html, Charsets.UTF_8).toString());
+    }
+
+    assertThat(baselineHashes).isNotEmpty();
+    assertThat(hashes).containsExactlyElementsIn(baselineHashes).inOrder();
+  }
+
+  private static List<String> contentHashes(PageRenderer pageRenderer) {
+    List<String> hashes = new ArrayList<>();
+    for (PageRenderer.RenderedPage page : pageRenderer.createPages().blockingIterable()) {
+      hashes.add(page.contentHash());
+    }
+    return hashes;
+  }
+
+  private static List<CycleRenderer.RenderableCycle> render(List<CycleRenderer> renderers) {
+    List<CycleRenderer.RenderableCycle> renderableCycles = new ArrayList<>();
+    for (CycleRenderer renderer : renderers) {
+      renderableCycles.add(renderer.render());
+    }
+    return renderableCycles;
+  }
+
+  private static List<CycleRenderer> createRenderers() {
+    List<CycleRenderer> renderers = new ArrayList<>();
+    LocalDate startDate = CYCLE_START_DATE;
+    for (TrainingCycle trainingCycle : Iterables.concat(
+        DemoCycles.forRepos(), TrainingCycles.REGULAR_CYCLES, TrainingCycles.LONG_CYCLES)) {
+      Cycle cycle = new Cycle("", startDate, null, null);
+      List<ChartEntry> entries = new ArrayList<>();
+      for (TrainingEntry trainingEntry : trainingCycle.entries().keySet()) {
+        entries.add(createChartEntry(trainingEntry, startDate.plusDays(entries.size())));
+      }
+      Instructions instructions = new Instructions(trainingCycle.instructions);
+      instructions.startDate = startDate;
+      renderers.add(new CycleRenderer(cycle, Optional.empty(), entries, ImmutableSet.of(instructions)));
+      startDate = startDate.plusDays(entries.size());
+    }
+    return renderers;
+  }
+
+  /**
+   * The page HTML as it was built before pages were written into a pooled builder, kept verbatim
+   * so any change to the output shows up as a hash mismatch.
+   */
+  private static class BaselinePages {
+
+    private static final int NUM_ROWS_PER_PAGE = 6;
+    private static final int NUM_DAYS_PER_CHART = 35;
+    private static final Joiner ON_SPACE = Joiner.on(" ");
+    private static final Joiner ON_BR = Joiner.on("<br>");
+
+    static List<String> createPages(List<CycleRenderer.RenderableCycle> renderableCycles) {
+      List<CycleRenderer.RenderableCycle> sortedCycles = new ArrayList<>(renderableCycles);
+      sortedCycles.sort((a, b) -> a.cycle().startDate.compareTo(b.cycle().startDate));
+      List<String> rows = new ArrayList<>();
+      for (CycleRenderer.RenderableCycle renderableCycle : sortedCycles) {
+        if (renderableCycle.stats().daysWithAnObservation() == 0) {
+          continue;
+        }
+        List<CycleRenderer.RenderableEntry> renderableEntries = renderableCycle.entries();
+        for (int startIndex = 0; startIndex < renderableEntries.size(); startIndex += NUM_DAYS_PER_CHART) {
+          int endIndex = Math.min(startIndex + NUM_DAYS_PER_CHART, renderableEntries.size()) - 1;
+          StringBuilder builder = new StringBuilder();
+          appendStickers(builder, renderableEntries, startIndex, endIndex);
+          appendEntries(builder, renderableEntries, startIndex, endIndex);
+          rows.add(builder.toString());
+        }
+      }
+      List<String> pages = new ArrayList<>();
+      for (List<String> pageRows : Lists.partition(rows, NUM_ROWS_PER_PAGE)) {
+        pages.add(createPage(pageRows));
+      }
+      return pages;
+    }
+
+    private static String createPage(List<String> cycleRows) {
+      StringBuilder html = new StringBuilder();
+      html.append("<html>");
+      appendHead(html);
+      html.append("<div id=\"container\">");
+      html.append("<table class=\"outer\">");
+      appendDays(html);
+      for (String row : cycleRows) {
+        html.append(row);
+      }
+      for (int i=cycleRows.size(); i < NUM_ROWS_PER_PAGE; i++) {
+        appendStickers(html, null, 1, 0);
+        appendEntries(html, null, 1, 0);
+      }
+      html.append("</table>");
+      html.append("</div>");
+      html.append("</html>");
+      return html.toString();
+    }
+
+    private static void appendHead(StringBuilder builder) {
+      builder.append("<head>");
+      builder.append("<style>");
+      builder.append("em.measurement { font-weight: normal; font-style: normal; font-size: 100%; }");
+      builder.append("#container { padding-top: 20pt; padding-left: 20pt; }");
+      builder.append("table.outer { margin: auto; table-layout: fixed; width: 100%; border: 4px solid black; border-collapse: collapse; } ");
+      builder.append("table.sticker { height: 100%; width: 100%; } ");
+      builder.append("tr.stickers { border-top: 4px solid black; font-size: 150%; font-style: bold; } ");
+      builder.append("td.cell { text-align: center; height: 66pt; width: 34pt; border: 1px solid black; } ");
+      builder.append("tr.day-num td { height: 34pt; } ");
+      builder.append("table.sticker tr { height: 33% } ");
+      builder.append("table.sticker td { text-align: center; font-weight: bold; } ");
+      builder.append("td.stats { padding-left: 2pt } ");
+      builder.append("td.red { background: red; } ");
+      builder.append("td.yellow { background: yellow; } ");
+      builder.append("td.green { background: green; } ");
+      builder.append("td.lightgreen { background: #E2FFCC; } ");
+      builder.append("td.separator { border-right: 4px solid black; } ");
+      builder.append("td.baby { background-image: url(\"ic_child_care_black_24px.svg\"); background-position: center; background-repeat: no-repeat; } ");
+      builder.append("</style>");
+      builder.append("</head>");
+    }
+
+    private static void appendDays(StringBuilder builder) {
+      builder.append("<tr class=\"day-num\">");
+      for (int i=0; i<NUM_DAYS_PER_CHART; i++) {
+        builder.append(openCellTag(i, new ArrayList<>())).append(i+1).append("</td>");
+      }
+      builder.append("</tr>");
+    }
+
+    private static String openCellTag(int index, List<String> extraClasses) {
+      List<String> classes = new ArrayList<>();
+      classes.add("cell");
+      classes.addAll(extraClasses);
+      if (index % 7 == 6) {
+        classes.add("separator");
+      }
+      return "<td valign=\"top\" class=\"" + ON_SPACE.join(classes) + "\">";
+    }
+
+    private static String getColorClass(StickerColor color) {
+      switch (color) {
+        case RED:
+          return "red";
+        case YELLOW:
+          return "yellow";
+        case WHITE:
+        case GREY:
+          return "white";
+        case GREEN:
+          return "green";
+        case LIGHTGREEN:
+          return "lightgreen";
+        default:
+          throw new IllegalArgumentException("Unkown color id: " + color);
+      }
+    }
+
+    private static void appendStickers(StringBuilder builder, List<CycleRenderer.RenderableEntry> renderableEntries, int startIndex, int endIndex) {
+      builder.append("<tr class=\"stickers\">");
+      if (renderableEntries != null) {
+        for (int i = startIndex; i <= endIndex; i++) {
+          CycleRenderer.RenderableEntry entry = renderableEntries.get(i);
+          String[] textLines = new String[] {
+              entry.monitorReading()
+                  .map(Enum::name)
+                  .map(v -> String.format("<em class=\"measurement\">%s</em>", v))
+                  .orElse(""),
+              entry.manualStickerSelection().map(ss -> ss.text).map(StickerText::toString).orElse(""),
+              entry.intercourseTimeOfDay() == IntercourseTimeOfDay.NONE ? "" : "I",
+          };
+
+          List<String> classes = new ArrayList<>();
+          classes.add(getColorClass(entry.manualStickerSelection().map(ss -> ss.sticker.color).orElse(StickerColor.GREY)));
+          if (entry.manualStickerSelection().map(ss -> ss.sticker.hasBaby).orElse(false)) {
+            classes.add("baby");
+          }
+
+          builder.append(openCellTag(i, classes));
+          builder.append("<table class=\"sticker\">");
+          for (String textLine : textLines) {
+            builder.append("<tr><td valign=\"top\">");
+            builder.append(textLine);
+            builder.append("</td></tr>");
+          }
+          builder.append("</table>");
+          builder.append("</td>");
+        }
+      }
+      fillEmptyDays(builder, startIndex, endIndex);
+      builder.append("<td class=\"stats\" rowspan=\"2\" valign=\"top\">");
+      builder.append("</td>");
+      builder.append("</tr>");
+    }
+
+    private static void appendEntries(StringBuilder builder, List<CycleRenderer.RenderableEntry> renderableEntries, int startIndex, int endIndex) {
+      builder.append("<tr>");
+      if (renderableEntries != null) {
+        for (int i = startIndex; i <= endIndex; i++) {
+          CycleRenderer.RenderableEntry entry = renderableEntries.get(i);
+          List<String> lines = new ArrayList<>();
+          lines.add(DateUtil.toPrintStr(entry.modificationContext().entry.entryDate));
+          List<String> summaryPieces = Lists.newArrayList(entry.entrySummary().orElse("---").split(" "));
+          if (summaryPieces.size() > 0 && summaryPieces.get(summaryPieces.size() - 1).equals("I")) {
+            summaryPieces.remove(summaryPieces.size() - 1);
+          }
+          lines.addAll(summaryPieces);
+          if (!Strings.isNullOrEmpty(entry.pocSummary())) {
+            lines.add(entry.pocSummary());
+          }
+          while (lines.size() < 4) {
+            lines.add("&nbsp;");
+          }
+          builder.append(openCellTag(i, new ArrayList<>()));
+          builder.append(ON_BR.join(lines));
+          builder.append("</td>");
+        }
+      }
+      fillEmptyDays(builder, startIndex, endIndex);
+      builder.append("</tr>");
+    }
+
+    private static void fillEmptyDays(StringBuilder builder, int startIndex, int endIndex) {
+      int numEntriesAdded = endIndex - startIndex;
+      for (int i=numEntriesAdded + 1; i < NUM_DAYS_PER_CHART; i++) {
+        builder.append(openCellTag(i, new ArrayList<>())).append("</td>");
+      }
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package com.bloomcyclecare.cmcc.ui.cycle.vertical;
 
 import com.bloomcyclecare.cmcc.logic.chart.CycleRenderer;
+import com.bloomcyclecare.cmcc.logic.chart.CycleTrends;
 import com.google.common.collect.ImmutableList;
 
 import org.joda.time.LocalDate;
@@ -15,10 +16,11 @@ public class CyclePageViewModelTest {
 
   private static final LocalDate ONE_WEEK_AGO = LocalDate.now().minusWeeks(1);
   private static final LocalDate THIRTY_DAYS_AGO = LocalDate.now().minusDays(30);
+  private static final CycleTrends NO_TRENDS = CycleTrends.of(ImmutableList.of());
 
   @Test
   public void testNoCycles() {
-    assertThat(CyclePageViewModel.subtitle(ImmutableList.of(), 0, LocalDate::now, Optional.empty()))
+    assertThat(CyclePageViewModel.subtitle(ImmutableList.of(), 0, LocalDate::now, Optional.empty(), NO_TRENDS))
         .isEqualTo("No data...");
   }
 
@@ -26,7 +28,7 @@ public class CyclePageViewModelTest {
   public void testInvalidIndex() {
     List<CycleRenderer.CycleStats> stats = ImmutableList.of(
         CycleRenderer.CycleStats.builder().cycleStartDate(ONE_WEEK_AGO).build());
-    assertThat(CyclePageViewModel.subtitle(stats, 1, LocalDate::now, Optional.empty()))
+    assertThat(CyclePageViewModel.subtitle(stats, 1, LocalDate::now, Optional.empty(), NO_TRENDS))
         .isEqualTo("Invalid index!");
   }
 
@@ -37,24 +39,46 @@ public class CyclePageViewModelTest {
         .daysPrePeak(Optional.of(4))
         .daysPostPeak(Optional.of(12))
         .build();
-    assertThat(CyclePageViewModel.subtitle(ImmutableList.of(stats), 0, LocalDate::now, Optional.empty()))
+    assertThat(CyclePageViewModel.subtitle(ImmutableList.of(stats), 0, LocalDate::now, Optional.empty(), NO_TRENDS))
         .isEqualTo("Pre: 4 Post: 12");
   }
 
   @Test
   public void testPrePeakPhase() {
     CycleRenderer.CycleStats stats = CycleRenderer.CycleStats.builder().cycleStartDate(ONE_WEEK_AGO).build();
-    assertThat(CyclePageViewModel.subtitle(ImmutableList.of(stats), 0, LocalDate::now, Optional.empty()))
+    assertThat(CyclePageViewModel.subtitle(ImmutableList.of(stats), 0, LocalDate::now, Optional.empty(), NO_TRENDS))
         .isEqualTo("In prepeak phase");
   }
 
+  @Test
+  public void testPrePeakPhase_withTrends() {
+    ImmutableList.Builder<CycleRenderer.CycleStats> statsBuilder = ImmutableList.builder();
+    statsBuilder.add(CycleRenderer.CycleStats.builder().cycleStartDate(ONE_WEEK_AGO).build());
+    LocalDate startDate = ONE_WEEK_AGO;
+    for (int daysPrePeak : new int[]{15, 18, 16}) {
+      startDate = startDate.minusDays(daysPrePeak + 12);
+      statsBuilder.add(CycleRenderer.CycleStats.builder()
+          .cycleStartDate(startDate)
+          .cycleLength(Optional.of(daysPrePeak + 12))
+          .daysPrePeak(Optional.of(daysPrePeak))
+          .daysPostPeak(Optional.of(11))
+          .build());
+    }
+    List<CycleRenderer.CycleStats> stats = statsBuilder.build();
+
+    assertThat(CyclePageViewModel.subtitle(stats, 0, LocalDate::now, Optional.empty(), CycleTrends.of(stats.subList(0, 3))))
+        .isEqualTo("In prepeak phase");
+    assertThat(CyclePageViewModel.subtitle(stats, 0, LocalDate::now, Optional.empty(), CycleTrends.of(stats)))
+        .isEqualTo("In prepeak phase, usually 16 days");
+  }
+
   @Test
   public void testPeakDay() {
     CycleRenderer.CycleStats stats = CycleRenderer.CycleStats.builder()
         .cycleStartDate(ONE_WEEK_AGO)
         .daysPrePeak(Optional.of(7))
         .build();
-    assertThat(CyclePageViewModel.subtitle(ImmutableList.of(stats), 0, LocalDate::now, Optional.empty()))
+    assertThat(CyclePageViewModel.subtitle(ImmutableList.of(stats), 0, LocalDate::now, Optional.empty(), NO_TRENDS))
         .isEqualTo("0 days postpeak");
   }
 
@@ -70,7 +94,7 @@ public class CyclePageViewModelTest {
         .build();
     statsBuilder.add(currentStats);
 
-    assertThat(CyclePageViewModel.subtitle(statsBuilder.build(), 0, LocalDate::now, Optional.empty()))
+    assertThat(CyclePageViewModel.subtitle(statsBuilder.build(), 0, LocalDate::now, Optional.empty(), NO_TRENDS))
         .isEqualTo("10 days postpeak");
 
     CycleRenderer.CycleStats firstPreviousStats = CycleRenderer.CycleStats.builder()
@@ -80,7 +104,7 @@ public class CyclePageViewModelTest {
         .build();
     statsBuilder.add(firstPreviousStats);
 
-    assertThat(CyclePageViewModel.subtitle(statsBuilder.build(), 0, LocalDate::now, Optional.empty()))
+    assertThat(CyclePageViewModel.subtitle(statsBuilder.build(), 0, LocalDate::now, Optional.empty(), NO_TRENDS))
         .isEqualTo("10 days postpeak");
 
     CycleRenderer.CycleStats secondPreviousStats = CycleRenderer.CycleStats.builder()
@@ -90,7 +114,7 @@ public class CyclePageViewModelTest {
         .build();
     statsBuilder.add(secondPreviousStats);
 
-    assertThat(CyclePageViewModel.subtitle(statsBuilder.build(), 0, LocalDate::now, Optional.empty()))
+    assertThat(CyclePageViewModel.subtitle(statsBuilder.build(), 0, LocalDate::now, Optional.empty(), NO_TRENDS))
         .isEqualTo("10 days postpeak");
 
     CycleRenderer.CycleStats thirdPreviousStats = CycleRenderer.CycleStats.builder()
@@ -102,7 +126,7 @@ public class CyclePageViewModelTest {
 
     LocalDate expectedPrediction = THIRTY_DAYS_AGO.plusDays(20).plusDays(1).plusDays(typicalPostPeakLength);
 
-    assertThat(CyclePageViewModel.subtitle(statsBuilder.build(), 0, LocalDate::now, Optional.empty()))
+    assertThat(CyclePageViewModel.subtitle(statsBuilder.build(), 0, LocalDate::now, Optional.empty(), NO_TRENDS))
         .isEqualTo("Potential end: 2±0.7 days");
   }
 
@@ -116,7 +140,7 @@ public class CyclePageViewModelTest {
         .build();
     statsBuilder.add(currentStats);
 
-    assertThat(CyclePageViewModel.subtitle(statsBuilder.build(), 0, LocalDate::now, Optional.empty()))
+    assertThat(CyclePageViewModel.subtitle(statsBuilder.build(), 0, LocalDate::now, Optional.empty(), NO_TRENDS))
         .isEqualTo("10 days postpeak");
 
     CycleRenderer.CycleStats firstPreviousStats = CycleRenderer.CycleStats.builder()
@@ -126,7 +150,7 @@ public class CyclePageViewModelTest {
         .build();
     statsBuilder.add(firstPreviousStats);
 
-    assertThat(CyclePageViewModel.subtitle(statsBuilder.build(), 0, LocalDate::now, Optional.empty()))
+    assertThat(CyclePageViewModel.subtitle(statsBuilder.build(), 0, LocalDate::now, Optional.empty(), NO_TRENDS))
         .isEqualTo("10 days postpeak");
 
     CycleRenderer.CycleStats secondPreviousStats = CycleRenderer.CycleStats.builder()
@@ -136,7 +160,7 @@ public class CyclePageViewModelTest {
         .build();
     statsBuilder.add(secondPreviousStats);
 
-    assertThat(CyclePageViewModel.subtitle(statsBuilder.build(), 0, LocalDate::now, Optional.empty()))
+    assertThat(CyclePageViewModel.subtitle(statsBuilder.build(), 0, LocalDate::now, Optional.empty(), NO_TRENDS))
         .isEqualTo("10 days postpeak");
 
     CycleRenderer.CycleStats thirdPreviousStats = CycleRenderer.CycleStats.builder()
@@ -146,7 +170,7 @@ public class CyclePageViewModelTest {
         .build();
     statsBuilder.add(thirdPreviousStats);
 
-    assertThat(CyclePageViewModel.subtitle(statsBuilder.build(), 0, LocalDate::now, Optional.empty()))
+    assertThat(CyclePageViewModel.subtitle(statsBuilder.build(), 0, LocalDate::now, Optional.empty(), NO_TRENDS))
         .isEqualTo("10 days postpeak");
   }
 }
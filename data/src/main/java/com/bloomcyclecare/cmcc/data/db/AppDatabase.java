@@ -3,6 +3,7 @@ package com.bloomcyclecare.cmcc.data.db;
 
 import com.bloomcyclecare.cmcc.data.models.breastfeeding.BreastfeedingEntry;
 import com.bloomcyclecare.cmcc.data.models.charting.Cycle;
+import com.bloomcyclecare.cmcc.data.models.charting.CycleStats;
 import com.bloomcyclecare.cmcc.data.models.instructions.Instructions;
 import com.bloomcyclecare.cmcc.data.models.measurement.MeasurementEntry;
 import com.bloomcyclecare.cmcc.data.models.observation.ObservationEntry;
@@ -35,8 +36,9 @@ import androidx.sqlite.db.SupportSQLiteDatabase;
         MeasurementEntry.class,
         BreastfeedingEntry.class,
         Pregnancy.class,
+        CycleStats.class,
     },
-    version = 22)
+    version = 24)
 @TypeConverters({Converters.class})
 public abstract class AppDatabase extends RoomDatabase {
 
@@ -58,6 +60,10 @@ public abstract class AppDatabase extends RoomDatabase {
 
   public abstract PregnancyDao pregnancyDao();
 
+  public abstract ChartEntryDao chartEntryDao();
+
+  public abstract CycleStatsDao cycleStatsDao();
+
   private static final Migration MIGRATION_2_3 = new Migration(2, 3) {
     @Override
     public void migrate(@NonNull SupportSQLiteDatabase database) {
@@ -197,6 +203,27 @@ public abstract class AppDatabase extends RoomDatabase {
       QuerySet.of("ALTER TABLE ObservationEntry ADD COLUMN uncertain INTEGER NOT NULL DEFAULT (0)"),
       QuerySet.of());
 
+  // Re-encodes rows from JSON to CompactEncoding. Rows are rewritten in Java so this doesn't fit
+  // BwCompatMigration.
+  static final Migration MIGRATION_22_23 = new Migration(22, 23) {
+    @Override
+    public void migrate(@NonNull SupportSQLiteDatabase database) {
+      CompactEncoding.rewriteRows(database, true);
+    }
+  };
+
+  static final Migration MIGRATION_23_22 = new Migration(23, 22) {
+    @Override
+    public void migrate(@NonNull SupportSQLiteDatabase database) {
+      CompactEncoding.rewriteRows(database, false);
+    }
+  };
+
+  static final BwCompatMigration MIGRATION_23_24 = new BwCompatMigration(
+      23, 24,
+      QuerySet.of("CREATE TABLE IF NOT EXISTS `CycleStats` (`cycleStartDate` TEXT NOT NULL, `cycleEndDate` TEXT, `mcs` REAL, `daysPrePeak` INTEGER, `daysPostPeak` INTEGER, `daysWithAnObservation` INTEGER NOT NULL, `isPregnancy` INTEGER NOT NULL, PRIMARY KEY(`cycleStartDate`))"),
+      QuerySet.of("DROP TABLE `CycleStats`"));
+
   public static List<Migration> MIGRATIONS = ImmutableList.<Migration>builder()
       .add(MIGRATION_2_3, MIGRATION_6_7, MIGRATION_7_8, MIGRATION_8_9, MIGRATION_9_10,
           MIGRATION_10_11, MIGRATION_11_12, MIGRATION_12_13, MIGRATION_13_14, MIGRATION_14_15)
@@ -207,6 +234,8 @@ public abstract class AppDatabase extends RoomDatabase {
       .addAll(MIGRATION_19_20.migrations())
       .addAll(MIGRATION_20_21.migrations())
       .addAll(MIGRATION_21_22.migrations())
+      .add(MIGRATION_22_23, MIGRATION_23_22)
+      .addAll(MIGRATION_23_24.migrations())
       .build();
 
   public static class QuerySet {
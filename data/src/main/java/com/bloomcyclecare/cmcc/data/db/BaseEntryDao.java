@@ -1,12 +1,6 @@
 package com.bloomcyclecare.cmcc.data.db;
 
 import com.bloomcyclecare.cmcc.data.models.Entry;
-import com.bloomcyclecare.cmcc.data.models.breastfeeding.BreastfeedingEntry;
-import com.bloomcyclecare.cmcc.data.models.measurement.MeasurementEntry;
-import com.bloomcyclecare.cmcc.data.models.observation.ObservationEntry;
-import com.bloomcyclecare.cmcc.data.models.observation.SymptomEntry;
-import com.bloomcyclecare.cmcc.data.models.observation.WellnessEntry;
-import com.bloomcyclecare.cmcc.data.models.stickering.StickerSelectionEntry;
 import com.bloomcyclecare.cmcc.utils.DateUtil;
 import com.google.common.base.Optional;
 import com.google.common.collect.Sets;
@@ -14,6 +8,8 @@ import com.google.common.collect.Sets;
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -28,7 +24,6 @@ import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
-import androidx.room.RawQuery;
 import androidx.room.Update;
 import androidx.sqlite.db.SimpleSQLiteQuery;
 import androidx.sqlite.db.SupportSQLiteQuery;
@@ -37,30 +32,46 @@ import io.reactivex.Flowable;
 import io.reactivex.Maybe;
 import io.reactivex.Single;
 
-// NOTE: new children of this class need to be added to the decorators below!!!!!
+// NOTE: new children of this class need to declare the raw queries below for their own table!!!!!
 
 @Dao
 public abstract class BaseEntryDao<E extends Entry> {
 
-  private final String mTableName;
   private final Function<LocalDate, E> mEmptyEntryFn;
 
+  // SQL is built once per table and dates are bound as arguments so SQLite can reuse the
+  // prepared statements.
+  private final String mSelectForDateSql;
+  private final String mSelectForRangeSql;
+  private final String mSelectAllSql;
+  private final String mSelectAllOrderedSql;
+
   BaseEntryDao(Class<E> clazz, Function<LocalDate, E> emptyEntryFn) {
-    mTableName = clazz.getSimpleName();
+    String tableName = clazz.getSimpleName();
     mEmptyEntryFn = emptyEntryFn;
+    mSelectForDateSql = String.format("SELECT * FROM %s WHERE entryDate = ?", tableName);
+    mSelectForRangeSql = String.format(
+        "SELECT * FROM %s WHERE entryDate >= ? AND entryDate <= ? ORDER BY entryDate", tableName);
+    mSelectAllSql = String.format("SELECT * FROM %s", tableName);
+    mSelectAllOrderedSql = String.format("SELECT * FROM %s ORDER BY entryDate ASC", tableName);
+  }
+
+  SimpleSQLiteQuery queryForDate(LocalDate entryDate) {
+    return new SimpleSQLiteQuery(mSelectForDateSql, new Object[]{DateUtil.toWireStr(entryDate)});
+  }
+
+  SimpleSQLiteQuery queryForRange(LocalDate firstDate, LocalDate lastDate) {
+    return new SimpleSQLiteQuery(mSelectForRangeSql, new Object[]{
+        DateUtil.toWireStr(firstDate),
+        DateUtil.toWireStr(lastDate)});
   }
 
   public Maybe<E> get(LocalDate entryDate) {
-    return doMaybeT(new SimpleSQLiteQuery(String.format(
-        "SELECT * FROM %s WHERE entryDate = '%s'",
-        mTableName,
-        DateUtil.toWireStr(entryDate))));
+    return doMaybeT(queryForDate(entryDate));
   }
 
   public Single<TreeMap<LocalDate, E>> getAllEntries() {
-    return doFlowableList(new SimpleSQLiteQuery(String.format(
-        "SELECT * FROM %s ORDER BY entryDate ASC ",
-        mTableName)))
+    return doFlowableList(new SimpleSQLiteQuery(mSelectAllOrderedSql))
         .firstOrError()
         .map(entries -> {
           TreeMap<LocalDate, E> out = new TreeMap<>();
@@ -72,10 +83,7 @@ public abstract class BaseEntryDao<E extends Entry> {
   }
 
   public Flowable<E> getStream(LocalDate entryDate) {
-    SimpleSQLiteQuery query = new SimpleSQLiteQuery(String.format(
-        "SELECT * FROM %s WHERE entryDate = '%s'",
-        mTableName,
-        DateUtil.toWireStr(entryDate)));
+    SimpleSQLiteQuery query = queryForDate(entryDate);
     return doMaybeT(query)
         .map(Optional::of)
         .toSingle(Optional.absent())
@@ -85,10 +93,7 @@ public abstract class BaseEntryDao<E extends Entry> {
   }
 
   public Flowable<Optional<E>> getOptionalStream(LocalDate entryDate) {
-    SimpleSQLiteQuery query = new SimpleSQLiteQuery(String.format(
-        "SELECT * FROM %s WHERE entryDate = '%s'",
-        mTableName,
-        DateUtil.toWireStr(entryDate)));
+    SimpleSQLiteQuery query = queryForDate(entryDate);
     return doMaybeT(query)
         .map(Optional::of)
         .toSingle(Optional.absent())
@@ -99,24 +104,18 @@ public abstract class BaseEntryDao<E extends Entry> {
   }
 
   public Flowable<Map<LocalDate, E>> getIndexedStream(LocalDate firstDate, LocalDate lastDate) {
-    return doFlowableList(new SimpleSQLiteQuery(String.format(
-        "SELECT * FROM %s WHERE entryDate >= '%s' AND entryDate <= '%s' ORDER BY entryDate",
-        mTableName,
-        DateUtil.toWireStr(firstDate),
-        DateUtil.toWireStr(lastDate))))
+    return doFlowableList(queryForRange(firstDate, lastDate))
         .distinctUntilChanged((l1, l2) -> {
           Set<E> s1 = new HashSet<>(l1);
           Set<E> s2 = new HashSet<>(l2);
           return Sets.difference(s1, s2).isEmpty() && Sets.difference(s2, s1).isEmpty();
         })
         .map(entries -> {
-          List<LocalDate> daysMissingData = DateUtil.daysBetween(firstDate, lastDate, false);
-          Map<LocalDate, E> out = new HashMap<>(daysMissingData.size());
+          Map<LocalDate, E> out = new HashMap<>();
           for (E entry : entries) {
             out.put(entry.getDate(), entry);
-            daysMissingData.remove(entry.getDate());
           }
-          for (LocalDate d : daysMissingData) {
+          for (LocalDate d = firstDate; !d.isAfter(lastDate); d = d.plusDays(1)) {
             if (!out.containsKey(d)) {
               out.put(d, mEmptyEntryFn.apply(d));
             }
@@ -127,9 +126,7 @@ public abstract class BaseEntryDao<E extends Entry> {
   }
 
   public Flowable<List<E>> getStream() {
-    return doFlowableList(new SimpleSQLiteQuery(String.format(
-        "SELECT * FROM %s",
-        mTableName)))
+    return doFlowableList(new SimpleSQLiteQuery(mSelectAllSql))
         .distinctUntilChanged();
   }
 
@@ -146,6 +143,27 @@ public abstract class BaseEntryDao<E extends Entry> {
     return insertInternal(entry);
   }
 
+  @Insert(onConflict = OnConflictStrategy.REPLACE)
+  abstract void insertAllInternal(List<E> entries);
+
+  /**
+   * Synchronous bulk insert, stamping each entry the same way as {@link #insert(Entry)}. Meant to
+   * be called from inside {@link androidx.room.RoomDatabase#runInTransaction(Runnable)}.
+   */
+  public final void insertAll(Collection<E> entries) {
+    DateTime now = DateTime.now();
+    List<E> toInsert = new ArrayList<>(entries.size());
+    for (E entry : entries) {
+      if (entry.mTimeCreated == null) {
+        entry.mTimeCreated = now;
+      }
+      entry.mTimeUpdated = now;
+      entry.mTimesUpdated = ++entry.mTimesUpdated;
+      toInsert.add(entry);
+    }
+    insertAllInternal(toInsert);
+  }
+
   public Completable insertNullable(@Nullable E entry) {
     if (entry == null) {
       return Completable.complete();
@@ -180,33 +198,12 @@ public abstract class BaseEntryDao<E extends Entry> {
     return updateInternal(entry);
   }
 
-  @RawQuery(observedEntities = {
-      ObservationEntry.class,
-      WellnessEntry.class,
-      SymptomEntry.class,
-      MeasurementEntry.class,
-      BreastfeedingEntry.class,
-      StickerSelectionEntry.class,
-  })
+  // Declared by each child with @RawQuery(observedEntities = <its entity>) so that writes to
+  // one entry table don't re-run queries against the others.
+
   protected abstract Maybe<E> doMaybeT(SupportSQLiteQuery query);
 
-  @RawQuery(observedEntities = {
-      ObservationEntry.class,
-      WellnessEntry.class,
-      SymptomEntry.class,
-      MeasurementEntry.class,
-      BreastfeedingEntry.class,
-      StickerSelectionEntry.class,
-  })
   protected abstract Flowable<E> doFlowableT(SupportSQLiteQuery query);
 
-  @RawQuery(observedEntities = {
-      ObservationEntry.class,
-      WellnessEntry.class,
-      SymptomEntry.class,
-      MeasurementEntry.class,
-      BreastfeedingEntry.class,
-      StickerSelectionEntry.class,
-  })
   protected abstract Flowable<List<E>> doFlowableList(SupportSQLiteQuery query);
 }
@@ -2,11 +2,29 @@ package com.bloomcyclecare.cmcc.data.db;
 
 import com.bloomcyclecare.cmcc.data.models.breastfeeding.BreastfeedingEntry;
 
+import java.util.List;
+
 import androidx.room.Dao;
+import androidx.room.RawQuery;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
 
 @Dao
 public abstract class BreastfeedingEntryDao extends BaseEntryDao<BreastfeedingEntry> {
   public BreastfeedingEntryDao() {
     super(BreastfeedingEntry.class, BreastfeedingEntry::emptyEntry);
   }
+
+  @Override
+  @RawQuery(observedEntities = BreastfeedingEntry.class)
+  protected abstract Maybe<BreastfeedingEntry> doMaybeT(SupportSQLiteQuery query);
+
+  @Override
+  @RawQuery(observedEntities = BreastfeedingEntry.class)
+  protected abstract Flowable<BreastfeedingEntry> doFlowableT(SupportSQLiteQuery query);
+
+  @Override
+  @RawQuery(observedEntities = BreastfeedingEntry.class)
+  protected abstract Flowable<List<BreastfeedingEntry>> doFlowableList(SupportSQLiteQuery query);
 }
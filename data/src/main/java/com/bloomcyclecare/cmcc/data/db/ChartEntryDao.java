@@ -0,0 +1,163 @@
+package com.bloomcyclecare.cmcc.data.db;
+
+import com.bloomcyclecare.cmcc.data.models.breastfeeding.BreastfeedingEntry;
+import com.bloomcyclecare.cmcc.data.models.charting.ChartEntry;
+import com.bloomcyclecare.cmcc.data.models.measurement.MeasurementEntry;
+import com.bloomcyclecare.cmcc.data.models.observation.ObservationEntry;
+import com.bloomcyclecare.cmcc.data.models.observation.SymptomEntry;
+import com.bloomcyclecare.cmcc.data.models.observation.WellnessEntry;
+import com.bloomcyclecare.cmcc.data.models.stickering.StickerSelectionEntry;
+
+import org.joda.time.LocalDate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.Nullable;
+import androidx.room.Dao;
+import androidx.room.Embedded;
+import androidx.room.Query;
+import androidx.room.Transaction;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+
+/**
+ * Loads complete {@link ChartEntry}s for a range of days with a single query across all of the
+ * entry tables, rather than one stream per table.
+ */
+@Dao
+public abstract class ChartEntryDao {
+
+  // Dates are stored as yyyy-MM-dd strings so these sort before and after every stored date
+  private static final LocalDate FIRST_POSSIBLE_DATE = new LocalDate(1, 1, 1);
+  private static final LocalDate LAST_POSSIBLE_DATE = new LocalDate(9999, 12, 31);
+
+  private static final String ENTRY_DATES_IN_RANGE =
+      "SELECT entryDate FROM ObservationEntry WHERE entryDate BETWEEN :firstDate AND :lastDate"
+          + " UNION SELECT entryDate FROM WellnessEntry WHERE entryDate BETWEEN :firstDate AND :lastDate"
+          + " UNION SELECT entryDate FROM SymptomEntry WHERE entryDate BETWEEN :firstDate AND :lastDate"
+          + " UNION SELECT entryDate FROM MeasurementEntry WHERE entryDate BETWEEN :firstDate AND :lastDate"
+          + " UNION SELECT entryDate FROM BreastfeedingEntry WHERE entryDate BETWEEN :firstDate AND :lastDate"
+          + " UNION SELECT entryDate FROM StickerSelectionEntry WHERE entryDate BETWEEN :firstDate AND :lastDate";
+
+  private static final String ROWS_IN_RANGE = "SELECT d.entryDate AS entryDate,"
+      + " o.entryDate AS o_entryDate, o.timeCreated AS o_timeCreated, o.timeUpdated AS o_timeUpdated,"
+      + " o.timesUpdated AS o_timesUpdated, o.observation AS o_observation, o.peakDay AS o_peakDay,"
+      + " o.intercourse AS o_intercourse, o.uncertain AS o_uncertain, o.firstDay AS o_firstDay,"
+      + " o.positivePregnancyTest AS o_positivePregnancyTest, o.pointOfChange AS o_pointOfChange,"
+      + " o.unusualBleeding AS o_unusualBleeding, o.unusualStress AS o_unusualStress,"
+      + " o.unusualBuildup AS o_unusualBuildup, o.intercourseTimeOfDay AS o_intercourseTimeOfDay,"
+      + " o.isEssentiallyTheSame AS o_isEssentiallyTheSame, o.note AS o_note,"
+      + " w.entryDate AS w_entryDate, w.timeCreated AS w_timeCreated, w.timeUpdated AS w_timeUpdated,"
+      + " w.timesUpdated AS w_timesUpdated, w.wellnessItems AS w_wellnessItems,"
+      + " s.entryDate AS s_entryDate, s.timeCreated AS s_timeCreated, s.timeUpdated AS s_timeUpdated,"
+      + " s.timesUpdated AS s_timesUpdated, s.symptoms AS s_symptoms,"
+      + " m.entryDate AS m_entryDate, m.timeCreated AS m_timeCreated, m.timeUpdated AS m_timeUpdated,"
+      + " m.timesUpdated AS m_timesUpdated, m.monitorReading AS m_monitorReading,"
+      + " m.lhTestResult AS m_lhTestResult,"
+      + " b.entryDate AS b_entryDate, b.timeCreated AS b_timeCreated, b.timeUpdated AS b_timeUpdated,"
+      + " b.timesUpdated AS b_timesUpdated, b.numDayFeedings AS b_numDayFeedings,"
+      + " b.numNightFeedings AS b_numNightFeedings, b.maxGapBetweenFeedings AS b_maxGapBetweenFeedings,"
+      + " ss.entryDate AS ss_entryDate, ss.timeCreated AS ss_timeCreated, ss.timeUpdated AS ss_timeUpdated,"
+      + " ss.timesUpdated AS ss_timesUpdated, ss.selection AS ss_selection"
+      + " FROM (" + ENTRY_DATES_IN_RANGE + ") AS d"
+      + " LEFT JOIN ObservationEntry AS o ON o.entryDate = d.entryDate"
+      + " LEFT JOIN WellnessEntry AS w ON w.entryDate = d.entryDate"
+      + " LEFT JOIN SymptomEntry AS s ON s.entryDate = d.entryDate"
+      + " LEFT JOIN MeasurementEntry AS m ON m.entryDate = d.entryDate"
+      + " LEFT JOIN BreastfeedingEntry AS b ON b.entryDate = d.entryDate"
+      + " LEFT JOIN StickerSelectionEntry AS ss ON ss.entryDate = d.entryDate"
+      + " ORDER BY d.entryDate ASC";
+
+  /**
+   * Emits one {@link ChartEntry} per day between the two dates (inclusive). Days without data in
+   * a table are filled with that table's empty entry.
+   */
+  public Flowable<List<ChartEntry>> getStream(LocalDate firstDate, LocalDate lastDate) {
+    return getRowStream(firstDate, lastDate)
+        .map(rows -> assemble(firstDate, lastDate, rows))
+        .distinctUntilChanged();
+  }
+
+  @Transaction
+  @Query(ROWS_IN_RANGE)
+  abstract Flowable<List<Row>> getRowStream(LocalDate firstDate, LocalDate lastDate);
+
+  /**
+   * Only the days with data in at least one table, without filling in the days between them. A
+   * null date leaves that side of the range open.
+   */
+  public Single<List<ChartEntry>> getStored(@Nullable LocalDate firstDate, @Nullable LocalDate lastDate) {
+    return getRows(
+        firstDate != null ? firstDate : FIRST_POSSIBLE_DATE,
+        lastDate != null ? lastDate : LAST_POSSIBLE_DATE)
+        .map(rows -> {
+          List<ChartEntry> out = new ArrayList<>(rows.size());
+          for (Row row : rows) {
+            out.add(toChartEntry(row.entryDate, row));
+          }
+          return out;
+        });
+  }
+
+  @Transaction
+  @Query(ROWS_IN_RANGE)
+  abstract Single<List<Row>> getRows(LocalDate firstDate, LocalDate lastDate);
+
+  private static List<ChartEntry> assemble(LocalDate firstDate, LocalDate lastDate, List<Row> rows) {
+    List<ChartEntry> out = new ArrayList<>();
+    int rowIndex = 0;
+    // Rows are sorted by date so a single walk over the range lines them up with the days
+    for (LocalDate d = firstDate; !d.isAfter(lastDate); d = d.plusDays(1)) {
+      Row row = null;
+      if (rowIndex < rows.size() && rows.get(rowIndex).entryDate.equals(d)) {
+        row = rows.get(rowIndex++);
+      }
+      if (row == null) {
+        out.add(ChartEntry.emptyEntry(d));
+        continue;
+      }
+      out.add(toChartEntry(d, row));
+    }
+    return out;
+  }
+
+  private static ChartEntry toChartEntry(LocalDate d, Row row) {
+    return new ChartEntry(
+        d,
+        row.observationEntry != null ? row.observationEntry : ObservationEntry.emptyEntry(d),
+        row.wellnessEntry != null ? row.wellnessEntry : WellnessEntry.emptyEntry(d),
+        row.symptomEntry != null ? row.symptomEntry : SymptomEntry.emptyEntry(d),
+        row.measurementEntry != null ? row.measurementEntry : MeasurementEntry.emptyEntry(d),
+        row.breastfeedingEntry != null ? row.breastfeedingEntry : BreastfeedingEntry.emptyEntry(d),
+        row.stickerSelectionEntry != null ? row.stickerSelectionEntry.selection : null);
+  }
+
+  public static class Row {
+    public LocalDate entryDate;
+
+    @Nullable
+    @Embedded(prefix = "o_")
+    public ObservationEntry observationEntry;
+
+    @Nullable
+    @Embedded(prefix = "w_")
+    public WellnessEntry wellnessEntry;
+
+    @Nullable
+    @Embedded(prefix = "s_")
+    public SymptomEntry symptomEntry;
+
+    @Nullable
+    @Embedded(prefix = "m_")
+    public MeasurementEntry measurementEntry;
+
+    @Nullable
+    @Embedded(prefix = "b_")
+    public BreastfeedingEntry breastfeedingEntry;
+
+    @Nullable
+    @Embedded(prefix = "ss_")
+    public StickerSelectionEntry stickerSelectionEntry;
+  }
+}
@@ -0,0 +1,186 @@
+package com.bloomcyclecare.cmcc.data.db;
+
+import android.database.Cursor;
+
+import com.bloomcyclecare.cmcc.data.models.observation.DischargeSummary;
+import com.bloomcyclecare.cmcc.data.models.observation.DischargeType;
+import com.bloomcyclecare.cmcc.data.models.observation.Flow;
+import com.bloomcyclecare.cmcc.data.models.observation.MucusModifier;
+import com.bloomcyclecare.cmcc.data.models.observation.Observation;
+import com.bloomcyclecare.cmcc.data.models.observation.Occurrences;
+import com.bloomcyclecare.cmcc.data.models.stickering.Sticker;
+import com.bloomcyclecare.cmcc.data.models.stickering.StickerSelection;
+import com.bloomcyclecare.cmcc.data.models.stickering.StickerText;
+import com.bloomcyclecare.cmcc.data.utils.GsonUtil;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import androidx.annotation.Nullable;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * Short string encodings for {@link Observation} and {@link StickerSelection} columns. Values
+ * start with a version character and store enums by ordinal, one base 36 character each.
+ *
+ * NOTE: the order of Flow, DischargeType, MucusModifier, Occurrences, Sticker and StickerText is
+ * part of the storage format. Only append new values, anything else needs a new version.
+ *
+ * Anything which doesn't start with a known version is assumed to be legacy JSON.
+ */
+public class CompactEncoding {
+
+  private static final char VERSION_1 = '1';
+  private static final char NONE = '_';
+  private static final String FIELD_SEPARATOR = ",";
+
+  private CompactEncoding() {}
+
+  /**
+   * Observation v1: {@code 1<flow>,<type><modifiers...>,<occurrences>,<modifier><occurrences>...}
+   * where every field except the discharge summary may be empty. e.g. {@code 1,90,3,} for 10CKAD.
+   */
+  @Nullable
+  public static String encodeObservation(@Nullable Observation observation) {
+    if (observation == null) {
+      return null;
+    }
+    StringBuilder b = new StringBuilder(12);
+    b.append(VERSION_1);
+    if (observation.flow != null) {
+      b.append(toChar(observation.flow));
+    }
+    b.append(FIELD_SEPARATOR);
+    DischargeSummary dischargeSummary = observation.dischargeSummary;
+    if (dischargeSummary != null) {
+      b.append(dischargeSummary.mType == null ? NONE : toChar(dischargeSummary.mType));
+      for (MucusModifier modifier : dischargeSummary.mModifiers) {
+        // Ordinals rather than a bitset since the modifier order is shown to the user
+        b.append(toChar(modifier));
+      }
+    }
+    b.append(FIELD_SEPARATOR);
+    if (observation.occurrences != null) {
+      b.append(toChar(observation.occurrences));
+    }
+    b.append(FIELD_SEPARATOR);
+    for (Map.Entry<MucusModifier, Occurrences> e : observation.additionalOccurrences.entrySet()) {
+      b.append(toChar(e.getKey())).append(toChar(e.getValue()));
+    }
+    return b.toString();
+  }
+
+  @Nullable
+  public static Observation decodeObservation(@Nullable String in) {
+    if (in == null) {
+      return null;
+    }
+    if (in.isEmpty() || in.charAt(0) != VERSION_1) {
+      return GsonUtil.getGsonInstance().fromJson(in, Observation.class);
+    }
+    String[] fields = in.substring(1).split(FIELD_SEPARATOR, -1);
+    if (fields.length != 4) {
+      throw new IllegalArgumentException("Invalid observation encoding: " + in);
+    }
+    Flow flow = fields[0].isEmpty() ? null : fromChar(Flow.values(), fields[0].charAt(0));
+
+    DischargeSummary dischargeSummary = null;
+    if (!fields[1].isEmpty()) {
+      char typeChar = fields[1].charAt(0);
+      DischargeType type = typeChar == NONE ? null : fromChar(DischargeType.values(), typeChar);
+      Set<MucusModifier> modifiers = new LinkedHashSet<>();
+      for (int i = 1; i < fields[1].length(); i++) {
+        modifiers.add(fromChar(MucusModifier.values(), fields[1].charAt(i)));
+      }
+      dischargeSummary = new DischargeSummary(type, modifiers);
+    }
+
+    Occurrences occurrences = fields[2].isEmpty() ? null : fromChar(Occurrences.values(), fields[2].charAt(0));
+
+    Map<MucusModifier, Occurrences> additionalOccurrences = new LinkedHashMap<>();
+    for (int i = 0; i + 1 < fields[3].length(); i += 2) {
+      additionalOccurrences.put(
+          fromChar(MucusModifier.values(), fields[3].charAt(i)),
+          fromChar(Occurrences.values(), fields[3].charAt(i + 1)));
+    }
+    return new Observation(flow, dischargeSummary, occurrences, additionalOccurrences);
+  }
+
+  /**
+   * StickerSelection v1: {@code 1<sticker><text>} where text is omitted when null.
+   */
+  @Nullable
+  public static String encodeStickerSelection(@Nullable StickerSelection selection) {
+    if (selection == null) {
+      return null;
+    }
+    StringBuilder b = new StringBuilder(3);
+    b.append(VERSION_1);
+    b.append(selection.sticker == null ? NONE : toChar(selection.sticker));
+    if (selection.text != null) {
+      b.append(toChar(selection.text));
+    }
+    return b.toString();
+  }
+
+  @Nullable
+  public static StickerSelection decodeStickerSelection(@Nullable String in) {
+    if (in == null) {
+      return null;
+    }
+    if (in.isEmpty() || in.charAt(0) != VERSION_1) {
+      return GsonUtil.getGsonInstance().fromJson(in, StickerSelection.class);
+    }
+    if (in.length() < 2 || in.length() > 3) {
+      throw new IllegalArgumentException("Invalid sticker selection encoding: " + in);
+    }
+    char stickerChar = in.charAt(1);
+    Sticker sticker = stickerChar == NONE ? null : fromChar(Sticker.values(), stickerChar);
+    StickerText text = in.length() == 3 ? fromChar(StickerText.values(), in.charAt(2)) : null;
+    return StickerSelection.create(sticker, text);
+  }
+
+  /**
+   * Rewrites the observation and sticker selection columns of existing rows.
+   */
+  static void rewriteRows(SupportSQLiteDatabase database, boolean toCompact) {
+    rewriteColumn(database, "ObservationEntry", "observation", toCompact
+        ? in -> encodeObservation(decodeObservation(in))
+        : in -> GsonUtil.getGsonInstance().toJson(decodeObservation(in)));
+    rewriteColumn(database, "StickerSelectionEntry", "selection", toCompact
+        ? in -> encodeStickerSelection(decodeStickerSelection(in))
+        : in -> GsonUtil.getGsonInstance().toJson(decodeStickerSelection(in)));
+  }
+
+  private static void rewriteColumn(SupportSQLiteDatabase database, String table, String column,
+                                    Function<String, String> rewriteFn) {
+    List<String[]> updates = new ArrayList<>();
+    try (Cursor cursor = database.query(String.format(
+        "SELECT entryDate, %s FROM %s WHERE %s IS NOT NULL", column, table, column))) {
+      while (cursor.moveToNext()) {
+        updates.add(new String[]{rewriteFn.apply(cursor.getString(1)), cursor.getString(0)});
+      }
+    }
+    String sql = String.format("UPDATE %s SET %s = ? WHERE entryDate = ?", table, column);
+    for (String[] args : updates) {
+      database.execSQL(sql, args);
+    }
+  }
+
+  private static char toChar(Enum<?> value) {
+    return Character.forDigit(value.ordinal(), Character.MAX_RADIX);
+  }
+
+  private static <E extends Enum<E>> E fromChar(E[] values, char c) {
+    int ordinal = Character.digit(c, Character.MAX_RADIX);
+    if (ordinal < 0 || ordinal >= values.length) {
+      throw new IllegalArgumentException("Invalid ordinal '" + c + "' for " + values.getClass().getComponentType().getSimpleName());
+    }
+    return values[ordinal];
+  }
+}
@@ -27,22 +27,26 @@ import androidx.room.TypeConverter;
 public class Converters {
 
   @TypeConverter
-  public String fromObject(Observation in) {
-    return GsonUtil.getGsonInstance().toJson(in);
+  @Nullable
+  public String fromObject(@Nullable Observation in) {
+    return CompactEncoding.encodeObservation(in);
   }
   @TypeConverter
-  public Observation toObject(String in) {
-    return GsonUtil.getGsonInstance().fromJson(in, Observation.class);
+  @Nullable
+  public Observation toObject(@Nullable String in) {
+    return CompactEncoding.decodeObservation(in);
   }
 
   @TypeConverter
-  public String fromObject(StickerSelection in) {
-    return GsonUtil.getGsonInstance().toJson(in);
+  @Nullable
+  public String fromObject(@Nullable StickerSelection in) {
+    return CompactEncoding.encodeStickerSelection(in);
   }
 
   @TypeConverter
-  public StickerSelection toStickerSelection(String in) {
-    return GsonUtil.getGsonInstance().fromJson(in, StickerSelection.class);
+  @Nullable
+  public StickerSelection toStickerSelection(@Nullable String in) {
+    return CompactEncoding.decodeStickerSelection(in);
   }
 
   @TypeConverter
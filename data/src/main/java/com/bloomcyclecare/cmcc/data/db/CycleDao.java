@@ -42,6 +42,9 @@ public abstract class CycleDao {
   @Insert(onConflict = OnConflictStrategy.REPLACE)
   public abstract Completable insert(Cycle cycle);
 
+  @Insert(onConflict = OnConflictStrategy.REPLACE)
+  public abstract Completable insertAll(List<Cycle> cycles);
+
   @Update
   public abstract Completable update(Cycle cycle);
 
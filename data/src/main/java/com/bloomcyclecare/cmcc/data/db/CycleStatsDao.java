@@ -2,9 +2,33 @@ package com.bloomcyclecare.cmcc.data.db;
 
 import com.bloomcyclecare.cmcc.data.models.charting.CycleStats;
 
+import org.joda.time.LocalDate;
+
+import java.util.List;
+
 import androidx.room.Dao;
+import androidx.room.Query;
+import androidx.room.TypeConverters;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
 
 @Dao
 public abstract class CycleStatsDao implements GenericDao<CycleStats> {
 
+  @Query("SELECT * FROM CycleStats")
+  public abstract Single<List<CycleStats>> getAll();
+
+  @Query("SELECT * FROM CycleStats ORDER BY cycleStartDate DESC")
+  public abstract Flowable<List<CycleStats>> getStream();
+
+  /**
+   * Deletes the stats of every cycle which includes a day in the range.
+   */
+  @TypeConverters(Converters.class)
+  @Query("DELETE FROM CycleStats WHERE cycleStartDate <= :endDate AND (cycleEndDate IS NULL OR cycleEndDate >= :startDate)")
+  public abstract Completable deleteOverlapping(LocalDate startDate, LocalDate endDate);
+
+  @Query("DELETE FROM CycleStats")
+  public abstract Completable deleteAll();
 }
@@ -21,7 +21,18 @@ public interface GenericDao <T> {
   @Delete
   Completable delete(T value);
 
+  @Delete
+  Completable delete(Collection<T> values);
+
   Single<List<T>> getAll();
 
   Flowable<List<T>> getStream();
+
+  /**
+   * Deletes and upserts the values as one batch. DAOs should override this to run in a single
+   * transaction.
+   */
+  default Completable applyChanges(Collection<T> upserts, Collection<T> deletes) {
+    return delete(deletes).andThen(insert(upserts));
+  }
 }
@@ -2,10 +2,13 @@ package com.bloomcyclecare.cmcc.data.db;
 
 import com.bloomcyclecare.cmcc.data.models.instructions.Instructions;
 
+import java.util.Collection;
 import java.util.List;
 
 import androidx.room.Dao;
 import androidx.room.Query;
+import androidx.room.Transaction;
+import io.reactivex.Completable;
 import io.reactivex.Flowable;
 import io.reactivex.Single;
 
@@ -17,4 +20,14 @@ public abstract class InstructionDao implements GenericDao<Instructions> {
 
   @Query("SELECT * FROM Instructions")
   public abstract Flowable<List<Instructions>> getStream();
+
+  @Override
+  public Completable applyChanges(Collection<Instructions> upserts, Collection<Instructions> deletes) {
+    return Completable.fromAction(() -> applyChangesInTransaction(upserts, deletes));
+  }
+
+  @Transaction
+  void applyChangesInTransaction(Collection<Instructions> upserts, Collection<Instructions> deletes) {
+    delete(deletes).andThen(insert(upserts)).blockingAwait();
+  }
 }
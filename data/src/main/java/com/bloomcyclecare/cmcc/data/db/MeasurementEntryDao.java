@@ -2,7 +2,13 @@ package com.bloomcyclecare.cmcc.data.db;
 
 import com.bloomcyclecare.cmcc.data.models.measurement.MeasurementEntry;
 
+import java.util.List;
+
 import androidx.room.Dao;
+import androidx.room.RawQuery;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
 
 @Dao
 public abstract class MeasurementEntryDao extends BaseEntryDao<MeasurementEntry>  {
@@ -10,4 +16,16 @@ public abstract class MeasurementEntryDao extends BaseEntryDao<MeasurementEntry>
   public MeasurementEntryDao() {
     super(MeasurementEntry.class, MeasurementEntry::emptyEntry);
   }
+
+  @Override
+  @RawQuery(observedEntities = MeasurementEntry.class)
+  protected abstract Maybe<MeasurementEntry> doMaybeT(SupportSQLiteQuery query);
+
+  @Override
+  @RawQuery(observedEntities = MeasurementEntry.class)
+  protected abstract Flowable<MeasurementEntry> doFlowableT(SupportSQLiteQuery query);
+
+  @Override
+  @RawQuery(observedEntities = MeasurementEntry.class)
+  protected abstract Flowable<List<MeasurementEntry>> doFlowableList(SupportSQLiteQuery query);
 }
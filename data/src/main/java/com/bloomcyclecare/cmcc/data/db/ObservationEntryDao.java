@@ -3,7 +3,18 @@ package com.bloomcyclecare.cmcc.data.db;
 
 import com.bloomcyclecare.cmcc.data.models.observation.ObservationEntry;
 
+import org.joda.time.LocalDate;
+
+import java.util.List;
+
 import androidx.room.Dao;
+import androidx.room.Query;
+import androidx.room.RawQuery;
+import androidx.room.TypeConverters;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Single;
 
 @Dao
 public abstract class ObservationEntryDao extends BaseEntryDao<ObservationEntry> {
@@ -11,4 +22,23 @@ public abstract class ObservationEntryDao extends BaseEntryDao<ObservationEntry>
   public ObservationEntryDao() {
     super(ObservationEntry.class, ObservationEntry::emptyEntry);
   }
+
+  /**
+   * A primary key lookup which doesn't need to load or decode the entry.
+   */
+  @TypeConverters(Converters.class)
+  @Query("SELECT EXISTS(SELECT 1 FROM ObservationEntry WHERE entryDate = :entryDate AND observation IS NOT NULL)")
+  public abstract Single<Boolean> hasObservation(LocalDate entryDate);
+
+  @Override
+  @RawQuery(observedEntities = ObservationEntry.class)
+  protected abstract Maybe<ObservationEntry> doMaybeT(SupportSQLiteQuery query);
+
+  @Override
+  @RawQuery(observedEntities = ObservationEntry.class)
+  protected abstract Flowable<ObservationEntry> doFlowableT(SupportSQLiteQuery query);
+
+  @Override
+  @RawQuery(observedEntities = ObservationEntry.class)
+  protected abstract Flowable<List<ObservationEntry>> doFlowableList(SupportSQLiteQuery query);
 }
@@ -3,7 +3,16 @@ package com.bloomcyclecare.cmcc.data.db;
 
 import com.bloomcyclecare.cmcc.data.models.stickering.StickerSelectionEntry;
 
+import org.joda.time.LocalDate;
+
+import java.util.List;
+
 import androidx.room.Dao;
+import androidx.room.Query;
+import androidx.room.RawQuery;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
 
 @Dao
 public abstract class StickerSelectionEntryDao extends BaseEntryDao<StickerSelectionEntry> {
@@ -11,4 +20,22 @@ public abstract class StickerSelectionEntryDao extends BaseEntryDao<StickerSelec
   public StickerSelectionEntryDao() {
     super(StickerSelectionEntry.class, StickerSelectionEntry::emptyEntry);
   }
+
+  /**
+   * Synchronous so bulk writes can read the existing rows from inside their transaction.
+   */
+  @Query("SELECT * FROM StickerSelectionEntry WHERE entryDate >= :firstDate AND entryDate <= :lastDate")
+  public abstract List<StickerSelectionEntry> getAllBetween(LocalDate firstDate, LocalDate lastDate);
+
+  @Override
+  @RawQuery(observedEntities = StickerSelectionEntry.class)
+  protected abstract Maybe<StickerSelectionEntry> doMaybeT(SupportSQLiteQuery query);
+
+  @Override
+  @RawQuery(observedEntities = StickerSelectionEntry.class)
+  protected abstract Flowable<StickerSelectionEntry> doFlowableT(SupportSQLiteQuery query);
+
+  @Override
+  @RawQuery(observedEntities = StickerSelectionEntry.class)
+  protected abstract Flowable<List<StickerSelectionEntry>> doFlowableList(SupportSQLiteQuery query);
 }
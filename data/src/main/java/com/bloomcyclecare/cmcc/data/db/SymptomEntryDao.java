@@ -3,7 +3,13 @@ package com.bloomcyclecare.cmcc.data.db;
 
 import com.bloomcyclecare.cmcc.data.models.observation.SymptomEntry;
 
+import java.util.List;
+
 import androidx.room.Dao;
+import androidx.room.RawQuery;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
 
 @Dao
 public abstract class SymptomEntryDao extends BaseEntryDao<SymptomEntry> {
@@ -11,4 +17,16 @@ public abstract class SymptomEntryDao extends BaseEntryDao<SymptomEntry> {
   public SymptomEntryDao() {
     super(SymptomEntry.class, SymptomEntry::emptyEntry);
   }
+
+  @Override
+  @RawQuery(observedEntities = SymptomEntry.class)
+  protected abstract Maybe<SymptomEntry> doMaybeT(SupportSQLiteQuery query);
+
+  @Override
+  @RawQuery(observedEntities = SymptomEntry.class)
+  protected abstract Flowable<SymptomEntry> doFlowableT(SupportSQLiteQuery query);
+
+  @Override
+  @RawQuery(observedEntities = SymptomEntry.class)
+  protected abstract Flowable<List<SymptomEntry>> doFlowableList(SupportSQLiteQuery query);
 }
@@ -3,7 +3,13 @@ package com.bloomcyclecare.cmcc.data.db;
 
 import com.bloomcyclecare.cmcc.data.models.observation.WellnessEntry;
 
+import java.util.List;
+
 import androidx.room.Dao;
+import androidx.room.RawQuery;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
 
 @Dao
 public abstract class WellnessEntryDao extends BaseEntryDao<WellnessEntry> {
@@ -11,4 +17,16 @@ public abstract class WellnessEntryDao extends BaseEntryDao<WellnessEntry> {
   public WellnessEntryDao() {
     super(WellnessEntry.class, WellnessEntry::emptyEntry);
   }
+
+  @Override
+  @RawQuery(observedEntities = WellnessEntry.class)
+  protected abstract Maybe<WellnessEntry> doMaybeT(SupportSQLiteQuery query);
+
+  @Override
+  @RawQuery(observedEntities = WellnessEntry.class)
+  protected abstract Flowable<WellnessEntry> doFlowableT(SupportSQLiteQuery query);
+
+  @Override
+  @RawQuery(observedEntities = WellnessEntry.class)
+  protected abstract Flowable<List<WellnessEntry>> doFlowableList(SupportSQLiteQuery query);
 }
@@ -1,16 +1,37 @@
 package com.bloomcyclecare.cmcc.data.models.charting;
 
+import com.google.common.base.Objects;
+
 import org.joda.time.LocalDate;
 
+import androidx.annotation.NonNull;
 import androidx.room.Entity;
 import androidx.room.PrimaryKey;
 
+/**
+ * Cycle level numbers which would otherwise need every entry in the cycle, stored so summaries
+ * can skip reading them.
+ */
 @Entity
 public class CycleStats {
   @PrimaryKey
+  @NonNull
   public LocalDate cycleStartDate;
+  public LocalDate cycleEndDate;
 
   public Float mcs;
   public Integer daysPrePeak;
   public Integer daysPostPeak;
+  public int daysWithAnObservation;
+  public boolean isPregnancy;
+
+  /**
+   * Whether the stats were computed for the cycle as it is now. Cycles can be changed without an
+   * update event, e.g. by a restore, so rows are checked against the cycle on every read.
+   */
+  public boolean matches(Cycle cycle) {
+    return cycleStartDate.equals(cycle.startDate)
+        && Objects.equal(cycleEndDate, cycle.endDate)
+        && isPregnancy == cycle.isPregnancy();
+  }
 }
@@ -0,0 +1,91 @@
+package com.bloomcyclecare.cmcc.data.models.instructions;
+
+import org.joda.time.LocalDate;
+
+import java.util.Collection;
+import java.util.EnumSet;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Immutable snapshot of an {@link Instructions} backed by {@link EnumSet}s so that checking
+ * whether an instruction is active is a single bit test. Intended for hot loops like the
+ * renderer, changes made to the source {@link Instructions} after compiling are not reflected.
+ */
+public final class CompiledInstructions {
+
+  public final LocalDate startDate;
+  private final EnumSet<BasicInstruction> mBasicInstructions;
+  private final EnumSet<YellowStampInstruction> mYellowStampInstructions;
+  private final EnumSet<SpecialInstruction> mSpecialInstructions;
+
+  private CompiledInstructions(
+      LocalDate startDate,
+      EnumSet<BasicInstruction> basicInstructions,
+      EnumSet<YellowStampInstruction> yellowStampInstructions,
+      EnumSet<SpecialInstruction> specialInstructions) {
+    this.startDate = startDate;
+    mBasicInstructions = basicInstructions;
+    mYellowStampInstructions = yellowStampInstructions;
+    mSpecialInstructions = specialInstructions;
+  }
+
+  public static CompiledInstructions compile(@NonNull Instructions instructions) {
+    return new CompiledInstructions(
+        instructions.startDate,
+        copyOf(instructions.activeItems, BasicInstruction.class),
+        copyOf(instructions.yellowStampInstructions, YellowStampInstruction.class),
+        copyOf(instructions.specialInstructions, SpecialInstruction.class));
+  }
+
+  public static CompiledInstructions empty(@NonNull LocalDate startDate) {
+    return new CompiledInstructions(
+        startDate,
+        EnumSet.noneOf(BasicInstruction.class),
+        EnumSet.noneOf(YellowStampInstruction.class),
+        EnumSet.noneOf(SpecialInstruction.class));
+  }
+
+  private static <E extends Enum<E>> EnumSet<E> copyOf(Collection<E> in, Class<E> clazz) {
+    EnumSet<E> out = EnumSet.noneOf(clazz);
+    if (in != null) {
+      out.addAll(in);
+    }
+    return out;
+  }
+
+  public boolean isActive(BasicInstruction basicInstruction) {
+    return mBasicInstructions.contains(basicInstruction);
+  }
+
+  public boolean isActive(YellowStampInstruction yellowStampInstruction) {
+    return mYellowStampInstructions.contains(yellowStampInstruction);
+  }
+
+  public boolean isActive(SpecialInstruction specialInstruction) {
+    return mSpecialInstructions.contains(specialInstruction);
+  }
+
+  public boolean anyActive(Collection<BasicInstruction> basicInstructions) {
+    for (BasicInstruction i : basicInstructions) {
+      if (isActive(i)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public boolean hasYellowStampInstructions() {
+    return !mYellowStampInstructions.isEmpty();
+  }
+
+  public boolean hasSpecialInstructions() {
+    return !mSpecialInstructions.isEmpty();
+  }
+
+  @NonNull
+  @Override
+  public String toString() {
+    return startDate.toString();
+  }
+}
@@ -60,6 +60,13 @@ public class InstructionSet extends ForwardingSet<AbstractInstruction> implement
     throw new IllegalArgumentException();
   }
 
+  @Override
+  public void clear() {
+    basicInstructions.clear();
+    yellowStampInstructions.clear();
+    specialInstructions.clear();
+  }
+
   @Override
   public boolean remove(Object o) {
     if (o instanceof BasicInstruction) {
@@ -82,6 +89,10 @@ public class InstructionSet extends ForwardingSet<AbstractInstruction> implement
     this.specialInstructions.addAll(specialInstructions);
   }
 
+  public InstructionSet copyOf() {
+    return new InstructionSet(basicInstructions, yellowStampInstructions, specialInstructions);
+  }
+
   @Override
   protected Set<AbstractInstruction> delegate() {
     return delegate;
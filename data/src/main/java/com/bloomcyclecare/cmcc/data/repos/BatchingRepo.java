@@ -1,9 +1,20 @@
 package com.bloomcyclecare.cmcc.data.repos;
 
+/**
+ * Repos which can hold back their update events while a batch of writes is in progress.
+ *
+ * Batches may be nested, only the outermost {@link #completeBatchUpdates()} sends an update.
+ */
 public interface BatchingRepo {
 
+  /**
+   * @return true if this call started batch mode, false if a batch was already in progress.
+   */
   boolean beginBatchUpdates();
 
+  /**
+   * @return true if this call ended batch mode, false if still nested or not in batch mode.
+   */
   boolean completeBatchUpdates();
 
 }
@@ -7,6 +7,8 @@ import com.google.common.collect.Range;
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 
+import java.util.Collection;
+
 import androidx.core.util.Consumer;
 import io.reactivex.Completable;
 import io.reactivex.Flowable;
@@ -47,6 +49,15 @@ public interface RWCycleRepo extends ROCycleRepo {
       return new UpdateEvent(DateTime.now(), Range.closed(
           cycle.startDate, Optional.fromNullable(cycle.endDate).or(LocalDate.now())));
     }
+
+    static UpdateEvent forCycles(Collection<Cycle> cycles) {
+      Range<LocalDate> dateRange = null;
+      for (Cycle cycle : cycles) {
+        Range<LocalDate> cycleRange = forCycle(cycle).dateRange;
+        dateRange = dateRange == null ? cycleRange : dateRange.span(cycleRange);
+      }
+      return new UpdateEvent(DateTime.now(), dateRange);
+    }
   }
 
   Flowable<UpdateEvent> updateEvents();
@@ -56,4 +67,9 @@ public interface RWCycleRepo extends ROCycleRepo {
   Completable delete(Cycle cycle);
 
   Completable insertOrUpdate(Cycle cycle);
+
+  /**
+   * Writes all of the cycles in a single transaction, sending one update spanning all of them.
+   */
+  Completable insertOrUpdateAll(Collection<Cycle> cycles);
 }
@@ -6,6 +6,8 @@ import com.bloomcyclecare.cmcc.data.models.charting.Cycle;
 
 import org.joda.time.LocalDate;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import androidx.core.util.Consumer;
@@ -149,4 +151,14 @@ class RoomCycleRepo implements RWCycleRepo {
         .doOnComplete(() -> updates.onNext(RWCycleRepo.UpdateEvent.forCycle(cycle)))
         .subscribeOn(Schedulers.computation());
   }
+
+  @Override
+  public Completable insertOrUpdateAll(Collection<Cycle> cycles) {
+    if (cycles.isEmpty()) {
+      return Completable.complete();
+    }
+    return cycleDao.insertAll(new ArrayList<>(cycles))
+        .doOnComplete(() -> updates.onNext(RWCycleRepo.UpdateEvent.forCycles(cycles)))
+        .subscribeOn(Schedulers.computation());
+  }
 }
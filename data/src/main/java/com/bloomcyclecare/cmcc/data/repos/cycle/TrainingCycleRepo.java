@@ -8,6 +8,7 @@ import com.google.common.collect.ImmutableList;
 import org.joda.time.LocalDate;
 
 import java.util.ArrayDeque;
+import java.util.Collection;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
@@ -137,4 +138,10 @@ public class TrainingCycleRepo implements RWCycleRepo {
     return Completable.error(
         new UnsupportedOperationException("Updates not supported on training repo"));
   }
+
+  @Override
+  public Completable insertOrUpdateAll(Collection<Cycle> cycles) {
+    return Completable.error(
+        new UnsupportedOperationException("Updates not supported on training repo"));
+  }
 }
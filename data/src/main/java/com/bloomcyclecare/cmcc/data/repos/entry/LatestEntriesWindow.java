@@ -0,0 +1,99 @@
+package com.bloomcyclecare.cmcc.data.repos.entry;
+
+import com.bloomcyclecare.cmcc.data.models.charting.ChartEntry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
+
+import org.joda.time.LocalDate;
+
+import java.util.List;
+import java.util.TreeMap;
+
+import androidx.annotation.Nullable;
+
+/**
+ * The entries for the most recent days. Moving to a new day keeps the days which are still in
+ * view and only asks for the ones which aren't, updates only ask for the days they touched.
+ */
+class LatestEntriesWindow {
+
+  private final int mNumDays;
+  private final TreeMap<LocalDate, ChartEntry> mEntries = new TreeMap<>();
+  @Nullable private Range<LocalDate> mRange;
+
+  LatestEntriesWindow(int numDays) {
+    if (numDays < 1) {
+      throw new IllegalArgumentException("Window must include at least one day");
+    }
+    mNumDays = numDays;
+  }
+
+  /**
+   * Moves the window to end on today and returns the days which need to be loaded.
+   */
+  synchronized List<Range<LocalDate>> shiftTo(LocalDate today) {
+    Range<LocalDate> range = Range.closed(today.minusDays(mNumDays - 1), today);
+    if (range.equals(mRange)) {
+      return ImmutableList.of();
+    }
+    mRange = range;
+    mEntries.headMap(range.lowerEndpoint()).clear();
+    mEntries.tailMap(range.upperEndpoint(), false).clear();
+    if (mEntries.isEmpty()) {
+      return ImmutableList.of(range);
+    }
+    // Loads always cover whole ranges so what's left is contiguous
+    ImmutableList.Builder<Range<LocalDate>> missing = ImmutableList.builder();
+    if (mEntries.firstKey().isAfter(range.lowerEndpoint())) {
+      missing.add(Range.closed(range.lowerEndpoint(), mEntries.firstKey().minusDays(1)));
+    }
+    if (mEntries.lastKey().isBefore(range.upperEndpoint())) {
+      missing.add(Range.closed(mEntries.lastKey().plusDays(1), range.upperEndpoint()));
+    }
+    return missing.build();
+  }
+
+  /**
+   * The parts of the updated ranges which fall inside the window.
+   */
+  synchronized List<Range<LocalDate>> overlapping(List<Range<LocalDate>> updatedRanges) {
+    if (mRange == null) {
+      return ImmutableList.of();
+    }
+    ImmutableList.Builder<Range<LocalDate>> out = ImmutableList.builder();
+    for (Range<LocalDate> updatedRange : updatedRanges) {
+      if (updatedRange.isConnected(mRange)) {
+        out.add(updatedRange.intersection(mRange));
+      }
+    }
+    return out.build();
+  }
+
+  /**
+   * Every day in the window, for when the entries were changed without saying which.
+   */
+  synchronized List<Range<LocalDate>> all() {
+    return mRange == null ? ImmutableList.of() : ImmutableList.of(mRange);
+  }
+
+  /**
+   * Stores loaded entries, dropping any for days the window has since moved past.
+   */
+  synchronized void putAll(List<ChartEntry> entries) {
+    for (ChartEntry entry : entries) {
+      if (mRange != null && mRange.contains(entry.entryDate)) {
+        mEntries.put(entry.entryDate, entry);
+      }
+    }
+  }
+
+  /**
+   * The entries in date order, empty until every day in the window has been loaded.
+   */
+  synchronized List<ChartEntry> entries() {
+    if (mEntries.size() < mNumDays) {
+      return ImmutableList.of();
+    }
+    return ImmutableList.copyOf(mEntries.values());
+  }
+}
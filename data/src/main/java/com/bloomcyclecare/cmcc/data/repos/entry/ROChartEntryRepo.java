@@ -7,6 +7,7 @@ import org.joda.time.LocalDate;
 
 import java.util.List;
 
+import androidx.annotation.Nullable;
 import io.reactivex.Flowable;
 import io.reactivex.Single;
 
@@ -16,7 +17,18 @@ public interface ROChartEntryRepo {
 
   Flowable<List<ChartEntry>> getAllBetween(LocalDate start, LocalDate endInclusive);
 
+  /**
+   * The days between the two dates which have something stored, without empty entries for the
+   * rest. A null date leaves that side open.
+   */
+  Single<List<ChartEntry>> getStoredBetween(@Nullable LocalDate start, @Nullable LocalDate endInclusive);
+
   Flowable<List<ChartEntry>> getLatestN(int n);
 
+  /**
+   * Whether the date has an observation, emitted again only when that changes.
+   */
+  Flowable<Boolean> hasObservation(LocalDate date);
+
   Flowable<List<ChartEntry>> getStreamForCycle(Flowable<Cycle> cycleStream);
 }
@@ -2,10 +2,16 @@ package com.bloomcyclecare.cmcc.data.repos.entry;
 
 import com.bloomcyclecare.cmcc.data.models.charting.ChartEntry;
 import com.bloomcyclecare.cmcc.data.repos.BatchingRepo;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Range;
 
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 
+import java.util.Collection;
+import java.util.Set;
+
 import io.reactivex.Completable;
 import io.reactivex.Flowable;
 
@@ -13,22 +19,71 @@ public interface RWChartEntryRepo extends ROChartEntryRepo, BatchingRepo {
 
   class UpdateEvent {
     public final DateTime updateTime;
+    /** The latest of the updated days. */
     public final LocalDate updateTarget;
+    /** Every updated day, in order. */
+    public final ImmutableSortedSet<LocalDate> updatedDates;
+    /** The updated days coalesced into closed ranges of consecutive days. */
+    public final ImmutableList<Range<LocalDate>> dateRanges;
 
-    UpdateEvent(DateTime updateTime, LocalDate updateTarget) {
+    UpdateEvent(DateTime updateTime, ImmutableSortedSet<LocalDate> updatedDates) {
       this.updateTime = updateTime;
-      this.updateTarget = updateTarget;
+      this.updateTarget = updatedDates.last();
+      this.updatedDates = updatedDates;
+      this.dateRanges = coalesce(updatedDates);
+    }
+
+    static UpdateEvent forDates(Collection<LocalDate> dates) {
+      return new UpdateEvent(DateTime.now(), ImmutableSortedSet.copyOf(dates));
     }
 
-    static UpdateEvent forEntry(ChartEntry entry) {
-      return new UpdateEvent(DateTime.now(), entry.entryDate);
+    private static ImmutableList<Range<LocalDate>> coalesce(ImmutableSortedSet<LocalDate> dates) {
+      ImmutableList.Builder<Range<LocalDate>> ranges = ImmutableList.builder();
+      LocalDate rangeStart = null;
+      LocalDate rangeEnd = null;
+      for (LocalDate date : dates) {
+        if (rangeEnd != null && date.equals(rangeEnd.plusDays(1))) {
+          rangeEnd = date;
+          continue;
+        }
+        if (rangeStart != null) {
+          ranges.add(Range.closed(rangeStart, rangeEnd));
+        }
+        rangeStart = date;
+        rangeEnd = date;
+      }
+      if (rangeStart != null) {
+        ranges.add(Range.closed(rangeStart, rangeEnd));
+      }
+      return ranges.build();
     }
   }
 
+  /**
+   * Emits one event per write, or a single coalesced event when a batch of updates completes.
+   */
   Flowable<UpdateEvent> updateEvents();
 
+  /**
+   * The days touched by each {@link UpdateEvent}.
+   */
+  default Flowable<Set<LocalDate>> dirtyDays() {
+    return updateEvents().map(e -> e.updatedDates);
+  }
+
+  /**
+   * Emits once {@link #deleteAll()} completes, it doesn't send an {@link UpdateEvent} since it
+   * doesn't know which days it removed.
+   */
+  Flowable<Boolean> allEntriesDeleted();
+
   Completable insert(ChartEntry entry);
 
+  /**
+   * Inserts all of the entries in a single transaction, sending one update once they're written.
+   */
+  Completable insertAll(Collection<ChartEntry> entries);
+
   Completable deleteAll();
 
   Completable delete(ChartEntry entry);
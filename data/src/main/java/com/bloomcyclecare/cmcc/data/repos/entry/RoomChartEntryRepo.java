@@ -1,84 +1,118 @@
 package com.bloomcyclecare.cmcc.data.repos.entry;
 
-import android.util.Range;
-
 import com.bloomcyclecare.cmcc.data.db.AppDatabase;
 import com.bloomcyclecare.cmcc.data.db.BreastfeedingEntryDao;
+import com.bloomcyclecare.cmcc.data.db.ChartEntryDao;
 import com.bloomcyclecare.cmcc.data.db.MeasurementEntryDao;
 import com.bloomcyclecare.cmcc.data.db.ObservationEntryDao;
+import com.bloomcyclecare.cmcc.data.db.StickerSelectionEntryDao;
 import com.bloomcyclecare.cmcc.data.db.SymptomEntryDao;
 import com.bloomcyclecare.cmcc.data.db.WellnessEntryDao;
+import com.bloomcyclecare.cmcc.data.models.breastfeeding.BreastfeedingEntry;
 import com.bloomcyclecare.cmcc.data.models.charting.ChartEntry;
 import com.bloomcyclecare.cmcc.data.models.charting.Cycle;
+import com.bloomcyclecare.cmcc.data.models.measurement.MeasurementEntry;
 import com.bloomcyclecare.cmcc.data.models.observation.ObservationEntry;
+import com.bloomcyclecare.cmcc.data.models.observation.SymptomEntry;
+import com.bloomcyclecare.cmcc.data.models.observation.WellnessEntry;
+import com.bloomcyclecare.cmcc.data.models.stickering.StickerSelectionEntry;
 import com.bloomcyclecare.cmcc.data.repos.sticker.RWStickerSelectionRepo;
 import com.bloomcyclecare.cmcc.utils.DateUtil;
-import com.bloomcyclecare.cmcc.utils.RxUtil;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
 
-import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
+import androidx.annotation.Nullable;
 import androidx.core.util.Pair;
 import io.reactivex.BackpressureStrategy;
 import io.reactivex.Completable;
 import io.reactivex.Flowable;
 import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
 import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
 import timber.log.Timber;
 
 class RoomChartEntryRepo implements RWChartEntryRepo {
 
-  private final PublishSubject<RWChartEntryRepo.UpdateEvent> updates = PublishSubject.create();
+  // Serialized since batch completions and single writes can emit from different threads
+  private final Subject<RWChartEntryRepo.UpdateEvent> updates =
+      PublishSubject.<RWChartEntryRepo.UpdateEvent>create().toSerialized();
+  // deleteAll doesn't know which days it touched so it gets its own signal
+  private final Subject<Boolean> allEntriesDeleted = PublishSubject.<Boolean>create().toSerialized();
+  private final Map<Integer, Flowable<List<ChartEntry>>> latestNStreams = new HashMap<>();
   private final ObservationEntryDao observationEntryDao;
   private final WellnessEntryDao wellnessEntryDao;
   private final SymptomEntryDao symptomEntryDao;
   private final MeasurementEntryDao measurementEntryDao;
   private final BreastfeedingEntryDao breastfeedingEntryDao;
+  private final ChartEntryDao chartEntryDao;
+  private final StickerSelectionEntryDao stickerSelectionEntryDao;
   private final RWStickerSelectionRepo stickerSelectionRepo;
-  private final AtomicBoolean batchUpdate = new AtomicBoolean();
+  private final AppDatabase db;
+  private final SortedSet<LocalDate> batchDirtyDays = new TreeSet<>();
+  private int batchDepth = 0;
 
   RoomChartEntryRepo(AppDatabase db, RWStickerSelectionRepo stickerSelectionRepo) {
+    this.db = db;
     observationEntryDao = db.observationEntryDao();
     wellnessEntryDao = db.wellnessEntryDao();
     symptomEntryDao = db.symptomEntryDao();
     measurementEntryDao = db.measurementEntryDao();
     breastfeedingEntryDao = db.breastfeedingEntryDao();
+    chartEntryDao = db.chartEntryDao();
+    stickerSelectionEntryDao = db.stickerSelectionEntryDao();
 
     this.stickerSelectionRepo = stickerSelectionRepo;
   }
 
   @Override
-  public boolean beginBatchUpdates() {
-    if (!batchUpdate.compareAndSet(false, true)) {
-      Timber.w("Already in batch mode!");
-      return false;
-    }
-    return true;
+  public synchronized boolean beginBatchUpdates() {
+    return batchDepth++ == 0;
   }
 
   @Override
   public boolean completeBatchUpdates() {
-    if (!batchUpdate.compareAndSet(true, false)) {
-      Timber.w("Not in batch mode!");
-      return false;
+    UpdateEvent event;
+    synchronized (this) {
+      if (batchDepth == 0) {
+        Timber.w("Not in batch mode!");
+        return false;
+      }
+      if (--batchDepth > 0) {
+        return false;
+      }
+      if (batchDirtyDays.isEmpty()) {
+        Timber.d("Batch completed without any updates");
+        return true;
+      }
+      event = UpdateEvent.forDates(batchDirtyDays);
+      batchDirtyDays.clear();
     }
-    // TODO: something fancier
-    updates.onNext(new UpdateEvent(DateTime.now(), LocalDate.now()));
+    updates.onNext(event);
     return true;
   }
 
-  private void maybeSendUpdate(ChartEntry entry) {
-    if (batchUpdate.get()) {
-      Timber.d("Skipping update while in batch mode");
-      return;
+  private void sendOrDeferUpdate(Collection<LocalDate> dates) {
+    synchronized (this) {
+      if (batchDepth > 0) {
+        Timber.v("Deferring update while in batch mode");
+        batchDirtyDays.addAll(dates);
+        return;
+      }
     }
-    updates.onNext(UpdateEvent.forEntry(entry));
+    updates.onNext(UpdateEvent.forDates(dates));
   }
 
   @Override
@@ -86,6 +120,11 @@ class RoomChartEntryRepo implements RWChartEntryRepo {
     return updates.toFlowable(BackpressureStrategy.BUFFER);
   }
 
+  @Override
+  public Flowable<Boolean> allEntriesDeleted() {
+    return allEntriesDeleted.toFlowable(BackpressureStrategy.BUFFER);
+  }
+
   @Override
   public Single<List<ChartEntry>> getAllEntries() {
     return Single.zip(
@@ -105,26 +144,52 @@ class RoomChartEntryRepo implements RWChartEntryRepo {
         });
   }
 
+  /**
+   * Shared by every subscriber asking for the same number of days. The window moves at midnight
+   * and is patched in place as days in it are written.
+   */
   @Override
-  public Flowable<List<ChartEntry>> getLatestN(int n) {
-    return Flowable
-        .interval(0, 30, TimeUnit.SECONDS)
-        .switchMap(i -> DateUtil
-            .nowStream()
-            .map(now -> DateUtil.daysBetween(now.minusDays(n - 1), now, false)))
+  public synchronized Flowable<List<ChartEntry>> getLatestN(int n) {
+    if (n < 1) {
+      return Flowable.just(ImmutableList.of());
+    }
+    return latestNStreams.computeIfAbsent(n, numDays -> Flowable
+        .defer(() -> {
+          LatestEntriesWindow window = new LatestEntriesWindow(numDays);
+          return Flowable.merge(
+              DateUtil.nowStream().map(window::shiftTo),
+              updateEvents().map(event -> window.overlapping(event.dateRanges)),
+              stickerSelectionRepo.updateStream()
+                  .toFlowable(BackpressureStrategy.BUFFER)
+                  .map(event -> event.date() == null
+                      ? window.all()
+                      : window.overlapping(ImmutableList.of(Range.closed(event.date(), event.lastDate())))),
+              allEntriesDeleted().map(deleted -> window.all()))
+              .filter(ranges -> !ranges.isEmpty())
+              .concatMapSingle(ranges -> Flowable.fromIterable(ranges)
+                  .concatMapSingle(range -> chartEntryDao
+                      .getStream(range.lowerEndpoint(), range.upperEndpoint())
+                      .firstOrError())
+                  .doOnNext(window::putAll)
+                  .ignoreElements()
+                  .toSingle(window::entries));
+        })
+        .filter(entries -> !entries.isEmpty())
         .distinctUntilChanged()
-        .switchMap(this::entriesForDates);
+        .replay(1)
+        .refCount());
   }
 
-  private Flowable<List<ChartEntry>> entriesForDates(List<LocalDate> dates) {
-    return Flowable.merge(Flowable
-        .fromIterable(dates)
-        .parallel()
-        .map(this::getStream)
-        .sequential()
-        .toList()
-        .toFlowable()
-        .map(RxUtil::combineLatest));
+  @Override
+  public Flowable<Boolean> hasObservation(LocalDate date) {
+    // Re-checked only when the date is written instead of watching the whole table
+    return updateEvents()
+        .filter(event -> event.updatedDates.contains(date))
+        .map(event -> date)
+        .mergeWith(allEntriesDeleted().map(deleted -> date))
+        .startWith(date)
+        .switchMapSingle(d -> observationEntryDao.hasObservation(d).subscribeOn(Schedulers.io()))
+        .distinctUntilChanged();
   }
 
   @Override
@@ -139,26 +204,13 @@ class RoomChartEntryRepo implements RWChartEntryRepo {
 
   @Override
   public Flowable<List<ChartEntry>> getAllBetween(LocalDate start, LocalDate endInclusive) {
-    return Flowable.combineLatest(
-        observationEntryDao.getIndexedStream(start, endInclusive)
-            .doOnNext(n -> Timber.v("Got new observation stream for cycle starting %s", start)),
-        wellnessEntryDao.getIndexedStream(start, endInclusive)
-            .doOnNext(n -> Timber.v("Got new wellness stream for cycle starting %s", start)),
-        symptomEntryDao.getIndexedStream(start, endInclusive)
-            .doOnNext(n -> Timber.v("Got new symptom stream for cycle starting %s", start)),
-        measurementEntryDao.getIndexedStream(start, endInclusive)
-            .doOnNext(n -> Timber.v("Got new measurement stream for cycle starting %s", start)),
-        breastfeedingEntryDao.getIndexedStream(start, endInclusive)
-            .doOnNext(n -> Timber.v("Got new breastfeeding stream for cycle starting %s", start)),
-        stickerSelectionRepo.getSelections(Range.create(start, endInclusive))
-            .doOnNext(n -> Timber.v("Got new selections for cycle starting %s", start)),
-        (observationStream, wellnessStream, symptomStream, measurementStream, breastfeedingStream, stickerSelections) -> {
-          List<ChartEntry> out = new ArrayList<>();
-          for (LocalDate d : DateUtil.daysBetween(start, endInclusive, false)) {
-            out.add(new ChartEntry(d, observationStream.get(d), wellnessStream.get(d), symptomStream.get(d), measurementStream.get(d), breastfeedingStream.get(d), stickerSelections.get(d)));
-          }
-          return out;
-        });
+    return chartEntryDao.getStream(start, endInclusive)
+        .doOnNext(n -> Timber.v("Got new entries for cycle starting %s", start));
+  }
+
+  @Override
+  public Single<List<ChartEntry>> getStoredBetween(@Nullable LocalDate start, @Nullable LocalDate endInclusive) {
+    return chartEntryDao.getStored(start, endInclusive);
   }
 
   @Override
@@ -170,7 +222,71 @@ class RoomChartEntryRepo implements RWChartEntryRepo {
         measurementEntryDao.insertNullable(entry.measurementEntry),
         breastfeedingEntryDao.insertNullable(entry.breastfeedingEntry),
         symptomEntryDao.insertNullable(entry.symptomEntry))
-        .doOnComplete(() -> maybeSendUpdate(entry));
+        .doOnComplete(() -> sendOrDeferUpdate(Collections.singleton(entry.entryDate)));
+  }
+
+  @Override
+  public Completable insertAll(Collection<ChartEntry> entries) {
+    if (entries.isEmpty()) {
+      return Completable.complete();
+    }
+    List<LocalDate> dates = datesOf(entries);
+    LocalDate firstDate = Collections.min(dates);
+    LocalDate lastDate = Collections.max(dates);
+    return Completable
+        .fromAction(() -> db.runInTransaction(() -> writeAll(entries, firstDate, lastDate)))
+        // Room only notifies observers once the transaction ends, this holds back our own updates
+        .doOnSubscribe(d -> beginBatchUpdates())
+        .doOnComplete(() -> sendOrDeferUpdate(dates))
+        .doOnComplete(() -> stickerSelectionRepo.notifySelectionsWritten(firstDate, lastDate))
+        .doFinally(this::completeBatchUpdates)
+        .doOnComplete(() -> Timber.d("Inserted %d entries", entries.size()))
+        .subscribeOn(Schedulers.io());
+  }
+
+  private void writeAll(Collection<ChartEntry> entries, LocalDate firstDate, LocalDate lastDate) {
+    List<ObservationEntry> observationEntries = new ArrayList<>(entries.size());
+    List<WellnessEntry> wellnessEntries = new ArrayList<>(entries.size());
+    List<SymptomEntry> symptomEntries = new ArrayList<>(entries.size());
+    List<MeasurementEntry> measurementEntries = new ArrayList<>(entries.size());
+    List<BreastfeedingEntry> breastfeedingEntries = new ArrayList<>(entries.size());
+    List<StickerSelectionEntry> stickerSelectionEntries = new ArrayList<>(entries.size());
+    // Same as RoomStickerSelectionRepo.recordSelection, keep the existing rows' metadata
+    Map<LocalDate, StickerSelectionEntry> existingSelections = new HashMap<>();
+    for (StickerSelectionEntry existing : stickerSelectionEntryDao.getAllBetween(firstDate, lastDate)) {
+      existingSelections.put(existing.getDate(), existing);
+    }
+    for (ChartEntry entry : entries) {
+      addIfPresent(observationEntries, entry.observationEntry);
+      addIfPresent(wellnessEntries, entry.wellnessEntry);
+      addIfPresent(symptomEntries, entry.symptomEntry);
+      addIfPresent(measurementEntries, entry.measurementEntry);
+      addIfPresent(breastfeedingEntries, entry.breastfeedingEntry);
+      StickerSelectionEntry existing = existingSelections.get(entry.entryDate);
+      stickerSelectionEntries.add(new StickerSelectionEntry(
+          existing != null ? existing : StickerSelectionEntry.emptyEntry(entry.entryDate),
+          entry.stickerSelection));
+    }
+    observationEntryDao.insertAll(observationEntries);
+    wellnessEntryDao.insertAll(wellnessEntries);
+    symptomEntryDao.insertAll(symptomEntries);
+    measurementEntryDao.insertAll(measurementEntries);
+    breastfeedingEntryDao.insertAll(breastfeedingEntries);
+    stickerSelectionEntryDao.insertAll(stickerSelectionEntries);
+  }
+
+  private static List<LocalDate> datesOf(Collection<ChartEntry> entries) {
+    List<LocalDate> dates = new ArrayList<>(entries.size());
+    for (ChartEntry entry : entries) {
+      dates.add(entry.entryDate);
+    }
+    return dates;
+  }
+
+  private static <E> void addIfPresent(List<E> out, @Nullable E entry) {
+    if (entry != null) {
+      out.add(entry);
+    }
   }
 
   @Override
@@ -183,7 +299,8 @@ class RoomChartEntryRepo implements RWChartEntryRepo {
         breastfeedingEntryDao.deleteAll(),
         symptomEntryDao.deleteAll())
         .doOnSubscribe(s -> Timber.i("Deleting all entries"))
-        .doOnComplete(() -> Timber.i("Done deleting all entries"));
+        .doOnComplete(() -> Timber.i("Done deleting all entries"))
+        .doOnComplete(() -> allEntriesDeleted.onNext(true));
   }
 
   @Override
@@ -195,19 +312,6 @@ class RoomChartEntryRepo implements RWChartEntryRepo {
         measurementEntryDao.delete(entry.measurementEntry),
         breastfeedingEntryDao.delete(entry.breastfeedingEntry),
         symptomEntryDao.delete(entry.symptomEntry))
-        .doOnComplete(() -> maybeSendUpdate(entry));
-  }
-
-  private Flowable<ChartEntry> getStream(LocalDate entryDate) {
-    return Flowable
-        .combineLatest(
-            Flowable.just(entryDate),
-            observationEntryDao.getStream(entryDate),
-            wellnessEntryDao.getStream(entryDate),
-            symptomEntryDao.getStream(entryDate),
-            measurementEntryDao.getStream(entryDate),
-            breastfeedingEntryDao.getStream(entryDate),
-            stickerSelectionRepo.getSelectionStream(entryDate),
-            (d, o, w, s, m, b, ss) -> new ChartEntry(d, o, w, s, m, b, ss.orElse(null)));
+        .doOnComplete(() -> sendOrDeferUpdate(Collections.singleton(entry.entryDate)));
   }
 }
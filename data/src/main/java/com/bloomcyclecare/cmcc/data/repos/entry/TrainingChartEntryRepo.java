@@ -18,6 +18,7 @@ import com.google.common.collect.ImmutableList;
 import org.joda.time.LocalDate;
 
 import java.util.ArrayDeque;
+import java.util.Collection;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
@@ -27,6 +28,7 @@ import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.function.Function;
 
+import androidx.annotation.Nullable;
 import io.reactivex.BackpressureStrategy;
 import io.reactivex.Completable;
 import io.reactivex.Flowable;
@@ -94,6 +96,14 @@ public class TrainingChartEntryRepo implements RWChartEntryRepo {
     }).toFlowable(BackpressureStrategy.BUFFER);
   }
 
+  @Override
+  public Flowable<Boolean> hasObservation(LocalDate date) {
+    return mEntriesSubject.map(entries -> {
+      ChartEntry entry = entries.get(date);
+      return entry != null && entry.observationEntry.observation != null;
+    }).toFlowable(BackpressureStrategy.BUFFER).distinctUntilChanged();
+  }
+
   private static <T> List<T> valuesAsList(Map<?, T> m) {
     List<T> l = ImmutableList.copyOf(m.values());
     return l;
@@ -109,6 +119,23 @@ public class TrainingChartEntryRepo implements RWChartEntryRepo {
         });
   }
 
+  @Override
+  public Single<List<ChartEntry>> getStoredBetween(@Nullable LocalDate start, @Nullable LocalDate endInclusive) {
+    return mEntriesSubject
+        .map(entries -> {
+          SortedMap<LocalDate, ChartEntry> m = entries;
+          if (start != null) {
+            m = m.tailMap(start);
+          }
+          if (endInclusive != null) {
+            m = m.headMap(endInclusive.plusDays(1));
+          }
+          List<ChartEntry> l = ImmutableList.copyOf(m.values());
+          return l;
+        })
+        .firstOrError();
+  }
+
   @Override
   public Flowable<List<ChartEntry>> getStreamForCycle(Flowable<Cycle> cycleStream) {
     return Flowable.combineLatest(
@@ -129,12 +156,23 @@ public class TrainingChartEntryRepo implements RWChartEntryRepo {
         .doOnSubscribe(s -> Timber.w("No updates will be provided from training repo"));
   }
 
+  @Override
+  public Flowable<Boolean> allEntriesDeleted() {
+    return Flowable.empty();
+  }
+
   @Override
   public Completable insert(ChartEntry entry) {
     return Completable.error(
         new UnsupportedOperationException("Updates not supported on training repo"));
   }
 
+  @Override
+  public Completable insertAll(Collection<ChartEntry> entries) {
+    return Completable.error(
+        new UnsupportedOperationException("Updates not supported on training repo"));
+  }
+
   @Override
   public Completable deleteAll() {
     return Completable.error(
@@ -20,10 +20,16 @@ public interface ROStickerSelectionRepo {
   @AutoValue
   abstract class UpdateEvent {
     @Nullable public abstract LocalDate date();
+    // Same as date() unless several days were written at once
+    @Nullable public abstract LocalDate lastDate();
     @Nullable public abstract StickerSelection selection();
 
     static UpdateEvent create(@Nullable LocalDate date, @Nullable StickerSelection selection) {
-      return new AutoValue_ROStickerSelectionRepo_UpdateEvent(date, selection);
+      return new AutoValue_ROStickerSelectionRepo_UpdateEvent(date, date, selection);
+    }
+
+    static UpdateEvent forRange(LocalDate firstDate, LocalDate lastDate) {
+      return new AutoValue_ROStickerSelectionRepo_UpdateEvent(firstDate, lastDate, null);
     }
   }
 
@@ -13,4 +13,10 @@ public interface RWStickerSelectionRepo extends ROStickerSelectionRepo {
   Completable deleteAll();
 
   Completable delete(LocalDate date);
+
+  /**
+   * Lets subscribers of {@link #updateStream()} know the selections between the dates were written
+   * without going through this repo, e.g. by a bulk insert of chart entries.
+   */
+  void notifySelectionsWritten(LocalDate firstDate, LocalDate lastDate);
 }
@@ -24,7 +24,8 @@ import io.reactivex.subjects.Subject;
 
 public class RoomStickerSelectionRepo implements RWStickerSelectionRepo {
 
-  private final Subject<UpdateEvent> mUpdateSubject = PublishSubject.create();
+  // Serialized since bulk writes are announced from a different thread than single ones
+  private final Subject<UpdateEvent> mUpdateSubject = PublishSubject.<UpdateEvent>create().toSerialized();
   private final StickerSelectionEntryDao mStickerSelectionDao;
 
   RoomStickerSelectionRepo(@NonNull AppDatabase db) {
@@ -53,6 +54,11 @@ public class RoomStickerSelectionRepo implements RWStickerSelectionRepo {
         .subscribeOn(Schedulers.computation());
   }
 
+  @Override
+  public void notifySelectionsWritten(LocalDate firstDate, LocalDate lastDate) {
+    mUpdateSubject.onNext(UpdateEvent.forRange(firstDate, lastDate));
+  }
+
   @Override
   public Observable<UpdateEvent> updateStream() {
     return mUpdateSubject.hide();
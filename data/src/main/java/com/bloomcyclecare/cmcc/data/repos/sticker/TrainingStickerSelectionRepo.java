@@ -58,6 +58,11 @@ class TrainingStickerSelectionRepo implements RWStickerSelectionRepo {
     });
   }
 
+  @Override
+  public void notifySelectionsWritten(LocalDate firstDate, LocalDate lastDate) {
+    mUpdateSubject.onNext(UpdateEvent.forRange(firstDate, lastDate));
+  }
+
   @Override
   public Flowable<Map<LocalDate, StickerSelection>> getSelections(Range<LocalDate> dateRange) {
     return mUpdateSubject
@@ -2,15 +2,14 @@ package com.bloomcyclecare.cmcc.data.utils;
 
 import com.bloomcyclecare.cmcc.data.db.GenericDao;
 import com.google.common.base.Function;
-import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 import io.reactivex.BackpressureStrategy;
 import io.reactivex.Completable;
@@ -20,38 +19,35 @@ import io.reactivex.Single;
 import io.reactivex.subjects.BehaviorSubject;
 import timber.log.Timber;
 
+/**
+ * Holds pending changes to a table until they're committed. Values are kept in a copy-on-write
+ * map sorted by primary key so streams never need to sort and lookups don't scan. Changed keys
+ * are logged so checking for and committing changes only looks at what was touched.
+ */
 public class TempStore<T, P extends Comparable<? super P>> {
 
   private final Function<T, P> mPrimaryKeyExtractor;
   // NOTE: these specifically do not have a default to prevent race where you ask for the stream
   // before it has been initialized from stored values.
-  private final BehaviorSubject<List<T>> mUpdatedValues = BehaviorSubject.create();
-  private final BehaviorSubject<List<T>> mStoredValues = BehaviorSubject.create();
+  private final BehaviorSubject<ImmutableSortedMap<P, T>> mUpdatedValues = BehaviorSubject.create();
+  private final BehaviorSubject<ImmutableSortedMap<P, T>> mStoredValues = BehaviorSubject.create();
+  // Keys changed since the last commit or clear, guarded by this
+  private final Set<P> mChangedKeys = new HashSet<>();
 
   public TempStore(Observable<List<T>> remoteValues, Function<T, P> primaryKeyExtractor) {
     mPrimaryKeyExtractor = primaryKeyExtractor;
-    remoteValues.subscribe(mStoredValues);
+    remoteValues.map(this::index).subscribe(mStoredValues);
     mStoredValues.firstOrError().subscribe(mUpdatedValues::onNext, t -> Timber.e(t));
   }
 
   public Flowable<List<T>> getStream() {
-    return mUpdatedValues.toFlowable(BackpressureStrategy.BUFFER).map(entries -> {
-      List<T> out = new ArrayList<>(entries);
-      Collections.sort(out, (a, b) -> mPrimaryKeyExtractor.apply(a).compareTo(mPrimaryKeyExtractor.apply(b)));
-      return ImmutableList.copyOf(out);
-    });
+    return mUpdatedValues.toFlowable(BackpressureStrategy.BUFFER).map(values -> values.values().asList());
   }
 
   public Flowable<T> get(P primaryKey) {
-    return getStream()
-        .switchMap(values -> {
-          for (T value : values) {
-            if (mPrimaryKeyExtractor.apply(value).equals(primaryKey)) {
-              return Flowable.just(value);
-            }
-          }
-          return Flowable.empty();
-        })
+    return mUpdatedValues.toFlowable(BackpressureStrategy.BUFFER)
+        .filter(values -> values.containsKey(primaryKey))
+        .map(values -> values.get(primaryKey))
         .distinctUntilChanged()
         .doOnNext(t -> Timber.v("New value for %s", primaryKey))
         .doOnSubscribe(s -> Timber.v("Subscribe for %s", primaryKey))
@@ -61,150 +57,132 @@ public class TempStore<T, P extends Comparable<? super P>> {
 
   public Completable insert(T value) {
     P primaryKey = mPrimaryKeyExtractor.apply(value);
-    return mUpdatedValues
-        .firstOrError()
-        .map(updatedValues -> {
-          ImmutableList.Builder<T> out = new ImmutableList.Builder<>();
-          for (T t : updatedValues) {
-            if (primaryKey.equals(mPrimaryKeyExtractor.apply(t))) {
-              throw new IllegalArgumentException(String.format("Value already exists for %s", primaryKey));
-            }
-            out.add(t);
-          }
-          out.add(value);
-          return out.build();
-        })
-        .flatMapCompletable(out -> {
-          mUpdatedValues.onNext(out);
-          return Completable.complete();
-        });
+    return update(values -> {
+      if (values.containsKey(primaryKey)) {
+        throw new IllegalArgumentException(String.format("Value already exists for %s", primaryKey));
+      }
+      values.put(primaryKey, value);
+      return primaryKey;
+    });
   }
 
   public Completable updateOrInsert(T value) {
     P primaryKey = mPrimaryKeyExtractor.apply(value);
-    return mUpdatedValues
-        .firstOrError()
-        .map(updatedValues -> {
-          ImmutableList.Builder<T> out = new ImmutableList.Builder<>();
-          for (T t : updatedValues) {
-            if (primaryKey.equals(mPrimaryKeyExtractor.apply(t))) {
-              continue;
-            }
-            out.add(t);
-          }
-          out.add(value);
-          return out.build();
-        })
-        .flatMapCompletable(out -> {
-          mUpdatedValues.onNext(out);
-          return Completable.complete();
-        });
+    return update(values -> {
+      values.put(primaryKey, value);
+      return primaryKey;
+    });
   }
 
   public Single<Boolean> isDirty() {
-    return Single.zip(
-        mStoredValues.firstOrError(),
-        mUpdatedValues.firstOrError(),
-        (storedValues, updatedValues) -> {
-          Set<T> tmp = new HashSet<>(updatedValues);
-          Map<P, T> index = new HashMap<>();
-          for (T updatedValue : tmp) {
-            index.put(mPrimaryKeyExtractor.apply(updatedValue), updatedValue);
-          }
-          for (T storedValue : storedValues) {
-            P primaryKey = mPrimaryKeyExtractor.apply(storedValue);
-            if (!index.containsKey(primaryKey)) {
-              // storedValue was removed
-              return true;
-            }
-            if (!storedValue.equals(index.get(primaryKey))) {
-              // storedValue was changed
-              return true;
-            }
-            tmp.remove(index.get(primaryKey));
-            index.remove(primaryKey);
-          }
-          if (!tmp.isEmpty()) {
-            // a new value was added
-            return true;
-          }
-          return false;
-        });
+    return mStoredValues.firstOrError().map(storedValues -> !changes(storedValues).isEmpty());
   }
 
   public Completable clearPending() {
     return mStoredValues
         .firstOrError()
-        .flatMapCompletable(storedValues -> {
-          mUpdatedValues.onNext(storedValues);
-          return Completable.complete();
-        });
+        .flatMapCompletable(storedValues -> Completable.fromAction(() -> {
+          synchronized (this) {
+            mChangedKeys.clear();
+            mUpdatedValues.onNext(storedValues);
+          }
+        }));
   }
 
   public Completable delete(T value) {
     P primaryKey = mPrimaryKeyExtractor.apply(value);
-    return mUpdatedValues
-        .firstOrError()
-        .map(updatedValues -> {
-          ImmutableList.Builder<T> out = new ImmutableList.Builder<>();
-          for (T t : updatedValues) {
-            if (!primaryKey.equals(mPrimaryKeyExtractor.apply(t))) {
-              out.add(t);
-            }
-          }
-          return out.build();
-        })
-        .flatMapCompletable(out -> {
-          mUpdatedValues.onNext(out);
-          return Completable.complete();
-        });
+    return update(values -> {
+      values.remove(primaryKey);
+      return primaryKey;
+    });
   }
 
   public Completable deleteAll() {
-    return Completable.defer(() -> {
-      mUpdatedValues.onNext(ImmutableList.of());
-      return Completable.complete();
+    return update(values -> {
+      mChangedKeys.addAll(values.keySet());
+      values.clear();
+      return null;
     });
   }
 
+  /**
+   * Writes the net changes since the last commit to the dao in one batch.
+   */
   public Completable commit(GenericDao<T> dao) {
-    return isDirty().flatMapCompletable(isDirty -> {
-      if (!isDirty) {
+    return mStoredValues.firstOrError().flatMapCompletable(storedValues -> {
+      Changes<P, T> changes = changes(storedValues);
+      if (changes.isEmpty()) {
         return Completable.complete();
       }
-      return Single.zip(
-          mUpdatedValues.firstOrError(),
-          dao.getAll(),
-          (updatedValues, storedValues) -> {
-            Map<P, T> index = new HashMap<>();
-            for (T updatedValue : updatedValues) {
-              index.put(mPrimaryKeyExtractor.apply(updatedValue), updatedValue);
-            }
-            Set<Completable> actions = new HashSet<>();
-            for (T storedValue : storedValues) {
-              P primaryKey = mPrimaryKeyExtractor.apply(storedValue);
-              if (!index.containsKey(primaryKey)) {
-                Timber.v("Deleting %s", primaryKey);
-                // storedValue was removed
-                actions.add(dao.delete(storedValue));
-                continue;
-              }
-              if (!storedValue.equals(index.get(primaryKey))) {
-                Timber.v("Updating %s", primaryKey);
-                // storedValue was changed
-                actions.add(dao.insert(storedValue));
-                continue;
-              }
-              Timber.v("Nothing needed for %s", primaryKey);
-              index.remove(primaryKey);
-            }
-            if (!index.isEmpty()) {
-              Timber.v("Inserting %d", index.size());
-              actions.add(dao.insert(index.values()));
-            }
-            return actions;
-          })
-          .flatMapCompletable(Completable::merge);
+      Timber.v("Committing %d upserts and %d deletes", changes.upserts.size(), changes.deletes.size());
+      return dao.applyChanges(changes.upserts.values(), changes.deletes.values())
+          .doOnComplete(() -> onCommitted(changes));
     });
   }
+
+  private Completable update(Function<TreeMap<P, T>, P> updateFn) {
+    return mUpdatedValues
+        .firstOrError()
+        .flatMapCompletable(ignored -> Completable.fromAction(() -> {
+          synchronized (this) {
+            TreeMap<P, T> values = new TreeMap<>(mUpdatedValues.getValue());
+            P changedKey = updateFn.apply(values);
+            if (changedKey != null) {
+              mChangedKeys.add(changedKey);
+            }
+            mUpdatedValues.onNext(ImmutableSortedMap.copyOfSorted(values));
+          }
+        }));
+  }
+
+  private synchronized Changes<P, T> changes(ImmutableSortedMap<P, T> storedValues) {
+    ImmutableSortedMap<P, T> updatedValues = mUpdatedValues.getValue();
+    Changes<P, T> changes = new Changes<>();
+    for (P primaryKey : mChangedKeys) {
+      T storedValue = storedValues.get(primaryKey);
+      T updatedValue = updatedValues == null ? null : updatedValues.get(primaryKey);
+      if (updatedValue == null) {
+        if (storedValue != null) {
+          changes.deletes.put(primaryKey, storedValue);
+        }
+      } else if (!updatedValue.equals(storedValue)) {
+        changes.upserts.put(primaryKey, updatedValue);
+      }
+    }
+    return changes;
+  }
+
+  /**
+   * Forgets the committed keys, unless they were changed again while the commit was running.
+   */
+  private synchronized void onCommitted(Changes<P, T> changes) {
+    ImmutableSortedMap<P, T> updatedValues = mUpdatedValues.getValue();
+    for (Map.Entry<P, T> upsert : changes.upserts.entrySet()) {
+      if (upsert.getValue().equals(updatedValues.get(upsert.getKey()))) {
+        mChangedKeys.remove(upsert.getKey());
+      }
+    }
+    for (P primaryKey : changes.deletes.keySet()) {
+      if (!updatedValues.containsKey(primaryKey)) {
+        mChangedKeys.remove(primaryKey);
+      }
+    }
+  }
+
+  private ImmutableSortedMap<P, T> index(List<T> values) {
+    ImmutableSortedMap.Builder<P, T> builder = ImmutableSortedMap.naturalOrder();
+    for (T value : values) {
+      builder.put(mPrimaryKeyExtractor.apply(value), value);
+    }
+    return builder.build();
+  }
+
+  private static class Changes<P, T> {
+    final Map<P, T> upserts = new HashMap<>();
+    final Map<P, T> deletes = new HashMap<>();
+
+    boolean isEmpty() {
+      return upserts.isEmpty() && deletes.isEmpty();
+    }
+  }
 }
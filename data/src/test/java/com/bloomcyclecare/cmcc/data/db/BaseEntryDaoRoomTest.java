@@ -0,0 +1,134 @@
+package com.bloomcyclecare.cmcc.data.db;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import com.bloomcyclecare.cmcc.data.models.observation.ObservationEntry;
+import com.bloomcyclecare.cmcc.utils.DateUtil;
+
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.test.core.app.ApplicationProvider;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+/**
+ * Runs the bound argument queries of BaseEntryDao against a real database and checks they find
+ * the same rows as the inlined date literals it used to build, and that they keep searching the
+ * primary key as the table grows.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class BaseEntryDaoRoomTest {
+
+  private static final LocalDate FIRST_DATE = new LocalDate(2020, 1, 1);
+  private static final int NUM_DAYS = 30;
+  // Roughly ten years of entries, enough that a full table scan would show up in the query plan
+  private static final int NUM_DAYS_LARGE = 3650;
+
+  private AppDatabase mDb;
+  private ObservationEntryDao mDao;
+
+  @Before
+  public void setUp() {
+    Context context = ApplicationProvider.getApplicationContext();
+    mDb = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+        .allowMainThreadQueries()
+        .build();
+    mDao = mDb.observationEntryDao();
+    for (int i = 0; i < NUM_DAYS; i++) {
+      mDao.insert(ObservationEntry.emptyEntry(FIRST_DATE.plusDays(i))).blockingAwait();
+    }
+  }
+
+  @After
+  public void tearDown() {
+    mDb.close();
+  }
+
+  @Test
+  public void testGet_matchesLiteralQuery() {
+    for (int i = 0; i < NUM_DAYS; i++) {
+      LocalDate entryDate = FIRST_DATE.plusDays(i);
+      assertWithMessage(entryDate.toString())
+          .that(mDao.get(entryDate).blockingGet().getDate())
+          .isEqualTo(literalQuery(entryDate).getDate());
+    }
+  }
+
+  @Test
+  public void testGet_missingDate() {
+    LocalDate missingDate = FIRST_DATE.plusDays(NUM_DAYS);
+
+    mDao.get(missingDate).test().assertNoValues().assertComplete();
+    assertThat(literalQuery(missingDate)).isNull();
+  }
+
+  @Test
+  public void testGetIndexedStream() {
+    LocalDate lastDate = FIRST_DATE.plusDays(NUM_DAYS + 4);
+
+    Map<LocalDate, ObservationEntry> entries =
+        mDao.getIndexedStream(FIRST_DATE.plusDays(5), lastDate).blockingFirst();
+
+    assertThat(entries).hasSize(NUM_DAYS);
+    for (LocalDate d = FIRST_DATE.plusDays(5); !d.isAfter(lastDate); d = d.plusDays(1)) {
+      assertWithMessage(d.toString()).that(entries.get(d).getDate()).isEqualTo(d);
+    }
+    assertThat(mDao.getAllEntries().blockingGet()).hasSize(NUM_DAYS);
+  }
+
+  @Test
+  public void testQueriesSearchPrimaryKey_manyRows() {
+    List<ObservationEntry> entries = new ArrayList<>(NUM_DAYS_LARGE);
+    for (int i = NUM_DAYS; i < NUM_DAYS_LARGE; i++) {
+      entries.add(ObservationEntry.emptyEntry(FIRST_DATE.plusDays(i)));
+    }
+    mDb.runInTransaction(() -> mDao.insertAll(entries));
+    LocalDate lastDate = FIRST_DATE.plusDays(NUM_DAYS_LARGE - 1);
+
+    // Lookups stay logarithmic in the number of rows as long as SQLite searches the entryDate
+    // primary key instead of scanning the table
+    assertThat(queryPlan(mDao.queryForDate(lastDate), DateUtil.toWireStr(lastDate)))
+        .doesNotContain("SCAN");
+    assertThat(queryPlan(
+        mDao.queryForRange(lastDate.minusDays(NUM_DAYS), lastDate),
+        DateUtil.toWireStr(lastDate.minusDays(NUM_DAYS)), DateUtil.toWireStr(lastDate)))
+        .doesNotContain("SCAN");
+
+    assertThat(mDao.get(lastDate).blockingGet().getDate()).isEqualTo(lastDate);
+    assertThat(mDao.getIndexedStream(lastDate.minusDays(NUM_DAYS - 1), lastDate).blockingFirst())
+        .hasSize(NUM_DAYS);
+  }
+
+  private String queryPlan(SimpleSQLiteQuery query, Object... args) {
+    StringBuilder plan = new StringBuilder();
+    try (Cursor cursor = mDb.query(new SimpleSQLiteQuery("EXPLAIN QUERY PLAN " + query.getSql(), args))) {
+      int detailIndex = cursor.getColumnIndexOrThrow("detail");
+      while (cursor.moveToNext()) {
+        plan.append(cursor.getString(detailIndex)).append('\n');
+      }
+    }
+    assertWithMessage(query.getSql()).that(plan.toString()).contains("SEARCH");
+    return plan.toString();
+  }
+
+  private ObservationEntry literalQuery(LocalDate entryDate) {
+    return mDao.doMaybeT(new SimpleSQLiteQuery(String.format(
+        "SELECT * FROM ObservationEntry WHERE entryDate = '%s'",
+        DateUtil.toWireStr(entryDate)))).blockingGet();
+  }
+}
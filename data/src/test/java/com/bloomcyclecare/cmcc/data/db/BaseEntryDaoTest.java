@@ -9,6 +9,7 @@ import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import io.reactivex.Completable;
@@ -30,6 +31,7 @@ public class BaseEntryDaoTest {
   private static abstract class StubEntryDao<E extends Entry> extends BaseEntryDao<E> {
 
     private final E e;
+    final List<SupportSQLiteQuery> queries = new ArrayList<>();
 
     StubEntryDao(Class<E> clazz, Function<LocalDate, E> emptyEntryFn) {
       super(clazz, emptyEntryFn);
@@ -58,6 +60,7 @@ public class BaseEntryDaoTest {
 
     @Override
     protected Maybe<E> doMaybeT(SupportSQLiteQuery query) {
+      queries.add(query);
       return Maybe.just(e);
     }
 
@@ -68,6 +71,7 @@ public class BaseEntryDaoTest {
 
     @Override
     protected Flowable<List<E>> doFlowableList(SupportSQLiteQuery query) {
+      queries.add(query);
       return Flowable.just(List.of(e));
     }
   }
@@ -129,4 +133,28 @@ public class BaseEntryDaoTest {
     entry.mTimesUpdated = 0;
     testEntryDao.update(entry).test().assertError(t -> t instanceof IllegalArgumentException);
   }
+
+  @Test
+  public void testGet_bindsDate() {
+    testEntryDao.get(new LocalDate(2020, 1, 1)).test().assertComplete();
+    testEntryDao.get(new LocalDate(2020, 1, 2)).test().assertComplete();
+
+    assertThat(testEntryDao.queries).hasSize(2);
+    SupportSQLiteQuery first = testEntryDao.queries.get(0);
+    assertThat(first.getSql()).isEqualTo(testEntryDao.queries.get(1).getSql());
+    assertThat(first.getSql()).doesNotContain("2020");
+    assertThat(first.getArgCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testGetIndexedStream_bindsDates() {
+    testEntryDao.getIndexedStream(new LocalDate(2020, 1, 1), new LocalDate(2020, 1, 31)).test();
+    testEntryDao.getIndexedStream(new LocalDate(2020, 2, 1), new LocalDate(2020, 2, 29)).test();
+
+    assertThat(testEntryDao.queries).hasSize(2);
+    SupportSQLiteQuery first = testEntryDao.queries.get(0);
+    assertThat(first.getSql()).isEqualTo(testEntryDao.queries.get(1).getSql());
+    assertThat(first.getSql()).doesNotContain("2020");
+    assertThat(first.getArgCount()).isEqualTo(2);
+  }
 }
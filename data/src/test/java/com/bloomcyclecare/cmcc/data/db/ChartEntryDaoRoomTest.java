@@ -0,0 +1,114 @@
+package com.bloomcyclecare.cmcc.data.db;
+
+import android.content.Context;
+
+import com.bloomcyclecare.cmcc.data.models.charting.ChartEntry;
+import com.bloomcyclecare.cmcc.data.models.measurement.MeasurementEntry;
+import com.bloomcyclecare.cmcc.data.models.observation.ObservationEntry;
+import com.bloomcyclecare.cmcc.data.models.stickering.Sticker;
+import com.bloomcyclecare.cmcc.data.models.stickering.StickerSelection;
+import com.bloomcyclecare.cmcc.data.models.stickering.StickerSelectionEntry;
+
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import io.reactivex.subscribers.TestSubscriber;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Runs the UNION and LEFT JOIN query behind ChartEntryDao against a real database.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ChartEntryDaoRoomTest {
+
+  private static final LocalDate FIRST_DATE = new LocalDate(2020, 1, 1);
+  private static final StickerSelection SELECTION = StickerSelection.create(Sticker.GREEN, null);
+
+  private AppDatabase mDb;
+  private ChartEntryDao mDao;
+
+  @Before
+  public void setUp() {
+    Context context = ApplicationProvider.getApplicationContext();
+    mDb = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+        .allowMainThreadQueries()
+        .build();
+    mDao = mDb.chartEntryDao();
+
+    ObservationEntry peakDay = ObservationEntry.emptyEntry(FIRST_DATE.plusDays(1));
+    peakDay.peakDay = true;
+    mDb.observationEntryDao().insert(peakDay).blockingAwait();
+    // Two tables with data on the same day should still give one entry
+    mDb.stickerSelectionEntryDao().insert(new StickerSelectionEntry(
+        StickerSelectionEntry.emptyEntry(FIRST_DATE.plusDays(3)), SELECTION)).blockingAwait();
+    mDb.measurementEntryDao().insert(MeasurementEntry.emptyEntry(FIRST_DATE.plusDays(3))).blockingAwait();
+    mDb.observationEntryDao().insert(ObservationEntry.emptyEntry(FIRST_DATE.plusDays(20))).blockingAwait();
+  }
+
+  @After
+  public void tearDown() {
+    mDb.close();
+  }
+
+  @Test
+  public void testGetStream_joinsTables() {
+    List<ChartEntry> entries = mDao.getStream(FIRST_DATE, FIRST_DATE.plusDays(5)).blockingFirst();
+
+    assertThat(entries).hasSize(6);
+    for (int i = 0; i < entries.size(); i++) {
+      assertThat(entries.get(i).entryDate).isEqualTo(FIRST_DATE.plusDays(i));
+    }
+    assertThat(entries.get(0)).isEqualTo(ChartEntry.emptyEntry(FIRST_DATE));
+    assertThat(entries.get(1).observationEntry.peakDay).isTrue();
+    assertThat(entries.get(1).stickerSelection).isNull();
+    assertThat(entries.get(3).stickerSelection).isEqualTo(SELECTION);
+    assertThat(entries.get(3).measurementEntry.mTimeCreated).isNotNull();
+    assertThat(entries.get(3).observationEntry)
+        .isEqualTo(ObservationEntry.emptyEntry(FIRST_DATE.plusDays(3)));
+  }
+
+  @Test
+  public void testGetStream_updates() throws InterruptedException {
+    TestSubscriber<List<ChartEntry>> entries =
+        mDao.getStream(FIRST_DATE, FIRST_DATE.plusDays(5)).test();
+    entries.awaitCount(1);
+
+    ObservationEntry peakDay = ObservationEntry.emptyEntry(FIRST_DATE.plusDays(4));
+    peakDay.peakDay = true;
+    mDb.observationEntryDao().insert(peakDay).blockingAwait();
+    entries.awaitCount(2);
+
+    assertThat(entries.values().get(1).get(4).observationEntry.peakDay).isTrue();
+  }
+
+  @Test
+  public void testGetStored_onlyStoredDays() {
+    assertThat(dates(mDao.getStored(FIRST_DATE, FIRST_DATE.plusDays(5)).blockingGet()))
+        .containsExactly(FIRST_DATE.plusDays(1), FIRST_DATE.plusDays(3)).inOrder();
+    assertThat(dates(mDao.getStored(null, null).blockingGet()))
+        .containsExactly(FIRST_DATE.plusDays(1), FIRST_DATE.plusDays(3), FIRST_DATE.plusDays(20))
+        .inOrder();
+    assertThat(dates(mDao.getStored(FIRST_DATE.plusDays(2), null).blockingGet()))
+        .containsExactly(FIRST_DATE.plusDays(3), FIRST_DATE.plusDays(20)).inOrder();
+  }
+
+  private static List<LocalDate> dates(List<ChartEntry> entries) {
+    List<LocalDate> out = new ArrayList<>();
+    for (ChartEntry entry : entries) {
+      out.add(entry.entryDate);
+    }
+    return out;
+  }
+}
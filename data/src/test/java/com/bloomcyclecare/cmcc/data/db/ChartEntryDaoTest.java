@@ -0,0 +1,71 @@
+package com.bloomcyclecare.cmcc.data.db;
+
+import com.bloomcyclecare.cmcc.data.db.ChartEntryDao.Row;
+import com.bloomcyclecare.cmcc.data.models.charting.ChartEntry;
+import com.bloomcyclecare.cmcc.data.models.observation.ObservationEntry;
+import com.bloomcyclecare.cmcc.data.models.stickering.StickerSelection;
+import com.bloomcyclecare.cmcc.data.models.stickering.StickerSelectionEntry;
+import com.google.common.collect.ImmutableList;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import java.util.List;
+
+import io.reactivex.Flowable;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class ChartEntryDaoTest {
+
+  private static final LocalDate FIRST_DATE = new LocalDate(2020, 1, 1);
+
+  private static class StubChartEntryDao extends ChartEntryDao {
+
+    private final List<Row> mRows;
+
+    StubChartEntryDao(List<Row> rows) {
+      mRows = rows;
+    }
+
+    @Override
+    Flowable<List<Row>> getRowStream(LocalDate firstDate, LocalDate lastDate) {
+      return Flowable.just(mRows);
+    }
+  }
+
+  @Test
+  public void testGetStream_fillsMissingDays() {
+    ObservationEntry observationEntry = ObservationEntry.emptyEntry(FIRST_DATE.plusDays(1));
+    observationEntry.peakDay = true;
+    Row observationRow = row(FIRST_DATE.plusDays(1));
+    observationRow.observationEntry = observationEntry;
+
+    StickerSelection selection = StickerSelection.empty();
+    Row stickerRow = row(FIRST_DATE.plusDays(3));
+    stickerRow.stickerSelectionEntry = new StickerSelectionEntry(
+        StickerSelectionEntry.emptyEntry(FIRST_DATE.plusDays(3)), selection);
+
+    List<ChartEntry> entries = new StubChartEntryDao(ImmutableList.of(observationRow, stickerRow))
+        .getStream(FIRST_DATE, FIRST_DATE.plusDays(4))
+        .blockingFirst();
+
+    assertThat(entries).hasSize(5);
+    for (int i = 0; i < entries.size(); i++) {
+      assertThat(entries.get(i).entryDate).isEqualTo(FIRST_DATE.plusDays(i));
+      assertThat(entries.get(i).wellnessEntry).isNotNull();
+      assertThat(entries.get(i).breastfeedingEntry).isNotNull();
+    }
+    assertThat(entries.get(0)).isEqualTo(ChartEntry.emptyEntry(FIRST_DATE));
+    assertThat(entries.get(1).observationEntry.peakDay).isTrue();
+    assertThat(entries.get(1).stickerSelection).isNull();
+    assertThat(entries.get(3).stickerSelection).isEqualTo(selection);
+    assertThat(entries.get(3).observationEntry).isEqualTo(ObservationEntry.emptyEntry(FIRST_DATE.plusDays(3)));
+  }
+
+  private static Row row(LocalDate entryDate) {
+    Row row = new Row();
+    row.entryDate = entryDate;
+    return row;
+  }
+}
@@ -0,0 +1,91 @@
+package com.bloomcyclecare.cmcc.data.db;
+
+import com.bloomcyclecare.cmcc.data.models.observation.DischargeSummary;
+import com.bloomcyclecare.cmcc.data.models.observation.DischargeType;
+import com.bloomcyclecare.cmcc.data.models.observation.Flow;
+import com.bloomcyclecare.cmcc.data.models.observation.MucusModifier;
+import com.bloomcyclecare.cmcc.data.models.observation.Observation;
+import com.bloomcyclecare.cmcc.data.models.observation.Occurrences;
+import com.bloomcyclecare.cmcc.data.models.stickering.Sticker;
+import com.bloomcyclecare.cmcc.data.models.stickering.StickerSelection;
+import com.bloomcyclecare.cmcc.data.models.stickering.StickerText;
+import com.bloomcyclecare.cmcc.data.utils.GsonUtil;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class CompactEncodingTest {
+
+  private static final Observation PEAK_TYPE = new Observation(
+      null,
+      new DischargeSummary(DischargeType.STRETCHY, ImmutableSet.of(MucusModifier.K, MucusModifier.CK)),
+      Occurrences.AD,
+      ImmutableMap.of());
+  private static final Observation BLEEDING = new Observation(
+      Flow.L,
+      new DischargeSummary(DischargeType.STICKY, ImmutableSet.of(MucusModifier.C)),
+      Occurrences.X2,
+      ImmutableMap.of(MucusModifier.B, Occurrences.X1));
+  private static final Observation FLOW_ONLY = new Observation(Flow.H, null, null, ImmutableMap.of());
+
+  @Test
+  public void testObservation_roundTrip() {
+    for (Observation observation : List.of(PEAK_TYPE, BLEEDING, FLOW_ONLY)) {
+      String encoded = CompactEncoding.encodeObservation(observation);
+      Observation decoded = CompactEncoding.decodeObservation(encoded);
+
+      assertThat(decoded.toString()).isEqualTo(observation.toString());
+      assertThat(decoded.additionalOccurrences).isEqualTo(observation.additionalOccurrences);
+      assertThat(CompactEncoding.encodeObservation(decoded)).isEqualTo(encoded);
+    }
+  }
+
+  @Test
+  public void testObservation_preservesModifierOrder() {
+    Observation decoded = CompactEncoding.decodeObservation(CompactEncoding.encodeObservation(PEAK_TYPE));
+
+    assertThat(decoded.dischargeSummary.mModifiers)
+        .containsExactly(MucusModifier.K, MucusModifier.CK).inOrder();
+  }
+
+  @Test
+  public void testObservation_legacyJson() {
+    String json = GsonUtil.getGsonInstance().toJson(BLEEDING);
+
+    assertThat(CompactEncoding.decodeObservation(json).toString()).isEqualTo(BLEEDING.toString());
+    assertThat(CompactEncoding.encodeObservation(BLEEDING).length()).isLessThan(json.length() / 10);
+  }
+
+  @Test
+  public void testObservation_null() {
+    assertThat(CompactEncoding.encodeObservation(null)).isNull();
+    assertThat(CompactEncoding.decodeObservation(null)).isNull();
+    assertThat(CompactEncoding.decodeObservation("null")).isNull();
+  }
+
+  @Test
+  public void testStickerSelection_roundTrip() {
+    for (StickerSelection selection : List.of(
+        StickerSelection.empty(),
+        StickerSelection.create(Sticker.YELLOW_BABY, StickerText.P),
+        StickerSelection.create(Sticker.GREEN, StickerText.THREE))) {
+      String encoded = CompactEncoding.encodeStickerSelection(selection);
+
+      assertThat(encoded.length()).isAtMost(3);
+      assertThat(CompactEncoding.decodeStickerSelection(encoded)).isEqualTo(selection);
+    }
+  }
+
+  @Test
+  public void testStickerSelection_legacyJson() {
+    StickerSelection selection = StickerSelection.create(Sticker.RED, null);
+    String json = GsonUtil.getGsonInstance().toJson(selection);
+
+    assertThat(CompactEncoding.decodeStickerSelection(json)).isEqualTo(selection);
+  }
+}
@@ -0,0 +1,187 @@
+package com.bloomcyclecare.cmcc.data.repos.entry;
+
+import android.content.Context;
+
+import com.bloomcyclecare.cmcc.ViewMode;
+import com.bloomcyclecare.cmcc.data.db.AppDatabase;
+import com.bloomcyclecare.cmcc.data.models.charting.ChartEntry;
+import com.bloomcyclecare.cmcc.data.models.observation.Flow;
+import com.bloomcyclecare.cmcc.data.models.observation.Observation;
+import com.bloomcyclecare.cmcc.data.models.stickering.Sticker;
+import com.bloomcyclecare.cmcc.data.models.stickering.StickerSelection;
+import com.bloomcyclecare.cmcc.data.repos.sticker.ROStickerSelectionRepo;
+import com.bloomcyclecare.cmcc.data.repos.sticker.RWStickerSelectionRepo;
+import com.bloomcyclecare.cmcc.data.repos.sticker.StickerSelectionRepoFactory;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Range;
+
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.subscribers.TestSubscriber;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class RoomChartEntryRepoTest {
+
+  private static final LocalDate FIRST_DATE = new LocalDate(2020, 1, 1);
+  private static final int NUM_DAYS = 200;
+
+  private AppDatabase mDb;
+  private RWStickerSelectionRepo mStickerSelectionRepo;
+  private RoomChartEntryRepo mRepo;
+
+  @Before
+  public void setUp() {
+    Context context = ApplicationProvider.getApplicationContext();
+    mDb = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+        .allowMainThreadQueries()
+        .build();
+    mStickerSelectionRepo =
+        new StickerSelectionRepoFactory(mDb, ViewMode.CHARTING).forViewMode(ViewMode.CHARTING);
+    mRepo = new RoomChartEntryRepo(mDb, mStickerSelectionRepo);
+  }
+
+  @After
+  public void tearDown() {
+    mDb.close();
+  }
+
+  @Test
+  public void testInsertAll() {
+    List<ChartEntry> entries = new ArrayList<>();
+    for (int i = 0; i < NUM_DAYS; i++) {
+      ChartEntry entry = ChartEntry.emptyEntry(FIRST_DATE.plusDays(i));
+      entry.observationEntry.peakDay = i % 7 == 0;
+      entry.stickerSelection = i % 3 == 0 ? StickerSelection.create(Sticker.GREEN, null) : null;
+      entries.add(entry);
+    }
+    TestSubscriber<RWChartEntryRepo.UpdateEvent> updates = mRepo.updateEvents().test();
+
+    mRepo.insertAll(entries).blockingAwait();
+
+    updates.assertValueCount(1);
+    List<ChartEntry> stored = mRepo.getAllBetween(FIRST_DATE, FIRST_DATE.plusDays(NUM_DAYS - 1))
+        .blockingFirst();
+    assertThat(stored).hasSize(NUM_DAYS);
+    for (int i = 0; i < NUM_DAYS; i++) {
+      assertThat(stored.get(i).observationEntry.peakDay).isEqualTo(i % 7 == 0);
+      assertThat(stored.get(i).stickerSelection).isEqualTo(entries.get(i).stickerSelection);
+      assertThat(stored.get(i).observationEntry.mTimeCreated).isNotNull();
+    }
+  }
+
+  @Test
+  public void testInsertAll_stickerSelections() {
+    mStickerSelectionRepo.recordSelection(
+        StickerSelection.create(Sticker.RED, null), FIRST_DATE.plusDays(1)).blockingAwait();
+    TestObserver<ROStickerSelectionRepo.UpdateEvent> stickerUpdates =
+        mStickerSelectionRepo.updateStream().test();
+
+    List<ChartEntry> entries = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      ChartEntry entry = ChartEntry.emptyEntry(FIRST_DATE.plusDays(i));
+      entry.stickerSelection = StickerSelection.create(Sticker.GREEN, null);
+      entries.add(entry);
+    }
+    mRepo.insertAll(entries).blockingAwait();
+
+    stickerUpdates.assertValueCount(1);
+    ROStickerSelectionRepo.UpdateEvent event = stickerUpdates.values().get(0);
+    assertThat(event.date()).isEqualTo(FIRST_DATE);
+    assertThat(event.lastDate()).isEqualTo(FIRST_DATE.plusDays(2));
+    assertThat(mStickerSelectionRepo.getSelections().blockingFirst()).hasSize(3);
+    // The existing row is updated rather than replaced
+    assertThat(mDb.stickerSelectionEntryDao().get(FIRST_DATE.plusDays(1)).blockingGet().mTimesUpdated)
+        .isEqualTo(2);
+  }
+
+  @Test
+  public void testInsertAll_nestedInBatch() {
+    TestSubscriber<RWChartEntryRepo.UpdateEvent> updates = mRepo.updateEvents().test();
+    TestSubscriber<Set<LocalDate>> dirtyDays = mRepo.dirtyDays().test();
+
+    assertThat(mRepo.beginBatchUpdates()).isTrue();
+    mRepo.insertAll(List.of(
+        ChartEntry.emptyEntry(FIRST_DATE), ChartEntry.emptyEntry(FIRST_DATE.plusDays(1))))
+        .blockingAwait();
+    mRepo.insert(ChartEntry.emptyEntry(FIRST_DATE.plusDays(5))).blockingAwait();
+    updates.assertNoValues();
+
+    assertThat(mRepo.completeBatchUpdates()).isTrue();
+    updates.assertValueCount(1);
+    RWChartEntryRepo.UpdateEvent event = updates.values().get(0);
+    assertThat(event.dateRanges).containsExactly(
+        Range.closed(FIRST_DATE, FIRST_DATE.plusDays(1)),
+        Range.singleton(FIRST_DATE.plusDays(5))).inOrder();
+    assertThat(event.updateTarget).isEqualTo(FIRST_DATE.plusDays(5));
+    assertThat(event.updatedDates)
+        .containsExactly(FIRST_DATE, FIRST_DATE.plusDays(1), FIRST_DATE.plusDays(5)).inOrder();
+    dirtyDays.assertValue(ImmutableSet.of(FIRST_DATE, FIRST_DATE.plusDays(1), FIRST_DATE.plusDays(5)));
+    assertThat(mRepo.completeBatchUpdates()).isFalse();
+  }
+
+  @Test
+  public void testHasObservation() throws InterruptedException {
+    TestSubscriber<Boolean> hasObservation = mRepo.hasObservation(FIRST_DATE).test();
+    hasObservation.awaitCount(1);
+
+    mRepo.insert(ChartEntry.emptyEntry(FIRST_DATE.plusDays(1))).blockingAwait();
+    ChartEntry entry = ChartEntry.emptyEntry(FIRST_DATE);
+    mRepo.insert(entry).blockingAwait();
+    entry.observationEntry.observation = new Observation(Flow.H, null, null, ImmutableMap.of());
+    mRepo.insert(entry).blockingAwait();
+    hasObservation.awaitCount(2);
+
+    // Only updates for the date are checked and nothing is emitted until the answer changes
+    assertThat(hasObservation.await(100, TimeUnit.MILLISECONDS)).isFalse();
+    hasObservation.assertValues(false, true);
+  }
+
+  @Test
+  public void testGetLatestN_updatedInPlace() {
+    LocalDate today = LocalDate.now();
+    TestSubscriber<List<ChartEntry>> latest = mRepo.getLatestN(3).test();
+    latest.awaitCount(1);
+    assertThat(latest.values().get(0)).containsExactly(
+        ChartEntry.emptyEntry(today.minusDays(2)),
+        ChartEntry.emptyEntry(today.minusDays(1)),
+        ChartEntry.emptyEntry(today)).inOrder();
+
+    mRepo.insert(ChartEntry.emptyEntry(today.minusDays(10))).blockingAwait();
+    ChartEntry entry = ChartEntry.emptyEntry(today.minusDays(1));
+    entry.observationEntry.peakDay = true;
+    mRepo.insert(entry).blockingAwait();
+    latest.awaitCount(2);
+
+    latest.assertValueCount(2);
+    assertThat(latest.values().get(1).get(1).observationEntry.peakDay).isTrue();
+    assertThat(mRepo.getLatestN(3)).isSameInstanceAs(mRepo.getLatestN(3));
+  }
+
+  @Test
+  public void testCompleteBatchUpdates_noChanges() {
+    TestSubscriber<RWChartEntryRepo.UpdateEvent> updates = mRepo.updateEvents().test();
+
+    mRepo.beginBatchUpdates();
+    mRepo.completeBatchUpdates();
+
+    updates.assertNoValues();
+  }
+}
@@ -0,0 +1,147 @@
+package com.bloomcyclecare.cmcc.data.utils;
+
+import com.bloomcyclecare.cmcc.data.db.GenericDao;
+import com.bloomcyclecare.cmcc.data.models.instructions.Instructions;
+import com.bloomcyclecare.cmcc.data.models.instructions.SpecialInstruction;
+import com.google.common.collect.ImmutableList;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.subjects.BehaviorSubject;
+import io.reactivex.subscribers.TestSubscriber;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TempStoreTest {
+
+  private static final LocalDate FIRST_DATE = new LocalDate(2020, 1, 1);
+
+  private static class RecordingDao implements GenericDao<Instructions> {
+
+    final List<List<Instructions>> mUpserts = new ArrayList<>();
+    final List<List<Instructions>> mDeletes = new ArrayList<>();
+
+    @Override
+    public Completable insert(Collection<Instructions> values) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Completable insert(Instructions value) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Completable delete(Instructions value) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Completable delete(Collection<Instructions> values) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Single<List<Instructions>> getAll() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Flowable<List<Instructions>> getStream() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Completable applyChanges(Collection<Instructions> upserts, Collection<Instructions> deletes) {
+      return Completable.fromAction(() -> {
+        mUpserts.add(ImmutableList.copyOf(upserts));
+        mDeletes.add(ImmutableList.copyOf(deletes));
+      });
+    }
+  }
+
+  private final BehaviorSubject<List<Instructions>> mRemoteValues = BehaviorSubject.create();
+  private final RecordingDao mDao = new RecordingDao();
+  private TempStore<Instructions, LocalDate> mStore;
+
+  @Before
+  public void setUp() {
+    mRemoteValues.onNext(ImmutableList.of(instructions(2), instructions(0)));
+    mStore = new TempStore<>(mRemoteValues, i -> i.startDate);
+  }
+
+  @Test
+  public void testGetStream_sortedByKey() {
+    mStore.insert(instructions(1)).blockingAwait();
+
+    assertThat(mStore.getStream().blockingFirst())
+        .containsExactly(instructions(0), instructions(1), instructions(2)).inOrder();
+  }
+
+  @Test
+  public void testGet_onlyEmitsChanges() {
+    TestSubscriber<Instructions> values = mStore.get(FIRST_DATE).test();
+
+    mStore.insert(instructions(1)).blockingAwait();
+    mStore.delete(instructions(0)).blockingAwait();
+
+    values.assertValues(instructions(0));
+  }
+
+  @Test
+  public void testIsDirty_revertedChange() {
+    Instructions updated = instructions(0).addInstructions(
+        SpecialInstruction.BREASTFEEDING_SEMINAL_FLUID_YELLOW_STAMPS);
+    mStore.updateOrInsert(updated).blockingAwait();
+    assertThat(mStore.isDirty().blockingGet()).isTrue();
+
+    mStore.updateOrInsert(instructions(0)).blockingAwait();
+    assertThat(mStore.isDirty().blockingGet()).isFalse();
+  }
+
+  @Test
+  public void testCommit_writesNetChangesInOneBatch() {
+    Instructions updated = instructions(2).addInstructions(
+        SpecialInstruction.BREASTFEEDING_SEMINAL_FLUID_YELLOW_STAMPS);
+    mStore.updateOrInsert(updated).blockingAwait();
+    mStore.insert(instructions(1)).blockingAwait();
+    mStore.delete(instructions(0)).blockingAwait();
+    mStore.insert(instructions(5)).blockingAwait();
+    mStore.delete(instructions(5)).blockingAwait();
+
+    mStore.commit(mDao).blockingAwait();
+
+    assertThat(mDao.mUpserts).hasSize(1);
+    assertThat(mDao.mUpserts.get(0)).containsExactly(updated, instructions(1));
+    assertThat(mDao.mDeletes.get(0)).containsExactly(instructions(0));
+    assertThat(mStore.isDirty().blockingGet()).isFalse();
+
+    mStore.commit(mDao).blockingAwait();
+    assertThat(mDao.mUpserts).hasSize(1);
+  }
+
+  @Test
+  public void testClearPending() {
+    mStore.deleteAll().blockingAwait();
+    assertThat(mStore.getStream().blockingFirst()).isEmpty();
+
+    mStore.clearPending().blockingAwait();
+
+    assertThat(mStore.isDirty().blockingGet()).isFalse();
+    assertThat(mStore.getStream().blockingFirst())
+        .containsExactly(instructions(0), instructions(2)).inOrder();
+  }
+
+  private static Instructions instructions(int dayOffset) {
+    return Instructions.createBasicInstructions(FIRST_DATE.plusDays(dayOffset));
+  }
+}
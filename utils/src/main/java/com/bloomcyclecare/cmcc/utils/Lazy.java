@@ -0,0 +1,75 @@
+package com.bloomcyclecare.cmcc.utils;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Value which is computed on first access and memoized. Equality is based on the inputs the value
+ * is computed from, so it can be used as an AutoValue property without comparing two of them
+ * forcing either to be computed.
+ */
+public final class Lazy<T> implements Supplier<T> {
+
+  private final Object mInputs;
+  private Supplier<T> mSupplier;
+  private volatile boolean mInitialized;
+  private T mValue;
+
+  private Lazy(Object inputs, Supplier<T> supplier) {
+    mInputs = inputs;
+    mSupplier = supplier;
+  }
+
+  /**
+   * The supplier should only capture the inputs, it's dropped once the value is computed.
+   */
+  public static <T> Lazy<T> of(Object inputs, Supplier<T> supplier) {
+    return new Lazy<>(inputs, Objects.requireNonNull(supplier));
+  }
+
+  /**
+   * An already computed value, which is its own input.
+   */
+  public static <T> Lazy<T> value(T value) {
+    Lazy<T> lazy = new Lazy<>(value, null);
+    lazy.mValue = value;
+    lazy.mInitialized = true;
+    return lazy;
+  }
+
+  public boolean isInitialized() {
+    return mInitialized;
+  }
+
+  @Override
+  public T get() {
+    if (!mInitialized) {
+      synchronized (this) {
+        if (!mInitialized) {
+          mValue = mSupplier.get();
+          mInitialized = true;
+          // Let the captured state be collected
+          mSupplier = null;
+        }
+      }
+    }
+    return mValue;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    return Objects.equals(mInputs, ((Lazy<?>) o).mInputs);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(mInputs);
+  }
+
+  @Override
+  public String toString() {
+    return mInitialized ? String.valueOf(mValue) : "<not computed>";
+  }
+}